@@ -62,7 +62,7 @@ CREATE TABLE inventory (
 CREATE TABLE orders (
     order_id SERIAL PRIMARY KEY,
     user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
-    order_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    order_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     total_amount DECIMAL(10, 2) NOT NULL CHECK (total_amount >= 0),
     status VARCHAR(20) DEFAULT 'pending' CHECK (status IN ('pending', 'processing', 'shipped', 'delivered', 'cancelled')),
     shipping_address TEXT NOT NULL,
@@ -98,7 +98,7 @@ CREATE TABLE reviews (
     comment TEXT,
     is_verified_purchase BOOLEAN DEFAULT FALSE,
     helpful_count INTEGER DEFAULT 0,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     UNIQUE(product_id, user_id)
 );
@@ -117,4 +117,63 @@ CREATE TABLE addresses (
     country VARCHAR(100) NOT NULL,
     is_default BOOLEAN DEFAULT FALSE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-);
\ No newline at end of file
+);
+
+-- ============================================
+-- KEYSET PAGINATION INDEXES
+-- (match the ORDER BY of the DAO findPage queries)
+-- ============================================
+-- The page keys must never be NULL: older versions saved orders with an
+-- explicit NULL order_date. Backfill those rows before the constraint.
+UPDATE orders SET order_date = COALESCE(created_at, CURRENT_TIMESTAMP) WHERE order_date IS NULL;
+ALTER TABLE orders ALTER COLUMN order_date SET NOT NULL;
+UPDATE reviews SET created_at = COALESCE(updated_at, CURRENT_TIMESTAMP) WHERE created_at IS NULL;
+ALTER TABLE reviews ALTER COLUMN created_at SET NOT NULL;
+
+CREATE INDEX idx_orders_date_id ON orders (order_date DESC, order_id DESC);
+CREATE INDEX idx_orders_status_date_id ON orders (status, order_date DESC, order_id DESC);
+CREATE INDEX idx_products_name_id ON products (product_name, product_id);
+CREATE INDEX idx_users_type_username_id ON users (user_type, username, user_id);
+CREATE INDEX idx_reviews_created_id ON reviews (created_at DESC, review_id DESC);
+
+-- ============================================
+-- CACHE CHANGE NOTIFICATIONS
+-- (each application instance LISTENs on shopjoy_cache and invalidates only
+-- the changed rows; payload is '<table>:<INSERT|UPDATE|DELETE>:<id>' and is
+-- delivered when the writing transaction commits)
+-- ============================================
+CREATE OR REPLACE FUNCTION notify_cache_change() RETURNS trigger AS $$
+DECLARE
+    row_id INTEGER;
+BEGIN
+    IF TG_TABLE_NAME = 'products' THEN
+        row_id := CASE WHEN TG_OP = 'DELETE' THEN OLD.product_id ELSE NEW.product_id END;
+    ELSE
+        row_id := CASE WHEN TG_OP = 'DELETE' THEN OLD.category_id ELSE NEW.category_id END;
+    END IF;
+    PERFORM pg_notify('shopjoy_cache', TG_TABLE_NAME || ':' || TG_OP || ':' || row_id);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_products_cache_notify
+    AFTER INSERT OR UPDATE OR DELETE ON products
+    FOR EACH ROW EXECUTE FUNCTION notify_cache_change();
+
+CREATE TRIGGER trg_categories_cache_notify
+    AFTER INSERT OR UPDATE OR DELETE ON categories
+    FOR EACH ROW EXECUTE FUNCTION notify_cache_change();
+
+-- ============================================
+-- INCREMENTAL CACHE REFRESH
+-- (CacheRefresher reads products with updated_at past its watermark)
+-- ============================================
+CREATE INDEX idx_products_updated_at ON products (updated_at);
+
+-- ============================================
+-- CATEGORY SUBTREE BROWSING
+-- (ProductDAO.findByCategoryTree walks the hierarchy with a recursive CTE:
+-- each step looks up children by parent, then products by category)
+-- ============================================
+CREATE INDEX idx_categories_parent ON categories (parent_category_id);
+CREATE INDEX idx_products_category_name ON products (category_id, product_name);
@@ -2,6 +2,8 @@ package com.shopjoy;
 
 import com.shopjoy.model.User;
 import com.shopjoy.model.UserType;
+import com.shopjoy.util.CacheManager;
+import com.shopjoy.util.DbConfig;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -22,6 +24,8 @@ public class ShopJoyApp extends Application {
         primaryStage.setTitle("ShopJoy - E-Commerce Management System");
         primaryStage.setMinWidth(900);
         primaryStage.setMinHeight(650);
+        CacheManager.restoreSnapshotInBackground();
+        CacheManager.startChangeListener();
 
         try {
             // Load login scene by default
@@ -50,6 +54,8 @@ public class ShopJoyApp extends Application {
     @Override
     public void stop() throws Exception {
         System.out.println("Application closed");
+        CacheManager.shutdown();
+        DbConfig.shutdown();
         super.stop();
     }
 }
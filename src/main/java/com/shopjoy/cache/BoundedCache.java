@@ -0,0 +1,596 @@
+package com.shopjoy.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * BoundedCache - Size-bounded in-memory cache with per-entry expiry.
+ *
+ * Each entry expires on its own, a fixed time after it was written and/or last
+ * read, so writing one entry never extends or shortens the life of another.
+ *
+ * When the total weight exceeds the maximum, entries are evicted using a
+ * W-TinyLFU style policy:
+ * - new entries enter a small LRU admission window (1% of the capacity);
+ * - an entry pushed out of the window is only admitted to the main region if
+ *   it has been requested more often than the main region's LRU victim, as
+ *   estimated by a FrequencySketch. One-off keys therefore cannot flush out
+ *   popular ones;
+ * - the main region is a segmented LRU: entries read again after admission
+ *   move to a protected segment (80% of the main region).
+ *
+ * Reads do not lock: entries live in a ConcurrentHashMap and hits are
+ * recorded in a lossy ReadBuffer. Writes, and replaying buffered hits into
+ * the policy, happen under a single lock; readers only try to take it when
+ * their buffer fills up and never wait for it.
+ *
+ * Hits, misses and removals are counted in a StatsCounter; see snapshot().
+ * An optional RemovalListener is told about every entry that leaves.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public class BoundedCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int RETIRED = -1;
+    // A cache weighed in bytes holds far fewer entries than its maximum
+    // weight; the frequency sketch is sized for at most this many
+    private static final long MAX_SKETCH_ENTRIES = 1 << 16;
+
+    private final long maximumWeight;
+    private final long maxWindowWeight;
+    private final long maxProtectedWeight;
+    private final Weigher<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final boolean expires;
+    private final FrequencySketch sketch;
+    private final StatsCounter stats = new StatsCounter();
+    private final RemovalListener<K, V> removalListener;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReadBuffer<Node<K, V>> readBuffer = new ReadBuffer<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // Guarded by evictionLock. Insertion order is write order: updated
+    // entries are re-inserted.
+    private final LinkedHashMap<K, Node<K, V>> writeOrder = new LinkedHashMap<>();
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+
+    private long totalWeight;
+    private long windowWeight;
+    private long protectedWeight;
+
+    /**
+     * Creates a cache holding at most maximumSize entries.
+     *
+     * @param maximumSize      Maximum number of entries.
+     * @param expireAfterWrite Time after a write at which an entry expires, or 0 for never.
+     * @param unit             Unit of expireAfterWrite.
+     */
+    public BoundedCache(long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        this(maximumSize, Weigher.singleton(), expireAfterWrite, 0, unit);
+    }
+
+    /**
+     * Creates a cache bounded by total entry weight.
+     *
+     * @param maximumWeight     Maximum sum of entry weights.
+     * @param weigher           Computes each entry's weight.
+     * @param expireAfterWrite  Time after a write at which an entry expires, or 0 for never.
+     * @param expireAfterAccess Time after the last read or write at which an entry
+     *                          expires, or 0 for never.
+     * @param unit              Unit of both expiry times.
+     */
+    public BoundedCache(long maximumWeight, Weigher<? super K, ? super V> weigher,
+                        long expireAfterWrite, long expireAfterAccess, TimeUnit unit) {
+        this(maximumWeight, weigher, expireAfterWrite, expireAfterAccess, unit, null);
+    }
+
+    /**
+     * Creates a cache bounded by total entry weight that reports removals.
+     *
+     * @param removalListener Called for every entry evicted, expired or
+     *                        invalidated; may be null.
+     */
+    public BoundedCache(long maximumWeight, Weigher<? super K, ? super V> weigher,
+                        long expireAfterWrite, long expireAfterAccess, TimeUnit unit,
+                        RemovalListener<K, V> removalListener) {
+        if (maximumWeight <= 0) throw new IllegalArgumentException("maximumWeight must be positive");
+        if (weigher == null) throw new IllegalArgumentException("weigher cannot be null");
+        this.maximumWeight = maximumWeight;
+        this.maxWindowWeight = Math.max(1, maximumWeight / 100);
+        this.maxProtectedWeight = (maximumWeight - maxWindowWeight) * 4 / 5;
+        this.weigher = weigher;
+        this.expireAfterWriteNanos = expireAfterWrite > 0 ? unit.toNanos(expireAfterWrite) : 0;
+        this.expireAfterAccessNanos = expireAfterAccess > 0 ? unit.toNanos(expireAfterAccess) : 0;
+        this.expires = expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0;
+        this.sketch = new FrequencySketch(Math.min(maximumWeight, MAX_SKETCH_ENTRIES));
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * @return The cached value, or null if absent or expired.
+     */
+    public V getIfPresent(K key) {
+        V value = read(key);
+        if (value != null) {
+            stats.recordHit();
+        } else {
+            stats.recordMiss();
+        }
+        return value;
+    }
+
+    /**
+     * Like getIfPresent, but not counted as a hit or miss. For lookups made
+     * on behalf of an entry of another cache, which counts the request itself;
+     * unlike peek, the read still counts as a use of the entry.
+     *
+     * @return The cached value, or null if absent or expired.
+     */
+    public V getQuietly(K key) {
+        return read(key);
+    }
+
+    /**
+     * Like getIfPresent, but neither counted as a hit or miss nor treated as
+     * a use of the entry by the eviction policy. For re-checking the cache
+     * after a lookup that was already counted.
+     *
+     * @return The cached value, or null if absent or expired.
+     */
+    public V peek(K key) {
+        if (key == null) return null;
+        Node<K, V> node = data.get(key);
+        if (node == null || (expires && isExpired(node, System.nanoTime()))) {
+            return null;
+        }
+        return node.value;
+    }
+
+    /**
+     * Adds or replaces an entry. Entries heavier than the maximum weight are
+     * not cached (and any previous value for the key is dropped).
+     *
+     * @return The value previously cached for the key, possibly expired, or null.
+     */
+    public V put(K key, V value) {
+        if (key == null || value == null) throw new IllegalArgumentException("key and value cannot be null");
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) throw new IllegalArgumentException("weight cannot be negative");
+
+        evictionLock.lock();
+        try {
+            long now = System.nanoTime();
+            drainReadBuffer();
+            Node<K, V> node = data.get(key);
+            if (weight > maximumWeight) {
+                if (node != null) {
+                    removeNode(node, RemovalCause.SIZE);
+                }
+                return null;
+            }
+            sketch.increment(key);
+
+            V previous = null;
+            if (node != null) {
+                previous = node.value;
+                addWeight(node, weight - node.weight);
+                node.value = value;
+                node.weight = weight;
+                node.writeTime = now;
+                node.accessTime = now;
+                writeOrder.remove(key);
+                writeOrder.put(key, node);
+                onHit(node);
+            } else {
+                node = new Node<>(key, value, weight, now);
+                data.put(key, node);
+                writeOrder.put(key, node);
+                window.addLast(node);
+                windowWeight += weight;
+                totalWeight += weight;
+            }
+
+            expireEntries(now);
+            evictEntries();
+            return previous;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entry for the key, if any.
+     */
+    public void invalidate(K key) {
+        if (key == null) return;
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                removeNode(node, RemovalCause.EXPLICIT);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries, notifying the removal listener of each. Access
+     * frequencies are kept, so popular keys are readmitted as soon as they
+     * are loaded again.
+     */
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            stats.recordRemovals(RemovalCause.EXPLICIT, writeOrder.size());
+            for (Node<K, V> node : writeOrder.values()) {
+                node.queue = RETIRED;
+                if (removalListener != null) {
+                    removalListener.onRemoval(node.key, node.value, RemovalCause.EXPLICIT);
+                }
+            }
+            data.clear();
+            writeOrder.clear();
+            window.clear();
+            probation.clear();
+            protectedQueue.clear();
+            totalWeight = 0;
+            windowWeight = 0;
+            protectedWeight = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Applies buffered reads and removes expired entries now instead of
+     * waiting for the next write.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            expireEntries(System.nanoTime());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of entries, possibly including expired ones not yet removed.
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * @return The keys currently cached, possibly including expired ones not
+     *         yet removed.
+     */
+    public List<K> keys() {
+        return new ArrayList<>(data.keySet());
+    }
+
+    /**
+     * Finds popular entries about to expire, so they can be reloaded before
+     * readers start missing on them. Popular means the entry sits in the
+     * protected segment, i.e. it was read again after being admitted.
+     *
+     * @param time  How soon the entry must expire (by expireAfterWrite).
+     * @param unit  Unit of time.
+     * @param limit Maximum number of keys to return.
+     * @return Keys, most recently used first; empty if entries never expire
+     *         after write.
+     */
+    public List<K> hotKeysExpiringWithin(long time, TimeUnit unit, int limit) {
+        List<K> keys = new ArrayList<>();
+        if (expireAfterWriteNanos == 0) {
+            return keys;
+        }
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            long now = System.nanoTime();
+            long horizon = unit.toNanos(time);
+            for (Node<K, V> node = protectedQueue.tail; node != null && keys.size() < limit; node = node.prev) {
+                long remaining = expireAfterWriteNanos - (now - node.writeTime);
+                if (remaining > 0 && remaining <= horizon) {
+                    keys.add(node.key);
+                }
+            }
+            return keys;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return Sum of the weights of all entries.
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Counters for this cache. Owners use it to record load times alongside
+     * the hits and misses counted here.
+     */
+    public StatsCounter stats() {
+        return stats;
+    }
+
+    /**
+     * @param region Name reported in the snapshot.
+     * @return Current statistics for this cache.
+     */
+    public CacheStats snapshot(String region) {
+        return stats.snapshot(region, size(), weightedSize(), maximumWeight);
+    }
+
+    // --- Policy (callers hold evictionLock) ---
+
+    private void tryDrain() {
+        // isLocked() is a plain read; only contend for the lock when it looks free
+        if (!evictionLock.isLocked() && evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+                expireEntries(System.nanoTime());
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        readBuffer.drainTo(this::applyRead);
+    }
+
+    private void applyRead(Node<K, V> node) {
+        sketch.increment(node.key);
+        if (node.queue != RETIRED) {
+            onHit(node);
+        }
+    }
+
+    private V read(K key) {
+        if (key == null) return null;
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+
+        if (expires) {
+            long now = System.nanoTime();
+            if (isExpired(node, now)) {
+                // removed by the next write or buffer drain
+                return null;
+            }
+            if (expireAfterAccessNanos > 0) {
+                node.accessTime = now;
+            }
+        }
+        if (readBuffer.offer(node) == ReadBuffer.FULL) {
+            tryDrain();
+        }
+        return node.value;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private void onHit(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                protectedWeight += node.weight;
+                demoteProtected();
+                break;
+            default:
+                protectedQueue.moveToBack(node);
+                break;
+        }
+    }
+
+    private void demoteProtected() {
+        while (protectedWeight > maxProtectedWeight && protectedQueue.head != protectedQueue.tail) {
+            Node<K, V> demoted = protectedQueue.pollFirst();
+            protectedWeight -= demoted.weight;
+            demoted.queue = PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    private void evictEntries() {
+        while (windowWeight > maxWindowWeight) {
+            Node<K, V> candidate = window.pollFirst();
+            windowWeight -= candidate.weight;
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+
+            while (totalWeight > maximumWeight) {
+                Node<K, V> victim = probation.head != candidate ? probation.head : protectedQueue.head;
+                if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                    removeNode(candidate, RemovalCause.SIZE);
+                    break;
+                }
+                removeNode(victim, RemovalCause.SIZE);
+            }
+        }
+
+        // An update can grow an entry in place; trim from the coldest end
+        while (totalWeight > maximumWeight) {
+            Node<K, V> victim = probation.head != null ? probation.head
+                    : protectedQueue.head != null ? protectedQueue.head : window.head;
+            removeNode(victim, RemovalCause.SIZE);
+        }
+    }
+
+    private void expireEntries(long now) {
+        if (expireAfterWriteNanos > 0) {
+            Iterator<Node<K, V>> it = writeOrder.values().iterator();
+            while (it.hasNext()) {
+                Node<K, V> node = it.next();
+                if (now - node.writeTime < expireAfterWriteNanos) break;
+                it.remove();
+                data.remove(node.key, node);
+                unlink(node);
+                stats.recordRemovals(RemovalCause.EXPIRED, 1);
+                if (removalListener != null) {
+                    removalListener.onRemoval(node.key, node.value, RemovalCause.EXPIRED);
+                }
+            }
+        }
+        if (expireAfterAccessNanos > 0) {
+            // Queues are only approximately in access order, so this may stop
+            // early; anything left behind is dropped on a later pass.
+            expireHead(window, now);
+            expireHead(probation, now);
+            expireHead(protectedQueue, now);
+        }
+    }
+
+    private void expireHead(AccessQueue<K, V> queue, long now) {
+        while (queue.head != null && now - queue.head.accessTime >= expireAfterAccessNanos) {
+            removeNode(queue.head, RemovalCause.EXPIRED);
+        }
+    }
+
+    private void addWeight(Node<K, V> node, int delta) {
+        totalWeight += delta;
+        if (node.queue == WINDOW) {
+            windowWeight += delta;
+        } else if (node.queue == PROTECTED) {
+            protectedWeight += delta;
+        }
+    }
+
+    private void removeNode(Node<K, V> node, RemovalCause cause) {
+        data.remove(node.key, node);
+        writeOrder.remove(node.key);
+        unlink(node);
+        stats.recordRemovals(cause, 1);
+        if (removalListener != null) {
+            removalListener.onRemoval(node.key, node.value, cause);
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        addWeight(node, -node.weight);
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            default:
+                protectedQueue.remove(node);
+                break;
+        }
+        node.queue = RETIRED;
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        volatile long writeTime;
+        volatile long accessTime;
+        // guarded by evictionLock
+        int weight;
+        int queue = WINDOW;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * Intrusive doubly-linked LRU list; head is the least recently used.
+     */
+    private static final class AccessQueue<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        Node<K, V> pollFirst() {
+            Node<K, V> first = head;
+            if (first != null) {
+                remove(first);
+            }
+            return first;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+        }
+    }
+}
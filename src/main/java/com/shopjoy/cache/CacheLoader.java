@@ -0,0 +1,18 @@
+package com.shopjoy.cache;
+
+import java.sql.SQLException;
+
+/**
+ * CacheLoader - Loads a value from the database on a cache miss.
+ *
+ * @param <V> Value type.
+ */
+@FunctionalInterface
+public interface CacheLoader<V> {
+
+    /**
+     * @return The loaded value; null means "not found" and is not cached.
+     * @throws SQLException if the load fails.
+     */
+    V load() throws SQLException;
+}
@@ -0,0 +1,246 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.model.Category;
+import com.shopjoy.model.Product;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * CacheSnapshot - The full product list and category list, saved to a local
+ * file so a restarted instance can serve them before querying the database.
+ *
+ * The file is a flat binary record: a header, the products, the categories,
+ * and a CRC32 of everything before it. It is written to a temporary file and
+ * moved into place, and read back through a memory-mapped buffer; a file
+ * that is truncated, corrupt or from another format version is ignored.
+ */
+public final class CacheSnapshot {
+
+    private static final int MAGIC = 0x534A4353; // "SJCS"
+    private static final int VERSION = 1;
+
+    private final long writtenAt;
+    private final List<Product> products;
+    private final List<Category> categories;
+    private final String categoryFingerprint;
+
+    public CacheSnapshot(List<Product> products, List<Category> categories, String categoryFingerprint) {
+        this(System.currentTimeMillis(), products, categories, categoryFingerprint);
+    }
+
+    private CacheSnapshot(long writtenAt, List<Product> products, List<Category> categories,
+            String categoryFingerprint) {
+        this.writtenAt = writtenAt;
+        this.products = products != null ? List.copyOf(products) : List.of();
+        this.categories = categories != null ? List.copyOf(categories) : List.of();
+        this.categoryFingerprint = categoryFingerprint;
+    }
+
+    /**
+     * @return When the snapshot was taken, in epoch milliseconds.
+     */
+    public long getWrittenAt() { return writtenAt; }
+
+    public List<Product> getProducts() { return products; }
+
+    /**
+     * @return The category list, or an empty list if categories were not
+     *         cached when the snapshot was taken.
+     */
+    public List<Category> getCategories() { return categories; }
+
+    /**
+     * @return Digest of the categories table matching getCategories(), or
+     *         null if unknown.
+     */
+    public String getCategoryFingerprint() { return categoryFingerprint; }
+
+    /**
+     * @return The latest updated_at among the products, or null if none has one.
+     */
+    public LocalDateTime getLatestUpdate() {
+        LocalDateTime latest = null;
+        for (Product product : products) {
+            LocalDateTime updatedAt = product.getUpdatedAt();
+            if (updatedAt != null && (latest == null || updatedAt.isAfter(latest))) {
+                latest = updatedAt;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Writes the snapshot, replacing the file only once it is complete.
+     *
+     * @param file Target file; its directory is created if missing.
+     */
+    public void write(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Files.newOutputStream(temp), crc), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(writtenAt);
+                writeString(out, categoryFingerprint);
+
+                out.writeInt(products.size());
+                for (Product p : products) {
+                    out.writeInt(p.getProductId());
+                    writeString(out, p.getProductName());
+                    writeString(out, p.getDescription());
+                    out.writeInt(p.getCategoryId());
+                    out.writeDouble(p.getPrice());
+                    out.writeDouble(p.getCostPrice());
+                    writeString(out, p.getSku());
+                    writeString(out, p.getBrand());
+                    writeString(out, p.getImageUrl());
+                    out.writeBoolean(p.isActive());
+                    writeTime(out, p.getCreatedAt());
+                    writeTime(out, p.getUpdatedAt());
+                }
+
+                out.writeInt(categories.size());
+                for (Category c : categories) {
+                    out.writeInt(c.getCategoryId());
+                    writeString(out, c.getCategoryName());
+                    writeString(out, c.getDescription());
+                    out.writeInt(c.getParentCategoryId() != null ? c.getParentCategoryId() : -1);
+                    writeTime(out, c.getCreatedAt());
+                }
+
+                out.flush();
+                // the checksum itself is not part of what it covers
+                long checksum = crc.getValue();
+                out.writeLong(checksum);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by write().
+     *
+     * @param file The snapshot file.
+     * @return The snapshot, or null if the file is missing or not a valid
+     *         snapshot of this version.
+     */
+    public static CacheSnapshot read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 16 || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            CRC32 crc = new CRC32();
+            crc.update(buf.slice(0, (int) size - 8));
+            if (buf.getLong((int) size - 8) != crc.getValue()) {
+                return null;
+            }
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                return null;
+            }
+            long writtenAt = buf.getLong();
+            String categoryFingerprint = readString(buf);
+
+            int productCount = buf.getInt();
+            List<Product> products = new ArrayList<>(productCount);
+            for (int i = 0; i < productCount; i++) {
+                Product p = new Product();
+                p.setProductId(buf.getInt());
+                p.setProductName(readString(buf));
+                p.setDescription(readString(buf));
+                p.setCategoryId(buf.getInt());
+                p.setPrice(buf.getDouble());
+                p.setCostPrice(buf.getDouble());
+                p.setSku(readString(buf));
+                p.setBrand(readString(buf));
+                p.setImageUrl(readString(buf));
+                p.setActive(buf.get() != 0);
+                p.setCreatedAt(readTime(buf));
+                p.setUpdatedAt(readTime(buf));
+                products.add(p);
+            }
+
+            int categoryCount = buf.getInt();
+            List<Category> categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++) {
+                Category c = new Category();
+                c.setCategoryId(buf.getInt());
+                c.setCategoryName(readString(buf));
+                c.setDescription(readString(buf));
+                int parentId = buf.getInt();
+                c.setParentCategoryId(parentId >= 0 ? parentId : null);
+                c.setCreatedAt(readTime(buf));
+                categories.add(c);
+            }
+            return new CacheSnapshot(writtenAt, products, categories, categoryFingerprint);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Strings are length-prefixed UTF-8; -1 stands for null. writeUTF is not
+    // used because it cannot hold more than 64KB, which a description may.
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(ByteBuffer buf) {
+        if (buf.get() == 0) {
+            return null;
+        }
+        long seconds = buf.getLong();
+        return LocalDateTime.ofEpochSecond(seconds, buf.getInt(), ZoneOffset.UTC);
+    }
+}
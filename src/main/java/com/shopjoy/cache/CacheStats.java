@@ -0,0 +1,88 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.util.LatencyRecorder;
+
+/**
+ * Point-in-time statistics for one cache region, used to tune cache sizes
+ * and expiry times from observed hit ratios.
+ */
+public class CacheStats {
+
+    private final String region;
+    private final long size;
+    private final long weightedSize;
+    private final long maximumWeight;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long loadFailureCount;
+    private final double loadMeanMillis;
+    private final double loadP95Millis;
+    private final double loadMaxMillis;
+    private final long sizeEvictionCount;
+    private final long expiredCount;
+    private final long explicitRemovalCount;
+
+    public CacheStats(String region, long size, long weightedSize, long maximumWeight, long hitCount,
+                      long missCount, LatencyRecorder loads, long loadFailureCount, long sizeEvictionCount,
+                      long expiredCount, long explicitRemovalCount) {
+        this.region = region;
+        this.size = size;
+        this.weightedSize = weightedSize;
+        this.maximumWeight = maximumWeight;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loads.getCount();
+        this.loadFailureCount = loadFailureCount;
+        this.loadMeanMillis = loads.getMeanMillis();
+        this.loadP95Millis = loads.getPercentileMillis(95);
+        this.loadMaxMillis = loads.getMaxNanos() / 1_000_000.0;
+        this.sizeEvictionCount = sizeEvictionCount;
+        this.expiredCount = expiredCount;
+        this.explicitRemovalCount = explicitRemovalCount;
+    }
+
+    public String getRegion() { return region; }
+    public long getSize() { return size; }
+    public long getWeightedSize() { return weightedSize; }
+    /** @return The configured bound, or 0 for regions without one. */
+    public long getMaximumWeight() { return maximumWeight; }
+    public long getHitCount() { return hitCount; }
+    public long getMissCount() { return missCount; }
+    public long getLoadCount() { return loadCount; }
+    public long getLoadFailureCount() { return loadFailureCount; }
+    public double getLoadMeanMillis() { return loadMeanMillis; }
+    public double getLoadP95Millis() { return loadP95Millis; }
+    public double getLoadMaxMillis() { return loadMaxMillis; }
+    public long getSizeEvictionCount() { return sizeEvictionCount; }
+    public long getExpiredCount() { return expiredCount; }
+    public long getExplicitRemovalCount() { return explicitRemovalCount; }
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    public double getHitRatio() {
+        long requests = getRequestCount();
+        return requests == 0 ? 0.0 : hitCount / (double) requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "region=" + region +
+                ", size=" + size +
+                (maximumWeight > 0 ? ", weight=" + weightedSize + "/" + maximumWeight : "") +
+                ", hits=" + hitCount +
+                ", misses=" + missCount +
+                ", hitRatio=" + String.format("%.3f", getHitRatio()) +
+                ", loads=" + loadCount +
+                ", loadFailures=" + loadFailureCount +
+                ", loadMeanMs=" + String.format("%.3f", loadMeanMillis) +
+                ", loadP95Ms=" + String.format("%.3f", loadP95Millis) +
+                ", evictedSize=" + sizeEvictionCount +
+                ", expired=" + expiredCount +
+                ", invalidated=" + explicitRemovalCount +
+                '}';
+    }
+}
@@ -0,0 +1,255 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.model.Product;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * CatalogIndex - Lookup structures over the full catalog, so queries the
+ * database would answer with an index scan are answered from memory instead.
+ *
+ * Listings come back in CompactProduct.BY_NAME order, matching the ORDER BY
+ * product_name of the corresponding ProductDAO queries. Price ranges come
+ * back in price order, as ProductDAO.findByPriceRange returns them.
+ *
+ * Immutable, so it is safe to read from any thread. Every structure is a
+ * SortedProducts list, and with() and without() return a new index that
+ * shares all but the chunks one product touches: a catalog patch costs a
+ * few small copies rather than a rebuild. Result lists are views that build
+ * each Product as it is read.
+ */
+final class CatalogIndex {
+
+    private static final Comparator<CompactProduct> BY_ID = Comparator.comparingInt(p -> p.productId);
+    private static final Comparator<CompactProduct> BY_SKU = Comparator
+            .comparing((CompactProduct p) -> p.sku)
+            .thenComparingInt(p -> p.productId);
+    private static final Comparator<CompactProduct> BY_PRICE = Comparator
+            .comparingDouble((CompactProduct p) -> p.price)
+            .thenComparing(CompactProduct.BY_NAME);
+
+    private final SortedProducts byName;
+    private final SortedProducts byId;
+    // Products that have a SKU
+    private final SortedProducts bySku;
+    private final SortedProducts byPrice;
+    private final SortedProducts active;
+    private final Map<Integer, SortedProducts> byCategory;
+    private final Map<String, SortedProducts> byBrand;
+    // The full list by name, built on first read
+    private volatile CompactProduct[] all;
+
+    CatalogIndex(CompactProduct[] catalog) {
+        CompactProduct[] sorted = catalog.clone();
+        Arrays.sort(sorted, CompactProduct.BY_NAME);
+        byName = SortedProducts.of(sorted, CompactProduct.BY_NAME);
+        all = sorted;
+
+        List<CompactProduct> withSku = new ArrayList<>();
+        List<CompactProduct> activeProducts = new ArrayList<>();
+        Map<Integer, List<CompactProduct>> categories = new HashMap<>();
+        Map<String, List<CompactProduct>> brands = new HashMap<>();
+        // Visiting products by name leaves every grouped list in name order
+        for (CompactProduct p : sorted) {
+            if (p.sku != null) {
+                withSku.add(p);
+            }
+            if (p.active) {
+                activeProducts.add(p);
+            }
+            categories.computeIfAbsent(p.categoryId, id -> new ArrayList<>()).add(p);
+            if (p.brand != null) {
+                brands.computeIfAbsent(p.brand, b -> new ArrayList<>()).add(p);
+            }
+        }
+        byId = sortedBy(Arrays.asList(sorted), BY_ID);
+        bySku = sortedBy(withSku, BY_SKU);
+        byPrice = sortedBy(Arrays.asList(sorted), BY_PRICE);
+        active = SortedProducts.of(activeProducts.toArray(new CompactProduct[0]), CompactProduct.BY_NAME);
+        byCategory = grouped(categories);
+        byBrand = grouped(brands);
+    }
+
+    private CatalogIndex(SortedProducts byName, SortedProducts byId, SortedProducts bySku, SortedProducts byPrice,
+            SortedProducts active, Map<Integer, SortedProducts> byCategory, Map<String, SortedProducts> byBrand) {
+        this.byName = byName;
+        this.byId = byId;
+        this.bySku = bySku;
+        this.byPrice = byPrice;
+        this.active = active;
+        this.byCategory = byCategory;
+        this.byBrand = byBrand;
+    }
+
+    int size() {
+        return byName.size();
+    }
+
+    /**
+     * @return Every product, by name.
+     */
+    CompactProduct[] products() {
+        CompactProduct[] products = all;
+        if (products == null) {
+            // Racing readers may each build it; the copies are equal
+            products = byName.toArray();
+            all = products;
+        }
+        return products;
+    }
+
+    /**
+     * @return The stored product with this id, or null if there is none.
+     */
+    CompactProduct findById(int productId) {
+        return byId.find(p -> Integer.compare(p.productId, productId));
+    }
+
+    /**
+     * @return The product with this SKU, or null if there is none.
+     */
+    Product findBySku(String sku) {
+        CompactProduct product = sku != null ? bySku.find(p -> p.sku.compareTo(sku)) : null;
+        return product != null ? product.toProduct() : null;
+    }
+
+    /**
+     * @return Products in the category, by name.
+     */
+    List<Product> findByCategory(int categoryId) {
+        return listOf(byCategory.get(categoryId));
+    }
+
+    /**
+     * @return Products in any of the categories, by name.
+     */
+    List<Product> findByCategories(int[] categoryIds) {
+        List<CompactProduct> found = new ArrayList<>();
+        for (int categoryId : categoryIds) {
+            SortedProducts products = byCategory.get(categoryId);
+            if (products != null) {
+                found.addAll(Arrays.asList(products.toArray()));
+            }
+        }
+        // Each category's run is already in order, which the sort merges
+        CompactProduct[] merged = found.toArray(new CompactProduct[0]);
+        Arrays.sort(merged, CompactProduct.BY_NAME);
+        return new CompactProductList(merged);
+    }
+
+    /**
+     * @return Products of the brand (exact match), by name.
+     */
+    List<Product> findByBrand(String brand) {
+        return brand != null ? listOf(byBrand.get(brand)) : List.of();
+    }
+
+    /**
+     * @return Products priced from min to max inclusive, by price.
+     */
+    List<Product> findByPriceRange(double min, double max) {
+        int from = byPrice.lowerBound(p -> Double.compare(p.price, min));
+        int to = byPrice.lowerBound(p -> p.price <= max ? -1 : 1);
+        return new CompactProductList(byPrice.slice(from, to));
+    }
+
+    /**
+     * @return Active products, by name.
+     */
+    List<Product> findActive() {
+        return new CompactProductList(active.toArray());
+    }
+
+    /**
+     * @return This index with the product added, or replacing the stored
+     *         product with its id.
+     */
+    CatalogIndex with(CompactProduct product) {
+        CompactProduct old = findById(product.productId);
+        return new CatalogIndex(
+                byName.replacing(old, product),
+                byId.replacing(old, product),
+                patched(bySku, old, product, p -> p.sku != null),
+                byPrice.replacing(old, product),
+                patched(active, old, product, p -> p.active),
+                patched(byCategory, old, product, p -> p.categoryId),
+                patched(byBrand, old, product, p -> p.brand));
+    }
+
+    /**
+     * @return This index without the product with this id, or this index if
+     *         there is none.
+     */
+    CatalogIndex without(int productId) {
+        CompactProduct old = findById(productId);
+        if (old == null) {
+            return this;
+        }
+        return new CatalogIndex(
+                byName.without(old),
+                byId.without(old),
+                patched(bySku, old, null, p -> p.sku != null),
+                byPrice.without(old),
+                patched(active, old, null, p -> p.active),
+                patched(byCategory, old, null, p -> p.categoryId),
+                patched(byBrand, old, null, p -> p.brand));
+    }
+
+    // A list holding only the products that pass the test, with old (either
+    // may be null) replaced by product
+    private static SortedProducts patched(SortedProducts products, CompactProduct old, CompactProduct product,
+            Predicate<CompactProduct> holds) {
+        boolean hadOld = old != null && holds.test(old);
+        boolean hasNew = product != null && holds.test(product);
+        if (hasNew) {
+            return products.replacing(hadOld ? old : null, product);
+        }
+        return hadOld ? products.without(old) : products;
+    }
+
+    // Lists grouped by a key (a null key is not grouped), with old (either
+    // may be null) replaced by product
+    private static <K> Map<K, SortedProducts> patched(Map<K, SortedProducts> groups, CompactProduct old,
+            CompactProduct product, Function<CompactProduct, K> key) {
+        K oldKey = old != null ? key.apply(old) : null;
+        K newKey = product != null ? key.apply(product) : null;
+        Map<K, SortedProducts> patched = new HashMap<>(groups);
+        if (oldKey != null && !oldKey.equals(newKey)) {
+            patched.computeIfPresent(oldKey, (k, products) -> {
+                SortedProducts remaining = products.without(old);
+                return remaining.isEmpty() ? null : remaining;
+            });
+        }
+        if (newKey != null) {
+            CompactProduct replaced = newKey.equals(oldKey) ? old : null;
+            patched.compute(newKey, (k, products) -> (products != null ? products
+                    : SortedProducts.empty(CompactProduct.BY_NAME)).replacing(replaced, product));
+        }
+        return patched;
+    }
+
+    private static List<Product> listOf(SortedProducts products) {
+        return products != null ? new CompactProductList(products.toArray()) : List.of();
+    }
+
+    private static SortedProducts sortedBy(List<CompactProduct> products, Comparator<CompactProduct> order) {
+        CompactProduct[] sorted = products.toArray(new CompactProduct[0]);
+        Arrays.sort(sorted, order);
+        return SortedProducts.of(sorted, order);
+    }
+
+    private static <K> Map<K, SortedProducts> grouped(Map<K, List<CompactProduct>> lists) {
+        Map<K, SortedProducts> grouped = new HashMap<>(lists.size() * 4 / 3 + 1);
+        for (Map.Entry<K, List<CompactProduct>> list : lists.entrySet()) {
+            grouped.put(list.getKey(), SortedProducts.of(list.getValue().toArray(new CompactProduct[0]),
+                    CompactProduct.BY_NAME));
+        }
+        return grouped;
+    }
+}
@@ -1,24 +1,45 @@
 package com.shopjoy.cache;
 
 import com.shopjoy.model.Category;
+import com.shopjoy.util.AppConfig;
+import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * CategoryCache - An in-memory cache to reduce database queries for categories.
  * Categories change less frequently than products, hence a longer expiry time.
- * Implements a synchronized singleton pattern for thread safety.
+ * The full category list is held as one immutable CategoryHierarchy, from
+ * which the top-level, subcategory, path and descendant lists are all
+ * answered; writers replace it wholesale, so those lists cannot disagree.
+ * Categories looked up singly before the full list is loaded are kept in a
+ * concurrent map. Product counts per category, direct and rolled up over
+ * subtrees, are kept next to the tree and adjusted as products change.
+ * Reads never lock.
+ * Hits, misses, loads and removals are counted per region; see getStats().
  */
 public class CategoryCache {
 
-    private Map<Integer, Category> categoryCache = new HashMap<>();
-    private List<Category> topLevelCategories = new ArrayList<>();
-    private Map<Integer, List<Category>> subcategoriesCache = new HashMap<>();
+    private final Map<Integer, Category> categoryCache = new ConcurrentHashMap<>();
+    private volatile CategoryHierarchy hierarchy;
     private volatile long lastCacheUpdate = System.currentTimeMillis();
-    private static final long CACHE_EXPIRY_TIME = 10 * 60 * 1000; // 10 minutes in milliseconds
-    private static CategoryCache instance;
+    private final SingleFlight<String, CategoryHierarchy> treeLoads = new SingleFlight<>();
+    private final StatsCounter categoryStats = new StatsCounter();
+    private final StatsCounter treeStats = new StatsCounter();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile CategoryProductCounts productCounts;
+    private final SingleFlight<String, CategoryProductCounts> countLoads = new SingleFlight<>();
+    private final StatsCounter countStats = new StatsCounter();
+    // Bumped by every count change, so a count query that ran across it is not cached
+    private final AtomicLong countGeneration = new AtomicLong();
+    // IDs recently looked up and not found
+    private final BoundedCache<Integer, Boolean> missingCategories = new BoundedCache<>(
+            AppConfig.NEGATIVE_CACHE_MAX_ENTRIES, AppConfig.NEGATIVE_CACHE_EXPIRY, TimeUnit.MILLISECONDS);
+    private static final CategoryCache INSTANCE = new CategoryCache();
 
     /**
      * Private constructor for singleton pattern.
@@ -32,24 +53,21 @@ public class CategoryCache {
      * 
      * @return The CategoryCache instance.
      */
-    public static synchronized CategoryCache getInstance() {
-        if (instance == null) {
-            instance = new CategoryCache();
-        }
-        return instance;
+    public static CategoryCache getInstance() {
+        return INSTANCE;
     }
 
     /**
-     * Caches a single category.
+     * Caches a single category. While the full category list is cached,
+     * lookups are answered from it instead.
      * 
      * @param category The category to cache.
      */
-    public synchronized void cacheCategory(Category category) {
+    public void cacheCategory(Category category) {
         if (category != null) {
+            missingCategories.invalidate(category.getCategoryId());
             categoryCache.put(category.getCategoryId(), category);
             lastCacheUpdate = System.currentTimeMillis();
-            System.out.println(
-                    "Category cached: " + category.getCategoryName() + " (ID: " + category.getCategoryId() + ")");
         }
     }
 
@@ -59,115 +77,277 @@ public class CategoryCache {
      * @param categoryId The ID of the category.
      * @return The cached Category, or null if not found or expired.
      */
-    public synchronized Category getCategory(int categoryId) {
+    public Category getCategory(int categoryId) {
         if (!isCacheValid()) {
-            invalidateCache();
+            expireAll();
+            categoryStats.recordMiss();
+            return null;
+        }
+        CategoryHierarchy current = hierarchy;
+        Category category = current != null ? current.getCategory(categoryId) : categoryCache.get(categoryId);
+        return record(categoryStats, category);
+    }
+
+    /**
+     * Returns the cached category, or loads and caches it. An id that does
+     * not exist is answered without a query while the full category list is
+     * cached, or for a short time after the loader did not find it.
+     *
+     * @param categoryId The ID of the category.
+     * @param loader     Reads the category from the database.
+     * @return The category, or null if there is none.
+     */
+    public Category loadCategory(int categoryId, CacheLoader<Category> loader) throws SQLException {
+        Category cached = getCategory(categoryId);
+        if (cached != null) {
+            return cached;
+        }
+        if (missingCategories.getIfPresent(categoryId) != null || nonEmpty(hierarchy) != null) {
             return null;
         }
-        return categoryCache.get(categoryId);
+        long startedAt = generation.get();
+        Category loaded = categoryStats.recordLoad(loader);
+        synchronized (this) {
+            if (generation.get() == startedAt) {
+                if (loaded != null) {
+                    cacheCategory(loaded);
+                } else {
+                    missingCategories.put(categoryId, Boolean.TRUE);
+                }
+            }
+        }
+        return loaded;
     }
 
     /**
-     * Caches a list of categories, clearing the existing internal ID map first.
+     * Caches the full list of categories, replacing the category tree in one
+     * step.
      * 
-     * @param categories The list of categories to cache.
+     * @param categories Every category, ordered by name.
      */
     public synchronized void cacheCategoryList(List<Category> categories) {
-        categoryCache.clear();
-        if (categories != null) {
-            for (Category category : categories) {
-                categoryCache.put(category.getCategoryId(), category);
+        install(new CategoryHierarchy(categories));
+    }
+
+    /**
+     * Returns the cached full category list, or loads and caches it. Callers
+     * that miss at the same time share one query instead of each running it.
+     *
+     * @param loader Reads all categories from the database, ordered by name.
+     * @return Read-only list of all categories.
+     */
+    public List<Category> loadAllCategories(CacheLoader<List<Category>> loader) throws SQLException {
+        return loadHierarchy(loader).getAll();
+    }
+
+    /**
+     * Returns the cached category tree, or loads and caches it with one query
+     * for all categories. Concurrent misses share that query.
+     *
+     * @param loader Reads all categories from the database, ordered by name.
+     * @return The category tree.
+     */
+    public CategoryHierarchy loadHierarchy(CacheLoader<List<Category>> loader) throws SQLException {
+        CategoryHierarchy cached = getHierarchy();
+        if (cached != null) {
+            return cached;
+        }
+        return treeLoads.load("all", () -> {
+            CategoryHierarchy current = isCacheValid() ? nonEmpty(hierarchy) : null;
+            if (current != null) {
+                return current;
             }
+            long startedAt = generation.get();
+            List<Category> loaded = treeStats.recordLoad(loader);
+            CategoryHierarchy tree = new CategoryHierarchy(loaded);
+            synchronized (this) {
+                // an invalidation during the query means the result may be stale
+                if (generation.get() == startedAt) {
+                    install(tree);
+                }
+            }
+            return tree;
+        });
+    }
+
+    /**
+     * Returns the cached product counts, or loads them with one aggregate
+     * query over all products and rolls them up over the category tree
+     * (loaded first if needed).
+     *
+     * @param treeLoader  Reads all categories from the database, ordered by name.
+     * @param countLoader Reads the number of products per category id.
+     * @return Direct and subtree product counts for every category.
+     */
+    public CategoryProductCounts loadProductCounts(CacheLoader<List<Category>> treeLoader,
+            CacheLoader<Map<Integer, Integer>> countLoader) throws SQLException {
+        CategoryHierarchy tree = loadHierarchy(treeLoader);
+        CategoryProductCounts cached = productCounts;
+        if (cached != null && isCacheValid()) {
+            countStats.recordHit();
+            return cached;
         }
-        lastCacheUpdate = System.currentTimeMillis();
-        System.out.println("Cached " + categoryCache.size() + " categories in master map.");
+        countStats.recordMiss();
+        return countLoads.load("all", () -> {
+            CategoryProductCounts current = productCounts;
+            if (current != null) {
+                return current;
+            }
+            long startedAt = countGeneration.get();
+            Map<Integer, Integer> loaded = countStats.recordLoad(countLoader);
+            CategoryProductCounts counts = new CategoryProductCounts(tree, loaded != null ? loaded : Map.of());
+            synchronized (this) {
+                if (countGeneration.get() == startedAt && hierarchy == tree) {
+                    productCounts = counts;
+                }
+            }
+            return counts;
+        });
     }
 
     /**
-     * Caches the list of top-level categories.
-     * 
-     * @param categories The list of top-level categories.
+     * Adjusts the cached product counts after products were added to or
+     * removed from a category; the category's ancestors are adjusted too.
+     *
+     * @param categoryId The category.
+     * @param delta      Products added, or negative for products removed.
      */
-    public synchronized void cacheTopLevelCategories(List<Category> categories) {
-        topLevelCategories = categories != null ? new ArrayList<>(categories) : new ArrayList<>();
-        lastCacheUpdate = System.currentTimeMillis();
-        System.out.println("Top-level categories cached.");
+    public synchronized void productCountChanged(int categoryId, int delta) {
+        countGeneration.incrementAndGet();
+        CategoryProductCounts current = productCounts;
+        CategoryHierarchy tree = hierarchy;
+        productCounts = current != null && tree != null ? current.withChange(tree, categoryId, delta) : null;
     }
 
     /**
-     * Retrieves top-level categories from the cache.
-     * 
-     * @return List of top-level categories, or null if expired.
+     * Adjusts the cached product counts after a product was updated.
+     *
+     * @param fromCategoryId The product's previous category, or null if not
+     *                       known, in which case the counts are dropped.
+     * @param toCategoryId   The product's category now.
+     */
+    public synchronized void productCategoryChanged(Integer fromCategoryId, int toCategoryId) {
+        if (fromCategoryId == null) {
+            invalidateProductCounts();
+        } else if (fromCategoryId != toCategoryId) {
+            productCountChanged(fromCategoryId, -1);
+            productCountChanged(toCategoryId, 1);
+        }
+    }
+
+    /**
+     * Drops the cached product counts, for product changes whose effect on
+     * them is not known; the next read runs the aggregate query again.
      */
-    public synchronized List<Category> getTopLevelCategories() {
+    public synchronized void invalidateProductCounts() {
+        countGeneration.incrementAndGet();
+        if (productCounts != null) {
+            countStats.recordRemovals(RemovalCause.EXPLICIT, 1);
+            productCounts = null;
+        }
+    }
+
+    /**
+     * Retrieves the cached category tree.
+     *
+     * @return The category tree, or null if expired or not loaded.
+     */
+    public CategoryHierarchy getHierarchy() {
         if (!isCacheValid()) {
-            invalidateCache();
+            expireAll();
+            treeStats.recordMiss();
             return null;
         }
-        return topLevelCategories.isEmpty() ? null : new ArrayList<>(topLevelCategories);
+        return record(treeStats, nonEmpty(hierarchy));
     }
 
     /**
-     * Caches subcategories for a specific parent.
+     * Retrieves top-level categories from the cache.
      * 
-     * @param parentId      The parent category ID.
-     * @param subcategories The list of subcategories.
+     * @return Read-only list of top-level categories, or null if expired.
      */
-    public synchronized void cacheSubcategories(int parentId, List<Category> subcategories) {
-        subcategoriesCache.put(parentId, subcategories != null ? new ArrayList<>(subcategories) : new ArrayList<>());
-        lastCacheUpdate = System.currentTimeMillis();
-        System.out.println("Subcategories cached for parent ID: " + parentId);
+    public List<Category> getTopLevelCategories() {
+        CategoryHierarchy current = getHierarchy();
+        return current != null ? current.getTopLevel() : null;
     }
 
     /**
      * Retrieves subcategories from the cache.
      * 
      * @param parentId The parent category ID.
-     * @return List of cached subcategories, or null if not found or expired.
+     * @return Read-only list of cached subcategories, or null if expired or
+     *         the category tree is not loaded.
      */
-    public synchronized List<Category> getSubcategories(int parentId) {
-        if (!isCacheValid()) {
-            invalidateCache();
-            return null;
-        }
-        return subcategoriesCache.get(parentId);
+    public List<Category> getSubcategories(int parentId) {
+        CategoryHierarchy current = getHierarchy();
+        return current != null ? current.getChildren(parentId) : null;
     }
 
     /**
      * Invalidates the entire category cache.
      */
     public synchronized void invalidateCache() {
-        categoryCache.clear();
-        topLevelCategories.clear();
-        subcategoriesCache.clear();
-        lastCacheUpdate = System.currentTimeMillis();
+        clearAll(RemovalCause.EXPLICIT);
         System.out.println("All category caches invalidated.");
     }
 
     /**
-     * Invalidates a specific category and dependent structure caches.
+     * Invalidates a specific category and the category tree.
      * 
      * @param categoryId The ID of the category to invalidate.
      */
     public synchronized void invalidateCategory(int categoryId) {
-        categoryCache.remove(categoryId);
-        // Clear structure caches because hierarchy may have changed
-        subcategoriesCache.clear();
-        topLevelCategories.clear();
-        System.out.println("Category " + categoryId + " invalidated. Structural caches cleared.");
+        generation.incrementAndGet();
+        missingCategories.invalidate(categoryId);
+        if (categoryCache.remove(categoryId) != null) {
+            categoryStats.recordRemovals(RemovalCause.EXPLICIT, 1);
+        }
+        // The tree goes as a whole because the hierarchy may have changed
+        if (hierarchy != null) {
+            treeStats.recordRemovals(RemovalCause.EXPLICIT, 1);
+            hierarchy = null;
+        }
+        dropProductCounts(RemovalCause.EXPLICIT);
+        System.out.println("Category " + categoryId + " invalidated. Category tree cleared.");
     }
 
     /**
      * Retrieves all categories from the cache.
      * 
-     * @return List of all cached categories, or null if expired or empty.
+     * @return Read-only list of all categories, or null if expired or the full
+     *         list has not been cached.
      */
-    public synchronized List<Category> getAllCachedCategories() {
-        if (!isCacheValid()) {
-            invalidateCache();
-            return null;
-        }
-        return categoryCache.isEmpty() ? null : new ArrayList<>(categoryCache.values());
+    public List<Category> getAllCachedCategories() {
+        CategoryHierarchy current = getHierarchy();
+        return current != null ? current.getAll() : null;
+    }
+
+    /**
+     * Returns the cached full category list without counting a hit or miss.
+     *
+     * @return Read-only list of all categories, or null if expired or not cached.
+     */
+    public List<Category> peekAllCategories() {
+        CategoryHierarchy current = isCacheValid() ? nonEmpty(hierarchy) : null;
+        return current != null ? current.getAll() : null;
+    }
+
+    /**
+     * Takes a statistics snapshot of every category cache region.
+     *
+     * @return One entry each for single categories, the category tree (every
+     *         list lookup), product counts, and missing ids.
+     */
+    public List<CacheStats> getStats() {
+        List<CacheStats> stats = new ArrayList<>();
+        CategoryHierarchy current = hierarchy;
+        int treeSize = current != null ? current.size() : 0;
+        stats.add(categoryStats.snapshot("category.categories", categoryCache.size(), categoryCache.size(), 0));
+        stats.add(treeStats.snapshot("category.tree", treeSize, treeSize, 0));
+        int counted = productCounts != null ? 1 : 0;
+        stats.add(countStats.snapshot("category.productCounts", counted, counted, 0));
+        stats.add(missingCategories.snapshot("category.missing"));
+        return stats;
     }
 
     /**
@@ -177,7 +357,16 @@ public class CategoryCache {
      */
     public boolean isCacheValid() {
         long currentTime = System.currentTimeMillis();
-        return (currentTime - lastCacheUpdate) < CACHE_EXPIRY_TIME;
+        return (currentTime - lastCacheUpdate) < AppConfig.CATEGORY_CACHE_EXPIRY;
+    }
+
+    /**
+     * @param withinMillis How soon the cache expires.
+     * @return true if the cache is still valid but expires within the given time.
+     */
+    public boolean expiresWithin(long withinMillis) {
+        long age = System.currentTimeMillis() - lastCacheUpdate;
+        return age < AppConfig.CATEGORY_CACHE_EXPIRY && age >= AppConfig.CATEGORY_CACHE_EXPIRY - withinMillis;
     }
 
     /**
@@ -186,20 +375,79 @@ public class CategoryCache {
      * @return Total number of cached categories.
      */
     public int getCacheSize() {
-        return categoryCache.size();
+        CategoryHierarchy current = hierarchy;
+        return current != null ? current.size() : categoryCache.size();
     }
 
     /**
      * Prints current category cache statistics to the console.
      */
-    public synchronized void printCacheStats() {
+    public void printCacheStats() {
+        CategoryHierarchy current = hierarchy;
         long ageSeconds = (System.currentTimeMillis() - lastCacheUpdate) / 1000;
         System.out.println("=== Category Cache Statistics ===");
-        System.out.println("Total categories cached: " + categoryCache.size());
-        System.out.println("Top-level categories cached: " + topLevelCategories.size());
-        System.out.println("Subcategory parent caches: " + subcategoriesCache.size());
+        System.out.println("Total categories cached: " + getCacheSize());
+        System.out.println("Top-level categories cached: " + (current != null ? current.getTopLevel().size() : 0));
+        System.out.println("Category tree loaded: " + (current != null ? "YES" : "NO"));
         System.out.println("Cache age: " + ageSeconds + " seconds");
         System.out.println("Cache validity status: " + (isCacheValid() ? "VALID" : "EXPIRED"));
+        for (CacheStats stats : getStats()) {
+            System.out.println(stats);
+        }
         System.out.println("=================================");
     }
+
+    private synchronized void install(CategoryHierarchy loaded) {
+        // Loads already running may have read the categories before this list
+        generation.incrementAndGet();
+        hierarchy = loaded;
+        // Direct counts do not depend on the tree; only the roll-up is redone
+        CategoryProductCounts counts = productCounts;
+        if (counts != null) {
+            productCounts = new CategoryProductCounts(loaded, counts.directCounts());
+        }
+        // Single lookups go to the tree from now on
+        categoryCache.clear();
+        lastCacheUpdate = System.currentTimeMillis();
+        System.out.println("Cached " + loaded.size() + " categories in category tree.");
+    }
+
+    private synchronized void expireAll() {
+        // Another reader may have expired the cache already
+        if (!isCacheValid()) {
+            clearAll(RemovalCause.EXPIRED);
+        }
+    }
+
+    private synchronized void clearAll(RemovalCause cause) {
+        generation.incrementAndGet();
+        categoryStats.recordRemovals(cause, categoryCache.size());
+        treeStats.recordRemovals(cause, hierarchy != null ? 1 : 0);
+        hierarchy = null;
+        dropProductCounts(cause);
+        categoryCache.clear();
+        missingCategories.invalidateAll();
+        lastCacheUpdate = System.currentTimeMillis();
+    }
+
+    private void dropProductCounts(RemovalCause cause) {
+        countGeneration.incrementAndGet();
+        if (productCounts != null) {
+            countStats.recordRemovals(cause, 1);
+            productCounts = null;
+        }
+    }
+
+    private static CategoryHierarchy nonEmpty(CategoryHierarchy tree) {
+        return tree == null || tree.size() == 0 ? null : tree;
+    }
+
+    private static <T> T record(StatsCounter stats, T value) {
+        if (value != null) {
+            stats.recordHit();
+        } else {
+            stats.recordMiss();
+        }
+        return value;
+    }
 }
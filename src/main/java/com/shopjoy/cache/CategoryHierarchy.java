@@ -0,0 +1,208 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.model.Category;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CategoryHierarchy - The whole category tree, built once from the full
+ * category list and never modified. CategoryCache replaces it as a whole
+ * when categories change, so readers always see one consistent tree.
+ *
+ * Categories are referred to by their position in the list, which is ordered
+ * by name. Parent positions and child lists are precomputed, and the tree is
+ * also laid out in depth-first order so that every subtree is one contiguous
+ * range: children and top-level lists are returned as they are, descendants
+ * as a view of that range, and an ancestor path walks the parent positions.
+ *
+ * A category whose parent is not in the list is treated as top-level.
+ * Categories caught in a parent cycle are not reachable from any top-level
+ * category and so have no descendants.
+ */
+public final class CategoryHierarchy {
+
+    private static final int NONE = -1;
+
+    private final List<Category> categories;
+    // ids[i] is the id of categories[idOrder[i]], ascending
+    private final int[] ids;
+    private final int[] idOrder;
+    private final int[] parent;
+    private final List<Category> topLevel;
+    private final List<List<Category>> children;
+    // The tree in depth-first order; the subtree of position p is
+    // preorder[preorderIndex[p]] up to, not including, preorder[subtreeEnd[p]]
+    private final List<Category> preorder;
+    private final int[] preorderIndex;
+    private final int[] subtreeEnd;
+
+    /**
+     * @param categories Every category, ordered by name.
+     */
+    public CategoryHierarchy(List<Category> categories) {
+        this.categories = categories != null ? List.copyOf(categories) : List.of();
+        int n = this.categories.size();
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(idAt(a), idAt(b)));
+        ids = new int[n];
+        idOrder = new int[n];
+        for (int i = 0; i < n; i++) {
+            idOrder[i] = order[i];
+            ids[i] = idAt(order[i]);
+        }
+
+        parent = new int[n];
+        int[] childCount = new int[n];
+        int rootCount = 0;
+        for (int i = 0; i < n; i++) {
+            Integer parentId = this.categories.get(i).getParentCategoryId();
+            parent[i] = parentId != null ? indexOf(parentId) : NONE;
+            if (parent[i] == i) {
+                parent[i] = NONE;
+            }
+            if (parent[i] == NONE) {
+                rootCount++;
+            } else {
+                childCount[parent[i]]++;
+            }
+        }
+
+        // Children are collected in list order, so each child list is by name
+        Category[][] childArrays = new Category[n][];
+        int[][] childPositions = new int[n][];
+        for (int i = 0; i < n; i++) {
+            childArrays[i] = new Category[childCount[i]];
+            childPositions[i] = new int[childCount[i]];
+        }
+        int[] filled = new int[n];
+        int[] roots = new int[rootCount];
+        Category[] rootCategories = new Category[rootCount];
+        int nextRoot = 0;
+        for (int i = 0; i < n; i++) {
+            if (parent[i] == NONE) {
+                roots[nextRoot] = i;
+                rootCategories[nextRoot++] = this.categories.get(i);
+            } else {
+                int p = parent[i];
+                childPositions[p][filled[p]] = i;
+                childArrays[p][filled[p]++] = this.categories.get(i);
+            }
+        }
+        topLevel = List.of(rootCategories);
+        List<List<Category>> childLists = new ArrayList<>(n);
+        for (Category[] childArray : childArrays) {
+            childLists.add(List.of(childArray));
+        }
+        children = Collections.unmodifiableList(childLists);
+
+        // Iterative depth-first walk; the stack holds positions still to visit
+        preorderIndex = new int[n];
+        subtreeEnd = new int[n];
+        Arrays.fill(preorderIndex, NONE);
+        List<Category> walk = new ArrayList<>(n);
+        int[] stack = new int[n];
+        int[] nextChild = new int[n];
+        for (int root : roots) {
+            int depth = 0;
+            stack[depth++] = root;
+            preorderIndex[root] = walk.size();
+            walk.add(this.categories.get(root));
+            while (depth > 0) {
+                int top = stack[depth - 1];
+                if (nextChild[top] < childPositions[top].length) {
+                    int child = childPositions[top][nextChild[top]++];
+                    preorderIndex[child] = walk.size();
+                    walk.add(this.categories.get(child));
+                    stack[depth++] = child;
+                } else {
+                    subtreeEnd[top] = walk.size();
+                    depth--;
+                }
+            }
+        }
+        preorder = List.copyOf(walk);
+    }
+
+    /**
+     * @return Every category, by name.
+     */
+    public List<Category> getAll() {
+        return categories;
+    }
+
+    /**
+     * @return Number of categories.
+     */
+    public int size() {
+        return categories.size();
+    }
+
+    /**
+     * @return The category with this id, or null if there is none.
+     */
+    public Category getCategory(int categoryId) {
+        int i = indexOf(categoryId);
+        return i != NONE ? categories.get(i) : null;
+    }
+
+    /**
+     * @return Categories without a parent, by name.
+     */
+    public List<Category> getTopLevel() {
+        return topLevel;
+    }
+
+    /**
+     * @return Direct subcategories of the category by name, or an empty list
+     *         if it has none or does not exist.
+     */
+    public List<Category> getChildren(int categoryId) {
+        int i = indexOf(categoryId);
+        return i != NONE ? children.get(i) : List.of();
+    }
+
+    /**
+     * @return Every category below this one, depth-first with siblings by
+     *         name, or an empty list if it has none or does not exist.
+     */
+    public List<Category> getDescendants(int categoryId) {
+        int i = indexOf(categoryId);
+        if (i == NONE || preorderIndex[i] == NONE) {
+            return List.of();
+        }
+        return preorder.subList(preorderIndex[i] + 1, subtreeEnd[i]);
+    }
+
+    /**
+     * @return The path from the top-level category down to and including
+     *         this one, or an empty list if it does not exist.
+     */
+    public List<Category> getPath(int categoryId) {
+        int i = indexOf(categoryId);
+        if (i == NONE) {
+            return List.of();
+        }
+        List<Category> path = new ArrayList<>();
+        // Bounded by the number of categories in case of a parent cycle
+        for (int p = i; p != NONE && path.size() < parent.length; p = parent[p]) {
+            path.add(categories.get(p));
+        }
+        Collections.reverse(path);
+        return Collections.unmodifiableList(path);
+    }
+
+    private int idAt(int position) {
+        return categories.get(position).getCategoryId();
+    }
+
+    private int indexOf(int categoryId) {
+        int i = Arrays.binarySearch(ids, categoryId);
+        return i >= 0 ? idOrder[i] : NONE;
+    }
+}
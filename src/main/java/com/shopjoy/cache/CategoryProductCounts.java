@@ -0,0 +1,80 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.model.Category;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CategoryProductCounts - Product counts for every category, both direct
+ * (products whose category_id is the category) and rolled up over the
+ * category's whole subtree. Built from one GROUP BY over products and a
+ * CategoryHierarchy; immutable, so a change produces a new instance.
+ */
+public final class CategoryProductCounts {
+
+    private final Map<Integer, Integer> direct;
+    private final Map<Integer, Integer> subtree;
+
+    /**
+     * @param hierarchy    The category tree the counts roll up over.
+     * @param directCounts Number of products per category id; categories
+     *                     without products may be left out.
+     */
+    CategoryProductCounts(CategoryHierarchy hierarchy, Map<Integer, Integer> directCounts) {
+        direct = Map.copyOf(directCounts);
+        Map<Integer, Integer> rolledUp = new HashMap<>();
+        // Each category adds its own products to itself and every ancestor
+        for (Map.Entry<Integer, Integer> count : direct.entrySet()) {
+            addToPath(rolledUp, hierarchy, count.getKey(), count.getValue());
+        }
+        subtree = rolledUp;
+    }
+
+    private CategoryProductCounts(Map<Integer, Integer> direct, Map<Integer, Integer> subtree) {
+        this.direct = direct;
+        this.subtree = subtree;
+    }
+
+    /**
+     * @return Number of products whose category is this one.
+     */
+    public int getDirectCount(int categoryId) {
+        return direct.getOrDefault(categoryId, 0);
+    }
+
+    /**
+     * @return Number of products in this category or any category below it.
+     */
+    public int getSubtreeCount(int categoryId) {
+        return subtree.getOrDefault(categoryId, 0);
+    }
+
+    Map<Integer, Integer> directCounts() {
+        return direct;
+    }
+
+    /**
+     * @return Counts with delta products added to the category (negative to
+     *         remove), touching only the category and its ancestors.
+     */
+    CategoryProductCounts withChange(CategoryHierarchy hierarchy, int categoryId, int delta) {
+        Map<Integer, Integer> newDirect = new HashMap<>(direct);
+        newDirect.merge(categoryId, delta, Integer::sum);
+        Map<Integer, Integer> newSubtree = new HashMap<>(subtree);
+        addToPath(newSubtree, hierarchy, categoryId, delta);
+        return new CategoryProductCounts(newDirect, newSubtree);
+    }
+
+    private static void addToPath(Map<Integer, Integer> counts, CategoryHierarchy hierarchy, int categoryId, int n) {
+        List<Category> path = hierarchy.getPath(categoryId);
+        if (path.isEmpty()) {
+            // Not in the tree (yet); it still counts for itself
+            counts.merge(categoryId, n, Integer::sum);
+            return;
+        }
+        for (Category category : path) {
+            counts.merge(category.getCategoryId(), n, Integer::sum);
+        }
+    }
+}
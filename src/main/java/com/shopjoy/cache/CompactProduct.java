@@ -0,0 +1,186 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.model.Product;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * CompactProduct - How ProductCache stores a product: immutable, with the
+ * bulky text fields kept as UTF-8 bytes (descriptions deflated when that
+ * saves space), brands shared between products, and timestamps as
+ * primitives. A fresh Product is built for every read, so callers may
+ * modify what they get without affecting the cache.
+ *
+ * The name and SKU stay Strings: listings are sorted and matched by name,
+ * and SKUs are looked up.
+ */
+final class CompactProduct {
+
+    /**
+     * Name order, ignoring case, then id: how ProductDAO's ORDER BY
+     * product_name sorts ordinary names, made total so indexes can
+     * binary-search it.
+     */
+    static final Comparator<CompactProduct> BY_NAME = Comparator
+            .comparing((CompactProduct p) -> p.productName != null ? p.productName : "", String.CASE_INSENSITIVE_ORDER)
+            .thenComparingInt(p -> p.productId);
+
+    // Descriptions shorter than this rarely deflate to less
+    private static final int COMPRESS_MIN_BYTES = 256;
+    private static final int MAX_POOLED_BRANDS = 10_000;
+    private static final Map<String, String> BRANDS = new ConcurrentHashMap<>();
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    final int productId;
+    final String productName;
+    final int categoryId;
+    final double price;
+    final String sku;
+    final String brand;
+    final boolean active;
+    private final double costPrice;
+    private final byte[] description;
+    private final boolean descriptionDeflated;
+    private final byte[] imageUrl;
+    private final long createdSeconds;
+    private final int createdNanos;
+    private final long updatedSeconds;
+    private final int updatedNanos;
+
+    private CompactProduct(Product p) {
+        productId = p.getProductId();
+        productName = p.getProductName();
+        categoryId = p.getCategoryId();
+        price = p.getPrice();
+        costPrice = p.getCostPrice();
+        sku = p.getSku();
+        brand = pooledBrand(p.getBrand());
+        active = p.isActive();
+        imageUrl = utf8(p.getImageUrl());
+
+        byte[] text = utf8(p.getDescription());
+        byte[] deflated = text != null && text.length >= COMPRESS_MIN_BYTES ? deflate(text) : null;
+        descriptionDeflated = deflated != null && deflated.length < text.length;
+        description = descriptionDeflated ? deflated : text;
+
+        LocalDateTime created = p.getCreatedAt();
+        createdSeconds = created != null ? created.toEpochSecond(ZoneOffset.UTC) : NO_TIME;
+        createdNanos = created != null ? created.getNano() : 0;
+        LocalDateTime updated = p.getUpdatedAt();
+        updatedSeconds = updated != null ? updated.toEpochSecond(ZoneOffset.UTC) : NO_TIME;
+        updatedNanos = updated != null ? updated.getNano() : 0;
+    }
+
+    static CompactProduct of(Product product) {
+        return new CompactProduct(product);
+    }
+
+    Product toProduct() {
+        Product p = new Product();
+        p.setProductId(productId);
+        if (productName != null) {
+            p.setProductName(productName);
+        }
+        p.setDescription(description());
+        p.setCategoryId(categoryId);
+        p.setPrice(price);
+        p.setCostPrice(costPrice);
+        p.setSku(sku);
+        p.setBrand(brand);
+        p.setImageUrl(string(imageUrl));
+        p.setActive(active);
+        p.setCreatedAt(createdSeconds != NO_TIME ? LocalDateTime.ofEpochSecond(createdSeconds, createdNanos, ZoneOffset.UTC) : null);
+        p.setUpdatedAt(updatedSeconds != NO_TIME ? LocalDateTime.ofEpochSecond(updatedSeconds, updatedNanos, ZoneOffset.UTC) : null);
+        return p;
+    }
+
+    String description() {
+        return descriptionDeflated ? inflate(description) : string(description);
+    }
+
+    /**
+     * Rough heap footprint, for weighing cache entries. The shared brand
+     * string is not counted.
+     */
+    int estimatedBytes() {
+        return 88 + stringBytes(productName) + stringBytes(sku) + arrayBytes(description) + arrayBytes(imageUrl);
+    }
+
+    static int stringBytes(String s) {
+        // object and backing array headers, one byte per char for Latin-1 text
+        return s != null ? 40 + s.length() : 0;
+    }
+
+    private static int arrayBytes(byte[] bytes) {
+        return bytes != null ? 16 + bytes.length : 0;
+    }
+
+    private static String pooledBrand(String brand) {
+        if (brand == null) {
+            return null;
+        }
+        String pooled = BRANDS.get(brand);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (BRANDS.size() >= MAX_POOLED_BRANDS) {
+            return brand;
+        }
+        pooled = BRANDS.putIfAbsent(brand, brand);
+        return pooled != null ? pooled : brand;
+    }
+
+    private static byte[] utf8(String s) {
+        return s != null ? s.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static String string(byte[] bytes) {
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            // Only ever inflates what deflate() produced
+            throw new IllegalStateException("Corrupt cached description", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
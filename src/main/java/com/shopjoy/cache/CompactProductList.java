@@ -0,0 +1,44 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.model.Product;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * CompactProductList - Read-only List view of stored products. Each element
+ * is built into a Product the first time it is read and kept from then on,
+ * so a large listing costs nothing until it is read, and iterating it again
+ * (as table cells do) does not rebuild the products or inflate their
+ * descriptions again. Every listing read from the cache is a new list, so
+ * its products are the caller's own.
+ */
+final class CompactProductList extends AbstractList<Product> implements RandomAccess {
+
+    private final CompactProduct[] products;
+    private final AtomicReferenceArray<Product> built;
+
+    CompactProductList(CompactProduct[] products) {
+        this.products = products;
+        this.built = new AtomicReferenceArray<>(products.length);
+    }
+
+    @Override
+    public Product get(int index) {
+        Product product = built.get(index);
+        if (product == null) {
+            // Racing readers may each build one; the first stored is kept
+            Product fresh = products[index].toProduct();
+            product = built.compareAndExchange(index, null, fresh);
+            if (product == null) {
+                product = fresh;
+            }
+        }
+        return product;
+    }
+
+    @Override
+    public int size() {
+        return products.length;
+    }
+}
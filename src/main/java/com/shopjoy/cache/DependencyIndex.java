@@ -0,0 +1,75 @@
+package com.shopjoy.cache;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DependencyIndex - Records which cached product lists contain which product
+ * IDs, so a change to one product can find exactly the entries it affects.
+ *
+ * May briefly list a key that has already left the cache; acting on such a
+ * key is harmless because invalidating a missing entry does nothing.
+ *
+ * @param <K> Key type of the cached lists.
+ */
+final class DependencyIndex<K> {
+
+    private final ConcurrentHashMap<Integer, Set<K>> keysByProduct = new ConcurrentHashMap<>();
+    private final Set<K> keys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Records that the list cached under key contains the given products.
+     */
+    void add(K key, int[] productIds) {
+        keys.add(key);
+        for (int productId : productIds) {
+            keysByProduct.compute(productId, (id, dependents) -> {
+                Set<K> set = dependents != null ? dependents : ConcurrentHashMap.newKeySet();
+                set.add(key);
+                return set;
+            });
+        }
+    }
+
+    /**
+     * Forgets the list cached under key, which contained the given products.
+     */
+    void remove(K key, int[] productIds) {
+        keys.remove(key);
+        for (int productId : productIds) {
+            keysByProduct.computeIfPresent(productId, (id, dependents) -> {
+                dependents.remove(key);
+                return dependents.isEmpty() ? null : dependents;
+            });
+        }
+    }
+
+    /**
+     * Forgets every list's dependency on the product, e.g. after it was
+     * deleted and removed from those lists.
+     */
+    void removeProduct(int productId) {
+        keysByProduct.remove(productId);
+    }
+
+    /**
+     * @return Keys of the cached lists containing the product.
+     */
+    List<K> keysFor(int productId) {
+        Set<K> dependents = keysByProduct.get(productId);
+        return dependents != null ? List.copyOf(dependents) : List.of();
+    }
+
+    /**
+     * @return Keys of all indexed lists.
+     */
+    List<K> keys() {
+        return List.copyOf(keys);
+    }
+
+    void clear() {
+        keys.clear();
+        keysByProduct.clear();
+    }
+}
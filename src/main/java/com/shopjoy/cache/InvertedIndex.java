@@ -0,0 +1,398 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.model.Product;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * InvertedIndex - Full-text lookup over the words of every product's name,
+ * brand, SKU and description, so searches are answered without a query.
+ *
+ * Text is split into words at every character that is not a letter or
+ * digit, lower-cased in the root locale whatever the default. Each word maps
+ * to the sorted IDs of the products that contain it. A search splits its
+ * text the same way and returns the products having, for every search word,
+ * some word that starts with it. The most selective search word gives the
+ * candidates; each further word keeps those found in its posting lists, by
+ * binary search while the candidates are few and through a bit set
+ * otherwise. Every product carries a rank that follows
+ * name order, with gaps left for products added later, so results are sorted
+ * on ranks rather than on names.
+ *
+ * Built from the full catalog and then kept current one product at a time.
+ * Writers must be serialized (ProductCache does so under its write lock);
+ * readers never lock. A posting list is never changed once published, only
+ * replaced, so a search running during an update sees each word either
+ * before or after it.
+ */
+final class InvertedIndex {
+
+    private static final int[] NONE = new int[0];
+    private static final Comparator<Ranked> BY_RANK = Comparator.comparingLong(r -> r.rank);
+    // Rough heap cost of a posting list's map entry, besides its word and IDs
+    private static final int POSTING_BYTES = 64;
+    // Rough heap cost of ranking one product: the Ranked, its map entry and
+    // its slot in byName. The products themselves belong to the catalog.
+    private static final int RANKED_BYTES = 76;
+
+    private final ConcurrentSkipListMap<String, int[]> postings;
+    // Each product with its rank; replaced whole when the ranks are renumbered
+    private volatile Map<Integer, Ranked> ranked;
+    // Products by name, to find a new or renamed product's neighbours; only
+    // writers touch it
+    private SortedProducts byName;
+    // The gap left between ranks when they were last numbered
+    private long spacing;
+    private volatile long estimatedBytes;
+
+    InvertedIndex(CompactProduct[] catalog) {
+        CompactProduct[] sorted = catalog.clone();
+        Arrays.sort(sorted, CompactProduct.BY_NAME);
+        byName = SortedProducts.of(sorted, CompactProduct.BY_NAME);
+        ranked = numbered(sorted);
+
+        CompactProduct[] byId = catalog.clone();
+        Arrays.sort(byId, Comparator.comparingInt(p -> p.productId));
+        // Visiting products in id order leaves every posting list sorted
+        Map<String, IntList> lists = new HashMap<>();
+        for (CompactProduct product : byId) {
+            for (String word : words(product)) {
+                lists.computeIfAbsent(word, w -> new IntList()).add(product.productId);
+            }
+        }
+        postings = new ConcurrentSkipListMap<>();
+        long bytes = (long) RANKED_BYTES * sorted.length;
+        for (Map.Entry<String, IntList> list : lists.entrySet()) {
+            int[] ids = list.getValue().toArray();
+            postings.put(list.getKey(), ids);
+            bytes += postingBytes(list.getKey()) + 4L * ids.length;
+        }
+        estimatedBytes = bytes;
+    }
+
+    /**
+     * @return Rough heap footprint of the index, not counting the products.
+     */
+    long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    int size() {
+        return ranked.size();
+    }
+
+    /**
+     * @return Products matching every word of the text, by name, or null if
+     *         the text has no words to search for.
+     */
+    List<Product> search(String text) {
+        List<String> terms = splitWords(text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        Map<Integer, Ranked> products = ranked;
+        // The posting lists of every word starting with each term; the map
+        // is sorted, so those words are adjacent
+        List<int[][]> matches = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            int[][] lists = postings.subMap(term, true, term + Character.MAX_VALUE, true)
+                    .values().toArray(new int[0][]);
+            if (lists.length == 0) {
+                return List.of();
+            }
+            matches.add(lists);
+        }
+        // Most selective term first, so the candidates only shrink from there
+        matches.sort(Comparator.comparingLong(InvertedIndex::totalLength));
+
+        int[] candidates = union(matches.get(0));
+        for (int i = 1; i < matches.size() && candidates.length > 0; i++) {
+            candidates = retain(candidates, matches.get(i));
+        }
+
+        Ranked[] found = new Ranked[candidates.length];
+        int n = 0;
+        for (int id : candidates) {
+            Ranked product = products.get(id);
+            if (product != null) {
+                found[n++] = product;
+            }
+        }
+        // Ranks follow names, so this sorts on longs instead of strings
+        Arrays.sort(found, 0, n, BY_RANK);
+        CompactProduct[] sorted = new CompactProduct[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = found[i].product;
+        }
+        return new CompactProductList(sorted);
+    }
+
+    /**
+     * @return Whether a product with these words (see words()) matches every
+     *         search term, the test search() applies.
+     */
+    static boolean matches(Set<String> words, List<String> terms) {
+        for (String term : terms) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long totalLength(int[][] lists) {
+        long total = 0;
+        for (int[] ids : lists) {
+            total += ids.length;
+        }
+        return total;
+    }
+
+    // Sorted, distinct IDs in any of the lists
+    private static int[] union(int[][] lists) {
+        if (lists.length == 1) {
+            return lists[0];
+        }
+        BitSet bits = new BitSet();
+        for (int[] list : lists) {
+            for (int id : list) {
+                bits.set(id);
+            }
+        }
+        int[] ids = new int[bits.cardinality()];
+        int n = 0;
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            ids[n++] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * @return The candidates that are in any of the lists. Few candidates are
+     *         looked up in each list; many are checked against the lists'
+     *         union instead.
+     */
+    private static int[] retain(int[] candidates, int[][] lists) {
+        boolean lookUp = (long) candidates.length * lists.length * 20 < totalLength(lists);
+        BitSet union = null;
+        if (!lookUp) {
+            // Lists are sorted, and no ID past the last candidate matters
+            int last = candidates[candidates.length - 1];
+            union = new BitSet(last + 1);
+            for (int[] list : lists) {
+                for (int i = 0; i < list.length && list[i] <= last; i++) {
+                    union.set(list[i]);
+                }
+            }
+        }
+        int[] kept = new int[candidates.length];
+        int n = 0;
+        for (int id : candidates) {
+            if (lookUp ? containsAny(lists, id) : union.get(id)) {
+                kept[n++] = id;
+            }
+        }
+        return Arrays.copyOf(kept, n);
+    }
+
+    private static boolean containsAny(int[][] lists, int id) {
+        for (int[] list : lists) {
+            if (Arrays.binarySearch(list, id) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the product, or replaces the indexed version of it.
+     */
+    void put(CompactProduct product) {
+        Ranked old = ranked.get(product.productId);
+        Set<String> oldWords = old != null ? words(old.product) : Set.of();
+        Set<String> newWords = words(product);
+        byName = byName.replacing(old != null ? old.product : null, product);
+        if (old != null && CompactProduct.BY_NAME.compare(old.product, product) == 0) {
+            ranked.put(product.productId, new Ranked(product, old.rank));
+        } else {
+            long rank = rankBetweenNeighbours(product);
+            if (rank < 0) {
+                ranked = numbered(byName.toArray());
+            } else {
+                ranked.put(product.productId, new Ranked(product, rank));
+            }
+            if (old == null) {
+                estimatedBytes += RANKED_BYTES;
+            }
+        }
+        for (String word : oldWords) {
+            if (!newWords.contains(word)) {
+                removeId(word, product.productId);
+            }
+        }
+        for (String word : newWords) {
+            if (!oldWords.contains(word)) {
+                addId(word, product.productId);
+            }
+        }
+    }
+
+    void remove(int productId) {
+        Ranked old = ranked.remove(productId);
+        if (old != null) {
+            estimatedBytes -= RANKED_BYTES;
+            byName = byName.without(old.product);
+            for (String word : words(old.product)) {
+                removeId(word, productId);
+            }
+        }
+    }
+
+    /**
+     * @return A rank between those of the products either side of this one
+     *         in byName, or -1 if they leave no room and every product must
+     *         be renumbered.
+     */
+    private long rankBetweenNeighbours(CompactProduct product) {
+        int at = byName.lowerBound(p -> CompactProduct.BY_NAME.compare(p, product));
+        long low = at > 0 ? ranked.get(byName.get(at - 1).productId).rank : 0;
+        long high;
+        if (at + 1 < byName.size()) {
+            high = ranked.get(byName.get(at + 1).productId).rank;
+        } else {
+            // Past the end, leave the usual gap so appends stay cheap
+            high = low <= Long.MAX_VALUE - 2 * spacing ? low + 2 * spacing : Long.MAX_VALUE;
+        }
+        return high - low >= 2 ? low + (high - low) / 2 : -1;
+    }
+
+    // Ranks the products (in name order) evenly, leaving half the range free
+    // for products added after the last one
+    private Map<Integer, Ranked> numbered(CompactProduct[] sorted) {
+        spacing = Long.MAX_VALUE / (2L * sorted.length + 2);
+        Map<Integer, Ranked> numbered = new ConcurrentHashMap<>(sorted.length * 4 / 3 + 1);
+        for (int i = 0; i < sorted.length; i++) {
+            numbered.put(sorted[i].productId, new Ranked(sorted[i], (i + 1) * spacing));
+        }
+        return numbered;
+    }
+
+    private void addId(String word, int productId) {
+        int[] ids = postings.getOrDefault(word, NONE);
+        int at = Arrays.binarySearch(ids, productId);
+        if (at >= 0) {
+            return;
+        }
+        at = -at - 1;
+        int[] added = new int[ids.length + 1];
+        System.arraycopy(ids, 0, added, 0, at);
+        added[at] = productId;
+        System.arraycopy(ids, at, added, at + 1, ids.length - at);
+        postings.put(word, added);
+        estimatedBytes += ids.length == 0 ? postingBytes(word) + 4 : 4;
+    }
+
+    private void removeId(String word, int productId) {
+        int[] ids = postings.get(word);
+        int at = ids != null ? Arrays.binarySearch(ids, productId) : -1;
+        if (at < 0) {
+            return;
+        }
+        if (ids.length == 1) {
+            postings.remove(word);
+            estimatedBytes -= postingBytes(word) + 4;
+            return;
+        }
+        int[] removed = new int[ids.length - 1];
+        System.arraycopy(ids, 0, removed, 0, at);
+        System.arraycopy(ids, at + 1, removed, at, ids.length - at - 1);
+        postings.put(word, removed);
+        estimatedBytes -= 4;
+    }
+
+    /**
+     * @return The distinct lower-case words of the product's name, brand, SKU
+     *         and description.
+     */
+    static Set<String> words(CompactProduct product) {
+        Set<String> words = new LinkedHashSet<>();
+        addWords(words, product.productName);
+        addWords(words, product.brand);
+        addWords(words, product.sku);
+        addWords(words, product.description());
+        return words;
+    }
+
+    /**
+     * @return The distinct lower-case words of the text, in order.
+     */
+    static List<String> splitWords(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        addWords(words, text);
+        return new ArrayList<>(words);
+    }
+
+    private static void addWords(Set<String> words, String text) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    private static long postingBytes(String word) {
+        return POSTING_BYTES + CompactProduct.stringBytes(word);
+    }
+
+    private static final class Ranked {
+        final CompactProduct product;
+        // Ranks increase in CompactProduct.BY_NAME order, with gaps between
+        final long rank;
+
+        Ranked(CompactProduct product, long rank) {
+            this.product = product;
+            this.rank = rank;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
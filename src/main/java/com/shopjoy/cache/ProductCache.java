@@ -1,23 +1,103 @@
 package com.shopjoy.cache;
 
 import com.shopjoy.model.Product;
+import com.shopjoy.util.AppConfig;
+import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ProductCache - An in-memory cache to reduce database queries for products.
- * Implements a synchronized singleton pattern for thread safety.
+ * Individual products, search results and category listings are held in
+ * caches bounded by estimated heap bytes, whose entries expire independently.
+ * The full catalog list is kept as a single immutable snapshot with its own
+ * expiry and byte ceiling.
+ * Reads never lock; writers replace whole snapshots or go through the
+ * concurrent BoundedCache.
+ * Each region counts its hits, misses, loads and removals; see getStats().
+ *
+ * Each product is stored once, as a CompactProduct, in the product store (or
+ * the catalog snapshot). Search and category listings hold only product IDs
+ * and are resolved against the store when read; a listing one of whose
+ * products has left both the store and the catalog counts as a miss. Every
+ * read builds new Product objects, so callers may modify them freely.
+ *
+ * Listings are indexed by the product IDs they contain. When one product is
+ * added, updated or deleted, only the listings it belongs to (or, for a new
+ * name, may now match) are patched or evicted; the rest stay cached.
+ *
+ * Subtree listings (a category and every category below it) are cached the
+ * same way, together with the categories they cover, so a product added to
+ * or moved into any of those categories evicts them.
+ *
+ * Product IDs that do not exist and searches that match nothing are cached
+ * briefly as well, until an insert or update could make them wrong.
+ *
+ * While the full list is cached, lookups by SKU, category, brand, price
+ * range and active flag are answered from a CatalogIndex over it. The index
+ * is built with the list, before the write lock is taken, and each insert,
+ * update or delete patches it into the next snapshot rather than rebuilding
+ * it or dropping the list.
+ *
+ * Loading the full list also builds an InvertedIndex over the products' text.
+ * It belongs to the snapshot: every add, update and delete is applied to it,
+ * and it expires and is dropped with the list. Together the two are bounded
+ * by AppConfig.CATALOG_CACHE_MAX_BYTES; a catalog that exceeds it is dropped,
+ * and its lookups go to the database.
  */
 public class ProductCache {
 
-    private Map<Integer, Product> productCache = new HashMap<>();
-    private Map<String, List<Product>> searchCache = new HashMap<>();
-    private Map<Integer, List<Product>> categoryCache = new HashMap<>();
-    private volatile long lastCacheUpdate = System.currentTimeMillis();
-    private static final long CACHE_EXPIRY_TIME = 5 * 60 * 1000; // 5 minutes in milliseconds
-    private static ProductCache instance;
+    private final DependencyIndex<String> searchIndex = new DependencyIndex<>();
+    private final DependencyIndex<Integer> categoryIndex = new DependencyIndex<>();
+    private final DependencyIndex<Integer> subtreeIndex = new DependencyIndex<>();
+    // Sorted IDs of the categories each cached subtree listing covers
+    private final Map<Integer, int[]> subtreeCategories = new ConcurrentHashMap<>();
+    private final BoundedCache<Integer, CompactProduct> productCache = new BoundedCache<>(
+            AppConfig.PRODUCT_CACHE_MAX_BYTES, (id, product) -> product.estimatedBytes(),
+            AppConfig.PRODUCT_CACHE_EXPIRY, 0, TimeUnit.MILLISECONDS);
+    private final BoundedCache<String, int[]> searchCache = new BoundedCache<>(
+            AppConfig.SEARCH_CACHE_MAX_BYTES, (key, ids) -> CompactProduct.stringBytes(key) + idsBytes(ids),
+            AppConfig.PRODUCT_CACHE_EXPIRY, AppConfig.SEARCH_CACHE_IDLE_EXPIRY, TimeUnit.MILLISECONDS,
+            (key, ids, cause) -> searchIndex.remove(key, ids));
+    private final BoundedCache<Integer, int[]> categoryCache = new BoundedCache<>(
+            AppConfig.CATEGORY_PRODUCTS_CACHE_MAX_BYTES, (key, ids) -> idsBytes(ids),
+            AppConfig.PRODUCT_CACHE_EXPIRY, 0, TimeUnit.MILLISECONDS,
+            (key, ids, cause) -> categoryIndex.remove(key, ids));
+    private final BoundedCache<Integer, int[]> subtreeCache = new BoundedCache<>(
+            AppConfig.SUBTREE_PRODUCTS_CACHE_MAX_BYTES, (key, ids) -> idsBytes(ids),
+            AppConfig.PRODUCT_CACHE_EXPIRY, 0, TimeUnit.MILLISECONDS,
+            (key, ids, cause) -> {
+                subtreeIndex.remove(key, ids);
+                subtreeCategories.remove(key);
+            });
+    private final BoundedCache<Integer, Boolean> missingProducts = new BoundedCache<>(
+            AppConfig.NEGATIVE_CACHE_MAX_ENTRIES, AppConfig.NEGATIVE_CACHE_EXPIRY, TimeUnit.MILLISECONDS);
+    private final BoundedCache<String, Boolean> emptySearches = new BoundedCache<>(
+            AppConfig.NEGATIVE_CACHE_MAX_ENTRIES, AppConfig.NEGATIVE_CACHE_EXPIRY, TimeUnit.MILLISECONDS);
+    private volatile CatalogSnapshot catalog;
+    private final StatsCounter catalogStats = new StatsCounter();
+    private final StatsCounter textIndexStats = new StatsCounter();
+    private final SingleFlight<Integer, Product> productLoads = new SingleFlight<>();
+    private final SingleFlight<String, List<Product>> searchLoads = new SingleFlight<>();
+    private final SingleFlight<Integer, List<Product>> categoryLoads = new SingleFlight<>();
+    private final SingleFlight<Integer, List<Product>> subtreeLoads = new SingleFlight<>();
+    private final SingleFlight<String, List<Product>> catalogLoads = new SingleFlight<>();
+    // Bumped by every invalidation; loads that started before it do not cache their result
+    private final AtomicLong generation = new AtomicLong();
+    // Serializes writers of stored products and indexed listings with
+    // invalidations, so a listing and its index entries are never out of step
+    // for a concurrent update. Readers never take it.
+    private final Object writeLock = new Object();
+    private static final String CATALOG_KEY = "all";
+    private static final ProductCache INSTANCE = new ProductCache();
 
     /**
      * Private constructor for singleton pattern.
@@ -28,181 +108,1100 @@ public class ProductCache {
 
     /**
      * Gets the singleton instance of ProductCache.
-     * 
+     *
      * @return The ProductCache instance.
      */
-    public static synchronized ProductCache getInstance() {
-        if (instance == null) {
-            instance = new ProductCache();
-        }
-        return instance;
+    public static ProductCache getInstance() {
+        return INSTANCE;
     }
 
     /**
      * Caches a single product.
-     * 
+     *
      * @param product The product to cache.
      */
-    public synchronized void cacheProduct(Product product) {
+    public void cacheProduct(Product product) {
         if (product != null) {
-            productCache.put(product.getProductId(), product);
-            lastCacheUpdate = System.currentTimeMillis();
-            System.out.println("Product cached: " + product.getProductName() + " (ID: " + product.getProductId() + ")");
+            synchronized (writeLock) {
+                productCache.put(product.getProductId(), CompactProduct.of(product));
+            }
         }
     }
 
     /**
      * Retrieves a product from the cache.
-     * 
+     *
+     * @param productId The ID of the product.
+     * @return A copy of the cached Product, or null if not found or expired.
+     */
+    public Product getProduct(int productId) {
+        CompactProduct stored = findStored(productId);
+        if (stored != null) {
+            productCache.stats().recordHit();
+            return stored.toProduct();
+        }
+        productCache.stats().recordMiss();
+        return null;
+    }
+
+    /**
+     * Returns a copy of the cached product without counting a hit or miss,
+     * for comparing it with a newer version.
+     *
+     * @param productId The ID of the product.
+     * @return A copy of the cached Product, or null if not cached.
+     */
+    public Product peekProduct(int productId) {
+        CompactProduct stored = findStored(productId);
+        return stored != null ? stored.toProduct() : null;
+    }
+
+    /**
+     * Returns the cached product, or loads and caches it. Concurrent callers
+     * for the same id share one load. An id the loader did not find is
+     * remembered for a short time, so repeated lookups of it return null
+     * without a query.
+     *
      * @param productId The ID of the product.
-     * @return The cached Product, or null if not found or expired.
+     * @param loader    Reads the product from the database.
+     * @return The product, or null if the loader found none.
      */
-    public synchronized Product getProduct(int productId) {
-        if (!isCacheValid()) {
-            invalidateCache();
+    public Product loadProduct(int productId, CacheLoader<Product> loader) throws SQLException {
+        Product cached = getProduct(productId);
+        if (cached != null) {
+            return cached;
+        }
+        if (missingProducts.getIfPresent(productId) != null) {
             return null;
         }
-        return productCache.get(productId);
+        return productLoads.load(productId, () -> {
+            CompactProduct current = productCache.peek(productId);
+            if (current != null || missingProducts.peek(productId) != null) {
+                return current != null ? current.toProduct() : null;
+            }
+            long startedAt = generation.get();
+            Product loaded = productCache.stats().recordLoad(loader);
+            synchronized (writeLock) {
+                if (generation.get() == startedAt) {
+                    if (loaded != null) {
+                        cacheProduct(loaded);
+                    } else {
+                        missingProducts.put(productId, Boolean.TRUE);
+                    }
+                }
+            }
+            return loaded;
+        });
     }
 
     /**
-     * Caches a list of products, clearing the existing product cache first.
-     * 
+     * Caches the full product list. Products also held in the product store
+     * are replaced there by the same stored copy, so they are kept once.
+     * Its indexes are built before the write lock is taken.
+     *
      * @param products The list of products to cache.
      */
-    public synchronized void cacheProductList(List<Product> products) {
-        productCache.clear();
-        if (products != null) {
-            for (Product product : products) {
-                productCache.put(product.getProductId(), product);
-            }
+    public void cacheProductList(List<Product> products) {
+        CatalogLoad load = new CatalogLoad(products);
+        synchronized (writeLock) {
+            install(load);
         }
-        lastCacheUpdate = System.currentTimeMillis();
-        System.out.println("Cached " + productCache.size() + " products.");
+        System.out.println("Cached " + load.stored.length + " products.");
     }
 
     /**
-     * Caches search results for a specific term.
-     * 
+     * Returns the cached full product list, or loads and caches it. When the
+     * list expires, concurrent callers share a single full-table query.
+     *
+     * @param loader Reads all products from the database.
+     * @return Read-only list of all products.
+     */
+    public List<Product> loadAllProducts(CacheLoader<List<Product>> loader) throws SQLException {
+        List<Product> cached = getAllCachedProducts();
+        if (cached != null) {
+            return cached;
+        }
+        return catalogLoads.load(CATALOG_KEY, () -> {
+            List<Product> current = freshCatalogProducts();
+            return current != null ? current : fetchAllProducts(loader);
+        });
+    }
+
+    /**
+     * Reloads the full product list ahead of its expiry, unless a load is
+     * already running.
+     *
+     * @param loader Reads all products from the database.
+     */
+    public void refreshAllProducts(CacheLoader<List<Product>> loader) throws SQLException {
+        catalogLoads.load(CATALOG_KEY, () -> fetchAllProducts(loader));
+    }
+
+    /**
+     * Splits search text into the lower-case words search() looks up, in
+     * order and without repeats. Loaders passed to search() should match
+     * these words as ProductDAO.searchByWords does.
+     *
+     * @param text The text searched for.
+     * @return The words, empty if the text has none.
+     */
+    public static List<String> searchWords(String text) {
+        return InvertedIndex.splitWords(text);
+    }
+
+    /**
+     * Caches search results for a specific term. Terms with the same words
+     * (see searchWords) share one entry.
+     *
      * @param searchTerm The term searched.
      * @param results    The list of products returned.
      */
-    public synchronized void cacheSearchResults(String searchTerm, List<Product> results) {
-        if (searchTerm != null) {
-            searchCache.put(searchTerm.toLowerCase(), results != null ? new ArrayList<>(results) : new ArrayList<>());
-            lastCacheUpdate = System.currentTimeMillis();
-            System.out.println("Search results cached for term: " + searchTerm);
+    public void cacheSearchResults(String searchTerm, List<Product> results) {
+        String key = searchKey(searchTerm);
+        if (!key.isEmpty()) {
+            synchronized (writeLock) {
+                int[] ids = store(results);
+                emptySearches.invalidate(key);
+                int[] previous = searchCache.put(key, ids);
+                if (previous != null) {
+                    searchIndex.remove(key, previous);
+                }
+                searchIndex.add(key, ids);
+            }
         }
     }
 
+    /**
+     * Full-text search over product names, brands, SKUs and descriptions,
+     * answered from the inverted index. Matches products with, for every
+     * word of the text, a word starting with it. Falls back to
+     * loadSearchResults, and so to the loader, while the index is not built.
+     * Text without words matches nothing.
+     *
+     * @param text   The words searched for.
+     * @param loader Runs the same search against the database, as
+     *               ProductDAO.searchByWords does for searchWords(text).
+     * @return Read-only list of matching products, by name.
+     */
+    public List<Product> search(String text, CacheLoader<List<Product>> loader) throws SQLException {
+        InvertedIndex index = freshTextIndex();
+        List<Product> found = index != null ? index.search(text) : null;
+        if (found != null) {
+            textIndexStats.recordHit();
+            return found;
+        }
+        textIndexStats.recordMiss();
+        return loadSearchResults(text, loader);
+    }
+
     /**
      * Retrieves search results from the cache.
-     * 
+     *
      * @param searchTerm The term searched.
-     * @return The list of cached Products, or null if not found or expired.
+     * @return The read-only list of cached Products, or null if not found or expired.
      */
-    public synchronized List<Product> getSearchResults(String searchTerm) {
-        if (!isCacheValid()) {
-            invalidateCache();
+    public List<Product> getSearchResults(String searchTerm) {
+        String key = searchKey(searchTerm);
+        if (key.isEmpty()) {
             return null;
         }
-        return searchTerm != null ? searchCache.get(searchTerm.toLowerCase()) : null;
+        List<Product> cached = readListing(searchCache, key);
+        if (cached == null && emptySearches.getIfPresent(key) != null) {
+            return List.of();
+        }
+        return cached;
+    }
+
+    /**
+     * Returns cached search results for the term, or loads and caches them.
+     * Concurrent searches for the same term share one query. A search that
+     * found nothing is remembered for a short time, until a product its words
+     * match is added or changed.
+     *
+     * @param searchTerm The term searched.
+     * @param loader     Runs the search against the database.
+     * @return Read-only list of matching products; empty if the term has no
+     *         words.
+     */
+    public List<Product> loadSearchResults(String searchTerm, CacheLoader<List<Product>> loader) throws SQLException {
+        String key = searchKey(searchTerm);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        List<Product> cached = readListing(searchCache, key);
+        if (cached != null) {
+            return cached;
+        }
+        if (emptySearches.getIfPresent(key) != null) {
+            return List.of();
+        }
+        return searchLoads.load(key, () -> {
+            List<Product> current = peekListing(searchCache, key);
+            if (current != null) {
+                return current;
+            }
+            return emptySearches.peek(key) != null ? List.of() : fetchSearchResults(key, loader);
+        });
+    }
+
+    /**
+     * Re-runs a cached search ahead of its expiry, unless a load for the term
+     * is already running.
+     *
+     * @param searchTerm The term searched.
+     * @param loader     Runs the search against the database.
+     */
+    public void refreshSearchResults(String searchTerm, CacheLoader<List<Product>> loader) throws SQLException {
+        String key = searchKey(searchTerm);
+        if (key.isEmpty()) {
+            return;
+        }
+        searchLoads.load(key, () -> fetchSearchResults(key, loader));
     }
 
     /**
      * Caches products for a specific category.
-     * 
+     *
      * @param categoryId The category ID.
      * @param products   The list of products in the category.
      */
-    public synchronized void cacheCategoryProducts(int categoryId, List<Product> products) {
-        categoryCache.put(categoryId, products != null ? new ArrayList<>(products) : new ArrayList<>());
-        lastCacheUpdate = System.currentTimeMillis();
-        System.out.println("Category products cached for category ID: " + categoryId);
+    public void cacheCategoryProducts(int categoryId, List<Product> products) {
+        synchronized (writeLock) {
+            int[] ids = store(products);
+            int[] previous = categoryCache.put(categoryId, ids);
+            if (previous != null) {
+                categoryIndex.remove(categoryId, previous);
+            }
+            categoryIndex.add(categoryId, ids);
+        }
     }
 
     /**
      * Retrieves category products from the cache.
-     * 
+     *
      * @param categoryId The category ID.
-     * @return The list of cached Products, or null if not found or expired.
+     * @return The read-only list of cached Products, or null if not found or expired.
      */
-    public synchronized List<Product> getCategoryProducts(int categoryId) {
-        if (!isCacheValid()) {
-            invalidateCache();
-            return null;
+    public List<Product> getCategoryProducts(int categoryId) {
+        return readListing(categoryCache, categoryId);
+    }
+
+    /**
+     * Returns cached products for the category, or loads and caches them.
+     * While the full product list is cached, misses are answered from its
+     * index instead of the loader. Concurrent callers for the same category
+     * share one query.
+     *
+     * @param categoryId The category ID.
+     * @param loader     Reads the category's products from the database.
+     * @return Read-only list of the category's products.
+     */
+    public List<Product> loadCategoryProducts(int categoryId, CacheLoader<List<Product>> loader) throws SQLException {
+        List<Product> cached = readListing(categoryCache, categoryId);
+        if (cached != null) {
+            return cached;
         }
-        return categoryCache.get(categoryId);
+        CatalogIndex index = freshCatalogIndex();
+        if (index != null) {
+            return index.findByCategory(categoryId);
+        }
+        return categoryLoads.load(categoryId, () -> {
+            List<Product> current = peekListing(categoryCache, categoryId);
+            return current != null ? current : fetchCategoryProducts(categoryId, loader);
+        });
+    }
+
+    /**
+     * Reloads a category's products ahead of their expiry, unless a load for
+     * the category is already running.
+     *
+     * @param categoryId The category ID.
+     * @param loader     Reads the category's products from the database.
+     */
+    public void refreshCategoryProducts(int categoryId, CacheLoader<List<Product>> loader) throws SQLException {
+        categoryLoads.load(categoryId, () -> fetchCategoryProducts(categoryId, loader));
+    }
+
+    /**
+     * Caches the products of a category subtree.
+     *
+     * @param categoryId  The category at the top of the subtree.
+     * @param categoryIds The category and every category below it.
+     * @param products    The products in any of those categories.
+     */
+    public void cacheSubtreeProducts(int categoryId, int[] categoryIds, List<Product> products) {
+        int[] covered = categoryIds.clone();
+        Arrays.sort(covered);
+        synchronized (writeLock) {
+            int[] ids = store(products);
+            int[] previous = subtreeCache.put(categoryId, ids);
+            if (previous != null) {
+                subtreeIndex.remove(categoryId, previous);
+            }
+            subtreeIndex.add(categoryId, ids);
+            subtreeCategories.put(categoryId, covered);
+        }
+    }
+
+    /**
+     * Retrieves the products of a category subtree from the cache.
+     *
+     * @param categoryId The category at the top of the subtree.
+     * @return The read-only list of cached Products, or null if not found or expired.
+     */
+    public List<Product> getSubtreeProducts(int categoryId) {
+        return readListing(subtreeCache, categoryId);
+    }
+
+    /**
+     * Returns the cached products of a category subtree, or loads and caches
+     * them. While the full product list is cached, misses are answered from
+     * its index instead of the loader. Concurrent callers for the same
+     * category share one query.
+     *
+     * @param categoryId  The category at the top of the subtree.
+     * @param categoryIds The category and every category below it, as far as
+     *                    the category cache knows them; cached listings are
+     *                    evicted when a product enters any of them.
+     * @param loader      Reads the subtree's products from the database.
+     * @return Read-only list of the subtree's products, by name.
+     */
+    public List<Product> loadSubtreeProducts(int categoryId, int[] categoryIds, CacheLoader<List<Product>> loader)
+            throws SQLException {
+        List<Product> cached = readListing(subtreeCache, categoryId);
+        if (cached != null) {
+            return cached;
+        }
+        CatalogIndex index = freshCatalogIndex();
+        if (index != null) {
+            return index.findByCategories(categoryIds);
+        }
+        return subtreeLoads.load(categoryId, () -> {
+            List<Product> current = peekListing(subtreeCache, categoryId);
+            return current != null ? current : fetchSubtreeProducts(categoryId, categoryIds, loader);
+        });
+    }
+
+    /**
+     * Evicts every cached subtree listing. Call when the category hierarchy
+     * changes, since a listing's categories may no longer be its subtree.
+     */
+    public void invalidateSubtrees() {
+        synchronized (writeLock) {
+            generation.incrementAndGet();
+            subtreeCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Search terms that are read often and expire within the given time.
+     *
+     * @param withinMillis How soon the entries expire.
+     * @param limit        Maximum number of terms.
+     * @return Lower-case search terms, most recently used first.
+     */
+    public List<String> hotSearchesExpiringWithin(long withinMillis, int limit) {
+        return searchCache.hotKeysExpiringWithin(withinMillis, TimeUnit.MILLISECONDS, limit);
+    }
+
+    /**
+     * Category IDs whose product listings are read often and expire within
+     * the given time.
+     *
+     * @param withinMillis How soon the entries expire.
+     * @param limit        Maximum number of categories.
+     * @return Category IDs, most recently used first.
+     */
+    public List<Integer> hotCategoriesExpiringWithin(long withinMillis, int limit) {
+        return categoryCache.hotKeysExpiringWithin(withinMillis, TimeUnit.MILLISECONDS, limit);
+    }
+
+    /**
+     * @param withinMillis How soon the list expires.
+     * @return true if the full product list is cached and expires within the
+     *         given time.
+     */
+    public boolean catalogExpiresWithin(long withinMillis) {
+        CatalogSnapshot current = catalog;
+        return current != null && current.isFresh()
+                && System.currentTimeMillis() - current.cachedAt >= AppConfig.PRODUCT_CACHE_EXPIRY - withinMillis;
+    }
+
+    /**
+     * @return IDs of every product held in the cache, individually or in the
+     *         full product list.
+     */
+    public Set<Integer> cachedProductIds() {
+        Set<Integer> ids = new HashSet<>(productCache.keys());
+        CatalogSnapshot current = catalog;
+        if (current != null) {
+            for (CompactProduct product : current.index.products()) {
+                ids.add(product.productId);
+            }
+        }
+        return ids;
     }
 
     /**
      * Invalidates the entire cache.
      */
-    public synchronized void invalidateCache() {
-        productCache.clear();
-        searchCache.clear();
-        categoryCache.clear();
-        lastCacheUpdate = System.currentTimeMillis();
+    public void invalidateCache() {
+        synchronized (writeLock) {
+            generation.incrementAndGet();
+            dropCatalog();
+            productCache.invalidateAll();
+            searchCache.invalidateAll();
+            categoryCache.invalidateAll();
+            subtreeCache.invalidateAll();
+            missingProducts.invalidateAll();
+            emptySearches.invalidateAll();
+            searchIndex.clear();
+            categoryIndex.clear();
+            subtreeIndex.clear();
+            subtreeCategories.clear();
+        }
         System.out.println("All product caches invalidated.");
     }
 
     /**
-     * Invalidates a specific product and dependent caches.
-     * 
+     * Invalidates a specific product and the listings that contain it. Use
+     * productUpdated instead when the new version is at hand: a changed
+     * product may start matching searches it was not in before.
+     *
      * @param productId The ID of the product to invalidate.
      */
-    public synchronized void invalidateProduct(int productId) {
-        productCache.remove(productId);
-        // Search and category caches are cleared because they may contain the outdated
-        // product
-        searchCache.clear();
-        categoryCache.clear();
-        System.out.println("Product " + productId + " invalidated. Search and Category caches cleared.");
+    public void invalidateProduct(int productId) {
+        synchronized (writeLock) {
+            generation.incrementAndGet();
+            productCache.invalidate(productId);
+            missingProducts.invalidate(productId);
+            for (String key : searchIndex.keysFor(productId)) {
+                searchCache.invalidate(key);
+            }
+            for (Integer categoryId : categoryIndex.keysFor(productId)) {
+                categoryCache.invalidate(categoryId);
+            }
+            for (Integer categoryId : subtreeIndex.keysFor(productId)) {
+                subtreeCache.invalidate(categoryId);
+            }
+            // Without the new version neither the list nor its text index
+            // can be kept complete
+            dropCatalog();
+        }
+        System.out.println("Product " + productId + " invalidated with its dependent listings.");
+    }
+
+    /**
+     * Brings the cache up to date after a product was inserted. Searches its
+     * words match and its category's listing are evicted, and it is added to
+     * the catalog list in name order; everything else stays cached.
+     *
+     * @param product The new product, with its generated ID.
+     */
+    public void productAdded(Product product) {
+        synchronized (writeLock) {
+            generation.incrementAndGet();
+            CompactProduct added = CompactProduct.of(product);
+            productCache.put(product.getProductId(), added);
+            CatalogSnapshot current = catalog;
+            if (current != null) {
+                current.textIndex.put(added);
+            }
+            missingProducts.invalidate(product.getProductId());
+            evictMatchingSearches(InvertedIndex.words(added), List.of());
+            categoryCache.invalidate(product.getCategoryId());
+            evictSubtreesCovering(product.getCategoryId());
+            patchCatalog(added);
+        }
+    }
+
+    /**
+     * Brings the cache up to date after a product was changed. The stored
+     * copy is replaced, which updates every listing that resolves to it.
+     * Listings the product is in are evicted only when its name (the sort key
+     * of every cached listing) or, for category listings, its category
+     * changed, and searches only when it stopped matching them. Searches
+     * the new version matches are evicted as well.
+     *
+     * @param product The product as now stored.
+     */
+    public void productUpdated(Product product) {
+        int productId = product.getProductId();
+        CompactProduct updated = CompactProduct.of(product);
+        synchronized (writeLock) {
+            generation.incrementAndGet();
+            CompactProduct old = findStored(productId);
+            productCache.put(productId, updated);
+            CatalogSnapshot current = catalog;
+            if (current != null) {
+                current.textIndex.put(updated);
+            }
+            missingProducts.invalidate(productId);
+            boolean renamed = old == null || !Objects.equals(old.productName, updated.productName);
+            boolean moved = old == null || old.categoryId != updated.categoryId;
+
+            Set<String> words = InvertedIndex.words(updated);
+            List<String> containing = searchIndex.keysFor(productId);
+            for (String key : containing) {
+                if (renamed || !InvertedIndex.matches(words, searchWords(key))) {
+                    searchCache.invalidate(key);
+                }
+            }
+            evictMatchingSearches(words, containing);
+
+            List<Integer> categories = categoryIndex.keysFor(productId);
+            if (renamed || moved) {
+                for (Integer categoryId : categories) {
+                    categoryCache.invalidate(categoryId);
+                }
+            }
+            if (!categories.contains(updated.categoryId)) {
+                categoryCache.invalidate(updated.categoryId);
+            }
+
+            List<Integer> subtrees = subtreeIndex.keysFor(productId);
+            if (renamed || moved) {
+                for (Integer categoryId : subtrees) {
+                    subtreeCache.invalidate(categoryId);
+                }
+            }
+            if (moved) {
+                evictSubtreesCovering(updated.categoryId);
+            }
+
+            patchCatalog(updated);
+        }
+    }
+
+    /**
+     * Brings the cache up to date after a product was deleted by removing it
+     * from every listing that contains it. Lookups of its id then return
+     * null without a query for a short time.
+     *
+     * @param productId The ID of the deleted product.
+     */
+    public void productRemoved(int productId) {
+        synchronized (writeLock) {
+            generation.incrementAndGet();
+            productCache.invalidate(productId);
+            missingProducts.put(productId, Boolean.TRUE);
+            for (String key : searchIndex.keysFor(productId)) {
+                int[] remaining = without(searchCache.peek(key), productId);
+                if (remaining != null) {
+                    searchCache.put(key, remaining);
+                } else {
+                    searchCache.invalidate(key);
+                }
+            }
+            searchIndex.removeProduct(productId);
+            for (Integer categoryId : categoryIndex.keysFor(productId)) {
+                int[] remaining = without(categoryCache.peek(categoryId), productId);
+                if (remaining != null) {
+                    categoryCache.put(categoryId, remaining);
+                } else {
+                    categoryCache.invalidate(categoryId);
+                }
+            }
+            categoryIndex.removeProduct(productId);
+            for (Integer categoryId : subtreeIndex.keysFor(productId)) {
+                int[] remaining = without(subtreeCache.peek(categoryId), productId);
+                if (remaining != null) {
+                    subtreeCache.put(categoryId, remaining);
+                } else {
+                    subtreeCache.invalidate(categoryId);
+                }
+            }
+            subtreeIndex.removeProduct(productId);
+            CatalogSnapshot current = catalog;
+            if (current != null) {
+                current.textIndex.remove(productId);
+                CompactProduct removed = current.index.findById(productId);
+                if (removed != null) {
+                    catalog = current.patched(current.index.without(productId), removed, null);
+                }
+            }
+        }
     }
 
     /**
-     * Checks if the cache is still valid based on time.
-     * 
-     * @return true if valid, false if expired.
+     * Checks if the full product list is cached and has not expired.
+     *
+     * @return true if valid, false if expired or not loaded.
      */
     public boolean isCacheValid() {
-        long currentTime = System.currentTimeMillis();
-        return (currentTime - lastCacheUpdate) < CACHE_EXPIRY_TIME;
+        CatalogSnapshot current = catalog;
+        return current != null && current.isFresh();
     }
 
     /**
      * Gets the current size of the product cache.
-     * 
-     * @return Total number of cached products.
+     *
+     * @return Total number of individually cached products.
      */
     public int getCacheSize() {
         return productCache.size();
     }
 
     /**
-     * Retrieves all products from the cache.
-     * 
-     * @return List of all cached Products, or null if expired or empty.
+     * Retrieves the full product list from the cache.
+     *
+     * @return Read-only list of all Products, or null if expired or not loaded.
      */
-    public synchronized List<Product> getAllCachedProducts() {
-        if (!isCacheValid()) {
-            invalidateCache();
+    public List<Product> getAllCachedProducts() {
+        List<Product> products = freshCatalogProducts();
+        if (products != null) {
+            catalogStats.recordHit();
+        } else {
+            catalogStats.recordMiss();
+        }
+        return products;
+    }
+
+    /**
+     * Looks up a product by SKU in the cached full product list, or runs the
+     * loader if the list is not cached.
+     *
+     * @param sku    The SKU.
+     * @param loader Reads the product from the database; its result is not cached.
+     * @return The product, or null if there is none.
+     */
+    public Product findBySku(String sku, CacheLoader<Product> loader) throws SQLException {
+        CatalogIndex index = catalogIndex();
+        return index != null ? index.findBySku(sku) : loader.load();
+    }
+
+    /**
+     * Products of a brand (exact match) by name, from the cached full product
+     * list, or from the loader if the list is not cached.
+     *
+     * @param brand  The brand.
+     * @param loader Reads the products from the database; its result is not cached.
+     * @return Read-only list of matching products.
+     */
+    public List<Product> findByBrand(String brand, CacheLoader<List<Product>> loader) throws SQLException {
+        CatalogIndex index = catalogIndex();
+        return index != null ? index.findByBrand(brand) : loader.load();
+    }
+
+    /**
+     * Products priced from min to max inclusive, by price, from the cached
+     * full product list, or from the loader if the list is not cached.
+     *
+     * @param min    Lowest price.
+     * @param max    Highest price.
+     * @param loader Reads the products from the database; its result is not cached.
+     * @return Read-only list of matching products.
+     */
+    public List<Product> findByPriceRange(double min, double max, CacheLoader<List<Product>> loader)
+            throws SQLException {
+        CatalogIndex index = catalogIndex();
+        return index != null ? index.findByPriceRange(min, max) : loader.load();
+    }
+
+    /**
+     * Active products by name, from the cached full product list, or from the
+     * loader if the list is not cached.
+     *
+     * @param loader Reads the products from the database; its result is not cached.
+     * @return Read-only list of active products.
+     */
+    public List<Product> findActiveProducts(CacheLoader<List<Product>> loader) throws SQLException {
+        CatalogIndex index = catalogIndex();
+        return index != null ? index.findActive() : loader.load();
+    }
+
+    /**
+     * Returns the cached full product list without counting a hit or miss,
+     * for saving it rather than serving it.
+     *
+     * @return Read-only list of all Products, or null if expired or not loaded.
+     */
+    public List<Product> peekAllProducts() {
+        return freshCatalogProducts();
+    }
+
+    /**
+     * Takes a statistics snapshot of every product cache region. Weights are
+     * estimated heap bytes, except for the missing-id and empty-search
+     * entries, which are counted.
+     *
+     * @return One entry per region: products, search results, category
+     *         listings, subtree listings, the full catalog list (bounded
+     *         together with the text index), the text index, and the
+     *         missing-id and empty-search entries.
+     */
+    public List<CacheStats> getStats() {
+        List<CacheStats> stats = new ArrayList<>();
+        stats.add(productCache.snapshot("product.products"));
+        stats.add(searchCache.snapshot("product.search"));
+        stats.add(categoryCache.snapshot("product.categoryProducts"));
+        stats.add(subtreeCache.snapshot("product.subtreeProducts"));
+        CatalogSnapshot current = catalog;
+        int catalogSize = current != null ? current.index.size() : 0;
+        long catalogBytes = current != null ? current.estimatedBytes : 0;
+        stats.add(catalogStats.snapshot("product.catalog", catalogSize, catalogBytes,
+                AppConfig.CATALOG_CACHE_MAX_BYTES));
+        stats.add(textIndexStats.snapshot("product.textIndex", current != null ? current.textIndex.size() : 0,
+                current != null ? current.textIndex.estimatedBytes() : 0, 0));
+        stats.add(missingProducts.snapshot("product.missing"));
+        stats.add(emptySearches.snapshot("product.emptySearches"));
+        return stats;
+    }
+
+    // Loaders below cache their result only if no invalidation happened
+    // while the query ran; the rows might predate it.
+
+    private List<Product> fetchAllProducts(CacheLoader<List<Product>> loader) throws SQLException {
+        long startedAt = generation.get();
+        List<Product> loaded = catalogStats.recordLoad(loader);
+        List<Product> snapshot = loaded != null ? List.copyOf(loaded) : List.of();
+        // Indexed before taking the lock, which writers must not wait on
+        CatalogLoad load = new CatalogLoad(snapshot);
+        synchronized (writeLock) {
+            if (generation.get() == startedAt) {
+                install(load);
+                System.out.println("Cached " + load.stored.length + " products.");
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Makes a loaded catalog current. Products also held in the product store
+     * are replaced there by the same stored copy, so they are kept once.
+     * Caller holds writeLock.
+     */
+    private void install(CatalogLoad load) {
+        for (CompactProduct product : load.stored) {
+            if (productCache.peek(product.productId) != null) {
+                productCache.put(product.productId, product);
+            }
+        }
+        catalog = new CatalogSnapshot(load.index, load.textIndex, System.currentTimeMillis());
+        enforceCatalogCeiling();
+    }
+
+    private List<Product> fetchSearchResults(String key, CacheLoader<List<Product>> loader) throws SQLException {
+        long startedAt = generation.get();
+        List<Product> loaded = searchCache.stats().recordLoad(loader);
+        List<Product> results = loaded != null ? List.copyOf(loaded) : List.of();
+        synchronized (writeLock) {
+            if (generation.get() == startedAt) {
+                if (results.isEmpty()) {
+                    searchCache.invalidate(key);
+                    emptySearches.put(key, Boolean.TRUE);
+                } else {
+                    cacheSearchResults(key, results);
+                }
+            }
+        }
+        return results;
+    }
+
+    private List<Product> fetchCategoryProducts(int categoryId, CacheLoader<List<Product>> loader)
+            throws SQLException {
+        long startedAt = generation.get();
+        List<Product> loaded = categoryCache.stats().recordLoad(loader);
+        List<Product> products = loaded != null ? List.copyOf(loaded) : List.of();
+        synchronized (writeLock) {
+            if (generation.get() == startedAt) {
+                cacheCategoryProducts(categoryId, products);
+            }
+        }
+        return products;
+    }
+
+    private List<Product> fetchSubtreeProducts(int categoryId, int[] categoryIds, CacheLoader<List<Product>> loader)
+            throws SQLException {
+        long startedAt = generation.get();
+        List<Product> loaded = subtreeCache.stats().recordLoad(loader);
+        List<Product> products = loaded != null ? List.copyOf(loaded) : List.of();
+        synchronized (writeLock) {
+            if (generation.get() == startedAt) {
+                cacheSubtreeProducts(categoryId, categoryIds, products);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Puts the products of a listing into the product store, replacing older
+     * copies. Caller holds writeLock.
+     *
+     * @return The listing's product IDs, in order.
+     */
+    private int[] store(List<Product> products) {
+        if (products == null) {
+            return new int[0];
+        }
+        int[] ids = new int[products.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Product product = products.get(i);
+            ids[i] = product.getProductId();
+            productCache.put(ids[i], CompactProduct.of(product));
+        }
+        return ids;
+    }
+
+    // A listing hit counts only if every product in it can still be found
+    private <K> List<Product> readListing(BoundedCache<K, int[]> listings, K key) {
+        int[] ids = listings.getQuietly(key);
+        List<Product> resolved = ids != null ? resolve(ids) : null;
+        if (resolved != null) {
+            listings.stats().recordHit();
+        } else {
+            listings.stats().recordMiss();
+        }
+        return resolved;
+    }
+
+    private <K> List<Product> peekListing(BoundedCache<K, int[]> listings, K key) {
+        int[] ids = listings.peek(key);
+        return ids != null ? resolve(ids) : null;
+    }
+
+    /**
+     * @return The listing's products, or null if one of them is no longer
+     *         stored, so the listing must be loaded again.
+     */
+    private List<Product> resolve(int[] ids) {
+        CompactProduct[] products = new CompactProduct[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            products[i] = findStored(ids[i]);
+            if (products[i] == null) {
+                return null;
+            }
+        }
+        return new CompactProductList(products);
+    }
+
+    private CompactProduct findStored(int productId) {
+        CompactProduct product = productCache.getQuietly(productId);
+        if (product == null) {
+            CatalogIndex index = freshCatalogIndex();
+            product = index != null ? index.findById(productId) : null;
+        }
+        return product;
+    }
+
+    /**
+     * Puts the product into the cached catalog, if there is one, replacing
+     * the version with its id; a new or renamed product is sorted into place.
+     * Caller holds writeLock.
+     */
+    private void patchCatalog(CompactProduct product) {
+        CatalogSnapshot current = catalog;
+        if (current != null) {
+            CompactProduct replaced = current.index.findById(product.productId);
+            catalog = current.patched(current.index.with(product), replaced, product);
+            enforceCatalogCeiling();
+        }
+    }
+
+    /**
+     * Drops the catalog and its text index if together they have outgrown
+     * AppConfig.CATALOG_CACHE_MAX_BYTES. Caller holds writeLock.
+     */
+    private void enforceCatalogCeiling() {
+        CatalogSnapshot current = catalog;
+        if (current != null && current.totalBytes() > AppConfig.CATALOG_CACHE_MAX_BYTES) {
+            catalog = null;
+            catalogStats.recordRemovals(RemovalCause.SIZE, 1);
+            textIndexStats.recordRemovals(RemovalCause.SIZE, 1);
+            System.out.println("Catalog of " + current.index.size() + " products dropped: " + current.totalBytes()
+                    + " bytes with its text index, over " + AppConfig.CATALOG_CACHE_MAX_BYTES);
+        }
+    }
+
+    private void evictSubtreesCovering(int categoryId) {
+        for (Map.Entry<Integer, int[]> subtree : subtreeCategories.entrySet()) {
+            if (Arrays.binarySearch(subtree.getValue(), categoryId) >= 0) {
+                subtreeCache.invalidate(subtree.getKey());
+            }
+        }
+    }
+
+    // Evicts the searches a product with these words matches
+    private void evictMatchingSearches(Set<String> words, List<String> alreadyHandled) {
+        for (String key : searchIndex.keys()) {
+            if (!alreadyHandled.contains(key) && InvertedIndex.matches(words, searchWords(key))) {
+                searchCache.invalidate(key);
+            }
+        }
+        for (String key : emptySearches.keys()) {
+            if (InvertedIndex.matches(words, searchWords(key))) {
+                emptySearches.invalidate(key);
+            }
+        }
+    }
+
+    // The search cache key: the term's words, space-separated
+    private static String searchKey(String searchTerm) {
+        return String.join(" ", searchWords(searchTerm));
+    }
+
+    /**
+     * @return A copy of the listing without the product, or null if the
+     *         listing is gone.
+     */
+    private static int[] without(int[] ids, int productId) {
+        if (ids == null) {
             return null;
         }
-        return productCache.isEmpty() ? null : new ArrayList<>(productCache.values());
+        return Arrays.stream(ids).filter(id -> id != productId).toArray();
+    }
+
+    private static int idsBytes(int[] ids) {
+        return 16 + 4 * ids.length;
+    }
+
+    private List<Product> freshCatalogProducts() {
+        CatalogIndex index = freshCatalogIndex();
+        return index != null ? new CompactProductList(index.products()) : null;
+    }
+
+    private CatalogIndex freshCatalogIndex() {
+        CatalogSnapshot current = freshCatalog();
+        return current != null && current.index.size() > 0 ? current.index : null;
+    }
+
+    /**
+     * @return The catalog snapshot, or null if there is none or it expired,
+     *         in which case it is released with its text index.
+     */
+    private CatalogSnapshot freshCatalog() {
+        CatalogSnapshot current = catalog;
+        if (current == null || current.isFresh()) {
+            return current;
+        }
+        synchronized (writeLock) {
+            if (catalog == current) {
+                dropCatalog();
+            }
+        }
+        return null;
+    }
+
+    // Same as freshCatalogIndex, counted as a catalog hit or miss
+    private CatalogIndex catalogIndex() {
+        CatalogIndex index = freshCatalogIndex();
+        if (index != null) {
+            catalogStats.recordHit();
+        } else {
+            catalogStats.recordMiss();
+        }
+        return index;
+    }
+
+    private InvertedIndex freshTextIndex() {
+        CatalogSnapshot current = freshCatalog();
+        return current != null ? current.textIndex : null;
+    }
+
+    // Drops the catalog together with its text index
+    private void dropCatalog() {
+        CatalogSnapshot current = catalog;
+        if (current != null) {
+            catalog = null;
+            RemovalCause cause = current.isFresh() ? RemovalCause.EXPLICIT : RemovalCause.EXPIRED;
+            catalogStats.recordRemovals(cause, 1);
+            textIndexStats.recordRemovals(cause, 1);
+        }
     }
 
     /**
      * Prints current cache statistics to the console.
      */
-    public synchronized void printCacheStats() {
-        long ageSeconds = (System.currentTimeMillis() - lastCacheUpdate) / 1000;
+    public void printCacheStats() {
+        CatalogSnapshot current = catalog;
         System.out.println("=== Product Cache Statistics ===");
-        System.out.println("Total products cached: " + productCache.size());
-        System.out.println("Search results cached: " + searchCache.size());
-        System.out.println("Category caches: " + categoryCache.size());
-        System.out.println("Cache age: " + ageSeconds + " seconds");
+        System.out.println("Total products cached: " + productCache.size() + ", "
+                + productCache.weightedSize() + " / " + productCache.getMaximumWeight() + " bytes");
+        System.out.println("Search results cached: " + searchCache.size() + " terms, "
+                + searchCache.weightedSize() + " / " + searchCache.getMaximumWeight() + " bytes");
+        System.out.println("Category caches: " + categoryCache.size() + " categories, "
+                + categoryCache.weightedSize() + " / " + categoryCache.getMaximumWeight() + " bytes");
+        System.out.println("Subtree caches: " + subtreeCache.size() + " categories, "
+                + subtreeCache.weightedSize() + " / " + subtreeCache.getMaximumWeight() + " bytes");
+        if (current != null) {
+            long ageSeconds = (System.currentTimeMillis() - current.cachedAt) / 1000;
+            System.out.println("Catalog list: " + current.index.size() + " products, "
+                    + current.estimatedBytes + " bytes, age " + ageSeconds + " seconds");
+        }
         System.out.println("Cache validity status: " + (isCacheValid() ? "VALID" : "EXPIRED"));
+        for (CacheStats stats : getStats()) {
+            System.out.println(stats);
+        }
         System.out.println("================================");
     }
+
+    // A full catalog converted and indexed, ready to install
+    private static final class CatalogLoad {
+        private final CompactProduct[] stored;
+        private final CatalogIndex index;
+        private final InvertedIndex textIndex;
+
+        CatalogLoad(List<Product> products) {
+            stored = new CompactProduct[products != null ? products.size() : 0];
+            for (int i = 0; i < stored.length; i++) {
+                stored[i] = CompactProduct.of(products.get(i));
+            }
+            index = new CatalogIndex(stored);
+            textIndex = new InvertedIndex(stored);
+        }
+    }
+
+    private static final class CatalogSnapshot {
+        private final CatalogIndex index;
+        // Patched in place; every snapshot of one load shares it
+        private final InvertedIndex textIndex;
+        private final long estimatedBytes;
+        private final long cachedAt;
+
+        CatalogSnapshot(CatalogIndex index, InvertedIndex textIndex, long cachedAt) {
+            this(index, textIndex, cachedAt, totalBytes(index.products()));
+        }
+
+        private CatalogSnapshot(CatalogIndex index, InvertedIndex textIndex, long cachedAt, long estimatedBytes) {
+            this.index = index;
+            this.textIndex = textIndex;
+            this.cachedAt = cachedAt;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        /**
+         * @return Estimated bytes of the list and its text index together.
+         */
+        long totalBytes() {
+            return estimatedBytes + textIndex.estimatedBytes();
+        }
+
+        /**
+         * @return A snapshot of the patched index, cached at the same time,
+         *         whose size is adjusted for the one product removed and/or
+         *         added (either may be null) rather than summed again.
+         */
+        CatalogSnapshot patched(CatalogIndex patched, CompactProduct removed, CompactProduct added) {
+            long bytes = estimatedBytes;
+            if (removed != null) {
+                bytes -= 4 + removed.estimatedBytes();
+            }
+            if (added != null) {
+                bytes += 4 + added.estimatedBytes();
+            }
+            return new CatalogSnapshot(patched, textIndex, cachedAt, bytes);
+        }
+
+        private static long totalBytes(CompactProduct[] products) {
+            long bytes = 16 + 4L * products.length;
+            for (CompactProduct product : products) {
+                bytes += product.estimatedBytes();
+            }
+            return bytes;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() - cachedAt < AppConfig.PRODUCT_CACHE_EXPIRY;
+        }
+    }
 }
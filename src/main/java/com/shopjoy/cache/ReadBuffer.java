@@ -0,0 +1,96 @@
+package com.shopjoy.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * ReadBuffer - Lossy, striped buffer of cache hits waiting to be applied to
+ * the eviction policy.
+ *
+ * Readers record hits here without taking the cache lock. Each thread writes
+ * to one of several small ring buffers chosen by thread id, so readers on
+ * different cores rarely touch the same counter. When a ring is full the
+ * event is dropped: eviction order only needs a sample of recent reads.
+ * Draining must be done by one thread at a time (under the cache lock).
+ *
+ * @param <E> Element type.
+ */
+final class ReadBuffer<E> {
+
+    static final int SUCCESS = 0;
+    static final int FAILED = 1;
+    static final int FULL = 2;
+
+    private static final int RING_SIZE = 16;
+    private static final int RING_MASK = RING_SIZE - 1;
+
+    private final Ring<E>[] rings;
+    private final int ringMask;
+
+    @SuppressWarnings("unchecked")
+    ReadBuffer() {
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.rings = (Ring<E>[]) new Ring<?>[count];
+        for (int i = 0; i < count; i++) {
+            rings[i] = new Ring<>();
+        }
+        this.ringMask = count - 1;
+    }
+
+    /**
+     * Records an element.
+     *
+     * @return SUCCESS, FAILED if dropped due to a race with another reader, or
+     *         FULL if the ring is full and should be drained.
+     */
+    int offer(E e) {
+        Ring<E> ring = rings[(int) Thread.currentThread().threadId() & ringMask];
+        return ring.offer(e);
+    }
+
+    /**
+     * Passes every buffered element to the consumer and empties the buffer.
+     */
+    void drainTo(Consumer<E> consumer) {
+        for (Ring<E> ring : rings) {
+            ring.drainTo(consumer);
+        }
+    }
+
+    private static final class Ring<E> {
+        private final AtomicReferenceArray<E> slots = new AtomicReferenceArray<>(RING_SIZE);
+        private final AtomicLong writeCount = new AtomicLong();
+        private volatile long readCount;
+
+        int offer(E e) {
+            long head = readCount;
+            long tail = writeCount.get();
+            if (tail - head >= RING_SIZE) {
+                return FULL;
+            }
+            if (writeCount.compareAndSet(tail, tail + 1)) {
+                slots.lazySet((int) (tail & RING_MASK), e);
+                return SUCCESS;
+            }
+            return FAILED;
+        }
+
+        void drainTo(Consumer<E> consumer) {
+            long head = readCount;
+            long tail = writeCount.get();
+            while (head < tail) {
+                int index = (int) (head & RING_MASK);
+                E e = slots.get(index);
+                if (e == null) {
+                    // claimed by a reader that has not published yet
+                    break;
+                }
+                slots.lazySet(index, null);
+                consumer.accept(e);
+                head++;
+            }
+            readCount = head;
+        }
+    }
+}
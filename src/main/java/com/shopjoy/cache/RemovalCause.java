@@ -0,0 +1,13 @@
+package com.shopjoy.cache;
+
+/**
+ * Why an entry left a cache.
+ */
+public enum RemovalCause {
+    /** Removed by an invalidate call, e.g. after the row changed. */
+    EXPLICIT,
+    /** Evicted to keep the cache within its maximum size or weight. */
+    SIZE,
+    /** Dropped because its time to live ran out. */
+    EXPIRED
+}
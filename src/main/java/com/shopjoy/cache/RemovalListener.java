@@ -0,0 +1,16 @@
+package com.shopjoy.cache;
+
+/**
+ * Notified when an entry leaves a BoundedCache. Replacing a value with put
+ * is not a removal.
+ *
+ * Called while the cache holds its internal lock, so implementations must be
+ * quick and must not call back into the same cache.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+    void onRemoval(K key, V value, RemovalCause cause);
+}
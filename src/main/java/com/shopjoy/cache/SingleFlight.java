@@ -0,0 +1,79 @@
+package com.shopjoy.cache;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * SingleFlight - Collapses concurrent loads of the same key into one.
+ *
+ * The first caller for a key runs the loader; callers arriving while it runs
+ * wait for and share its result. A failed load is reported to every waiting
+ * caller and then forgotten, so the next call for that key tries again.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Runs loader for key unless a load for key is already in progress, in
+     * which case this waits for that load instead.
+     *
+     * @return The loaded value, possibly null.
+     * @throws SQLException if the load this caller ran or waited on failed.
+     */
+    public V load(K key, CacheLoader<? extends V> loader) throws SQLException {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = calls.putIfAbsent(key, call);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        V value;
+        try {
+            value = loader.load();
+        } catch (SQLException | RuntimeException | Error e) {
+            calls.remove(key, call);
+            call.completeExceptionally(e);
+            throw e;
+        }
+        // Callers arriving from here on start a new load; loaders store their
+        // result in the cache before returning, so that load finds it there.
+        calls.remove(key, call);
+        call.complete(value);
+        return value;
+    }
+
+    /**
+     * @return Number of keys currently being loaded.
+     */
+    public int inFlight() {
+        return calls.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> call) throws SQLException {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a cache load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                SQLException sqlCause = (SQLException) cause;
+                throw new SQLException(sqlCause.getMessage(), sqlCause.getSQLState(), sqlCause.getErrorCode(), sqlCause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.shopjoy.cache;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.ToIntFunction;
+
+/**
+ * SortedProducts - An immutable list of stored products in a fixed order,
+ * kept as a table of short sorted chunks. Adding, replacing or removing one
+ * product copies only the chunk it falls in and the chunk table, so an index
+ * over a large catalog can be patched for one change without copying the
+ * catalog.
+ *
+ * Lookups take a key function that compares a product with the key sought:
+ * negative if the product comes before it, zero on a match. Products the
+ * order considers equal are one entry; adding one replaces the other.
+ */
+final class SortedProducts {
+
+    // Lists are built in chunks of this size; a chunk twice as large is split
+    private static final int CHUNK_SIZE = 256;
+    private static final CompactProduct[][] NO_CHUNKS = new CompactProduct[0][];
+
+    private final Comparator<CompactProduct> order;
+    private final CompactProduct[][] chunks;
+    // starts[c] is the position of chunks[c][0] in the whole list
+    private final int[] starts;
+    private final int size;
+
+    private SortedProducts(Comparator<CompactProduct> order, CompactProduct[][] chunks) {
+        this.order = order;
+        this.chunks = chunks;
+        this.starts = new int[chunks.length];
+        int next = 0;
+        for (int c = 0; c < chunks.length; c++) {
+            starts[c] = next;
+            next += chunks[c].length;
+        }
+        this.size = next;
+    }
+
+    /**
+     * @param sorted Products already in the given order, without duplicates.
+     */
+    static SortedProducts of(CompactProduct[] sorted, Comparator<CompactProduct> order) {
+        CompactProduct[][] chunks = new CompactProduct[(sorted.length + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        for (int c = 0; c < chunks.length; c++) {
+            int from = c * CHUNK_SIZE;
+            chunks[c] = Arrays.copyOfRange(sorted, from, Math.min(from + CHUNK_SIZE, sorted.length));
+        }
+        return new SortedProducts(order, chunks);
+    }
+
+    static SortedProducts empty(Comparator<CompactProduct> order) {
+        return new SortedProducts(order, NO_CHUNKS);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    CompactProduct get(int position) {
+        int c = chunkAt(position);
+        return chunks[c][position - starts[c]];
+    }
+
+    /**
+     * @return The position of the first product not before the key, or size()
+     *         if every product is.
+     */
+    int lowerBound(ToIntFunction<CompactProduct> key) {
+        int c = firstChunkNotBefore(key);
+        return c < chunks.length ? starts[c] + indexInChunk(chunks[c], key) : size;
+    }
+
+    /**
+     * @return The product matching the key, or null if there is none.
+     */
+    CompactProduct find(ToIntFunction<CompactProduct> key) {
+        int position = lowerBound(key);
+        if (position == size) {
+            return null;
+        }
+        CompactProduct product = get(position);
+        return key.applyAsInt(product) == 0 ? product : null;
+    }
+
+    /**
+     * @return The products from position from up to, not including, to.
+     */
+    CompactProduct[] slice(int from, int to) {
+        CompactProduct[] slice = new CompactProduct[Math.max(0, to - from)];
+        int filled = 0;
+        for (int c = from < size ? chunkAt(from) : chunks.length; c < chunks.length && filled < slice.length; c++) {
+            int offset = filled == 0 ? from - starts[c] : 0;
+            int n = Math.min(chunks[c].length - offset, slice.length - filled);
+            System.arraycopy(chunks[c], offset, slice, filled, n);
+            filled += n;
+        }
+        return slice;
+    }
+
+    CompactProduct[] toArray() {
+        return slice(0, size);
+    }
+
+    /**
+     * @return This list with the product added, or replacing the product the
+     *         order considers equal to it.
+     */
+    SortedProducts with(CompactProduct product) {
+        if (chunks.length == 0) {
+            return new SortedProducts(order, new CompactProduct[][] {{product}});
+        }
+        ToIntFunction<CompactProduct> key = p -> order.compare(p, product);
+        // Past the last chunk's end, the product is appended to that chunk
+        int c = Math.min(firstChunkNotBefore(key), chunks.length - 1);
+        CompactProduct[] chunk = chunks[c];
+        int i = indexInChunk(chunk, key);
+        if (i < chunk.length && key.applyAsInt(chunk[i]) == 0) {
+            CompactProduct[] replaced = chunk.clone();
+            replaced[i] = product;
+            return withChunks(c, replaced);
+        }
+        CompactProduct[] grown = new CompactProduct[chunk.length + 1];
+        System.arraycopy(chunk, 0, grown, 0, i);
+        grown[i] = product;
+        System.arraycopy(chunk, i, grown, i + 1, chunk.length - i);
+        if (grown.length < 2 * CHUNK_SIZE) {
+            return withChunks(c, grown);
+        }
+        return withChunks(c, Arrays.copyOfRange(grown, 0, CHUNK_SIZE),
+                Arrays.copyOfRange(grown, CHUNK_SIZE, grown.length));
+    }
+
+    /**
+     * @return This list with old (if not null) replaced by product; in place
+     *         when both sort the same.
+     */
+    SortedProducts replacing(CompactProduct old, CompactProduct product) {
+        boolean moved = old != null && order.compare(old, product) != 0;
+        return (moved ? without(old) : this).with(product);
+    }
+
+    /**
+     * @return This list without the product the order considers equal to the
+     *         given one, or this list if there is none.
+     */
+    SortedProducts without(CompactProduct product) {
+        ToIntFunction<CompactProduct> key = p -> order.compare(p, product);
+        int c = firstChunkNotBefore(key);
+        if (c == chunks.length) {
+            return this;
+        }
+        CompactProduct[] chunk = chunks[c];
+        int i = indexInChunk(chunk, key);
+        if (key.applyAsInt(chunk[i]) != 0) {
+            return this;
+        }
+        if (chunk.length == 1) {
+            return withChunks(c);
+        }
+        CompactProduct[] shrunk = new CompactProduct[chunk.length - 1];
+        System.arraycopy(chunk, 0, shrunk, 0, i);
+        System.arraycopy(chunk, i + 1, shrunk, i, chunk.length - i - 1);
+        return withChunks(c, shrunk);
+    }
+
+    // A copy of the chunk table with chunk c replaced by the given chunks
+    private SortedProducts withChunks(int c, CompactProduct[]... replacement) {
+        CompactProduct[][] table = new CompactProduct[chunks.length - 1 + replacement.length][];
+        System.arraycopy(chunks, 0, table, 0, c);
+        System.arraycopy(replacement, 0, table, c, replacement.length);
+        System.arraycopy(chunks, c + 1, table, c + replacement.length, chunks.length - c - 1);
+        return new SortedProducts(order, table);
+    }
+
+    // First chunk whose last product is not before the key, or chunks.length
+    private int firstChunkNotBefore(ToIntFunction<CompactProduct> key) {
+        int low = 0;
+        int high = chunks.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            CompactProduct[] chunk = chunks[mid];
+            if (key.applyAsInt(chunk[chunk.length - 1]) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First index in the chunk not before the key, or the chunk's length
+    private static int indexInChunk(CompactProduct[] chunk, ToIntFunction<CompactProduct> key) {
+        int low = 0;
+        int high = chunk.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key.applyAsInt(chunk[mid]) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int chunkAt(int position) {
+        int c = Arrays.binarySearch(starts, position);
+        return c >= 0 ? c : -c - 2;
+    }
+}
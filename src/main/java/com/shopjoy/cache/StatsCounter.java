@@ -0,0 +1,74 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.util.LatencyRecorder;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StatsCounter - Running hit, miss, load and removal counts for one cache
+ * region.
+ *
+ * Counters are LongAdders, which spread increments over per-thread cells, so
+ * recording a hit on the read path does not make readers contend on a shared
+ * counter.
+ */
+public final class StatsCounter {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LatencyRecorder loads = new LatencyRecorder();
+    private final LongAdder[] removals = new LongAdder[RemovalCause.values().length];
+
+    public StatsCounter() {
+        for (int i = 0; i < removals.length; i++) {
+            removals[i] = new LongAdder();
+        }
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * Records that count entries were removed for the given cause.
+     */
+    public void recordRemovals(RemovalCause cause, long count) {
+        if (count > 0) {
+            removals[cause.ordinal()].add(count);
+        }
+    }
+
+    /**
+     * Runs the loader and records how long it took and whether it failed.
+     *
+     * @return Whatever the loader returned.
+     */
+    public <V> V recordLoad(CacheLoader<V> loader) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            V value = loader.load();
+            loads.record(System.nanoTime() - start);
+            return value;
+        } catch (SQLException | RuntimeException e) {
+            loads.record(System.nanoTime() - start);
+            loadFailures.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes a snapshot of the counters together with the region's current size.
+     */
+    public CacheStats snapshot(String region, long size, long weightedSize, long maximumWeight) {
+        return new CacheStats(region, size, weightedSize, maximumWeight, hits.sum(), misses.sum(),
+                loads, loadFailures.sum(),
+                removals[RemovalCause.SIZE.ordinal()].sum(),
+                removals[RemovalCause.EXPIRED.ordinal()].sum(),
+                removals[RemovalCause.EXPLICIT.ordinal()].sum());
+    }
+}
@@ -0,0 +1,38 @@
+package com.shopjoy.cache;
+
+import java.util.Collection;
+
+/**
+ * Weigher - Computes the relative size of a cache entry. A BoundedCache evicts
+ * once the sum of its entry weights exceeds its maximum weight.
+ *
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * Returns the weight of an entry. Called once when the entry is written.
+     *
+     * @param key   The entry key.
+     * @param value The entry value.
+     * @return A non-negative weight.
+     */
+    int weigh(K key, V value);
+
+    /**
+     * Every entry weighs 1, so the maximum weight is a maximum entry count.
+     */
+    static <K, V> Weigher<K, V> singleton() {
+        return (key, value) -> 1;
+    }
+
+    /**
+     * Weighs collection values by their element count, plus 1 so that empty
+     * results still count.
+     */
+    static <K, V extends Collection<?>> Weigher<K, V> collectionSize() {
+        return (key, value) -> 1 + value.size();
+    }
+}
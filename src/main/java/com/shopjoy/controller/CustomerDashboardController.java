@@ -80,7 +80,7 @@ public class CustomerDashboardController {
             if (newVal == null || "All Products".equals(newVal.getCategoryName())) {
                 loadAndDisplayProducts(productService.getAllProducts());
             } else {
-                loadAndDisplayProducts(productService.getProductsByCategory(newVal.getCategoryId()));
+                loadAndDisplayProducts(productService.getProductsInCategoryTree(newVal.getCategoryId()));
             }
         });
 
@@ -372,8 +372,6 @@ public class CustomerDashboardController {
 
             box.getChildren().add(checkoutFormBox);
 
-            final double finalTotal = total;
-
             if (!showCheckoutForm) {
                 // Show "Proceed to Checkout" button
                 Button checkoutBtn = new Button("Proceed to Checkout");
@@ -412,26 +410,14 @@ public class CustomerDashboardController {
                         return;
                     }
 
-                    // Convert cart items to order items
-                    List<OrderItem> orderItems = new ArrayList<>();
-                    for (CartItem cartItem : items) {
-                        OrderItem orderItem = new OrderItem();
-                        orderItem.setProductId(cartItem.getProduct().getProductId());
-                        orderItem.setQuantity(cartItem.getQuantity());
-                        orderItems.add(orderItem);
-                    }
-
-                    Order createdOrder = orderService.createOrder(user.getUserId(), orderItems, address, payment);
+                    // Places the order and empties the cart in one transaction
+                    Order createdOrder = cartService.checkout(user.getUserId(), address, payment);
                     if (createdOrder != null) {
-                        // Clear cart
-                        for (CartItem item : items) {
-                            cartService.removeFromCart(item.getCartItemId());
-                        }
                         updateCartCount();
 
                         showAlert(Alert.AlertType.INFORMATION, "Order Placed",
                                 "Your order has been placed successfully!\nOrder Total: "
-                                        + CURRENCY.format(finalTotal));
+                                        + CURRENCY.format(createdOrder.getTotalAmount()));
                         dialog.close();
                     } else {
                         showAlert(Alert.AlertType.ERROR, "Order Failed",
@@ -1,14 +1,15 @@
 package com.shopjoy.controller;
 
+import com.shopjoy.model.OrderStatus;
 import com.shopjoy.model.User;
 import com.shopjoy.service.OrderService;
 import com.shopjoy.service.UserService;
+import com.shopjoy.util.AppConfig;
 import javafx.beans.property.SimpleIntegerProperty;
 
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -16,6 +17,7 @@ import javafx.scene.layout.HBox;
 import javafx.util.Callback;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
@@ -53,11 +55,16 @@ public class CustomersManagementController {
     private TableColumn<CustomerViewModel, String> joinDateCol;
     @FXML
     private TableColumn<CustomerViewModel, Void> actionsCol;
+    @FXML
+    private Button loadMoreButton;
 
     private final UserService userService = new UserService();
     private final OrderService orderService = new OrderService();
     private final ObservableList<CustomerViewModel> masterData = FXCollections.observableArrayList();
-    private FilteredList<CustomerViewModel> filteredData;
+
+    // Keyset cursor: sort key and id of the last loaded customer
+    private String lastUsername;
+    private Integer lastUserId;
 
     @FXML
     public void initialize() {
@@ -77,8 +84,7 @@ public class CustomersManagementController {
 
         actionsCol.setCellFactory(createActionCellFactory());
 
-        filteredData = new FilteredList<>(masterData, p -> true);
-        customersTable.setItems(filteredData);
+        customersTable.setItems(masterData);
     }
 
     private Callback<TableColumn<CustomerViewModel, Void>, TableCell<CustomerViewModel, Void>> createActionCellFactory() {
@@ -118,50 +124,55 @@ public class CustomersManagementController {
 
     private void loadData() {
         masterData.clear();
-        List<User> customers = userService.getAllCustomers();
-        if (customers != null) {
-            int newCustomers = 0;
-            LocalDate now = LocalDate.now();
-
-            for (User u : customers) {
-                int orderCount = orderService.getOrderCountByUser(u.getUserId());
-                masterData.add(new CustomerViewModel(u, orderCount));
-
-                if (u.getCreatedAt() != null &&
-                        u.getCreatedAt().getMonth() == now.getMonth() &&
-                        u.getCreatedAt().getYear() == now.getYear()) {
-                    newCustomers++;
-                }
-            }
+        lastUsername = null;
+        lastUserId = null;
+        loadNextPage();
 
-            totalCustomersLabel.setText(String.valueOf(customers.size()));
-            newCustomersLabel.setText(String.valueOf(newCustomers));
+        totalCustomersLabel.setText(String.valueOf(userService.getCustomerCount(null)));
+        LocalDateTime monthStart = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        newCustomersLabel.setText(String.valueOf(userService.getCustomerCount(monthStart)));
+
+        // Active orders = pending orders, counted by the database
+        int activeOrders = orderService.getOrderCountsByStatus().getOrDefault(OrderStatus.PENDING, 0);
+        activeOrdersLabel.setText(String.valueOf(activeOrders));
+    }
+
+    private String currentSearch() {
+        String filter = searchField.getText();
+        return filter == null || filter.isBlank() ? null : filter.trim();
+    }
 
-            // For active orders, we'd need a way to sum active orders across all users,
-            // or just query all active orders from OrderService directly.
-            // Simplified: Query all pending/processing orders from OrderService
-            int activeOrders = orderService.getPendingOrders() != null ? orderService.getPendingOrders().size() : 0;
-            activeOrdersLabel.setText(String.valueOf(activeOrders));
+    /**
+     * Appends the next keyset page of customers; search is applied by the database.
+     */
+    private void loadNextPage() {
+        List<User> customers = userService.getCustomersPage(currentSearch(), lastUsername, lastUserId,
+                AppConfig.DEFAULT_PAGE_SIZE);
+        for (User u : customers) {
+            int orderCount = orderService.getOrderCountByUser(u.getUserId());
+            masterData.add(new CustomerViewModel(u, orderCount));
+        }
+        if (!customers.isEmpty()) {
+            User last = customers.get(customers.size() - 1);
+            lastUsername = last.getUsername();
+            lastUserId = last.getUserId();
         }
+        loadMoreButton.setDisable(customers.size() < AppConfig.DEFAULT_PAGE_SIZE);
     }
 
     @FXML
     private void handleSearch(ActionEvent event) {
-        String filter = searchField.getText();
-        if (filter == null || filter.isBlank()) {
-            filteredData.setPredicate(p -> true);
-        } else {
-            String lower = filter.toLowerCase();
-            filteredData.setPredicate(cust -> cust.getUsername().toLowerCase().contains(lower) ||
-                    cust.getEmail().toLowerCase().contains(lower) ||
-                    cust.getFullName().toLowerCase().contains(lower));
-        }
+        loadData();
+    }
+
+    @FXML
+    private void handleLoadMore(ActionEvent event) {
+        loadNextPage();
     }
 
     @FXML
     private void handleRefresh(ActionEvent event) {
         searchField.clear();
-        filteredData.setPredicate(p -> true);
         loadData();
     }
 
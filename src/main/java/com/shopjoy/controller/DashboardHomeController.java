@@ -147,8 +147,7 @@ public class DashboardHomeController {
             totalProductsLabel.setText(String.valueOf(allProducts.size()));
 
             // Total Orders
-            List<Order> allOrders = orderService.getAllOrders();
-            totalOrdersLabel.setText(String.valueOf(allOrders.size()));
+            totalOrdersLabel.setText(String.valueOf(orderService.getOrderCount()));
 
             // Total Revenue
             double totalRevenue = orderService.getTotalRevenue();
@@ -218,12 +217,10 @@ public class DashboardHomeController {
      */
     private void loadRecentOrders() {
         try {
-            // Get all orders and sort by date descending
-            List<Order> allOrders = orderService.getAllOrders();
-            List<Order> recentOrders = allOrders.stream()
-                    .sorted((o1, o2) -> o2.getOrderDate().compareTo(o1.getOrderDate()))
-                    .limit(10)
-                    .toList();
+            // Newest 10 orders, limited in the database
+            List<Order> recentOrders = orderService.getRecentOrders(10);
+            if (recentOrders == null)
+                recentOrders = List.of();
 
             ObservableList<Order> ordersList = FXCollections.observableArrayList(recentOrders);
             recentOrdersTable.setItems(ordersList);
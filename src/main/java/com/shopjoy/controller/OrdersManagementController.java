@@ -1,11 +1,13 @@
 package com.shopjoy.controller;
 
 import com.shopjoy.model.Order;
+import com.shopjoy.model.OrderItem;
 import com.shopjoy.model.OrderStatus;
 import com.shopjoy.model.PaymentStatus;
 import com.shopjoy.model.User;
 import com.shopjoy.service.OrderService;
 import com.shopjoy.service.UserService;
+import com.shopjoy.util.AppConfig;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -18,10 +20,13 @@ import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.util.Callback;
 
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class OrdersManagementController {
@@ -80,11 +85,18 @@ public class OrdersManagementController {
     @FXML
     private TableColumn<OrderViewModel, Void> orderActionsColumn;
 
+    @FXML
+    private Button loadMoreButton;
+
     private final OrderService orderService = new OrderService();
     private final UserService userService = new UserService();
     private final ObservableList<OrderViewModel> orderList = FXCollections.observableArrayList();
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
+    // Keyset cursor: sort key and id of the last loaded order
+    private LocalDateTime lastOrderDate;
+    private Integer lastOrderId;
+
     @FXML
     public void initialize() {
         setupTableColumns();
@@ -174,52 +186,79 @@ public class OrdersManagementController {
     }
 
     private void loadOrderData() {
+        orderList.clear();
+        lastOrderDate = null;
+        lastOrderId = null;
+        loadNextPage();
+        ordersTable.setItems(orderList);
+        updateStats();
+    }
+
+    private OrderStatus selectedStatus() {
         String filter = statusFilterCombo.getValue();
-        List<Order> orders;
+        return filter == null || filter.equals("All") ? null : OrderStatus.valueOf(filter);
+    }
 
-        if (filter == null || filter.equals("All")) {
-            orders = orderService.getAllOrders();
-        } else {
-            OrderStatus status = OrderStatus.valueOf(filter);
-            orders = orderService.getOrdersByStatus(status);
-        }
+    /**
+     * Appends the next keyset page of orders after the last row already shown.
+     */
+    private void loadNextPage() {
+        List<Order> orders = orderService.getOrdersPage(selectedStatus(), lastOrderDate, lastOrderId,
+                AppConfig.DEFAULT_PAGE_SIZE);
 
-        orderList.clear();
-        double revenue = 0;
-        int pending = 0;
-        int processing = 0;
-        int shipped = 0;
+        // One lookup for all customers on the page
+        Set<Integer> userIds = orders.stream().map(Order::getUserId).collect(Collectors.toSet());
+        Map<Integer, User> users = userService.getUsersByIds(userIds).stream()
+                .collect(Collectors.toMap(User::getUserId, u -> u));
+
+        // Likewise one query for the items of every order on the page
+        Set<Integer> orderIds = orders.stream().map(Order::getOrderId).collect(Collectors.toSet());
+        Map<Integer, List<OrderItem>> itemsByOrder = orderService.getOrderItemsByOrderIds(orderIds);
 
         for (Order o : orders) {
-            // Fetch User
-            User u = userService.getUserById(o.getUserId());
-            // Count items (inefficient but necessary without join)
-            int itemsCount = 0;
-            var items = orderService.getOrderItems(o.getOrderId());
-            if (items != null) {
-                itemsCount = items.stream().mapToInt(it -> it.getQuantity()).sum();
-            }
+            int itemsCount = itemsByOrder.getOrDefault(o.getOrderId(), List.of()).stream()
+                    .mapToInt(OrderItem::getQuantity).sum();
+            orderList.add(new OrderViewModel(o, users.get(o.getUserId()), itemsCount));
+        }
 
-            orderList.add(new OrderViewModel(o, u, itemsCount));
+        if (!orders.isEmpty()) {
+            Order last = orders.get(orders.size() - 1);
+            lastOrderDate = last.getOrderDate();
+            lastOrderId = last.getOrderId();
+        }
+        loadMoreButton.setDisable(orders.size() < AppConfig.DEFAULT_PAGE_SIZE);
+    }
 
-            // Stats
-            revenue += o.getTotalAmount();
-            if (o.getStatus() == OrderStatus.PENDING)
-                pending++;
-            else if (o.getStatus() == OrderStatus.PROCESSING)
-                processing++;
-            else if (o.getStatus() == OrderStatus.SHIPPED)
-                shipped++;
+    /**
+     * Stats come from aggregate queries so they cover every order, not just the
+     * loaded pages.
+     */
+    private void updateStats() {
+        OrderStatus status = selectedStatus();
+        Map<OrderStatus, Integer> counts = orderService.getOrderCountsByStatus();
+
+        int total = 0;
+        for (Map.Entry<OrderStatus, Integer> e : counts.entrySet()) {
+            if (status == null || e.getKey() == status)
+                total += e.getValue();
         }
 
-        ordersTable.setItems(orderList);
+        totalOrdersLabel.setText(String.valueOf(total));
+        pendingOrdersLabel.setText(String.valueOf(countFor(counts, status, OrderStatus.PENDING)));
+        processingOrdersLabel.setText(String.valueOf(countFor(counts, status, OrderStatus.PROCESSING)));
+        shippedOrdersLabel.setText(String.valueOf(countFor(counts, status, OrderStatus.SHIPPED)));
+        totalRevenueLabel.setText(String.format(Locale.US, "$%,.2f", orderService.getTotalOrderAmount(status)));
+    }
 
-        // Update Stats Labels
-        totalOrdersLabel.setText(String.valueOf(orders.size()));
-        pendingOrdersLabel.setText(String.valueOf(pending));
-        processingOrdersLabel.setText(String.valueOf(processing));
-        shippedOrdersLabel.setText(String.valueOf(shipped));
-        totalRevenueLabel.setText(String.format(Locale.US, "$%,.2f", revenue));
+    private int countFor(Map<OrderStatus, Integer> counts, OrderStatus filter, OrderStatus status) {
+        if (filter != null && filter != status)
+            return 0;
+        return counts.getOrDefault(status, 0);
+    }
+
+    @FXML
+    void handleLoadMore(ActionEvent event) {
+        loadNextPage();
     }
 
     @FXML
@@ -6,6 +6,7 @@ import com.shopjoy.model.Product;
 import com.shopjoy.service.CategoryService;
 import com.shopjoy.service.InventoryService;
 import com.shopjoy.service.ProductService;
+import com.shopjoy.util.AppConfig;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -27,10 +28,8 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * ProductsManagementController - Manages product listing, search, filter, and
@@ -108,6 +107,9 @@ public class ProductsManagementController {
     @FXML
     private Button exportButton;
 
+    @FXML
+    private Button loadMoreButton;
+
     // Service instances
     private ProductService productService = new ProductService();
     private CategoryService categoryService = new CategoryService();
@@ -115,7 +117,10 @@ public class ProductsManagementController {
 
     // Data
     private ObservableList<Product> productsList = FXCollections.observableArrayList();
-    private List<Product> allProducts = new ArrayList<>();
+
+    // Keyset cursor: sort key and id of the last loaded product
+    private String lastProductName;
+    private Integer lastProductId;
 
     /**
      * Initialize method - called after FXML injection
@@ -132,8 +137,8 @@ public class ProductsManagementController {
         statusFilterCombo.getItems().addAll("All Status", "Active", "Inactive");
         statusFilterCombo.setValue("All Status");
 
-        // Load all products
-        loadAllProducts();
+        // Load the first page of products
+        loadProducts();
 
         // Set table items
         productsTable.setItems(productsList);
@@ -351,13 +356,14 @@ public class ProductsManagementController {
     }
 
     /**
-     * Load all products from database
+     * Reload the first page of products for the current search and filters
      */
-    private void loadAllProducts() {
+    private void loadProducts() {
         try {
-            allProducts = productService.getAllProducts();
-            productsList.setAll(allProducts);
-            updateProductCount();
+            productsList.clear();
+            lastProductName = null;
+            lastProductId = null;
+            loadNextPage();
         } catch (Exception e) {
             System.err.println("Error loading products: " + e.getMessage());
             e.printStackTrace();
@@ -365,6 +371,37 @@ public class ProductsManagementController {
         }
     }
 
+    /**
+     * Append the next keyset page; search and filters are applied by the database
+     */
+    private void loadNextPage() {
+        Category selectedCategory = categoryFilterCombo.getValue();
+        Integer categoryId = selectedCategory != null ? selectedCategory.getCategoryId() : null;
+
+        Boolean active = null;
+        String status = statusFilterCombo.getValue();
+        if ("Active".equals(status)) {
+            active = true;
+        } else if ("Inactive".equals(status)) {
+            active = false;
+        }
+
+        String searchTerm = productSearchField.getText() != null ? productSearchField.getText().trim() : "";
+
+        List<Product> page = productService.getProductsPage(categoryId, active,
+                searchTerm.isEmpty() ? null : searchTerm, lastProductName, lastProductId,
+                AppConfig.DEFAULT_PAGE_SIZE);
+        productsList.addAll(page);
+
+        if (!page.isEmpty()) {
+            Product last = page.get(page.size() - 1);
+            lastProductName = last.getProductName();
+            lastProductId = last.getProductId();
+        }
+        loadMoreButton.setDisable(page.size() < AppConfig.DEFAULT_PAGE_SIZE);
+        updateProductCount();
+    }
+
     /**
      * Update product count label
      */
@@ -377,20 +414,7 @@ public class ProductsManagementController {
      */
     @FXML
     public void handleSearch(ActionEvent event) {
-        String searchTerm = productSearchField.getText().trim().toLowerCase();
-
-        if (searchTerm.isEmpty()) {
-            productsList.setAll(allProducts);
-        } else {
-            List<Product> results = allProducts.stream()
-                    .filter(p -> p.getProductName().toLowerCase().contains(searchTerm) ||
-                            (p.getSku() != null && p.getSku().toLowerCase().contains(searchTerm)) ||
-                            (p.getBrand() != null && p.getBrand().toLowerCase().contains(searchTerm)))
-                    .collect(Collectors.toList());
-            productsList.setAll(results);
-        }
-
-        updateProductCount();
+        loadProducts();
     }
 
     /**
@@ -401,8 +425,7 @@ public class ProductsManagementController {
         productSearchField.clear();
         categoryFilterCombo.setValue(null);
         statusFilterCombo.setValue("All Status");
-        productsList.setAll(allProducts);
-        updateProductCount();
+        loadProducts();
     }
 
     /**
@@ -410,32 +433,15 @@ public class ProductsManagementController {
      */
     @FXML
     public void handleApplyFilters(ActionEvent event) {
-        List<Product> filtered = new ArrayList<>(allProducts);
-
-        // Filter by category
-        Category selectedCategory = categoryFilterCombo.getValue();
-        if (selectedCategory != null) {
-            filtered = filtered.stream()
-                    .filter(p -> p.getCategoryId() == selectedCategory.getCategoryId())
-                    .collect(Collectors.toList());
-        }
-
-        // Filter by status
-        String status = statusFilterCombo.getValue();
-        if (status != null && !status.equals("All Status")) {
-            if (status.equals("Active")) {
-                filtered = filtered.stream()
-                        .filter(Product::isActive)
-                        .collect(Collectors.toList());
-            } else if (status.equals("Inactive")) {
-                filtered = filtered.stream()
-                        .filter(p -> !p.isActive())
-                        .collect(Collectors.toList());
-            }
-        }
+        loadProducts();
+    }
 
-        productsList.setAll(filtered);
-        updateProductCount();
+    /**
+     * Handle load more button click
+     */
+    @FXML
+    public void handleLoadMore(ActionEvent event) {
+        loadNextPage();
     }
 
     /**
@@ -453,7 +459,7 @@ public class ProductsManagementController {
             stage.showAndWait();
 
             // Refresh list after dialog closes
-            loadAllProducts();
+            loadProducts();
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -502,7 +508,7 @@ public class ProductsManagementController {
             stage.showAndWait();
 
             // Refresh list after dialog closes
-            loadAllProducts();
+            loadProducts();
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -524,7 +530,7 @@ public class ProductsManagementController {
             if (response == ButtonType.OK) {
                 try {
                     productService.deleteProduct(product.getProductId());
-                    loadAllProducts();
+                    loadProducts();
                     showInfo("Success", "Product deleted successfully.");
                 } catch (Exception e) {
                     System.err.println("Error deleting product: " + e.getMessage());
@@ -540,7 +546,7 @@ public class ProductsManagementController {
      */
     @FXML
     public void handleRefresh(ActionEvent event) {
-        loadAllProducts();
+        loadProducts();
         showInfo("Refreshed", "Product list has been refreshed.");
     }
 
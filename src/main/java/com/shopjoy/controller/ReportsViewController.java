@@ -1,12 +1,12 @@
 package com.shopjoy.controller;
 
 import com.shopjoy.model.Inventory;
-import com.shopjoy.model.Order;
 import com.shopjoy.model.Product;
 import com.shopjoy.model.User;
 import com.shopjoy.service.InventoryService;
 import com.shopjoy.service.OrderService;
 import com.shopjoy.service.ProductService;
+import com.shopjoy.service.ProductWithStock;
 import com.shopjoy.service.UserService;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -90,51 +90,57 @@ public class ReportsViewController {
     private void generateSalesReport(StringBuilder sb, LocalDateTime start, LocalDateTime end) {
         sb.append("SALES REPORT\n\n");
 
-        List<Order> allOrders = orderService.getAllOrders();
-        // Filter by date
-        List<Order> rangeOrders = allOrders.stream()
-                .filter(o -> !o.getOrderDate().isBefore(start) && !o.getOrderDate().isAfter(end))
-                .collect(Collectors.toList());
-
-        double totalRevenue = rangeOrders.stream().mapToDouble(Order::getTotalAmount).sum();
-        int totalOrders = rangeOrders.size();
+        // Orders are streamed from a cursor, so only the report text is held in memory
+        StringBuilder details = new StringBuilder();
+        double[] totalRevenue = {0.0};
+        int[] totalOrders = {0};
+        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        orderService.streamOrdersByDateRange(start, end, o -> {
+            totalRevenue[0] += o.getTotalAmount();
+            totalOrders[0]++;
+            details.append(String.format("Order #%d - %s - $%,.2f - %s\n",
+                    o.getOrderId(),
+                    o.getOrderDate().format(dateFormat),
+                    o.getTotalAmount(),
+                    o.getStatus()));
+        });
 
-        sb.append(String.format("Total Revenue: $%,.2f\n", totalRevenue));
-        sb.append("Total Orders: ").append(totalOrders).append("\n");
+        sb.append(String.format("Total Revenue: $%,.2f\n", totalRevenue[0]));
+        sb.append("Total Orders: ").append(totalOrders[0]).append("\n");
         sb.append("Average Order Value: $")
-                .append(totalOrders > 0 ? String.format("%,.2f", totalRevenue / totalOrders) : "0.00").append("\n\n");
+                .append(totalOrders[0] > 0 ? String.format("%,.2f", totalRevenue[0] / totalOrders[0]) : "0.00")
+                .append("\n\n");
 
         sb.append("Details:\n");
-        for (Order o : rangeOrders) {
-            sb.append(String.format("Order #%d - %s - $%,.2f - %s\n",
-                    o.getOrderId(),
-                    o.getOrderDate().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
-                    o.getTotalAmount(),
-                    o.getStatus()));
-        }
+        sb.append(details);
     }
 
     private void generateInventoryReport(StringBuilder sb) {
         sb.append("INVENTORY REPORT (Current State)\n\n");
-        List<Inventory> inventoryList = inventoryService.getAllInventory();
+
+        long[] counts = new long[3]; // tracked, low stock, out of stock
+        inventoryService.forEachInventory(i -> {
+            counts[0]++;
+            if (i.getQuantityInStock() <= i.getReorderLevel())
+                counts[1]++;
+            if (i.getQuantityInStock() == 0)
+                counts[2]++;
+        });
 
         double totalStockValue = inventoryService.getTotalStockValue();
-        long lowStockCount = inventoryList.stream().filter(i -> i.getQuantityInStock() <= i.getReorderLevel()).count();
-        long outOfStockCount = inventoryList.stream().filter(i -> i.getQuantityInStock() == 0).count();
 
         sb.append(String.format("Total Stock Value: $%,.2f\n", totalStockValue));
-        sb.append("Total Items Tracked: ").append(inventoryList.size()).append("\n");
-        sb.append("Low Stock Items: ").append(lowStockCount).append("\n");
-        sb.append("Out of Stock Items: ").append(outOfStockCount).append("\n\n"); // Fixed typo
+        sb.append("Total Items Tracked: ").append(counts[0]).append("\n");
+        sb.append("Low Stock Items: ").append(counts[1]).append("\n");
+        sb.append("Out of Stock Items: ").append(counts[2]).append("\n\n"); // Fixed typo
 
         sb.append("Low Stock / Out of Stock List:\n");
-        for (Inventory i : inventoryList) {
-            if (i.getQuantityInStock() <= i.getReorderLevel()) {
-                Product p = productService.getProductById(i.getProductId());
-                String pName = p != null ? p.getProductName() : "ID:" + i.getProductId();
-                sb.append(String.format("- %s : In Stock: %d (Reorder: %d)\n", pName, i.getQuantityInStock(),
-                        i.getReorderLevel()));
-            }
+        for (ProductWithStock item : inventoryService.getLowStockProducts()) {
+            Inventory i = item.getInventory();
+            Product p = item.getProduct();
+            String pName = p != null ? p.getProductName() : "ID:" + i.getProductId();
+            sb.append(String.format("- %s : In Stock: %d (Reorder: %d)\n", pName, i.getQuantityInStock(),
+                    i.getReorderLevel()));
         }
     }
 
@@ -6,20 +6,24 @@ import com.shopjoy.model.User;
 import com.shopjoy.service.ProductService;
 import com.shopjoy.service.ReviewService;
 import com.shopjoy.service.UserService;
+import com.shopjoy.util.AppConfig;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.util.Callback;
 
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class ReviewsManagementController {
 
@@ -57,12 +61,17 @@ public class ReviewsManagementController {
     private TableColumn<ReviewViewModel, String> dateCol;
     @FXML
     private TableColumn<ReviewViewModel, Void> actionsCol;
+    @FXML
+    private Button loadMoreButton;
 
     private final ReviewService reviewService = new ReviewService();
     private final ProductService productService = new ProductService();
     private final UserService userService = new UserService();
     private final ObservableList<ReviewViewModel> masterData = FXCollections.observableArrayList();
-    private FilteredList<ReviewViewModel> filteredData;
+
+    // Keyset cursor: sort key and id of the last loaded review
+    private LocalDateTime lastCreatedAt;
+    private Integer lastReviewId;
 
     @FXML
     public void initialize() {
@@ -89,8 +98,7 @@ public class ReviewsManagementController {
 
         actionsCol.setCellFactory(createActionCellFactory());
 
-        filteredData = new FilteredList<>(masterData, p -> true);
-        reviewsTable.setItems(filteredData);
+        reviewsTable.setItems(masterData);
     }
 
     private Callback<TableColumn<ReviewViewModel, Void>, TableCell<ReviewViewModel, Void>> createActionCellFactory() {
@@ -138,51 +146,65 @@ public class ReviewsManagementController {
 
     private void loadData() {
         masterData.clear();
-        List<Review> allReviews = reviewService.getAllReviews(); // Added method
-
-        double totalRatingSum = 0;
-        int count = 0;
-        int verified = 0;
-
-        if (allReviews != null) {
-            for (Review r : allReviews) {
-                String pName = "Unknown Product";
-                Product p = productService.getProductById(r.getProductId());
-                if (p != null)
-                    pName = p.getProductName();
-
-                String uName = "Unknown User";
-                User u = userService.getUserById(r.getUserId());
-                if (u != null)
-                    uName = u.getUsername();
-
-                masterData.add(new ReviewViewModel(r, pName, uName));
-
-                count++;
-                totalRatingSum += r.getRating();
-                if (r.isVerifiedPurchase())
-                    verified++;
-            }
+        lastCreatedAt = null;
+        lastReviewId = null;
+        loadNextPage();
+
+        // Stats cover all reviews, not just the loaded pages
+        totalReviewsLabel.setText(String.valueOf(reviewService.getTotalReviewCount()));
+        avgRatingLabel.setText(String.format("%.1f", reviewService.getOverallAverageRating()));
+        verifiedCountLabel.setText(String.valueOf(reviewService.getVerifiedReviewCount()));
+    }
+
+    private Integer selectedRating() {
+        String selected = ratingFilterCombo.getSelectionModel().getSelectedItem();
+        if (selected == null || selected.equals("All Ratings"))
+            return null;
+        // "5 Stars", "4 Stars" ...
+        return Integer.parseInt(selected.substring(0, 1));
+    }
+
+    /**
+     * Appends the next keyset page of reviews with product and customer names
+     * resolved in one lookup each.
+     */
+    private void loadNextPage() {
+        List<Review> reviews = reviewService.getReviewsPage(selectedRating(), lastCreatedAt, lastReviewId,
+                AppConfig.DEFAULT_PAGE_SIZE);
+
+        Map<Integer, String> productNames = new HashMap<>();
+        for (Product p : productService.getProductsByIds(
+                reviews.stream().map(Review::getProductId).collect(Collectors.toSet()))) {
+            productNames.put(p.getProductId(), p.getProductName());
+        }
+        Map<Integer, String> userNames = new HashMap<>();
+        for (User u : userService.getUsersByIds(
+                reviews.stream().map(Review::getUserId).collect(Collectors.toSet()))) {
+            userNames.put(u.getUserId(), u.getUsername());
         }
 
-        totalReviewsLabel.setText(String.valueOf(count));
-        double avg = count > 0 ? totalRatingSum / count : 0.0;
-        avgRatingLabel.setText(String.format("%.1f", avg));
-        verifiedCountLabel.setText(String.valueOf(verified));
+        for (Review r : reviews) {
+            masterData.add(new ReviewViewModel(r,
+                    productNames.getOrDefault(r.getProductId(), "Unknown Product"),
+                    userNames.getOrDefault(r.getUserId(), "Unknown User")));
+        }
 
-        handleFilter(null); // Re-apply current filter
+        if (!reviews.isEmpty()) {
+            Review last = reviews.get(reviews.size() - 1);
+            lastCreatedAt = last.getCreatedAt();
+            lastReviewId = last.getReviewId();
+        }
+        loadMoreButton.setDisable(reviews.size() < AppConfig.DEFAULT_PAGE_SIZE);
     }
 
     @FXML
     private void handleFilter(ActionEvent event) {
-        String selected = ratingFilterCombo.getSelectionModel().getSelectedItem();
-        if (selected == null || selected.equals("All Ratings")) {
-            filteredData.setPredicate(p -> true);
-        } else {
-            // "5 Stars", "4 Stars" ...
-            int stars = Integer.parseInt(selected.substring(0, 1));
-            filteredData.setPredicate(r -> r.getRating() == stars);
-        }
+        loadData();
+    }
+
+    @FXML
+    private void handleLoadMore(ActionEvent event) {
+        loadNextPage();
     }
 
     @FXML
@@ -8,8 +8,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -30,8 +30,7 @@ public class AddressDAO implements GenericDAO<Address, Integer> {
             ps.setInt(1, addressId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return mapResultSetToAddress(rs);
-                return null;
+                return ADDRESS_MAPPER.readFirst(rs);
             }
         }
     }
@@ -46,7 +45,27 @@ public class AddressDAO implements GenericDAO<Address, Integer> {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) list.add(mapResultSetToAddress(rs));
+            ADDRESS_MAPPER.readAll(rs, list);
+        }
+        return list;
+    }
+
+    @Override
+    public List<Address> findAllByIds(Collection<Integer> addressIds) throws SQLException {
+        List<Address> list = new ArrayList<>();
+        if (addressIds == null || addressIds.isEmpty()) return list;
+
+        String sql = "SELECT address_id, user_id, address_type, street_address, city, state, postal_code, country, is_default, created_at " +
+                "FROM addresses WHERE address_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", addressIds.toArray()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                ADDRESS_MAPPER.readAll(rs, list);
+            }
         }
         return list;
     }
@@ -140,7 +159,7 @@ public class AddressDAO implements GenericDAO<Address, Integer> {
             ps.setInt(1, userId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapResultSetToAddress(rs));
+                ADDRESS_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -159,8 +178,7 @@ public class AddressDAO implements GenericDAO<Address, Integer> {
             ps.setString(2, type.name());
 
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return mapResultSetToAddress(rs);
-                return null;
+                return ADDRESS_MAPPER.readFirst(rs);
             }
         }
     }
@@ -218,7 +236,7 @@ public class AddressDAO implements GenericDAO<Address, Integer> {
             ps.setString(2, type.name());
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapResultSetToAddress(rs));
+                ADDRESS_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -235,30 +253,21 @@ public class AddressDAO implements GenericDAO<Address, Integer> {
         }
     }
 
-    private Address mapResultSetToAddress(ResultSet rs) throws SQLException {
+    private static final RowMapper<Address> ADDRESS_MAPPER = RowMapper.of(new String[]{
+            "address_id", "user_id", "address_type", "street_address", "city",
+            "state", "postal_code", "country", "is_default", "created_at"
+    }, (rs, c) -> {
         Address a = new Address();
-        a.setAddressId(rs.getInt("address_id"));
-        a.setUserId(rs.getInt("user_id"));
-
-        String typeStr = rs.getString("address_type");
-        if (typeStr != null) {
-            try {
-                a.setAddressType(AddressType.valueOf(typeStr));
-            } catch (IllegalArgumentException ignored) {
-                a.setAddressType(null);
-            }
-        }
-
-        a.setStreetAddress(rs.getString("street_address"));
-        a.setCity(rs.getString("city"));
-        a.setState(rs.getString("state"));
-        a.setPostalCode(rs.getString("postal_code"));
-        a.setCountry(rs.getString("country"));
-        a.setDefault(rs.getBoolean("is_default"));
-
-        Timestamp created = rs.getTimestamp("created_at");
-        if (created != null) a.setCreatedAt(created.toLocalDateTime());
-
+        a.setAddressId(rs.getInt(c[0]));
+        a.setUserId(rs.getInt(c[1]));
+        a.setAddressType(AddressType.fromString(rs.getString(c[2])));
+        a.setStreetAddress(rs.getString(c[3]));
+        a.setCity(rs.getString(c[4]));
+        a.setState(rs.getString(c[5]));
+        a.setPostalCode(rs.getString(c[6]));
+        a.setCountry(rs.getString(c[7]));
+        a.setDefault(rs.getBoolean(c[8]));
+        a.setCreatedAt(RowMapper.getLocalDateTime(rs, c[9]));
         return a;
-    }
+    });
 }
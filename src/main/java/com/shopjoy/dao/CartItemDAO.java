@@ -2,9 +2,11 @@ package com.shopjoy.dao;
 
 import com.shopjoy.model.CartItem;
 import com.shopjoy.util.DbConfig;
+import com.shopjoy.util.TransactionManager;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class CartItemDAO implements GenericDAO<CartItem, Integer> {
@@ -18,7 +20,7 @@ public class CartItemDAO implements GenericDAO<CartItem, Integer> {
                 PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToCartItem(rs) : null;
+                return CART_ITEM_MAPPER.readFirst(rs);
             }
         }
     }
@@ -28,6 +30,26 @@ public class CartItemDAO implements GenericDAO<CartItem, Integer> {
         return new ArrayList<>(); // Not typically used for carts
     }
 
+    @Override
+    public List<CartItem> findAllByIds(Collection<Integer> cartItemIds) throws SQLException {
+        List<CartItem> list = new ArrayList<>();
+        if (cartItemIds == null || cartItemIds.isEmpty())
+            return list;
+
+        String sql = "SELECT * FROM cart_items WHERE cart_item_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", cartItemIds.toArray()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                CART_ITEM_MAPPER.readAll(rs, list);
+            }
+        }
+        return list;
+    }
+
     @Override
     public CartItem save(CartItem item) throws SQLException {
         if (item == null)
@@ -85,6 +107,67 @@ public class CartItemDAO implements GenericDAO<CartItem, Integer> {
         }
     }
 
+    /**
+     * Inserts the items as new cart lines. Unlike save(), this does not merge
+     * with an existing line for the same user and product.
+     */
+    @Override
+    public List<CartItem> saveAll(List<CartItem> items) throws SQLException {
+        if (items == null || items.isEmpty())
+            return new ArrayList<>();
+        String sql = "INSERT INTO cart_items (user_id, product_id, quantity) VALUES (?, ?, ?)";
+        return TransactionManager.inTransaction(() -> {
+            try (Connection conn = DbConfig.getConnection();
+                    PreparedStatement ps = conn.prepareStatement(sql, new String[] { "cart_item_id" })) {
+                for (CartItem item : items) {
+                    ps.setInt(1, item.getUserId());
+                    ps.setInt(2, item.getProductId());
+                    ps.setInt(3, item.getQuantity());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int idx = 0;
+                    while (keys.next() && idx < items.size()) {
+                        items.get(idx++).setCartItemId(keys.getInt(1));
+                    }
+                }
+            }
+            return items;
+        });
+    }
+
+    @Override
+    public List<CartItem> updateAll(List<CartItem> items) throws SQLException {
+        if (items == null || items.isEmpty())
+            return new ArrayList<>();
+        String sql = "UPDATE cart_items SET quantity = ? WHERE cart_item_id = ?";
+        return TransactionManager.inTransaction(() -> {
+            try (Connection conn = DbConfig.getConnection();
+                    PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (CartItem item : items) {
+                    ps.setInt(1, item.getQuantity());
+                    ps.setInt(2, item.getCartItemId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return items;
+        });
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) throws SQLException {
+        if (ids == null || ids.isEmpty())
+            return 0;
+        String sql = "DELETE FROM cart_items WHERE cart_item_id = ANY(?)";
+        try (Connection conn = DbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            return ps.executeUpdate();
+        }
+    }
+
     @Override
     public long count() throws SQLException {
         return 0;
@@ -97,9 +180,7 @@ public class CartItemDAO implements GenericDAO<CartItem, Integer> {
                 PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    list.add(mapResultSetToCartItem(rs));
-                }
+                CART_ITEM_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -121,21 +202,21 @@ public class CartItemDAO implements GenericDAO<CartItem, Integer> {
             ps.setInt(1, userId);
             ps.setInt(2, productId);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToCartItem(rs) : null;
+                return CART_ITEM_MAPPER.readFirst(rs);
             }
         }
     }
 
-    private CartItem mapResultSetToCartItem(ResultSet rs) throws SQLException {
+    private static final RowMapper<CartItem> CART_ITEM_MAPPER = RowMapper.of(new String[]{
+            "cart_item_id", "user_id", "product_id", "quantity"
+    }, (rs, c) -> {
         CartItem item = new CartItem();
-        item.setCartItemId(rs.getInt("cart_item_id"));
-        item.setUserId(rs.getInt("user_id"));
-        item.setProductId(rs.getInt("product_id"));
-        item.setQuantity(rs.getInt("quantity"));
-        // item.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime()); //
-        // Optional if column exists
+        item.setCartItemId(rs.getInt(c[0]));
+        item.setUserId(rs.getInt(c[1]));
+        item.setProductId(rs.getInt(c[2]));
+        item.setQuantity(rs.getInt(c[3]));
         return item;
-    }
+    });
 
     // Helper to ensure table exists (HACK since I cannot run DDL easily)
     public void createTableIfNotExists() {
@@ -9,7 +9,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO for Category entity. Implements CRUD and category-specific queries.
@@ -29,7 +32,7 @@ public class CategoryDAO implements GenericDAO<Category, Integer> {
             ps.setInt(1, categoryId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToCategory(rs) : null;
+                return CATEGORY_MAPPER.readFirst(rs);
             }
         }
     }
@@ -45,7 +48,27 @@ public class CategoryDAO implements GenericDAO<Category, Integer> {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) list.add(mapResultSetToCategory(rs));
+            CATEGORY_MAPPER.readAll(rs, list);
+        }
+        return list;
+    }
+
+    @Override
+    public List<Category> findAllByIds(Collection<Integer> categoryIds) throws SQLException {
+        List<Category> list = new ArrayList<>();
+        if (categoryIds == null || categoryIds.isEmpty()) return list;
+
+        String sql = "SELECT category_id, category_name, description, parent_category_id, created_at " +
+                "FROM categories WHERE category_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", categoryIds.toArray()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                CATEGORY_MAPPER.readAll(rs, list);
+            }
         }
         return list;
     }
@@ -128,6 +151,24 @@ public class CategoryDAO implements GenericDAO<Category, Integer> {
 
     // --- Custom methods ---
 
+    /**
+     * Digest of every category row. It changes whenever a category is added,
+     * edited or removed, so callers can detect changes with one small query
+     * instead of reloading the table.
+     */
+    public String findFingerprint() throws SQLException {
+        String sql = "SELECT md5(COALESCE(string_agg(category_id || ':' || category_name || ':' " +
+                "|| COALESCE(parent_category_id, 0) || ':' || COALESCE(description, ''), ',' " +
+                "ORDER BY category_id), '')) FROM categories";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            return rs.next() ? rs.getString(1) : "";
+        }
+    }
+
     public List<Category> findTopLevelCategories() throws SQLException {
         List<Category> list = new ArrayList<>();
 
@@ -138,7 +179,7 @@ public class CategoryDAO implements GenericDAO<Category, Integer> {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) list.add(mapResultSetToCategory(rs));
+            CATEGORY_MAPPER.readAll(rs, list);
         }
         return list;
     }
@@ -156,7 +197,7 @@ public class CategoryDAO implements GenericDAO<Category, Integer> {
             ps.setInt(1, parentCategoryId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapResultSetToCategory(rs));
+                CATEGORY_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -174,7 +215,7 @@ public class CategoryDAO implements GenericDAO<Category, Integer> {
             ps.setString(1, categoryName);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToCategory(rs) : null;
+                return CATEGORY_MAPPER.readFirst(rs);
             }
         }
     }
@@ -207,6 +248,25 @@ public class CategoryDAO implements GenericDAO<Category, Integer> {
         }
     }
 
+    /**
+     * Number of products in each category that has any, in one aggregate
+     * over the products table.
+     */
+    public Map<Integer, Integer> findProductCounts() throws SQLException {
+        Map<Integer, Integer> counts = new HashMap<>();
+        String sql = "SELECT category_id, COUNT(*) AS cnt FROM products GROUP BY category_id";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                counts.put(rs.getInt("category_id"), rs.getInt("cnt"));
+            }
+        }
+        return counts;
+    }
+
     public List<Category> findCategoriesWithProducts() throws SQLException {
         List<Category> list = new ArrayList<>();
 
@@ -219,7 +279,7 @@ public class CategoryDAO implements GenericDAO<Category, Integer> {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) list.add(mapResultSetToCategory(rs));
+            CATEGORY_MAPPER.readAll(rs, list);
         }
         return list;
     }
@@ -227,18 +287,15 @@ public class CategoryDAO implements GenericDAO<Category, Integer> {
     /**
      * Map a ResultSet row to Category object.
      */
-    private Category mapResultSetToCategory(ResultSet rs) throws SQLException {
-        Category c = new Category();
-        c.setCategoryId(rs.getInt("category_id"));
-        c.setCategoryName(rs.getString("category_name"));
-        c.setDescription(rs.getString("description"));
-
-        int parentId = rs.getInt("parent_category_id");
-        c.setParentCategoryId(rs.wasNull() ? null : parentId);
-
-        var ts = rs.getTimestamp("created_at");
-        if (ts != null) c.setCreatedAt(ts.toLocalDateTime());
-
-        return c;
-    }
+    private static final RowMapper<Category> CATEGORY_MAPPER = RowMapper.of(new String[]{
+            "category_id", "category_name", "description", "parent_category_id", "created_at"
+    }, (rs, c) -> {
+        Category cat = new Category();
+        cat.setCategoryId(rs.getInt(c[0]));
+        cat.setCategoryName(rs.getString(c[1]));
+        cat.setDescription(rs.getString(c[2]));
+        cat.setParentCategoryId(RowMapper.getNullableInt(rs, c[3]));
+        cat.setCreatedAt(RowMapper.getLocalDateTime(rs, c[4]));
+        return cat;
+    });
 }
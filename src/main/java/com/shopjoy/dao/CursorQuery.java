@@ -0,0 +1,51 @@
+package com.shopjoy.dao;
+
+import com.shopjoy.util.AppConfig;
+import com.shopjoy.util.DbConfig;
+import com.shopjoy.util.TransactionManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * CursorQuery - Runs a SELECT as a server-side cursor and hands each row to a
+ * callback.
+ *
+ * The PostgreSQL driver only streams when the connection is not in autocommit
+ * mode and the statement has a positive fetch size; otherwise it buffers the
+ * whole result set in memory. The scan therefore runs inside
+ * TransactionManager.inTransaction(...), which also lets it join a caller's
+ * transaction, and only AppConfig.STREAM_FETCH_SIZE rows are held at a time.
+ */
+final class CursorQuery {
+
+    @FunctionalInterface
+    interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    private CursorQuery() {}
+
+    /**
+     * @return Number of rows passed to the callback.
+     */
+    static <T> long forEach(String sql, Binder binder, RowMapper<T> mapper, RowCallback<T> callback)
+            throws SQLException {
+        if (callback == null) return 0;
+
+        return TransactionManager.inTransaction(() -> {
+            try (Connection conn = DbConfig.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+
+                ps.setFetchSize(AppConfig.STREAM_FETCH_SIZE);
+                if (binder != null) binder.bind(ps);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    return mapper.forEach(rs, callback);
+                }
+            }
+        });
+    }
+}
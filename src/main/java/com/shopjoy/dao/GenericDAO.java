@@ -1,6 +1,8 @@
 package com.shopjoy.dao;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -28,6 +30,17 @@ public interface GenericDAO<T, ID> {
      */
     List<T> findAll() throws SQLException;
 
+    /**
+     * Find all entities whose identifiers are in the given collection, using a
+     * single query. Identifiers that do not exist are skipped; the order of the
+     * returned list is unspecified.
+     *
+     * @param ids identifiers to look up
+     * @return list of found entities (may be empty)
+     * @throws SQLException if a database access error occurs
+     */
+    List<T> findAllByIds(Collection<ID> ids) throws SQLException;
+
     /**
      * Persist a new entity in the database. Implementations should set
      * any generated identifier on the passed entity and return it.
@@ -56,6 +69,62 @@ public interface GenericDAO<T, ID> {
      */
     boolean delete(ID id) throws SQLException;
 
+    /**
+     * Persist several new entities. Generated identifiers are set on the
+     * passed entities, in list order.
+     * <p>
+     * The default implementation calls {@link #save(Object)} once per entity;
+     * DAOs used for bulk writes override it with a batched statement.
+     *
+     * @param entities entities to save
+     * @return the saved entities
+     * @throws SQLException if a database access error occurs
+     */
+    default List<T> saveAll(List<T> entities) throws SQLException {
+        List<T> saved = new ArrayList<>();
+        if (entities == null) return saved;
+        for (T entity : entities) {
+            saved.add(save(entity));
+        }
+        return saved;
+    }
+
+    /**
+     * Update several existing entities.
+     * <p>
+     * The default implementation calls {@link #update(Object)} once per entity.
+     *
+     * @param entities entities with updated values
+     * @return the updated entities
+     * @throws SQLException if a database access error occurs
+     */
+    default List<T> updateAll(List<T> entities) throws SQLException {
+        List<T> updated = new ArrayList<>();
+        if (entities == null) return updated;
+        for (T entity : entities) {
+            updated.add(update(entity));
+        }
+        return updated;
+    }
+
+    /**
+     * Delete all entities whose identifiers are in the given collection.
+     * <p>
+     * The default implementation calls {@link #delete(Object)} once per id.
+     *
+     * @param ids identifiers of entities to delete
+     * @return number of rows deleted
+     * @throws SQLException if a database access error occurs
+     */
+    default int deleteAll(Collection<ID> ids) throws SQLException {
+        int deleted = 0;
+        if (ids == null) return deleted;
+        for (ID id : ids) {
+            if (delete(id)) deleted++;
+        }
+        return deleted;
+    }
+
     /**
      * Count total entities of this type in the database.
      *
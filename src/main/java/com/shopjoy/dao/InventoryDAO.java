@@ -2,14 +2,16 @@ package com.shopjoy.dao;
 
 import com.shopjoy.model.Inventory;
 import com.shopjoy.util.DbConfig;
+import com.shopjoy.util.TransactionManager;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO for Inventory entity. Implements CRUD and inventory-specific operations.
@@ -29,7 +31,7 @@ public class InventoryDAO implements GenericDAO<Inventory, Integer> {
             ps.setInt(1, inventoryId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToInventory(rs) : null;
+                return INVENTORY_MAPPER.readFirst(rs);
             }
         }
     }
@@ -44,7 +46,40 @@ public class InventoryDAO implements GenericDAO<Inventory, Integer> {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) list.add(mapResultSetToInventory(rs));
+            INVENTORY_MAPPER.readAll(rs, list);
+        }
+        return list;
+    }
+
+    /**
+     * Stream every inventory row through a server-side cursor. Memory use stays
+     * constant regardless of table size.
+     *
+     * @return number of rows passed to the callback
+     */
+    public long streamAll(RowCallback<Inventory> callback) throws SQLException {
+        String sql = "SELECT inventory_id, product_id, quantity_in_stock, reorder_level, warehouse_location, " +
+                "last_restocked, updated_at FROM inventory";
+
+        return CursorQuery.forEach(sql, null, INVENTORY_MAPPER, callback);
+    }
+
+    @Override
+    public List<Inventory> findAllByIds(Collection<Integer> inventoryIds) throws SQLException {
+        List<Inventory> list = new ArrayList<>();
+        if (inventoryIds == null || inventoryIds.isEmpty()) return list;
+
+        String sql = "SELECT inventory_id, product_id, quantity_in_stock, reorder_level, warehouse_location, " +
+                "last_restocked, updated_at FROM inventory WHERE inventory_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", inventoryIds.toArray()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                INVENTORY_MAPPER.readAll(rs, list);
+            }
         }
         return list;
     }
@@ -108,6 +143,83 @@ public class InventoryDAO implements GenericDAO<Inventory, Integer> {
         }
     }
 
+    @Override
+    public List<Inventory> saveAll(List<Inventory> inventories) throws SQLException {
+        if (inventories == null || inventories.isEmpty()) return new ArrayList<>();
+        for (Inventory inventory : inventories) {
+            if (inventory.getQuantityInStock() < 0) throw new IllegalArgumentException("quantity_in_stock cannot be negative");
+        }
+
+        String sql = "INSERT INTO inventory (product_id, quantity_in_stock, reorder_level, warehouse_location, " +
+                "last_restocked, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+        return TransactionManager.inTransaction(() -> {
+            try (Connection conn = DbConfig.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql, new String[]{"inventory_id"})) {
+
+                for (Inventory inventory : inventories) {
+                    ps.setInt(1, inventory.getProductId());
+                    ps.setInt(2, inventory.getQuantityInStock());
+                    ps.setInt(3, inventory.getReorderLevel());
+                    ps.setString(4, inventory.getWarehouseLocation());
+                    ps.setObject(5, inventory.getLastRestocked());
+                    ps.setObject(6, inventory.getUpdatedAt());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int idx = 0;
+                    while (keys.next() && idx < inventories.size()) {
+                        inventories.get(idx++).setInventoryId(keys.getInt(1));
+                    }
+                }
+            }
+            return inventories;
+        });
+    }
+
+    @Override
+    public List<Inventory> updateAll(List<Inventory> inventories) throws SQLException {
+        if (inventories == null || inventories.isEmpty()) return new ArrayList<>();
+        for (Inventory inventory : inventories) {
+            if (inventory.getQuantityInStock() < 0) throw new IllegalArgumentException("quantity_in_stock cannot be negative");
+        }
+
+        String sql = "UPDATE inventory SET quantity_in_stock = ?, reorder_level = ?, warehouse_location = ?, " +
+                "updated_at = CURRENT_TIMESTAMP WHERE inventory_id = ?";
+
+        return TransactionManager.inTransaction(() -> {
+            try (Connection conn = DbConfig.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+
+                for (Inventory inventory : inventories) {
+                    ps.setInt(1, inventory.getQuantityInStock());
+                    ps.setInt(2, inventory.getReorderLevel());
+                    ps.setString(3, inventory.getWarehouseLocation());
+                    ps.setInt(4, inventory.getInventoryId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return inventories;
+        });
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> inventoryIds) throws SQLException {
+        if (inventoryIds == null || inventoryIds.isEmpty()) return 0;
+
+        String sql = "DELETE FROM inventory WHERE inventory_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", inventoryIds.toArray()));
+            return ps.executeUpdate();
+        }
+    }
+
     @Override
     public long count() throws SQLException {
         String sql = "SELECT COUNT(*) AS cnt FROM inventory";
@@ -122,6 +234,22 @@ public class InventoryDAO implements GenericDAO<Inventory, Integer> {
 
     // --- Custom methods ---
 
+    /**
+     * Sum of quantity_in_stock * cost_price over all inventory, computed in
+     * the database. Inventory rows whose product no longer exists are left out.
+     */
+    public double getTotalStockValue() throws SQLException {
+        String sql = "SELECT COALESCE(SUM(i.quantity_in_stock * p.cost_price), 0) AS total " +
+                "FROM inventory i JOIN products p ON p.product_id = i.product_id";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            return rs.next() ? rs.getDouble("total") : 0.0;
+        }
+    }
+
     public Inventory findByProductId(int productId) throws SQLException {
         String sql = "SELECT inventory_id, product_id, quantity_in_stock, reorder_level, warehouse_location, " +
                 "last_restocked, updated_at FROM inventory WHERE product_id = ?";
@@ -132,7 +260,7 @@ public class InventoryDAO implements GenericDAO<Inventory, Integer> {
             ps.setInt(1, productId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToInventory(rs) : null;
+                return INVENTORY_MAPPER.readFirst(rs);
             }
         }
     }
@@ -165,28 +293,72 @@ public class InventoryDAO implements GenericDAO<Inventory, Integer> {
         }
     }
 
+    /**
+     * Decrement stock only if enough is available. The check and the update
+     * happen in one statement, so concurrent checkouts cannot oversell.
+     *
+     * @return false if the product has no inventory row or too little stock
+     */
     public boolean decrementStock(int productId, int amount) throws SQLException {
         if (amount < 0) throw new IllegalArgumentException("amount cannot be negative");
 
-        String checkSql = "SELECT quantity_in_stock FROM inventory WHERE product_id = ?";
-        String updateSql = "UPDATE inventory SET quantity_in_stock = quantity_in_stock - ?, updated_at = CURRENT_TIMESTAMP WHERE product_id = ?";
+        String sql = "UPDATE inventory SET quantity_in_stock = quantity_in_stock - ?, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE product_id = ? AND quantity_in_stock >= ? RETURNING quantity_in_stock";
 
-        try (Connection conn = DbConfig.getConnection()) {
-            try (PreparedStatement ps = conn.prepareStatement(checkSql)) {
-                ps.setInt(1, productId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (!rs.next()) return false;
-                    int current = rs.getInt("quantity_in_stock");
-                    if (current < amount) return false;
-                }
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, amount);
+            ps.setInt(2, productId);
+            ps.setInt(3, amount);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
             }
+        }
+    }
+
+    /**
+     * Decrement stock for several products in a single statement.
+     * Lines that can be satisfied are applied; the rest are returned. Callers
+     * that need all-or-nothing behaviour should run this inside a transaction
+     * and roll back when the result is not empty.
+     *
+     * @param amountsByProduct product_id -> amount to remove
+     * @return product ids that had no inventory row or too little stock
+     */
+    public List<Integer> decrementStock(Map<Integer, Integer> amountsByProduct) throws SQLException {
+        List<Integer> failed = new ArrayList<>();
+        if (amountsByProduct == null || amountsByProduct.isEmpty()) return failed;
+
+        Integer[] productIds = new Integer[amountsByProduct.size()];
+        Integer[] amounts = new Integer[amountsByProduct.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> e : amountsByProduct.entrySet()) {
+            if (e.getValue() == null || e.getValue() < 0) throw new IllegalArgumentException("amount cannot be negative");
+            productIds[i] = e.getKey();
+            amounts[i] = e.getValue();
+            i++;
+        }
 
-            try (PreparedStatement ps2 = conn.prepareStatement(updateSql)) {
-                ps2.setInt(1, amount);
-                ps2.setInt(2, productId);
-                return ps2.executeUpdate() > 0;
+        String sql = "WITH req AS (SELECT * FROM unnest(?, ?) AS r(product_id, amount)), " +
+                "upd AS (UPDATE inventory i SET quantity_in_stock = i.quantity_in_stock - req.amount, " +
+                "updated_at = CURRENT_TIMESTAMP FROM req " +
+                "WHERE i.product_id = req.product_id AND i.quantity_in_stock >= req.amount " +
+                "RETURNING i.product_id) " +
+                "SELECT req.product_id FROM req WHERE req.product_id NOT IN (SELECT product_id FROM upd)";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", productIds));
+            ps.setArray(2, conn.createArrayOf("integer", amounts));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) failed.add(rs.getInt(1));
             }
         }
+        return failed;
     }
 
     public List<Inventory> findLowStockItems() throws SQLException {
@@ -198,7 +370,7 @@ public class InventoryDAO implements GenericDAO<Inventory, Integer> {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) list.add(mapResultSetToInventory(rs));
+            INVENTORY_MAPPER.readAll(rs, list);
         }
         return list;
     }
@@ -212,7 +384,7 @@ public class InventoryDAO implements GenericDAO<Inventory, Integer> {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) list.add(mapResultSetToInventory(rs));
+            INVENTORY_MAPPER.readAll(rs, list);
         }
         return list;
     }
@@ -244,7 +416,7 @@ public class InventoryDAO implements GenericDAO<Inventory, Integer> {
             ps.setString(1, warehouseLocation);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapResultSetToInventory(rs));
+                INVENTORY_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -261,20 +433,18 @@ public class InventoryDAO implements GenericDAO<Inventory, Integer> {
         }
     }
 
-    private Inventory mapResultSetToInventory(ResultSet rs) throws SQLException {
+    private static final RowMapper<Inventory> INVENTORY_MAPPER = RowMapper.of(new String[]{
+            "inventory_id", "product_id", "quantity_in_stock", "reorder_level",
+            "warehouse_location", "last_restocked", "updated_at"
+    }, (rs, c) -> {
         Inventory inv = new Inventory();
-        inv.setInventoryId(rs.getInt("inventory_id"));
-        inv.setProductId(rs.getInt("product_id"));
-        inv.setQuantityInStock(rs.getInt("quantity_in_stock"));
-        inv.setReorderLevel(rs.getInt("reorder_level"));
-        inv.setWarehouseLocation(rs.getString("warehouse_location"));
-
-        Timestamp last = rs.getTimestamp("last_restocked");
-        if (last != null) inv.setLastRestocked(last.toLocalDateTime());
-
-        Timestamp updated = rs.getTimestamp("updated_at");
-        if (updated != null) inv.setUpdatedAt(updated.toLocalDateTime());
-
+        inv.setInventoryId(rs.getInt(c[0]));
+        inv.setProductId(rs.getInt(c[1]));
+        inv.setQuantityInStock(rs.getInt(c[2]));
+        inv.setReorderLevel(rs.getInt(c[3]));
+        inv.setWarehouseLocation(rs.getString(c[4]));
+        inv.setLastRestocked(RowMapper.getLocalDateTime(rs, c[5]));
+        inv.setUpdatedAt(RowMapper.getLocalDateTime(rs, c[6]));
         return inv;
-    }
+    });
 }
@@ -9,10 +9,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO for Order entity. Implements CRUD and order-specific queries.
@@ -33,7 +35,7 @@ public class OrderDAO implements GenericDAO<Order, Integer> {
             ps.setInt(1, orderId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToOrder(rs) : null;
+                return ORDER_MAPPER.readFirst(rs);
             }
         }
     }
@@ -48,8 +50,61 @@ public class OrderDAO implements GenericDAO<Order, Integer> {
                 PreparedStatement ps = conn.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next())
-                list.add(mapResultSetToOrder(rs));
+            ORDER_MAPPER.readAll(rs, list);
+        }
+        return list;
+    }
+
+    /**
+     * Stream every order, newest first, through a server-side cursor. Memory use
+     * stays constant regardless of table size.
+     *
+     * @return number of rows passed to the callback
+     */
+    public long streamAll(RowCallback<Order> callback) throws SQLException {
+        String sql = "SELECT order_id, user_id, order_date, total_amount, status, shipping_address, " +
+                "payment_method, payment_status, notes, created_at, updated_at FROM orders ORDER BY order_date DESC";
+
+        return CursorQuery.forEach(sql, null, ORDER_MAPPER, callback);
+    }
+
+    /**
+     * Stream the orders placed within a date range (inclusive), oldest first.
+     *
+     * @return number of rows passed to the callback
+     */
+    public long streamByDateRange(LocalDateTime startDate, LocalDateTime endDate, RowCallback<Order> callback)
+            throws SQLException {
+        if (startDate == null || endDate == null)
+            return 0;
+
+        String sql = "SELECT order_id, user_id, order_date, total_amount, status, shipping_address, " +
+                "payment_method, payment_status, notes, created_at, updated_at FROM orders " +
+                "WHERE order_date BETWEEN ? AND ? ORDER BY order_date, order_id";
+
+        return CursorQuery.forEach(sql, ps -> {
+            ps.setObject(1, startDate);
+            ps.setObject(2, endDate);
+        }, ORDER_MAPPER, callback);
+    }
+
+    @Override
+    public List<Order> findAllByIds(Collection<Integer> orderIds) throws SQLException {
+        List<Order> list = new ArrayList<>();
+        if (orderIds == null || orderIds.isEmpty())
+            return list;
+
+        String sql = "SELECT order_id, user_id, order_date, total_amount, status, shipping_address, " +
+                "payment_method, payment_status, notes, created_at, updated_at FROM orders WHERE order_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", orderIds.toArray()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                ORDER_MAPPER.readAll(rs, list);
+            }
         }
         return list;
     }
@@ -66,7 +121,8 @@ public class OrderDAO implements GenericDAO<Order, Integer> {
                 PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, order.getUserId());
-            ps.setObject(2, order.getOrderDate());
+            // an explicit NULL would bypass the column default and drop the row out of findPage
+            ps.setObject(2, order.getOrderDate() != null ? order.getOrderDate() : LocalDateTime.now());
             ps.setDouble(3, order.getTotalAmount());
             ps.setString(4, order.getStatus() != null ? order.getStatus().toString().toLowerCase() : null);
             ps.setString(5, order.getShippingAddress());
@@ -142,8 +198,7 @@ public class OrderDAO implements GenericDAO<Order, Integer> {
 
             ps.setInt(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next())
-                    list.add(mapResultSetToOrder(rs));
+                ORDER_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -162,8 +217,7 @@ public class OrderDAO implements GenericDAO<Order, Integer> {
 
             ps.setString(1, status.toString().toLowerCase());
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next())
-                    list.add(mapResultSetToOrder(rs));
+                ORDER_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -183,8 +237,7 @@ public class OrderDAO implements GenericDAO<Order, Integer> {
             ps.setObject(1, startDate);
             ps.setObject(2, endDate);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next())
-                    list.add(mapResultSetToOrder(rs));
+                ORDER_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -203,8 +256,7 @@ public class OrderDAO implements GenericDAO<Order, Integer> {
 
             ps.setInt(1, limit);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next())
-                    list.add(mapResultSetToOrder(rs));
+                ORDER_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -265,6 +317,27 @@ public class OrderDAO implements GenericDAO<Order, Integer> {
         }
     }
 
+    /**
+     * Cancel the order only if it is still pending or processing. The check
+     * and the update happen in one statement, so of two concurrent cancels
+     * only one sees the row come back.
+     *
+     * @return false if the order does not exist or can no longer be cancelled
+     */
+    public boolean cancelIfOpen(int orderId) throws SQLException {
+        String sql = "UPDATE orders SET status = 'cancelled', updated_at = CURRENT_TIMESTAMP " +
+                "WHERE order_id = ? AND status IN ('pending', 'processing') RETURNING order_id";
+
+        try (Connection conn = DbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, orderId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
     public boolean updatePaymentStatus(int orderId, PaymentStatus newStatus) throws SQLException {
         if (newStatus == null)
             return false;
@@ -297,36 +370,106 @@ public class OrderDAO implements GenericDAO<Order, Integer> {
         }
     }
 
-    private Order mapResultSetToOrder(ResultSet rs) throws SQLException {
-        Order o = new Order();
-        o.setOrderId(rs.getInt("order_id"));
-        o.setUserId(rs.getInt("user_id"));
+    /**
+     * Keyset (seek) page of orders, newest first. Pass null cursor values for the
+     * first page, then the order_date and order_id of the last row already shown.
+     * Each page costs the same no matter how deep the caller has paged.
+     * order_date is NOT NULL in the schema, so every order has a place in it.
+     *
+     * @param status         optional status filter, null for all orders
+     * @param afterOrderDate order_date of the last row of the previous page
+     * @param afterOrderId   order_id of the last row of the previous page
+     * @param limit          maximum rows to return
+     */
+    public List<Order> findPage(OrderStatus status, LocalDateTime afterOrderDate, Integer afterOrderId, int limit)
+            throws SQLException {
+        List<Order> list = new ArrayList<>();
+        if (limit <= 0)
+            return list;
+
+        StringBuilder sql = new StringBuilder("SELECT order_id, user_id, order_date, total_amount, status, shipping_address, " +
+                "payment_method, payment_status, notes, created_at, updated_at FROM orders WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND status = ?");
+            params.add(status.toString().toLowerCase());
+        }
+        if (afterOrderDate != null && afterOrderId != null) {
+            sql.append(" AND (order_date, order_id) < (?, ?)");
+            params.add(afterOrderDate);
+            params.add(afterOrderId);
+        }
+        sql.append(" ORDER BY order_date DESC, order_id DESC LIMIT ?");
+        params.add(limit);
 
-        Timestamp od = rs.getTimestamp("order_date");
-        if (od != null)
-            o.setOrderDate(od.toLocalDateTime());
+        try (Connection conn = DbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql.toString())) {
 
-        o.setTotalAmount(rs.getDouble("total_amount"));
+            for (int i = 0; i < params.size(); i++)
+                ps.setObject(i + 1, params.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                ORDER_MAPPER.readAll(rs, list);
+            }
+        }
+        return list;
+    }
 
-        String status = rs.getString("status");
-        o.setStatus(status != null ? OrderStatus.fromString(status) : null);
+    /**
+     * Number of orders in each status, computed by the database.
+     */
+    public Map<OrderStatus, Integer> countByStatus() throws SQLException {
+        Map<OrderStatus, Integer> counts = new EnumMap<>(OrderStatus.class);
+        String sql = "SELECT status, COUNT(*) AS cnt FROM orders WHERE status IS NOT NULL GROUP BY status";
 
-        o.setShippingAddress(rs.getString("shipping_address"));
-        o.setPaymentMethod(rs.getString("payment_method"));
+        try (Connection conn = DbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
 
-        String pstat = rs.getString("payment_status");
-        o.setPaymentStatus(pstat != null ? PaymentStatus.fromString(pstat) : null);
+            while (rs.next())
+                counts.put(OrderStatus.fromString(rs.getString("status")), rs.getInt("cnt"));
+        }
+        return counts;
+    }
 
-        o.setNotes(rs.getString("notes"));
+    /**
+     * Sum of total_amount over all orders, or over one status when given.
+     */
+    public double getTotalAmount(OrderStatus status) throws SQLException {
+        String sql = status == null
+                ? "SELECT SUM(total_amount) AS total FROM orders"
+                : "SELECT SUM(total_amount) AS total FROM orders WHERE status = ?";
 
-        Timestamp created = rs.getTimestamp("created_at");
-        if (created != null)
-            o.setCreatedAt(created.toLocalDateTime());
+        try (Connection conn = DbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
 
-        Timestamp updated = rs.getTimestamp("updated_at");
-        if (updated != null)
-            o.setUpdatedAt(updated.toLocalDateTime());
+            if (status != null)
+                ps.setString(1, status.toString().toLowerCase());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    double val = rs.getDouble("total");
+                    return rs.wasNull() ? 0.0 : val;
+                }
+                return 0.0;
+            }
+        }
+    }
 
+    private static final RowMapper<Order> ORDER_MAPPER = RowMapper.of(new String[]{
+            "order_id", "user_id", "order_date", "total_amount", "status", "shipping_address",
+            "payment_method", "payment_status", "notes", "created_at", "updated_at"
+    }, (rs, c) -> {
+        Order o = new Order();
+        o.setOrderId(rs.getInt(c[0]));
+        o.setUserId(rs.getInt(c[1]));
+        o.setOrderDate(RowMapper.getLocalDateTime(rs, c[2]));
+        o.setTotalAmount(rs.getDouble(c[3]));
+        o.setStatus(OrderStatus.fromString(rs.getString(c[4])));
+        o.setShippingAddress(rs.getString(c[5]));
+        o.setPaymentMethod(rs.getString(c[6]));
+        o.setPaymentStatus(PaymentStatus.fromString(rs.getString(c[7])));
+        o.setNotes(rs.getString(c[8]));
+        o.setCreatedAt(RowMapper.getLocalDateTime(rs, c[9]));
+        o.setUpdatedAt(RowMapper.getLocalDateTime(rs, c[10]));
         return o;
-    }
+    });
 }
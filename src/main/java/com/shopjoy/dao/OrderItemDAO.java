@@ -2,10 +2,12 @@ package com.shopjoy.dao;
 
 import com.shopjoy.model.OrderItem;
 import com.shopjoy.util.DbConfig;
+import com.shopjoy.util.TransactionManager;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,7 +29,7 @@ public class OrderItemDAO implements GenericDAO<OrderItem, Integer> {
             ps.setInt(1, orderItemId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToOrderItem(rs) : null;
+                return ORDER_ITEM_MAPPER.readFirst(rs);
             }
         }
     }
@@ -41,7 +43,38 @@ public class OrderItemDAO implements GenericDAO<OrderItem, Integer> {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) list.add(mapResultSetToOrderItem(rs));
+            ORDER_ITEM_MAPPER.readAll(rs, list);
+        }
+        return list;
+    }
+
+    /**
+     * Stream every order item through a server-side cursor. Memory use stays
+     * constant regardless of table size.
+     *
+     * @return number of rows passed to the callback
+     */
+    public long streamAll(RowCallback<OrderItem> callback) throws SQLException {
+        String sql = "SELECT order_item_id, order_id, product_id, quantity, unit_price, subtotal, created_at FROM order_items";
+
+        return CursorQuery.forEach(sql, null, ORDER_ITEM_MAPPER, callback);
+    }
+
+    @Override
+    public List<OrderItem> findAllByIds(Collection<Integer> orderItemIds) throws SQLException {
+        List<OrderItem> list = new ArrayList<>();
+        if (orderItemIds == null || orderItemIds.isEmpty()) return list;
+
+        String sql = "SELECT order_item_id, order_id, product_id, quantity, unit_price, subtotal, created_at FROM order_items WHERE order_item_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", orderItemIds.toArray()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                ORDER_ITEM_MAPPER.readAll(rs, list);
+            }
         }
         return list;
     }
@@ -101,6 +134,74 @@ public class OrderItemDAO implements GenericDAO<OrderItem, Integer> {
         }
     }
 
+    @Override
+    public List<OrderItem> saveAll(List<OrderItem> items) throws SQLException {
+        if (items == null || items.isEmpty()) return new ArrayList<>();
+
+        String sql = "INSERT INTO order_items (order_id, product_id, quantity, unit_price, subtotal) VALUES (?, ?, ?, ?, ?)";
+
+        return TransactionManager.inTransaction(() -> {
+            try (Connection conn = DbConfig.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql, new String[]{"order_item_id"})) {
+
+                for (OrderItem item : items) {
+                    ps.setInt(1, item.getOrderId());
+                    ps.setInt(2, item.getProductId());
+                    ps.setInt(3, item.getQuantity());
+                    ps.setDouble(4, item.getUnitPrice());
+                    ps.setDouble(5, item.getSubtotal());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int idx = 0;
+                    while (keys.next() && idx < items.size()) {
+                        items.get(idx++).setOrderItemId(keys.getInt(1));
+                    }
+                }
+            }
+            return items;
+        });
+    }
+
+    @Override
+    public List<OrderItem> updateAll(List<OrderItem> items) throws SQLException {
+        if (items == null || items.isEmpty()) return new ArrayList<>();
+
+        String sql = "UPDATE order_items SET quantity = ?, unit_price = ?, subtotal = ? WHERE order_item_id = ?";
+
+        return TransactionManager.inTransaction(() -> {
+            try (Connection conn = DbConfig.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+
+                for (OrderItem item : items) {
+                    ps.setInt(1, item.getQuantity());
+                    ps.setDouble(2, item.getUnitPrice());
+                    ps.setDouble(3, item.getSubtotal());
+                    ps.setInt(4, item.getOrderItemId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return items;
+        });
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> orderItemIds) throws SQLException {
+        if (orderItemIds == null || orderItemIds.isEmpty()) return 0;
+
+        String sql = "DELETE FROM order_items WHERE order_item_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", orderItemIds.toArray()));
+            return ps.executeUpdate();
+        }
+    }
+
     @Override
     public long count() throws SQLException {
         String sql = "SELECT COUNT(*) AS cnt FROM order_items";
@@ -119,6 +220,27 @@ public class OrderItemDAO implements GenericDAO<OrderItem, Integer> {
         return findByColumn("order_id", orderId);
     }
 
+    /**
+     * Items of all the given orders in one query, e.g. for a page of orders.
+     */
+    public List<OrderItem> findByOrderIds(Collection<Integer> orderIds) throws SQLException {
+        List<OrderItem> list = new ArrayList<>();
+        if (orderIds == null || orderIds.isEmpty()) return list;
+
+        String sql = "SELECT order_item_id, order_id, product_id, quantity, unit_price, subtotal, created_at FROM order_items WHERE order_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", orderIds.toArray()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                ORDER_ITEM_MAPPER.readAll(rs, list);
+            }
+        }
+        return list;
+    }
+
     public List<OrderItem> findByProductId(int productId) throws SQLException {
         return findByColumn("product_id", productId);
     }
@@ -132,7 +254,7 @@ public class OrderItemDAO implements GenericDAO<OrderItem, Integer> {
 
             ps.setInt(1, value);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapResultSetToOrderItem(rs));
+                ORDER_ITEM_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -141,44 +263,8 @@ public class OrderItemDAO implements GenericDAO<OrderItem, Integer> {
     public boolean saveOrderItems(List<OrderItem> items) throws SQLException {
         if (items == null || items.isEmpty()) return false;
 
-        String sql = "INSERT INTO order_items (order_id, product_id, quantity, unit_price, subtotal, created_at) VALUES (?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn = DbConfig.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            conn.setAutoCommit(false);
-
-            for (OrderItem item : items) {
-                ps.setInt(1, item.getOrderId());
-                ps.setInt(2, item.getProductId());
-                ps.setInt(3, item.getQuantity());
-                ps.setDouble(4, item.getUnitPrice());
-                ps.setDouble(5, item.getSubtotal());
-                ps.setObject(6, item.getCreatedAt());
-                ps.addBatch();
-            }
-
-            int[] results = ps.executeBatch();
-
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                int idx = 0;
-                while (keys.next() && idx < items.size()) {
-                    items.get(idx).setOrderItemId(keys.getInt(1));
-                    idx++;
-                }
-            }
-
-            for (int r : results) {
-                if (r == PreparedStatement.EXECUTE_FAILED) {
-                    conn.rollback();
-                    return false;
-                }
-            }
-
-            conn.commit();
-            conn.setAutoCommit(true);
-            return true;
-        }
+        saveAll(items);
+        return true;
     }
 
     public double calculateOrderTotal(int orderId) throws SQLException {
@@ -240,16 +326,17 @@ public class OrderItemDAO implements GenericDAO<OrderItem, Integer> {
     }
 
     // --- Helper to map ResultSet to OrderItem ---
-    private OrderItem mapResultSetToOrderItem(ResultSet rs) throws SQLException {
+    private static final RowMapper<OrderItem> ORDER_ITEM_MAPPER = RowMapper.of(new String[]{
+            "order_item_id", "order_id", "product_id", "quantity", "unit_price", "subtotal", "created_at"
+    }, (rs, c) -> {
         OrderItem oi = new OrderItem();
-        oi.setOrderItemId(rs.getInt("order_item_id"));
-        oi.setOrderId(rs.getInt("order_id"));
-        oi.setProductId(rs.getInt("product_id"));
-        oi.setQuantity(rs.getInt("quantity"));
-        oi.setUnitPrice(rs.getDouble("unit_price"));
-        oi.setSubtotal(rs.getDouble("subtotal"));
-        Timestamp ts = rs.getTimestamp("created_at");
-        if (ts != null) oi.setCreatedAt(ts.toLocalDateTime());
+        oi.setOrderItemId(rs.getInt(c[0]));
+        oi.setOrderId(rs.getInt(c[1]));
+        oi.setProductId(rs.getInt(c[2]));
+        oi.setQuantity(rs.getInt(c[3]));
+        oi.setUnitPrice(rs.getDouble(c[4]));
+        oi.setSubtotal(rs.getDouble(c[5]));
+        oi.setCreatedAt(RowMapper.getLocalDateTime(rs, c[6]));
         return oi;
-    }
+    });
 }
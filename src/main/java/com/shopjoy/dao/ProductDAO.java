@@ -2,9 +2,12 @@ package com.shopjoy.dao;
 
 import com.shopjoy.model.Product;
 import com.shopjoy.util.DbConfig;
+import com.shopjoy.util.TransactionManager;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class ProductDAO implements GenericDAO<Product, Integer> {
@@ -21,7 +24,7 @@ public class ProductDAO implements GenericDAO<Product, Integer> {
             ps.setInt(1, productId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToProduct(rs) : null;
+                return PRODUCT_MAPPER.readFirst(rs);
             }
         }
     }
@@ -31,6 +34,13 @@ public class ProductDAO implements GenericDAO<Product, Integer> {
         return queryList("SELECT * FROM products ORDER BY product_name", null);
     }
 
+    @Override
+    public List<Product> findAllByIds(Collection<Integer> productIds) throws SQLException {
+        if (productIds == null || productIds.isEmpty()) return new ArrayList<>();
+        return queryList("SELECT * FROM products WHERE product_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", productIds.toArray())));
+    }
+
     @Override
     public Product save(Product product) throws SQLException {
         if (product == null) return null;
@@ -107,6 +117,94 @@ public class ProductDAO implements GenericDAO<Product, Integer> {
         }
     }
 
+    @Override
+    public List<Product> saveAll(List<Product> products) throws SQLException {
+        if (products == null || products.isEmpty()) return new ArrayList<>();
+
+        String sql = """
+                INSERT INTO products
+                (product_name, description, category_id, price, cost_price, sku, brand, image_url, is_active, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """;
+
+        return TransactionManager.inTransaction(() -> {
+            try (Connection conn = DbConfig.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql, new String[]{"product_id"})) {
+
+                for (Product product : products) {
+                    ps.setString(1, product.getProductName());
+                    ps.setString(2, product.getDescription());
+                    ps.setInt(3, product.getCategoryId());
+                    ps.setDouble(4, product.getPrice());
+                    ps.setDouble(5, product.getCostPrice());
+                    ps.setString(6, product.getSku());
+                    ps.setString(7, product.getBrand());
+                    ps.setString(8, product.getImageUrl());
+                    ps.setBoolean(9, product.isActive());
+                    ps.setObject(10, product.getCreatedAt());
+                    ps.setObject(11, product.getUpdatedAt());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int idx = 0;
+                    while (keys.next() && idx < products.size()) {
+                        products.get(idx++).setProductId(keys.getInt(1));
+                    }
+                }
+            }
+            return products;
+        });
+    }
+
+    @Override
+    public List<Product> updateAll(List<Product> products) throws SQLException {
+        if (products == null || products.isEmpty()) return new ArrayList<>();
+
+        String sql = """
+                UPDATE products
+                SET product_name=?, description=?, category_id=?, price=?, cost_price=?, sku=?, brand=?, image_url=?, is_active=?, updated_at=CURRENT_TIMESTAMP
+                WHERE product_id=?
+                """;
+
+        return TransactionManager.inTransaction(() -> {
+            try (Connection conn = DbConfig.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+
+                for (Product product : products) {
+                    ps.setString(1, product.getProductName());
+                    ps.setString(2, product.getDescription());
+                    ps.setInt(3, product.getCategoryId());
+                    ps.setDouble(4, product.getPrice());
+                    ps.setDouble(5, product.getCostPrice());
+                    ps.setString(6, product.getSku());
+                    ps.setString(7, product.getBrand());
+                    ps.setString(8, product.getImageUrl());
+                    ps.setBoolean(9, product.isActive());
+                    ps.setInt(10, product.getProductId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return products;
+        });
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> productIds) throws SQLException {
+        if (productIds == null || productIds.isEmpty()) return 0;
+
+        String sql = "DELETE FROM products WHERE product_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", productIds.toArray()));
+            return ps.executeUpdate();
+        }
+    }
+
     @Override
     public long count() throws SQLException {
         String sql = "SELECT COUNT(*) AS cnt FROM products";
@@ -126,16 +224,65 @@ public class ProductDAO implements GenericDAO<Product, Integer> {
                 ps -> ps.setInt(1, categoryId));
     }
 
+    /**
+     * Products in the category or any category below it, by name. The
+     * subtree is walked in the query with a recursive CTE; UNION rather than
+     * UNION ALL stops it at a category already visited, should the parent
+     * links ever form a cycle.
+     */
+    public List<Product> findByCategoryTree(int categoryId) throws SQLException {
+        return queryList("WITH RECURSIVE subtree(category_id) AS ("
+                + " SELECT category_id FROM categories WHERE category_id=?"
+                + " UNION SELECT c.category_id FROM categories c"
+                + " JOIN subtree s ON c.parent_category_id = s.category_id)"
+                + " SELECT p.* FROM products p JOIN subtree s ON p.category_id = s.category_id"
+                + " ORDER BY p.product_name",
+                ps -> ps.setInt(1, categoryId));
+    }
+
     public List<Product> searchByName(String searchTerm) throws SQLException {
         if (searchTerm == null) return new ArrayList<>();
         return queryList("SELECT * FROM products WHERE product_name ILIKE ? ORDER BY product_name",
                 ps -> ps.setString(1, "%" + searchTerm + "%"));
     }
 
+    /**
+     * Products having, for every word, a word in their name, brand, SKU or
+     * description that starts with it, ignoring case: the matching and the
+     * order (lower-cased name, then id) of ProductCache's text index.
+     *
+     * @param words Search words as ProductCache.searchWords returns them,
+     *              made of letters and digits only.
+     */
+    public List<Product> searchByWords(List<String> words) throws SQLException {
+        if (words == null || words.isEmpty()) return new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM products WHERE 1=1");
+        for (int i = 0; i < words.size(); i++) {
+            sql.append(" AND (product_name ~* ? OR brand ~* ? OR sku ~* ? OR description ~* ?)");
+        }
+        sql.append(" ORDER BY LOWER(product_name) COLLATE \"C\", product_id");
+        return queryList(sql.toString(), ps -> {
+            int index = 1;
+            for (String word : words) {
+                // The word at the start of the text or after a non-word character
+                String pattern = "(^|[^[:alnum:]])" + word;
+                for (int column = 0; column < 4; column++) {
+                    ps.setString(index++, pattern);
+                }
+            }
+        });
+    }
+
     public List<Product> findActiveProducts() throws SQLException {
         return queryList("SELECT * FROM products WHERE is_active=true ORDER BY product_name", null);
     }
 
+    public List<Product> findByBrand(String brand) throws SQLException {
+        if (brand == null) return new ArrayList<>();
+        return queryList("SELECT * FROM products WHERE brand=? ORDER BY product_name",
+                ps -> ps.setString(1, brand));
+    }
+
     public List<Product> findByPriceRange(double minPrice, double maxPrice) throws SQLException {
         if (minPrice > maxPrice) {
             double tmp = minPrice; minPrice = maxPrice; maxPrice = tmp;
@@ -155,29 +302,122 @@ public class ProductDAO implements GenericDAO<Product, Integer> {
                 ps -> ps.setString(1, sku)).stream().findFirst().orElse(null);
     }
 
+    /**
+     * Keyset (seek) page of products ordered by name. Pass null cursor values for
+     * the first page, then the name and id of the last row already shown. Filters
+     * are optional and may be null.
+     *
+     * @param categoryId      only products in this category
+     * @param active          only active (true) or inactive (false) products
+     * @param searchTerm      case-insensitive match on name, SKU or brand
+     * @param afterName       product_name of the last row of the previous page
+     * @param afterProductId  product_id of the last row of the previous page
+     * @param limit           maximum rows to return
+     */
+    public List<Product> findPage(Integer categoryId, Boolean active, String searchTerm,
+                                  String afterName, Integer afterProductId, int limit) throws SQLException {
+        if (limit <= 0) return new ArrayList<>();
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM products WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        if (categoryId != null) {
+            sql.append(" AND category_id=?");
+            params.add(categoryId);
+        }
+        if (active != null) {
+            sql.append(" AND is_active=?");
+            params.add(active);
+        }
+        if (searchTerm != null && !searchTerm.isBlank()) {
+            sql.append(" AND (product_name ILIKE ? OR sku ILIKE ? OR brand ILIKE ?)");
+            String like = "%" + searchTerm.trim() + "%";
+            params.add(like);
+            params.add(like);
+            params.add(like);
+        }
+        if (afterName != null && afterProductId != null) {
+            sql.append(" AND (product_name, product_id) > (?, ?)");
+            params.add(afterName);
+            params.add(afterProductId);
+        }
+        sql.append(" ORDER BY product_name, product_id LIMIT ?");
+        params.add(limit);
+
+        return queryList(sql.toString(), ps -> {
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+        });
+    }
+
+    /**
+     * Products inserted or updated since a refresh watermark: rows whose
+     * updated_at is later than updatedAfter, or whose id is above idAbove.
+     * Pass null and 0 to read every product.
+     */
+    public List<Product> findChangedSince(LocalDateTime updatedAfter, int idAbove) throws SQLException {
+        if (updatedAfter == null) {
+            return queryList("SELECT * FROM products WHERE product_id > ? ORDER BY product_id",
+                    ps -> ps.setInt(1, idAbove));
+        }
+        return queryList("SELECT * FROM products WHERE updated_at > ? OR product_id > ? ORDER BY product_id",
+                ps -> {
+                    ps.setObject(1, updatedAfter);
+                    ps.setInt(2, idAbove);
+                });
+    }
+
+    /**
+     * Latest updated_at over all products, or null if the table is empty.
+     * With count() this tells whether a saved copy of the table is current.
+     */
+    public LocalDateTime findLatestUpdate() throws SQLException {
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT MAX(updated_at) FROM products");
+             ResultSet rs = ps.executeQuery()) {
+
+            return rs.next() ? RowMapper.getLocalDateTime(rs, 1) : null;
+        }
+    }
+
+    /**
+     * Returns which of the given product ids still exist, for finding
+     * deleted products without reading their rows.
+     */
+    public List<Integer> findExistingIds(Collection<Integer> productIds) throws SQLException {
+        List<Integer> existing = new ArrayList<>();
+        if (productIds == null || productIds.isEmpty()) return existing;
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT product_id FROM products WHERE product_id = ANY(?)")) {
+
+            ps.setArray(1, conn.createArrayOf("integer", productIds.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) existing.add(rs.getInt(1));
+            }
+        }
+        return existing;
+    }
+
     // --- Helper methods ---
 
-    private Product mapResultSetToProduct(ResultSet rs) throws SQLException {
+    private static final RowMapper<Product> PRODUCT_MAPPER = RowMapper.of(new String[]{
+            "product_id", "product_name", "description", "category_id", "price", "cost_price",
+            "sku", "brand", "image_url", "is_active", "created_at", "updated_at"
+    }, (rs, c) -> {
         Product p = new Product();
-        p.setProductId(rs.getInt("product_id"));
-        p.setProductName(rs.getString("product_name"));
-        p.setDescription(rs.getString("description"));
-        p.setCategoryId(rs.getInt("category_id"));
-        p.setPrice(rs.getDouble("price"));
-        p.setCostPrice(rs.getDouble("cost_price"));
-        p.setSku(rs.getString("sku"));
-        p.setBrand(rs.getString("brand"));
-        p.setImageUrl(rs.getString("image_url"));
-        p.setActive(rs.getBoolean("is_active"));
-
-        Timestamp created = rs.getTimestamp("created_at");
-        if (created != null) p.setCreatedAt(created.toLocalDateTime());
-
-        Timestamp updated = rs.getTimestamp("updated_at");
-        if (updated != null) p.setUpdatedAt(updated.toLocalDateTime());
-
+        p.setProductId(rs.getInt(c[0]));
+        p.setProductName(rs.getString(c[1]));
+        p.setDescription(rs.getString(c[2]));
+        p.setCategoryId(rs.getInt(c[3]));
+        p.setPrice(rs.getDouble(c[4]));
+        p.setCostPrice(rs.getDouble(c[5]));
+        p.setSku(rs.getString(c[6]));
+        p.setBrand(rs.getString(c[7]));
+        p.setImageUrl(rs.getString(c[8]));
+        p.setActive(rs.getBoolean(c[9]));
+        p.setCreatedAt(RowMapper.getLocalDateTime(rs, c[10]));
+        p.setUpdatedAt(RowMapper.getLocalDateTime(rs, c[11]));
         return p;
-    }
+    });
 
     private List<Product> queryList(String sql, SQLConsumer<PreparedStatement> paramSetter) throws SQLException {
         List<Product> list = new ArrayList<>();
@@ -187,9 +427,7 @@ public class ProductDAO implements GenericDAO<Product, Integer> {
             if (paramSetter != null) paramSetter.accept(ps);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    list.add(mapResultSetToProduct(rs));
-                }
+                PRODUCT_MAPPER.readAll(rs, list);
             }
         }
         return list;
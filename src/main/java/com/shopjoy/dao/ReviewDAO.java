@@ -4,7 +4,9 @@ import com.shopjoy.model.Review;
 import com.shopjoy.util.DbConfig;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,7 +30,7 @@ public class ReviewDAO implements GenericDAO<Review, Integer> {
 
             ps.setInt(1, reviewId);
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToReview(rs) : null;
+                return REVIEW_MAPPER.readFirst(rs);
             }
         }
     }
@@ -44,7 +46,28 @@ public class ReviewDAO implements GenericDAO<Review, Integer> {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) list.add(mapResultSetToReview(rs));
+            REVIEW_MAPPER.readAll(rs, list);
+        }
+        return list;
+    }
+
+    @Override
+    public List<Review> findAllByIds(Collection<Integer> reviewIds) throws SQLException {
+        List<Review> list = new ArrayList<>();
+        if (reviewIds == null || reviewIds.isEmpty()) return list;
+
+        String sql = "SELECT review_id, product_id, user_id, rating, title, comment, " +
+                "is_verified_purchase, helpful_count, created_at, updated_at " +
+                "FROM reviews WHERE review_id = ANY(?)";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", reviewIds.toArray()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                REVIEW_MAPPER.readAll(rs, list);
+            }
         }
         return list;
     }
@@ -138,7 +161,7 @@ public class ReviewDAO implements GenericDAO<Review, Integer> {
 
             ps.setInt(1, productId);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapResultSetToReview(rs));
+                REVIEW_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -155,7 +178,7 @@ public class ReviewDAO implements GenericDAO<Review, Integer> {
 
             ps.setInt(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapResultSetToReview(rs));
+                REVIEW_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -203,7 +226,7 @@ public class ReviewDAO implements GenericDAO<Review, Integer> {
 
             ps.setInt(1, productId);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapResultSetToReview(rs));
+                REVIEW_MAPPER.readAll(rs, list);
             }
         }
         return list;
@@ -272,31 +295,96 @@ public class ReviewDAO implements GenericDAO<Review, Integer> {
 
             ps.setInt(1, limit);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) list.add(mapResultSetToReview(rs));
+                REVIEW_MAPPER.readAll(rs, list);
             }
         }
         return list;
     }
 
-    // ---------------- Helper Mapping ----------------
+    /**
+     * Keyset (seek) page of reviews, newest first. Pass null cursor values for the
+     * first page, then the created_at and review_id of the last row already shown.
+     * created_at is NOT NULL in the schema, so every review has a place in it.
+     *
+     * @param rating          optional star rating filter (1-5), null for all
+     * @param afterCreatedAt  created_at of the last row of the previous page
+     * @param afterReviewId   review_id of the last row of the previous page
+     * @param limit           maximum rows to return
+     */
+    public List<Review> findPage(Integer rating, LocalDateTime afterCreatedAt, Integer afterReviewId, int limit)
+            throws SQLException {
+        List<Review> list = new ArrayList<>();
+        if (limit <= 0) return list;
 
-    private Review mapResultSetToReview(ResultSet rs) throws SQLException {
-        Review r = new Review();
-        r.setReviewId(rs.getInt("review_id"));
-        r.setProductId(rs.getInt("product_id"));
-        r.setUserId(rs.getInt("user_id"));
-        r.setRating(rs.getInt("rating"));
-        r.setTitle(rs.getString("title"));
-        r.setComment(rs.getString("comment"));
-        r.setVerifiedPurchase(rs.getBoolean("is_verified_purchase"));
-        r.setHelpfulCount(rs.getInt("helpful_count"));
+        StringBuilder sql = new StringBuilder("SELECT review_id, product_id, user_id, rating, title, comment, " +
+                "is_verified_purchase, helpful_count, created_at, updated_at " +
+                "FROM reviews WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        if (rating != null) {
+            sql.append(" AND rating = ?");
+            params.add(rating);
+        }
+        if (afterCreatedAt != null && afterReviewId != null) {
+            sql.append(" AND (created_at, review_id) < (?, ?)");
+            params.add(afterCreatedAt);
+            params.add(afterReviewId);
+        }
+        sql.append(" ORDER BY created_at DESC, review_id DESC LIMIT ?");
+        params.add(limit);
 
-        Timestamp created = rs.getTimestamp("created_at");
-        if (created != null) r.setCreatedAt(created.toLocalDateTime());
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
 
-        Timestamp updated = rs.getTimestamp("updated_at");
-        if (updated != null) r.setUpdatedAt(updated.toLocalDateTime());
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                REVIEW_MAPPER.readAll(rs, list);
+            }
+        }
+        return list;
+    }
 
-        return r;
+    /**
+     * Average rating over all reviews, or 0 when there are none.
+     */
+    public double getOverallAverageRating() throws SQLException {
+        String sql = "SELECT AVG(rating) AS avg_rating FROM reviews";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            return rs.next() ? rs.getDouble("avg_rating") : 0.0;
+        }
+    }
+
+    public long countVerifiedPurchaseReviews() throws SQLException {
+        String sql = "SELECT COUNT(*) AS cnt FROM reviews WHERE is_verified_purchase = true";
+
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            return rs.next() ? rs.getLong("cnt") : 0L;
+        }
     }
+
+    // ---------------- Helper Mapping ----------------
+
+    private static final RowMapper<Review> REVIEW_MAPPER = RowMapper.of(new String[]{
+            "review_id", "product_id", "user_id", "rating", "title", "comment",
+            "is_verified_purchase", "helpful_count", "created_at", "updated_at"
+    }, (rs, c) -> {
+        Review r = new Review();
+        r.setReviewId(rs.getInt(c[0]));
+        r.setProductId(rs.getInt(c[1]));
+        r.setUserId(rs.getInt(c[2]));
+        r.setRating(rs.getInt(c[3]));
+        r.setTitle(rs.getString(c[4]));
+        r.setComment(rs.getString(c[5]));
+        r.setVerifiedPurchase(rs.getBoolean(c[6]));
+        r.setHelpfulCount(rs.getInt(c[7]));
+        r.setCreatedAt(RowMapper.getLocalDateTime(rs, c[8]));
+        r.setUpdatedAt(RowMapper.getLocalDateTime(rs, c[9]));
+        return r;
+    });
 }
@@ -0,0 +1,21 @@
+package com.shopjoy.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Receives rows one at a time from a streaming DAO read, so a full table scan
+ * can be consumed without materializing it as a list.
+ *
+ * @param <T> Entity type
+ */
+@FunctionalInterface
+public interface RowCallback<T> {
+
+    /**
+     * Handle one row. Throwing stops the scan and closes the cursor.
+     *
+     * @param row the mapped entity
+     * @throws SQLException if the handler needs to abort with a database error
+     */
+    void accept(T row) throws SQLException;
+}
@@ -0,0 +1,122 @@
+package com.shopjoy.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * RowMapper - Maps result set rows to entities by column position.
+ *
+ * A mapper is declared once per entity with the column labels it reads. For
+ * each result set the labels are resolved to positions a single time (see
+ * bind), and every row is then decoded by index, avoiding the per-row label
+ * lookups of rs.getXxx("column"). Timestamps are decoded straight to
+ * LocalDateTime instead of going through java.sql.Timestamp.
+ *
+ * Mappers are immutable and safe to share between threads; the resolved
+ * positions live in the Bound instance of a single result set.
+ *
+ * @param <T> Entity type
+ */
+public final class RowMapper<T> {
+
+    /**
+     * Decodes the current row. columns[i] is the position of the i-th label
+     * the mapper was declared with.
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+        T decode(ResultSet rs, int[] columns) throws SQLException;
+    }
+
+    private final String[] labels;
+    private final Decoder<T> decoder;
+
+    private RowMapper(String[] labels, Decoder<T> decoder) {
+        this.labels = labels.clone();
+        this.decoder = decoder;
+    }
+
+    public static <T> RowMapper<T> of(String[] labels, Decoder<T> decoder) {
+        return new RowMapper<>(labels, decoder);
+    }
+
+    /**
+     * Resolves the mapper's column labels against a result set.
+     */
+    public Bound<T> bind(ResultSet rs) throws SQLException {
+        int[] columns = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            columns[i] = rs.findColumn(labels[i]);
+        }
+        return new Bound<>(decoder, columns);
+    }
+
+    /**
+     * @return The first row, or null if the result set is empty.
+     */
+    public T readFirst(ResultSet rs) throws SQLException {
+        return rs.next() ? bind(rs).map(rs) : null;
+    }
+
+    /**
+     * Adds every remaining row to the collection.
+     *
+     * @return The collection passed in.
+     */
+    public <C extends Collection<? super T>> C readAll(ResultSet rs, C out) throws SQLException {
+        Bound<T> bound = bind(rs);
+        while (rs.next()) {
+            out.add(bound.map(rs));
+        }
+        return out;
+    }
+
+    /**
+     * Passes every remaining row to the callback.
+     *
+     * @return Number of rows read.
+     */
+    public long forEach(ResultSet rs, RowCallback<T> callback) throws SQLException {
+        Bound<T> bound = bind(rs);
+        long rows = 0;
+        while (rs.next()) {
+            callback.accept(bound.map(rs));
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * Decodes a TIMESTAMP column without an intermediate java.sql.Timestamp.
+     */
+    public static LocalDateTime getLocalDateTime(ResultSet rs, int column) throws SQLException {
+        return rs.getObject(column, LocalDateTime.class);
+    }
+
+    /**
+     * @return The INTEGER column value, or null for SQL NULL.
+     */
+    public static Integer getNullableInt(ResultSet rs, int column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * A mapper bound to the column positions of one result set.
+     */
+    public static final class Bound<T> {
+        private final Decoder<T> decoder;
+        private final int[] columns;
+
+        private Bound(Decoder<T> decoder, int[] columns) {
+            this.decoder = decoder;
+            this.columns = columns;
+        }
+
+        public T map(ResultSet rs) throws SQLException {
+            return decoder.decode(rs, columns);
+        }
+    }
+}
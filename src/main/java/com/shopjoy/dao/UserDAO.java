@@ -6,12 +6,14 @@ import com.shopjoy.util.DbConfig;
 import org.mindrot.jbcrypt.BCrypt;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * DAO implementation for User entity.
- * Uses DbConfig (no pooling) and BCrypt for password hashing.
+ * Uses DbConfig (pooled connections) and BCrypt for password hashing.
  */
 public class UserDAO implements GenericDAO<User, Integer> {
 
@@ -34,7 +36,7 @@ public class UserDAO implements GenericDAO<User, Integer> {
             ps.setInt(1, userId);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToUser(rs) : null;
+                return USER_MAPPER.readFirst(rs);
             }
         }
     }
@@ -55,8 +57,32 @@ public class UserDAO implements GenericDAO<User, Integer> {
                 PreparedStatement ps = conn.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) {
-                users.add(mapResultSetToUser(rs));
+            USER_MAPPER.readAll(rs, users);
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> findAllByIds(Collection<Integer> userIds) throws SQLException {
+        List<User> users = new ArrayList<>();
+        if (userIds == null || userIds.isEmpty())
+            return users;
+
+        String sql = """
+                SELECT user_id, username, email, password_hash,
+                       first_name, last_name, phone, user_type,
+                       created_at, updated_at
+                FROM users
+                WHERE user_id = ANY(?)
+                """;
+
+        try (Connection conn = DbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setArray(1, conn.createArrayOf("integer", userIds.toArray()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                USER_MAPPER.readAll(rs, users);
             }
         }
         return users;
@@ -177,7 +203,7 @@ public class UserDAO implements GenericDAO<User, Integer> {
             ps.setString(1, username);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToUser(rs) : null;
+                return USER_MAPPER.readFirst(rs);
             }
         }
     }
@@ -200,7 +226,7 @@ public class UserDAO implements GenericDAO<User, Integer> {
             ps.setString(1, email);
 
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? mapResultSetToUser(rs) : null;
+                return USER_MAPPER.readFirst(rs);
             }
         }
     }
@@ -270,9 +296,7 @@ public class UserDAO implements GenericDAO<User, Integer> {
             ps.setString(1, userType.toString().toLowerCase());
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    users.add(mapResultSetToUser(rs));
-                }
+                USER_MAPPER.readAll(rs, users);
             }
         }
         return users;
@@ -300,29 +324,104 @@ public class UserDAO implements GenericDAO<User, Integer> {
         }
     }
 
-    // -------- Mapping --------
+    /**
+     * Keyset (seek) page of users of one type ordered by username. Pass null
+     * cursor values for the first page, then the username and user_id of the last
+     * row already shown.
+     *
+     * @param userType      user type to list
+     * @param searchTerm    optional case-insensitive match on username, email or name
+     * @param afterUsername username of the last row of the previous page
+     * @param afterUserId   user_id of the last row of the previous page
+     * @param limit         maximum rows to return
+     */
+    public List<User> findPageByUserType(UserType userType, String searchTerm, String afterUsername,
+            Integer afterUserId, int limit) throws SQLException {
+        List<User> users = new ArrayList<>();
+        if (userType == null || limit <= 0)
+            return users;
 
-    private User mapResultSetToUser(ResultSet rs) throws SQLException {
-        User u = new User();
-        u.setUserId(rs.getInt("user_id"));
-        u.setUsername(rs.getString("username"));
-        u.setEmail(rs.getString("email"));
-        u.setPasswordHash(rs.getString("password_hash"));
-        u.setFirstName(rs.getString("first_name"));
-        u.setLastName(rs.getString("last_name"));
-        u.setPhone(rs.getString("phone"));
+        StringBuilder sql = new StringBuilder("""
+                SELECT user_id, username, email, password_hash,
+                       first_name, last_name, phone, user_type,
+                       created_at, updated_at
+                FROM users
+                WHERE user_type = ?
+                """);
+        List<Object> params = new ArrayList<>();
+        params.add(userType.toString().toLowerCase());
+        if (searchTerm != null && !searchTerm.isBlank()) {
+            sql.append(" AND (username ILIKE ? OR email ILIKE ? OR (first_name || ' ' || last_name) ILIKE ?)");
+            String like = "%" + searchTerm.trim() + "%";
+            params.add(like);
+            params.add(like);
+            params.add(like);
+        }
+        if (afterUsername != null && afterUserId != null) {
+            sql.append(" AND (username, user_id) > (?, ?)");
+            params.add(afterUsername);
+            params.add(afterUserId);
+        }
+        sql.append(" ORDER BY username, user_id LIMIT ?");
+        params.add(limit);
+
+        try (Connection conn = DbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
 
-        String ut = rs.getString("user_type");
-        u.setUserType(ut != null ? UserType.fromString(ut) : null);
+            try (ResultSet rs = ps.executeQuery()) {
+                USER_MAPPER.readAll(rs, users);
+            }
+        }
+        return users;
+    }
 
-        Timestamp created = rs.getTimestamp("created_at");
-        if (created != null)
-            u.setCreatedAt(created.toLocalDateTime());
+    /**
+     * Count users of one type, optionally only those created on or after a
+     * point in time.
+     */
+    public int countByUserType(UserType userType, LocalDateTime createdSince) throws SQLException {
+        if (userType == null)
+            return 0;
 
-        Timestamp updated = rs.getTimestamp("updated_at");
-        if (updated != null)
-            u.setUpdatedAt(updated.toLocalDateTime());
+        String sql = createdSince == null
+                ? "SELECT COUNT(*) AS cnt FROM users WHERE user_type = ?"
+                : "SELECT COUNT(*) AS cnt FROM users WHERE user_type = ? AND created_at >= ?";
 
-        return u;
+        try (Connection conn = DbConfig.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, userType.toString().toLowerCase());
+            if (createdSince != null) {
+                ps.setObject(2, createdSince);
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt("cnt") : 0;
+            }
+        }
     }
+
+    // -------- Mapping --------
+
+    private static final RowMapper<User> USER_MAPPER = RowMapper.of(new String[]{
+            "user_id", "username", "email", "password_hash", "first_name",
+            "last_name", "phone", "user_type", "created_at", "updated_at"
+    }, (rs, c) -> {
+        User u = new User();
+        u.setUserId(rs.getInt(c[0]));
+        u.setUsername(rs.getString(c[1]));
+        u.setEmail(rs.getString(c[2]));
+        u.setPasswordHash(rs.getString(c[3]));
+        u.setFirstName(rs.getString(c[4]));
+        u.setLastName(rs.getString(c[5]));
+        u.setPhone(rs.getString(c[6]));
+        u.setUserType(UserType.fromString(rs.getString(c[7])));
+        u.setCreatedAt(RowMapper.getLocalDateTime(rs, c[8]));
+        u.setUpdatedAt(RowMapper.getLocalDateTime(rs, c[9]));
+        return u;
+    });
 }
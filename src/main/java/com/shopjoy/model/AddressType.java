@@ -1,11 +1,25 @@
 package com.shopjoy.model;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public enum AddressType {
     SHIPPING("Shipping"),
     BILLING("Billing");
 
     private final String displayName;
 
+    private static final Map<String, AddressType> LOOKUP = new HashMap<>();
+
+    static {
+        for (AddressType t : values()) {
+            LOOKUP.put(t.name(), t);
+            LOOKUP.put(t.name().toLowerCase(Locale.ROOT), t);
+            LOOKUP.put(t.displayName.toLowerCase(Locale.ROOT), t);
+        }
+    }
+
     AddressType(String displayName) {
         this.displayName = displayName;
     }
@@ -14,15 +28,8 @@ public enum AddressType {
 
     public static AddressType fromString(String value) {
         if (value == null) return null;
-        String v = value.trim();
-        try {
-            return AddressType.valueOf(v.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            for (AddressType t : values()) {
-                if (t.displayName.equalsIgnoreCase(v)) return t;
-            }
-            return null;
-        }
+        AddressType found = LOOKUP.get(value);
+        return found != null ? found : LOOKUP.get(value.trim().toLowerCase(Locale.ROOT));
     }
 
     @Override
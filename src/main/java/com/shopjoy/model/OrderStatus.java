@@ -1,5 +1,9 @@
 package com.shopjoy.model;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public enum OrderStatus {
     PENDING("Pending"),
     PROCESSING("Processing"),
@@ -9,6 +13,17 @@ public enum OrderStatus {
 
     private final String displayName;
 
+    // Precomputed name/display-name lookup so row mappers never throw and catch per row
+    private static final Map<String, OrderStatus> LOOKUP = new HashMap<>();
+
+    static {
+        for (OrderStatus s : values()) {
+            LOOKUP.put(s.name(), s);
+            LOOKUP.put(s.name().toLowerCase(Locale.ROOT), s);
+            LOOKUP.put(s.displayName.toLowerCase(Locale.ROOT), s);
+        }
+    }
+
     OrderStatus(String displayName) {
         this.displayName = displayName;
     }
@@ -39,15 +54,9 @@ public enum OrderStatus {
 
     public static OrderStatus fromString(String value) {
         if (value == null) return null;
-        String v = value.trim();
-        try {
-            return OrderStatus.valueOf(v.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            for (OrderStatus s : values()) {
-                if (s.displayName.equalsIgnoreCase(v)) return s;
-            }
-            return null;
-        }
+        // Exact hit for the lowercase form stored in the database, no allocation
+        OrderStatus found = LOOKUP.get(value);
+        return found != null ? found : LOOKUP.get(value.trim().toLowerCase(Locale.ROOT));
     }
 
     @Override
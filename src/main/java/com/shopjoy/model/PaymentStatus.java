@@ -1,5 +1,9 @@
 package com.shopjoy.model;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public enum PaymentStatus {
     UNPAID("Unpaid"),
     PAID("Paid"),
@@ -7,6 +11,16 @@ public enum PaymentStatus {
 
     private final String displayName;
 
+    private static final Map<String, PaymentStatus> LOOKUP = new HashMap<>();
+
+    static {
+        for (PaymentStatus s : values()) {
+            LOOKUP.put(s.name(), s);
+            LOOKUP.put(s.name().toLowerCase(Locale.ROOT), s);
+            LOOKUP.put(s.displayName.toLowerCase(Locale.ROOT), s);
+        }
+    }
+
     PaymentStatus(String displayName) {
         this.displayName = displayName;
     }
@@ -17,15 +31,8 @@ public enum PaymentStatus {
 
     public static PaymentStatus fromString(String value) {
         if (value == null) return null;
-        String v = value.trim();
-        try {
-            return PaymentStatus.valueOf(v.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            for (PaymentStatus s : values()) {
-                if (s.displayName.equalsIgnoreCase(v)) return s;
-            }
-            return null;
-        }
+        PaymentStatus found = LOOKUP.get(value);
+        return found != null ? found : LOOKUP.get(value.trim().toLowerCase(Locale.ROOT));
     }
 
     @Override
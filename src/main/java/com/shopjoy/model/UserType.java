@@ -1,11 +1,25 @@
 package com.shopjoy.model;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public enum UserType {
     CUSTOMER("Customer"),
     ADMIN("Admin");
 
     private final String displayName;
 
+    private static final Map<String, UserType> LOOKUP = new HashMap<>();
+
+    static {
+        for (UserType t : values()) {
+            LOOKUP.put(t.name(), t);
+            LOOKUP.put(t.name().toLowerCase(Locale.ROOT), t);
+            LOOKUP.put(t.displayName.toLowerCase(Locale.ROOT), t);
+        }
+    }
+
     UserType(String displayName) {
         this.displayName = displayName;
     }
@@ -16,15 +30,8 @@ public enum UserType {
 
     public static UserType fromString(String value) {
         if (value == null) return null;
-        String v = value.trim();
-        try {
-            return UserType.valueOf(v.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            for (UserType t : values()) {
-                if (t.displayName.equalsIgnoreCase(v)) return t;
-            }
-            return null;
-        }
+        UserType found = LOOKUP.get(value);
+        return found != null ? found : LOOKUP.get(value.trim().toLowerCase(Locale.ROOT));
     }
 
     @Override
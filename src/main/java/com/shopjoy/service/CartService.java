@@ -6,10 +6,16 @@ import com.shopjoy.model.CartItem;
 import com.shopjoy.model.Order;
 import com.shopjoy.model.OrderItem;
 import com.shopjoy.model.Product;
+import com.shopjoy.util.TransactionManager;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class CartService {
 
@@ -31,10 +37,17 @@ public class CartService {
     public List<CartItem> getCartItems(int userId) {
         try {
             List<CartItem> items = cartItemDAO.findByUserId(userId);
-            // Enrich with product details
+            // Enrich with product details in one query
+            Set<Integer> productIds = new HashSet<>();
             for (CartItem item : items) {
-                Product p = productDAO.findById(item.getProductId());
-                item.setProduct(p);
+                productIds.add(item.getProductId());
+            }
+            Map<Integer, Product> products = new HashMap<>();
+            for (Product p : productDAO.findAllByIds(productIds)) {
+                products.put(p.getProductId(), p);
+            }
+            for (CartItem item : items) {
+                item.setProduct(products.get(item.getProductId()));
             }
             return items;
         } catch (SQLException e) {
@@ -96,6 +109,18 @@ public class CartService {
         }
     }
 
+    /**
+     * Removes several cart lines with one statement.
+     */
+    public boolean removeFromCart(Collection<Integer> cartItemIds) {
+        try {
+            return cartItemDAO.deleteAll(cartItemIds) > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     public boolean clearCart(int userId) {
         try {
             cartItemDAO.clearCart(userId);
@@ -106,24 +131,37 @@ public class CartService {
         }
     }
 
+    /**
+     * Places an order for the user's cart and empties the cart, as one
+     * transaction: the cart is only cleared if the order was created.
+     */
     public Order checkout(int userId, String shippingAddress, String paymentMethod) {
-        List<CartItem> cartItems = getCartItems(userId);
-        if (cartItems.isEmpty())
-            return null;
-
-        List<OrderItem> orderItems = new ArrayList<>();
-        for (CartItem ci : cartItems) {
-            OrderItem oi = new OrderItem();
-            oi.setProductId(ci.getProductId());
-            oi.setQuantity(ci.getQuantity());
-            // Unit price is set by OrderService logic
-            orderItems.add(oi);
-        }
+        try {
+            return TransactionManager.inTransaction(() -> {
+                List<CartItem> cartItems = cartItemDAO.findByUserId(userId);
+                if (cartItems.isEmpty())
+                    return null;
+
+                List<OrderItem> orderItems = new ArrayList<>();
+                for (CartItem ci : cartItems) {
+                    OrderItem oi = new OrderItem();
+                    oi.setProductId(ci.getProductId());
+                    oi.setQuantity(ci.getQuantity());
+                    // Unit price is set by OrderService logic
+                    orderItems.add(oi);
+                }
 
-        Order order = orderService.createOrder(userId, orderItems, shippingAddress, paymentMethod);
-        if (order != null) {
-            clearCart(userId);
+                Order order = orderService.createOrder(userId, orderItems, shippingAddress, paymentMethod);
+                if (order == null) {
+                    TransactionManager.setRollbackOnly();
+                    return null;
+                }
+                cartItemDAO.clearCart(userId);
+                return order;
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
         }
-        return order;
     }
 }
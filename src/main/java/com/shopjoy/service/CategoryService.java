@@ -2,6 +2,9 @@ package com.shopjoy.service;
 
 import com.shopjoy.dao.CategoryDAO;
 import com.shopjoy.cache.CategoryCache;
+import com.shopjoy.cache.CategoryHierarchy;
+import com.shopjoy.cache.CategoryProductCounts;
+import com.shopjoy.cache.ProductCache;
 import com.shopjoy.dao.ProductDAO;
 import com.shopjoy.model.Category;
 
@@ -9,15 +12,17 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for category management and business rules.
  *
  * Category hierarchy logic: categories may reference a parent via
  * `parentCategoryId`.
- * Top-level categories have `parentCategoryId == null`. The service builds a
- * `CategoryTree` by retrieving top-level categories and recursively fetching
- * their subcategories via `CategoryDAO.findSubcategories()`.
+ * Top-level categories have `parentCategoryId == null`. Hierarchy reads
+ * (top-level, subcategories, paths, descendants and the `CategoryTree`) are
+ * answered from the cached `CategoryHierarchy`, which is loaded with a single
+ * `CategoryDAO.findAll()`.
  */
 public class CategoryService {
     private final CategoryDAO categoryDAO;
@@ -33,22 +38,13 @@ public class CategoryService {
      * Return all categories.
      */
     public List<Category> getAllCategories() {
-        // Check cache first
-        if (categoryCache.isCacheValid() && categoryCache.getCacheSize() > 0) {
-            List<Category> cached = categoryCache.getAllCachedCategories();
-            if (cached != null) {
-                System.out.println("Returning categories from cache");
-                return cached;
-            }
-        }
-
+        // Served from cache when fresh; otherwise concurrent misses share one query
         try {
-            List<Category> categories = categoryDAO.findAll();
-            if (categories != null) {
-                categoryCache.cacheCategoryList(categories);
+            return categoryCache.loadAllCategories(() -> {
+                List<Category> categories = categoryDAO.findAll();
                 System.out.println("Categories loaded from database and cached");
-            }
-            return categories;
+                return categories;
+            });
         } catch (SQLException e) {
             System.err.println("getAllCategories: " + e.getMessage());
             return new ArrayList<>();
@@ -61,19 +57,15 @@ public class CategoryService {
     public Category getCategoryById(int categoryId) {
         if (categoryId <= 0)
             return null;
-        // Check cache first
-        Category cached = categoryCache.getCategory(categoryId);
-        if (cached != null) {
-            return cached;
-        }
-
+        // Served from cache; ids known not to exist are answered without a query
         try {
-            Category category = categoryDAO.findById(categoryId);
-            if (category != null) {
-                categoryCache.cacheCategory(category);
-                System.out.println("Category " + categoryId + " loaded from database and cached");
-            }
-            return category;
+            return categoryCache.loadCategory(categoryId, () -> {
+                Category category = categoryDAO.findById(categoryId);
+                if (category != null) {
+                    System.out.println("Category " + categoryId + " loaded from database and cached");
+                }
+                return category;
+            });
         } catch (SQLException e) {
             System.err.println("getCategoryById: " + e.getMessage());
             return null;
@@ -98,20 +90,8 @@ public class CategoryService {
      * Return top-level categories (no parent).
      */
     public List<Category> getTopLevelCategories() {
-        // Check cache first
-        List<Category> cached = categoryCache.getTopLevelCategories();
-        if (cached != null) {
-            System.out.println("Top-level categories retrieved from cache");
-            return cached;
-        }
-
         try {
-            List<Category> categories = categoryDAO.findTopLevelCategories();
-            if (categories != null) {
-                categoryCache.cacheTopLevelCategories(categories);
-                System.out.println("Top-level categories loaded from database and cached");
-            }
-            return categories;
+            return loadHierarchy().getTopLevel();
         } catch (SQLException e) {
             System.err.println("getTopLevelCategories: " + e.getMessage());
             return new ArrayList<>();
@@ -124,23 +104,39 @@ public class CategoryService {
     public List<Category> getSubcategories(int parentCategoryId) {
         if (parentCategoryId <= 0)
             return new ArrayList<>();
-        // Check cache first
-        List<Category> cached = categoryCache.getSubcategories(parentCategoryId);
-        if (cached != null) {
-            System.out.println("Subcategories for category " + parentCategoryId + " retrieved from cache");
-            return cached;
+        try {
+            return loadHierarchy().getChildren(parentCategoryId);
+        } catch (SQLException e) {
+            System.err.println("getSubcategories: " + e.getMessage());
+            return new ArrayList<>();
         }
+    }
 
+    /**
+     * Get the path from the top-level category down to this one, inclusive.
+     * Empty if the category does not exist.
+     */
+    public List<Category> getCategoryPath(int categoryId) {
+        if (categoryId <= 0)
+            return new ArrayList<>();
         try {
-            List<Category> subs = categoryDAO.findSubcategories(parentCategoryId);
-            if (subs != null) {
-                categoryCache.cacheSubcategories(parentCategoryId, subs);
-                System.out
-                        .println("Subcategories for category " + parentCategoryId + " loaded from database and cached");
-            }
-            return subs;
+            return loadHierarchy().getPath(categoryId);
         } catch (SQLException e) {
-            System.err.println("getSubcategories: " + e.getMessage());
+            System.err.println("getCategoryPath: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Get every category below this one, at any depth.
+     */
+    public List<Category> getDescendantCategories(int categoryId) {
+        if (categoryId <= 0)
+            return new ArrayList<>();
+        try {
+            return loadHierarchy().getDescendants(categoryId);
+        } catch (SQLException e) {
+            System.err.println("getDescendantCategories: " + e.getMessage());
             return new ArrayList<>();
         }
     }
@@ -183,6 +179,7 @@ public class CategoryService {
                 Category saved = categoryDAO.save(c);
                 if (saved != null) {
                     categoryCache.invalidateCache();
+                    ProductCache.getInstance().invalidateSubtrees();
                     System.out.println("Category cache invalidated after adding new category");
                 }
                 return saved;
@@ -223,6 +220,7 @@ public class CategoryService {
                 Category updated = categoryDAO.update(category);
                 if (updated != null) {
                     categoryCache.invalidateCategory(category.getCategoryId());
+                    ProductCache.getInstance().invalidateSubtrees();
                     System.out.println("Cache invalidated for category " + category.getCategoryId());
                 }
                 return updated;
@@ -256,6 +254,7 @@ public class CategoryService {
                 boolean success = categoryDAO.delete(categoryId);
                 if (success) {
                     categoryCache.invalidateCache();
+                    ProductCache.getInstance().invalidateSubtrees();
                     System.out.println("Category cache invalidated after deletion");
                 }
                 return success;
@@ -276,19 +275,39 @@ public class CategoryService {
         if (categoryId <= 0)
             return 0;
         try {
-            return categoryDAO.getProductCount(categoryId);
+            return loadProductCounts().getDirectCount(categoryId);
         } catch (SQLException e) {
             System.err.println("getProductCount: " + e.getMessage());
             return 0;
         }
     }
 
+    /**
+     * Return count of products in a category and all categories below it.
+     */
+    public int getSubtreeProductCount(int categoryId) {
+        if (categoryId <= 0)
+            return 0;
+        try {
+            return loadProductCounts().getSubtreeCount(categoryId);
+        } catch (SQLException e) {
+            System.err.println("getSubtreeProductCount: " + e.getMessage());
+            return 0;
+        }
+    }
+
     /**
      * Return categories that have products.
      */
     public List<Category> getCategoriesWithProducts() {
         try {
-            return categoryDAO.findCategoriesWithProducts();
+            CategoryProductCounts counts = loadProductCounts();
+            List<Category> withProducts = new ArrayList<>();
+            for (Category c : loadHierarchy().getAll()) {
+                if (counts.getDirectCount(c.getCategoryId()) > 0)
+                    withProducts.add(c);
+            }
+            return withProducts;
         } catch (SQLException e) {
             System.err.println("getCategoriesWithProducts: " + e.getMessage());
             return new ArrayList<>();
@@ -302,8 +321,7 @@ public class CategoryService {
         if (categoryId <= 0)
             return false;
         try {
-            List<Category> subs = categoryDAO.findSubcategories(categoryId);
-            return subs != null && !subs.isEmpty();
+            return !loadHierarchy().getChildren(categoryId).isEmpty();
         } catch (SQLException e) {
             System.err.println("hasSubcategories: " + e.getMessage());
             return false;
@@ -316,12 +334,9 @@ public class CategoryService {
     public List<CategoryTree> getCategoryTree() {
         List<CategoryTree> roots = new ArrayList<>();
         try {
-            List<Category> top = categoryDAO.findTopLevelCategories();
-            if (top == null)
-                return roots;
-            for (Category c : top) {
-                CategoryTree node = buildTreeRecursive(c);
-                roots.add(node);
+            CategoryHierarchy hierarchy = loadHierarchy();
+            for (Category c : hierarchy.getTopLevel()) {
+                roots.add(buildTree(hierarchy, c));
             }
             return roots;
         } catch (SQLException e) {
@@ -331,20 +346,37 @@ public class CategoryService {
     }
 
     /**
-     * Recursively build CategoryTree for a category.
+     * Build the CategoryTree below a category from the cached hierarchy.
      */
-    private CategoryTree buildTreeRecursive(Category category) {
+    private CategoryTree buildTree(CategoryHierarchy hierarchy, Category category) {
         CategoryTree node = new CategoryTree(category);
-        try {
-            List<Category> children = getSubcategories(category.getCategoryId());
-            if (children != null) {
-                for (Category child : children) {
-                    node.addChild(buildTreeRecursive(child));
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("buildTreeRecursive: " + e.getMessage());
+        for (Category child : hierarchy.getChildren(category.getCategoryId())) {
+            node.addChild(buildTree(hierarchy, child));
         }
         return node;
     }
+
+    /**
+     * Cached product counts for every category; on a miss one GROUP BY over
+     * products is rolled up over the category tree.
+     */
+    private CategoryProductCounts loadProductCounts() throws SQLException {
+        return categoryCache.loadProductCounts(categoryDAO::findAll, () -> {
+            Map<Integer, Integer> counts = categoryDAO.findProductCounts();
+            System.out.println("Category product counts loaded from database and cached");
+            return counts;
+        });
+    }
+
+    /**
+     * The cached category tree; on a miss all categories are read in one
+     * query, shared by concurrent callers.
+     */
+    private CategoryHierarchy loadHierarchy() throws SQLException {
+        return categoryCache.loadHierarchy(() -> {
+            List<Category> categories = categoryDAO.findAll();
+            System.out.println("Category tree loaded from database and cached");
+            return categories;
+        });
+    }
 }
@@ -2,12 +2,17 @@ package com.shopjoy.service;
 
 import com.shopjoy.dao.InventoryDAO;
 import com.shopjoy.dao.ProductDAO;
+import com.shopjoy.dao.RowCallback;
 import com.shopjoy.model.Inventory;
 import com.shopjoy.model.Product;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service for inventory management and stock operations.
@@ -38,6 +43,20 @@ public class InventoryService {
         }
     }
 
+    /**
+     * Stream all inventory records to the callback one row at a time, without
+     * loading the table. Returns false if the scan failed.
+     */
+    public boolean forEachInventory(RowCallback<Inventory> callback) {
+        try {
+            inventoryDAO.streamAll(callback);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("forEachInventory: " + e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Return all inventory records.
      */
@@ -85,16 +104,10 @@ public class InventoryService {
     /**
      * Remove stock amount (>0). Prevents negative stock.
      */
-    public synchronized boolean removeStock(int productId, int amount) {
+    public boolean removeStock(int productId, int amount) {
         if (productId <= 0 || amount <= 0)
             return false;
         try {
-            // check availability
-            Inventory inv = inventoryDAO.findByProductId(productId);
-            if (inv == null)
-                return false;
-            if (inv.getQuantityInStock() < amount)
-                return false;
             return inventoryDAO.decrementStock(productId, amount);
         } catch (SQLException e) {
             System.err.println("removeStock: " + e.getMessage());
@@ -125,9 +138,9 @@ public class InventoryService {
             List<Inventory> items = inventoryDAO.findLowStockItems();
             if (items == null)
                 return out;
+            Map<Integer, Product> products = productsById(items);
             for (Inventory inv : items) {
-                Product p = productDAO.findById(inv.getProductId());
-                out.add(new ProductWithStock(p, inv));
+                out.add(new ProductWithStock(products.get(inv.getProductId()), inv));
             }
             return out;
         } catch (SQLException e) {
@@ -145,9 +158,9 @@ public class InventoryService {
             List<Inventory> items = inventoryDAO.findOutOfStockItems();
             if (items == null)
                 return out;
+            Map<Integer, Product> products = productsById(items);
             for (Inventory inv : items) {
-                Product p = productDAO.findById(inv.getProductId());
-                out.add(new ProductWithStock(p, inv));
+                out.add(new ProductWithStock(products.get(inv.getProductId()), inv));
             }
             return out;
         } catch (SQLException e) {
@@ -183,21 +196,12 @@ public class InventoryService {
 
     /**
      * Calculate total stock value using product cost prices.
-     * Stock value = sum(quantity * cost_price) for all inventory items.
+     * Stock value = sum(quantity * cost_price) for all inventory items, as one
+     * aggregate query rather than loading every row.
      */
     public int getTotalStockValue() {
-        double total = 0.0;
         try {
-            List<Inventory> items = inventoryDAO.findAll();
-            if (items == null)
-                return 0;
-            for (Inventory inv : items) {
-                Product p = productDAO.findById(inv.getProductId());
-                if (p == null)
-                    continue;
-                total += ((double) inv.getQuantityInStock()) * p.getCostPrice();
-            }
-            return (int) Math.round(total);
+            return (int) Math.round(inventoryDAO.getTotalStockValue());
         } catch (SQLException e) {
             System.err.println("getTotalStockValue: " + e.getMessage());
             return 0;
@@ -262,12 +266,17 @@ public class InventoryService {
         try {
             List<Inventory> all = inventoryDAO.findAll();
             int totalProducts = all == null ? 0 : all.size();
-            int low = inventoryDAO.findLowStockItems().size();
-            int out = inventoryDAO.findOutOfStockItems().size();
+            int low = 0;
+            int out = 0;
             double totalValue = 0.0;
             if (all != null) {
+                Map<Integer, Product> products = productsById(all);
                 for (Inventory inv : all) {
-                    Product p = productDAO.findById(inv.getProductId());
+                    if (inv.getQuantityInStock() <= inv.getReorderLevel())
+                        low++;
+                    if (inv.getQuantityInStock() == 0)
+                        out++;
+                    Product p = products.get(inv.getProductId());
                     if (p != null)
                         totalValue += inv.getQuantityInStock() * p.getCostPrice();
                 }
@@ -279,6 +288,21 @@ public class InventoryService {
         }
     }
 
+    /**
+     * Load the products referenced by the inventory rows with a single query.
+     */
+    private Map<Integer, Product> productsById(List<Inventory> items) throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        for (Inventory inv : items) {
+            ids.add(inv.getProductId());
+        }
+        Map<Integer, Product> products = new HashMap<>();
+        for (Product p : productDAO.findAllByIds(ids)) {
+            products.put(p.getProductId(), p);
+        }
+        return products;
+    }
+
     /**
      * Returns true if product is at or below reorder level and should alert.
      */
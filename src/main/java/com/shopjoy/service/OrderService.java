@@ -4,13 +4,21 @@ import com.shopjoy.dao.InventoryDAO;
 import com.shopjoy.dao.OrderDAO;
 import com.shopjoy.dao.OrderItemDAO;
 import com.shopjoy.dao.ProductDAO;
+import com.shopjoy.dao.RowCallback;
 import com.shopjoy.dao.UserDAO;
 import com.shopjoy.model.*;
+import com.shopjoy.util.TransactionManager;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service layer for order management and business rules.
@@ -32,8 +40,9 @@ public class OrderService {
     }
 
     /**
-     * Create an order with items. Performs stock checks and decrements inventory.
-     * If any step fails, attempts to restore decremented inventory.
+     * Create an order with items. Stock for all lines is checked and decremented
+     * in one conditional update. Runs as a single transaction: if any step
+     * fails, nothing is persisted.
      */
     public Order createOrder(int userId, List<OrderItem> items, String shippingAddress, String paymentMethod) {
         if (userId <= 0 || items == null || items.isEmpty() || shippingAddress == null || shippingAddress.trim().isEmpty() || paymentMethod == null || paymentMethod.trim().isEmpty()) {
@@ -41,81 +50,65 @@ public class OrderService {
             return null;
         }
 
-        List<OrderItem> createdItems = new ArrayList<>();
-        List<int[]> decremented = new ArrayList<>(); // pairs of productId, amount
         try {
-            // Validate products and stock
-            double total = 0.0;
-            for (OrderItem it : items) {
-                Product p = productDAO.findById(it.getProductId());
-                if (p == null) {
-                    System.err.println("createOrder: product not found: " + it.getProductId());
-                    return null;
+            return TransactionManager.inTransaction(() -> {
+                // Validate products and price the lines
+                Set<Integer> productIds = new HashSet<>();
+                for (OrderItem it : items) productIds.add(it.getProductId());
+                Map<Integer, Product> products = new HashMap<>();
+                for (Product p : productDAO.findAllByIds(productIds)) products.put(p.getProductId(), p);
+
+                double total = 0.0;
+                Map<Integer, Integer> quantities = new LinkedHashMap<>();
+                for (OrderItem it : items) {
+                    Product p = products.get(it.getProductId());
+                    if (p == null) {
+                        System.err.println("createOrder: product not found: " + it.getProductId());
+                        return rollback();
+                    }
+                    double unit = p.getPrice();
+                    it.setUnitPrice(unit);
+                    it.setSubtotal(unit * it.getQuantity());
+                    it.setCreatedAt(LocalDateTime.now());
+                    total += it.getSubtotal();
+                    quantities.merge(it.getProductId(), it.getQuantity(), Integer::sum);
                 }
-                boolean ok = inventoryDAO.checkStockAvailability(it.getProductId(), it.getQuantity());
-                if (!ok) {
-                    System.err.println("createOrder: insufficient stock for product " + it.getProductId());
-                    return null;
+
+                // Reserve stock for every line in one statement
+                List<Integer> shortProducts = inventoryDAO.decrementStock(quantities);
+                if (!shortProducts.isEmpty()) {
+                    System.err.println("createOrder: insufficient stock for products " + shortProducts);
+                    return rollback();
                 }
-                double unit = p.getPrice();
-                it.setUnitPrice(unit);
-                it.setSubtotal(unit * it.getQuantity());
-                it.setCreatedAt(LocalDateTime.now());
-                total += it.getSubtotal();
-            }
 
-            // Create order
-            Order order = new Order();
-            order.setUserId(userId);
-            order.setOrderDate(LocalDateTime.now());
-            order.setTotalAmount(total);
-            order.setStatus(OrderStatus.PENDING);
-            order.setPaymentStatus(PaymentStatus.UNPAID);
-            order.setShippingAddress(shippingAddress);
-            order.setPaymentMethod(paymentMethod);
-            order.setCreatedAt(LocalDateTime.now());
-            order.setUpdatedAt(LocalDateTime.now());
-
-            Order savedOrder = orderDAO.save(order);
-            if (savedOrder == null || savedOrder.getOrderId() == 0) {
-                System.err.println("createOrder: failed to save order");
-                return null;
-            }
+                // Create order
+                Order order = new Order();
+                order.setUserId(userId);
+                order.setOrderDate(LocalDateTime.now());
+                order.setTotalAmount(total);
+                order.setStatus(OrderStatus.PENDING);
+                order.setPaymentStatus(PaymentStatus.UNPAID);
+                order.setShippingAddress(shippingAddress);
+                order.setPaymentMethod(paymentMethod);
+                order.setCreatedAt(LocalDateTime.now());
+                order.setUpdatedAt(LocalDateTime.now());
 
-            // Save items and decrement inventory; if failure, restore decremented quantities
-            for (OrderItem it : items) {
-                it.setOrderId(savedOrder.getOrderId());
-                OrderItem savedItem = orderItemDAO.save(it);
-                if (savedItem == null) {
-                    // rollback
-                    for (int[] d : decremented) inventoryDAO.incrementStock(d[0], d[1]);
-                    System.err.println("createOrder: failed to save order item");
-                    return null;
+                Order savedOrder = orderDAO.save(order);
+                if (savedOrder == null || savedOrder.getOrderId() == 0) {
+                    System.err.println("createOrder: failed to save order");
+                    return rollback();
                 }
-                createdItems.add(savedItem);
-                boolean dec = inventoryDAO.decrementStock(it.getProductId(), it.getQuantity());
-                if (!dec) {
-                    // rollback
-                    for (int[] d : decremented) inventoryDAO.incrementStock(d[0], d[1]);
-                    // also restore those we decremented earlier
-                    for (OrderItem ci : createdItems) {
-                        orderItemDAO.delete(ci.getOrderItemId());
-                    }
-                    System.err.println("createOrder: failed to decrement inventory");
-                    return null;
+
+                // Save items in one batch
+                for (OrderItem it : items) {
+                    it.setOrderId(savedOrder.getOrderId());
                 }
-                decremented.add(new int[]{it.getProductId(), it.getQuantity()});
-            }
+                orderItemDAO.saveAll(items);
 
-            // All good
-            return savedOrder;
+                // All good
+                return savedOrder;
+            });
         } catch (SQLException e) {
-            // Attempt to restore inventory for any decrements that succeeded
-            try {
-                for (int[] d : decremented) inventoryDAO.incrementStock(d[0], d[1]);
-            } catch (SQLException ex) {
-                System.err.println("createOrder rollback failed: " + ex.getMessage());
-            }
             System.err.println("createOrder SQLException: " + e.getMessage());
             return null;
         }
@@ -150,6 +143,29 @@ public class OrderService {
         }
     }
 
+    /**
+     * Stream orders in a date range to the callback one row at a time, without
+     * loading them all. Returns false if the scan failed.
+     */
+    public boolean streamOrdersByDateRange(LocalDateTime start, LocalDateTime end, RowCallback<Order> callback) {
+        try {
+            orderDAO.streamByDateRange(start, end, callback);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("streamOrdersByDateRange SQLException: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public long getOrderCount() {
+        try {
+            return orderDAO.count();
+        } catch (SQLException e) {
+            System.err.println("getOrderCount SQLException: " + e.getMessage());
+            return 0;
+        }
+    }
+
     public List<Order> getOrdersByStatus(OrderStatus status) {
         if (status == null) return null;
         try {
@@ -160,6 +176,37 @@ public class OrderService {
         }
     }
 
+    /**
+     * Keyset page of orders, newest first. Pass the order date and id of the
+     * last order already shown to continue, or nulls for the first page.
+     */
+    public List<Order> getOrdersPage(OrderStatus status, LocalDateTime afterOrderDate, Integer afterOrderId, int limit) {
+        try {
+            return orderDAO.findPage(status, afterOrderDate, afterOrderId, limit);
+        } catch (SQLException e) {
+            System.err.println("getOrdersPage SQLException: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public Map<OrderStatus, Integer> getOrderCountsByStatus() {
+        try {
+            return orderDAO.countByStatus();
+        } catch (SQLException e) {
+            System.err.println("getOrderCountsByStatus SQLException: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    public double getTotalOrderAmount(OrderStatus status) {
+        try {
+            return orderDAO.getTotalAmount(status);
+        } catch (SQLException e) {
+            System.err.println("getTotalOrderAmount SQLException: " + e.getMessage());
+            return 0.0;
+        }
+    }
+
     public boolean updateOrderStatus(int orderId, OrderStatus newStatus) {
         if (orderId <= 0 || newStatus == null) return false;
         try {
@@ -179,20 +226,24 @@ public class OrderService {
 
     public boolean cancelOrder(int orderId) {
         try {
-            Order ord = orderDAO.findById(orderId);
-            if (ord == null) return false;
-            OrderStatus s = ord.getStatus();
-            if (s != OrderStatus.PENDING && s != OrderStatus.PROCESSING) {
-                System.err.println("cancelOrder: cannot cancel order in status " + s);
-                return false;
-            }
-            List<OrderItem> items = orderItemDAO.findByOrderId(orderId);
-            if (items != null) {
-                for (OrderItem it : items) {
-                    inventoryDAO.incrementStock(it.getProductId(), it.getQuantity());
+            return TransactionManager.inTransaction(() -> {
+                // Claiming the order first means a concurrent cancel finds it
+                // already cancelled and puts nothing back
+                if (!orderDAO.cancelIfOpen(orderId)) {
+                    Order ord = orderDAO.findById(orderId);
+                    if (ord != null) {
+                        System.err.println("cancelOrder: cannot cancel order in status " + ord.getStatus());
+                    }
+                    return false;
                 }
-            }
-            return orderDAO.updateOrderStatus(orderId, OrderStatus.CANCELLED);
+                List<OrderItem> items = orderItemDAO.findByOrderId(orderId);
+                if (items != null) {
+                    for (OrderItem it : items) {
+                        inventoryDAO.incrementStock(it.getProductId(), it.getQuantity());
+                    }
+                }
+                return true;
+            });
         } catch (SQLException e) {
             System.err.println("cancelOrder SQLException: " + e.getMessage());
             return false;
@@ -209,6 +260,22 @@ public class OrderService {
         }
     }
 
+    /**
+     * Items of several orders fetched together, grouped by order id. Orders
+     * without items are absent from the map.
+     */
+    public Map<Integer, List<OrderItem>> getOrderItemsByOrderIds(Collection<Integer> orderIds) {
+        Map<Integer, List<OrderItem>> byOrder = new HashMap<>();
+        try {
+            for (OrderItem it : orderItemDAO.findByOrderIds(orderIds)) {
+                byOrder.computeIfAbsent(it.getOrderId(), id -> new ArrayList<>()).add(it);
+            }
+        } catch (SQLException e) {
+            System.err.println("getOrderItemsByOrderIds SQLException: " + e.getMessage());
+        }
+        return byOrder;
+    }
+
     public double calculateOrderTotal(int orderId) {
         try {
             return orderItemDAO.calculateOrderTotal(orderId);
@@ -225,11 +292,13 @@ public class OrderService {
             List<OrderItem> items = orderItemDAO.findByOrderId(orderId);
             User customer = userDAO.findById(o.getUserId());
             List<Product> products = new ArrayList<>();
-            if (items != null) {
-                for (OrderItem it : items) {
-                    Product p = productDAO.findById(it.getProductId());
-                    products.add(p);
-                }
+            if (items != null && !items.isEmpty()) {
+                Set<Integer> productIds = new HashSet<>();
+                for (OrderItem it : items) productIds.add(it.getProductId());
+                Map<Integer, Product> byId = new HashMap<>();
+                for (Product p : productDAO.findAllByIds(productIds)) byId.put(p.getProductId(), p);
+                // keep products aligned with items, null where a product no longer exists
+                for (OrderItem it : items) products.add(byId.get(it.getProductId()));
             }
             return new OrderSummary(o, items, customer, products);
         } catch (SQLException e) {
@@ -294,6 +363,15 @@ public class OrderService {
         }
     }
 
+    /**
+     * Marks the current transaction for rollback and returns null, for use as
+     * the failure result inside createOrder.
+     */
+    private static Order rollback() {
+        TransactionManager.setRollbackOnly();
+        return null;
+    }
+
     /**
      * Wrapper for order details used in admin views.
      */
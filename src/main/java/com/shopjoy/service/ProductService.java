@@ -4,14 +4,23 @@ import com.shopjoy.dao.CategoryDAO;
 import com.shopjoy.dao.InventoryDAO;
 import com.shopjoy.dao.OrderItemDAO;
 import com.shopjoy.dao.ProductDAO;
+import com.shopjoy.cache.CategoryCache;
 import com.shopjoy.cache.ProductCache;
+import com.shopjoy.model.Category;
 import com.shopjoy.model.Inventory;
 import com.shopjoy.model.Product;
+import com.shopjoy.util.TransactionManager;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service layer for Product-related business logic.
@@ -24,59 +33,70 @@ public class ProductService {
     private final InventoryDAO inventoryDAO;
     private final CategoryDAO categoryDAO;
     private final OrderItemDAO orderItemDAO;
+    private final CategoryService categoryService;
     private final ProductCache productCache = ProductCache.getInstance();
+    private final CategoryCache categoryCache = CategoryCache.getInstance();
 
     public ProductService() {
         this.productDAO = new ProductDAO();
         this.inventoryDAO = new InventoryDAO();
         this.categoryDAO = new CategoryDAO();
         this.orderItemDAO = new OrderItemDAO();
+        this.categoryService = new CategoryService();
     }
 
     public List<Product> getAllProducts() {
-        // Check cache first
-        if (productCache.isCacheValid() && productCache.getCacheSize() > 0) {
-            List<Product> cached = productCache.getAllCachedProducts();
-            if (cached != null) {
-                System.out.println("Returning products from cache");
-                return cached;
-            }
-        }
-
-        // If cache invalid or empty, query database
+        // Served from cache when fresh; otherwise concurrent misses share one query
         try {
-            List<Product> products = productDAO.findAll();
-            // Cache the results
-            if (products != null) {
-                productCache.cacheProductList(products);
+            return productCache.loadAllProducts(() -> {
+                List<Product> products = productDAO.findAll();
                 System.out.println("Products loaded from database and cached");
-            }
-            return products;
+                return products;
+            });
         } catch (SQLException e) {
             System.err.println("getAllProducts error: " + e.getMessage());
             return new ArrayList<>();
         }
     }
 
+    /**
+     * Keyset page of products ordered by name, filtered in the database. Pass the
+     * name and id of the last product already shown to continue, or nulls for the
+     * first page. Pages bypass the product cache.
+     */
+    public List<Product> getProductsPage(Integer categoryId, Boolean active, String searchTerm,
+                                         String afterName, Integer afterProductId, int limit) {
+        try {
+            return productDAO.findPage(categoryId, active, searchTerm, afterName, afterProductId, limit);
+        } catch (SQLException e) {
+            System.err.println("getProductsPage error: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public List<Product> getProductsByIds(Collection<Integer> productIds) {
+        try {
+            return productDAO.findAllByIds(productIds);
+        } catch (SQLException e) {
+            System.err.println("getProductsByIds error: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
     public Product getProductById(int productId) {
         if (productId <= 0) {
             System.err.println("getProductById: invalid id");
             return null;
         }
-        // Check cache first
-        Product cached = productCache.getProduct(productId);
-        if (cached != null) {
-            return cached;
-        }
-
-        // If not in cache, query database
+        // Served from cache, or queried and cached on a miss
         try {
-            Product product = productDAO.findById(productId);
-            if (product != null) {
-                productCache.cacheProduct(product);
-                System.out.println("Product " + productId + " loaded from database and cached");
-            }
-            return product;
+            return productCache.loadProduct(productId, () -> {
+                Product product = productDAO.findById(productId);
+                if (product != null) {
+                    System.out.println("Product " + productId + " loaded from database and cached");
+                }
+                return product;
+            });
         } catch (SQLException e) {
             System.err.println("getProductById SQLException: " + e.getMessage());
             return null;
@@ -87,24 +107,17 @@ public class ProductService {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllProducts();
         }
-        String searchKey = keyword.trim().toLowerCase();
-
-        // Check cache first
-        List<Product> cachedResults = productCache.getSearchResults(searchKey);
-        if (cachedResults != null) {
-            System.out.println("Search results for '" + searchKey + "' retrieved from cache");
-            return cachedResults;
-        }
+        String searchKey = keyword.trim().toLowerCase(Locale.ROOT);
 
-        // Query database
+        // Answered from the in-memory text index over name, brand, SKU and
+        // description; until it is built, from cached searches that match
+        // the same way
         try {
-            List<Product> results = productDAO.searchByName(keyword.trim());
-            // Cache search results
-            if (results != null) {
-                productCache.cacheSearchResults(searchKey, results);
+            return productCache.search(searchKey, () -> {
+                List<Product> results = productDAO.searchByWords(ProductCache.searchWords(searchKey));
                 System.out.println("Search results for '" + searchKey + "' loaded from database and cached");
-            }
-            return results;
+                return results;
+            });
         } catch (SQLException e) {
             System.err.println("searchProducts SQLException: " + e.getMessage());
             return new ArrayList<>();
@@ -116,35 +129,53 @@ public class ProductService {
             System.err.println("getProductsByCategory: invalid categoryId");
             return new ArrayList<>();
         }
-        // Check cache first
-        List<Product> cachedResults = productCache.getCategoryProducts(categoryId);
-        if (cachedResults != null) {
-            System.out.println("Category " + categoryId + " products retrieved from cache");
-            return cachedResults;
-        }
-
-        // Query database
+        // Served from cache, or queried and cached on a miss
         try {
-            List<Product> products = productDAO.findByCategory(categoryId);
-            // Cache results
-            if (products != null) {
-                productCache.cacheCategoryProducts(categoryId, products);
+            return productCache.loadCategoryProducts(categoryId, () -> {
+                List<Product> products = productDAO.findByCategory(categoryId);
                 System.out.println("Category " + categoryId + " products loaded from database and cached");
-            }
-            return products;
+                return products;
+            });
         } catch (SQLException e) {
             System.err.println("getProductsByCategory SQLException: " + e.getMessage());
             return new ArrayList<>();
         }
     }
 
+    /**
+     * Products in the category or any of its subcategories, at any depth, by
+     * name. Served from cache; a miss is one query over the whole subtree.
+     */
+    public List<Product> getProductsInCategoryTree(int categoryId) {
+        if (categoryId <= 0) {
+            System.err.println("getProductsInCategoryTree: invalid categoryId");
+            return new ArrayList<>();
+        }
+        List<Category> below = categoryService.getDescendantCategories(categoryId);
+        int[] categoryIds = new int[below.size() + 1];
+        categoryIds[0] = categoryId;
+        for (int i = 0; i < below.size(); i++) {
+            categoryIds[i + 1] = below.get(i).getCategoryId();
+        }
+        try {
+            return productCache.loadSubtreeProducts(categoryId, categoryIds, () -> {
+                List<Product> products = productDAO.findByCategoryTree(categoryId);
+                System.out.println("Category " + categoryId + " subtree products loaded from database and cached");
+                return products;
+            });
+        } catch (SQLException e) {
+            System.err.println("getProductsInCategoryTree SQLException: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
     public List<Product> getProductsByPriceRange(double min, double max) {
         if (min < 0 || max < min) {
             System.err.println("getProductsByPriceRange: invalid range");
             return null;
         }
         try {
-            return productDAO.findByPriceRange(min, max);
+            return productCache.findByPriceRange(min, max, () -> productDAO.findByPriceRange(min, max));
         } catch (SQLException e) {
             System.err.println("getProductsByPriceRange SQLException: " + e.getMessage());
             return null;
@@ -161,39 +192,46 @@ public class ProductService {
             return null;
 
         try {
-            // Check SKU uniqueness
-            Product bySku = productDAO.findBySKU(product.getSku());
-            if (bySku != null) {
-                System.err.println("addProduct: SKU already exists");
-                return null;
-            }
-
-            // Check category exists
-            if (categoryDAO.findById(product.getCategoryId()) == null) {
-                System.err.println("addProduct: category does not exist");
-                return null;
-            }
-
-            Product saved = productDAO.save(product);
-            if (saved == null || saved.getProductId() == 0) {
-                System.err.println("addProduct: failed to save product");
-                return null;
-            }
+            Product saved = TransactionManager.inTransaction(() -> {
+                // Check SKU uniqueness
+                Product bySku = productCache.findBySku(product.getSku(),
+                        () -> productDAO.findBySKU(product.getSku()));
+                if (bySku != null) {
+                    System.err.println("addProduct: SKU already exists");
+                    return null;
+                }
 
-            // Create inventory record
-            Inventory inv = new Inventory();
-            inv.setProductId(saved.getProductId());
-            inv.setQuantityInStock(Math.max(0, initialStock));
-            inv.setReorderLevel(0);
-            inv.setWarehouseLocation(null);
-            inv.setLastRestocked(LocalDateTime.now());
-            inv.setUpdatedAt(LocalDateTime.now());
-            inventoryDAO.save(inv);
+                // Check category exists
+                if (categoryDAO.findById(product.getCategoryId()) == null) {
+                    System.err.println("addProduct: category does not exist");
+                    return null;
+                }
 
-            // Invalidate cache since we added a new product
-            productCache.invalidateCache();
-            System.out.println("Product cache invalidated after adding new product");
+                Product created = productDAO.save(product);
+                if (created == null || created.getProductId() == 0) {
+                    System.err.println("addProduct: failed to save product");
+                    TransactionManager.setRollbackOnly();
+                    return null;
+                }
 
+                // Create inventory record
+                Inventory inv = new Inventory();
+                inv.setProductId(created.getProductId());
+                inv.setQuantityInStock(Math.max(0, initialStock));
+                inv.setReorderLevel(0);
+                inv.setWarehouseLocation(null);
+                inv.setLastRestocked(LocalDateTime.now());
+                inv.setUpdatedAt(LocalDateTime.now());
+                inventoryDAO.save(inv);
+                return created;
+            });
+
+            if (saved != null) {
+                // Evict only the listings the new product belongs in
+                productCache.productAdded(saved);
+                categoryCache.productCountChanged(saved.getCategoryId(), 1);
+                System.out.println("Product cache updated after adding product " + saved.getProductId());
+            }
             return saved;
         } catch (SQLException e) {
             System.err.println("addProduct SQLException: " + e.getMessage());
@@ -216,9 +254,10 @@ public class ProductService {
             }
             Product updated = productDAO.update(product);
             if (updated != null) {
-                // Invalidate specific product in cache
-                productCache.invalidateProduct(product.getProductId());
-                System.out.println("Cache invalidated for product " + product.getProductId());
+                // Patch or evict the cached listings that contain this product
+                productCache.productUpdated(updated);
+                categoryCache.productCategoryChanged(existing.getCategoryId(), updated.getCategoryId());
+                System.out.println("Cache updated for product " + product.getProductId());
                 return updated;
             }
             return null;
@@ -245,11 +284,17 @@ public class ProductService {
                 inventoryDAO.delete(inv.getInventoryId());
 
             // Delete product
+            Product cached = productCache.peekProduct(productId);
             boolean success = productDAO.delete(productId);
             if (success) {
-                // Invalidate cache
-                productCache.invalidateCache();
-                System.out.println("Product cache invalidated after deletion");
+                // Remove the product from the cached listings that contain it
+                productCache.productRemoved(productId);
+                if (cached != null) {
+                    categoryCache.productCountChanged(cached.getCategoryId(), -1);
+                } else {
+                    categoryCache.invalidateProductCounts();
+                }
+                System.out.println("Product " + productId + " removed from cache after deletion");
             }
             return success;
         } catch (SQLException e) {
@@ -260,13 +305,26 @@ public class ProductService {
 
     public List<Product> getActiveProducts() {
         try {
-            return productDAO.findActiveProducts();
+            return productCache.findActiveProducts(productDAO::findActiveProducts);
         } catch (SQLException e) {
             System.err.println("getActiveProducts SQLException: " + e.getMessage());
             return null;
         }
     }
 
+    public List<Product> getProductsByBrand(String brand) {
+        if (brand == null || brand.trim().isEmpty()) {
+            System.err.println("getProductsByBrand: brand is required");
+            return new ArrayList<>();
+        }
+        try {
+            return productCache.findByBrand(brand.trim(), () -> productDAO.findByBrand(brand.trim()));
+        } catch (SQLException e) {
+            System.err.println("getProductsByBrand SQLException: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
     public boolean isProductAvailable(int productId, int quantity) {
         if (productId <= 0 || quantity < 0)
             return false;
@@ -300,9 +358,13 @@ public class ProductService {
         try {
             List<Inventory> low = inventoryDAO.findLowStockItems();
             List<Product> result = new ArrayList<>();
-            if (low != null) {
+            if (low != null && !low.isEmpty()) {
+                Set<Integer> productIds = new HashSet<>();
+                for (Inventory inv : low) productIds.add(inv.getProductId());
+                Map<Integer, Product> byId = new HashMap<>();
+                for (Product p : productDAO.findAllByIds(productIds)) byId.put(p.getProductId(), p);
                 for (Inventory inv : low) {
-                    Product p = productDAO.findById(inv.getProductId());
+                    Product p = byId.get(inv.getProductId());
                     if (p != null)
                         result.add(p);
                 }
@@ -51,6 +51,55 @@ public class ReviewService {
         }
     }
 
+    /**
+     * Get one keyset page of reviews, newest first. Pass the created_at and id of
+     * the last review already shown to continue, or nulls for the first page.
+     */
+    public List<Review> getReviewsPage(Integer rating, LocalDateTime afterCreatedAt, Integer afterReviewId, int limit) {
+        try {
+            return reviewDAO.findPage(rating, afterCreatedAt, afterReviewId, limit);
+        } catch (SQLException e) {
+            System.err.println("getReviewsPage: SQLException: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Total number of reviews.
+     */
+    public long getTotalReviewCount() {
+        try {
+            return reviewDAO.count();
+        } catch (SQLException e) {
+            System.err.println("getTotalReviewCount: SQLException: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Average rating across all reviews.
+     */
+    public double getOverallAverageRating() {
+        try {
+            return reviewDAO.getOverallAverageRating();
+        } catch (SQLException e) {
+            System.err.println("getOverallAverageRating: SQLException: " + e.getMessage());
+            return 0.0;
+        }
+    }
+
+    /**
+     * Number of reviews from verified purchases.
+     */
+    public long getVerifiedReviewCount() {
+        try {
+            return reviewDAO.countVerifiedPurchaseReviews();
+        } catch (SQLException e) {
+            System.err.println("getVerifiedReviewCount: SQLException: " + e.getMessage());
+            return 0;
+        }
+    }
+
     /**
      * Add a new review for a product by a user.
      * Returns the saved Review, or null on validation failure or error.
@@ -7,6 +7,8 @@ import org.mindrot.jbcrypt.BCrypt;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -197,6 +199,40 @@ public class UserService {
         }
     }
 
+    /**
+     * Keyset page of customers ordered by username. Pass the username and id of
+     * the last customer already shown to continue, or nulls for the first page.
+     */
+    public List<User> getCustomersPage(String searchTerm, String afterUsername, Integer afterUserId, int limit) {
+        try {
+            return userDAO.findPageByUserType(UserType.CUSTOMER, searchTerm, afterUsername, afterUserId, limit);
+        } catch (SQLException e) {
+            System.err.println("getCustomersPage SQLException: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Count customers, optionally only those who joined on or after the given time.
+     */
+    public int getCustomerCount(LocalDateTime joinedSince) {
+        try {
+            return userDAO.countByUserType(UserType.CUSTOMER, joinedSince);
+        } catch (SQLException e) {
+            System.err.println("getCustomerCount SQLException: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    public List<User> getUsersByIds(Collection<Integer> userIds) {
+        try {
+            return userDAO.findAllByIds(userIds);
+        } catch (SQLException e) {
+            System.err.println("getUsersByIds SQLException: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
     public boolean isAdmin(int userId) {
         try {
             User u = userDAO.findById(userId);
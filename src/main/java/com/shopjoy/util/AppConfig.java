@@ -21,8 +21,32 @@ public class AppConfig {
     public static String DB_PASSWORD;
 
     // Cache Configuration
-    public static final long PRODUCT_CACHE_EXPIRY = 5 * 60 * 1000; // 5 minutes
-    public static final long CATEGORY_CACHE_EXPIRY = 10 * 60 * 1000; // 10 minutes
+    // Changes reach the caches through CacheChangeListener; expiry is only a
+    // safety net in case a notification is missed
+    public static final long PRODUCT_CACHE_EXPIRY = 30 * 60 * 1000; // 30 minutes
+    public static final long CATEGORY_CACHE_EXPIRY = 60 * 60 * 1000; // 60 minutes
+    // Product caches are bounded by estimated heap bytes. Search and category
+    // listings hold only product IDs; the products themselves count once, in
+    // the product store
+    public static final long PRODUCT_CACHE_MAX_BYTES = 64L * 1024 * 1024; // 64 MB
+    public static final long SEARCH_CACHE_MAX_BYTES = 1024 * 1024; // 1 MB
+    public static final long SEARCH_CACHE_IDLE_EXPIRY = 2 * 60 * 1000; // 2 minutes since last use
+    public static final long CATEGORY_PRODUCTS_CACHE_MAX_BYTES = 2 * 1024 * 1024; // 2 MB
+    public static final long SUBTREE_PRODUCTS_CACHE_MAX_BYTES = 2 * 1024 * 1024; // 2 MB
+    // The full catalog list and its text index, together; a catalog that would
+    // grow past this is dropped and its lookups go to the database
+    public static final long CATALOG_CACHE_MAX_BYTES = 128L * 1024 * 1024; // 128 MB
+    // IDs not found and searches that matched nothing are remembered briefly;
+    // inserts drop the entries they contradict, so the expiry only bounds staleness
+    public static final long NEGATIVE_CACHE_EXPIRY = 30 * 1000; // 30 seconds
+    public static final int NEGATIVE_CACHE_MAX_ENTRIES = 10_000;
+    // How often CacheRefresher looks for changed rows and reloads hot entries before they expire
+    public static final long CACHE_REFRESH_INTERVAL_SECONDS = 60;
+    // Local file the product and category lists are saved to for a warm restart
+    public static String CACHE_SNAPSHOT_PATH = System.getProperty("user.home") + "/.shopjoy/cache-snapshot.bin";
+    public static final long CACHE_SNAPSHOT_INTERVAL_MINUTES = 10;
+    // Older snapshots are ignored: catching up would read most of the table anyway
+    public static final long CACHE_SNAPSHOT_MAX_AGE_HOURS = 24;
 
     // UI Configuration
     public static final int DEFAULT_WINDOW_WIDTH = 1200;
@@ -34,6 +58,9 @@ public class AppConfig {
     public static final int DEFAULT_PAGE_SIZE = 20;
     public static final int MAX_SEARCH_RESULTS = 100;
 
+    // Streaming reads: rows fetched per round trip by DAO cursor scans
+    public static final int STREAM_FETCH_SIZE = 500;
+
     // File Paths
     public static final String FXML_PATH = "/fxml/";
     public static final String CSS_PATH = "/css/";
@@ -63,6 +90,7 @@ public class AppConfig {
             DB_URL = props.getProperty("db.url");
             DB_USERNAME = props.getProperty("db.username");
             DB_PASSWORD = props.getProperty("db.password");
+            CACHE_SNAPSHOT_PATH = props.getProperty("cache.snapshot.path", CACHE_SNAPSHOT_PATH);
 
             System.out.println("Configuration loaded successfully");
         } catch (Exception e) {
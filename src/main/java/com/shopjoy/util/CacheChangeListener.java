@@ -0,0 +1,182 @@
+package com.shopjoy.util;
+
+import com.shopjoy.cache.CategoryCache;
+import com.shopjoy.cache.ProductCache;
+import com.shopjoy.dao.CategoryDAO;
+import com.shopjoy.dao.ProductDAO;
+import com.shopjoy.model.Product;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * CacheChangeListener - Keeps this instance's caches in step with writes made
+ * by any ShopJoy instance sharing the database.
+ *
+ * Triggers on products and categories (see docs/shopjoy_tables.sql) send a
+ * NOTIFY on the shopjoy_cache channel for every committed row change. This
+ * listener holds one dedicated connection that LISTENs on that channel and
+ * applies each change as a targeted update: changed products are re-read in
+ * one query per batch and patched into ProductCache, deleted ones removed,
+ * and a changed category reloads the cached category tree in one query. Changes this instance made itself are
+ * echoed back too; applying them again is harmless.
+ *
+ * Notifications sent while the connection is down are lost, so every
+ * (re)connect starts an incremental refresh (see CacheRefresher), which
+ * reads whatever changed in the meantime without discarding the caches.
+ */
+public class CacheChangeListener {
+
+    public static final String CHANNEL = "shopjoy_cache";
+
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+    // Past this many product changes in one batch, reloading on demand is cheaper
+    private static final int MAX_TARGETED_CHANGES = 500;
+
+    private final ProductDAO productDAO = new ProductDAO();
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+    private final ProductCache productCache = ProductCache.getInstance();
+    private final CategoryCache categoryCache = CategoryCache.getInstance();
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile boolean listening;
+
+    public CacheChangeListener() {
+        this.thread = new Thread(this::run, "CacheChangeListener");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts listening in a background thread.
+     */
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stops listening and closes the dedicated connection.
+     */
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    /**
+     * @return true while connected and subscribed to change notifications.
+     */
+    public boolean isListening() {
+        return listening;
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection conn = DbConfig.openDedicatedConnection()) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                // Catch up on anything changed while we were not listening
+                CacheManager.refreshNow();
+                listening = true;
+                System.out.println("CacheChangeListener: listening on " + CHANNEL);
+
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        apply(notifications);
+                    }
+                }
+                listening = false;
+            } catch (SQLException | RuntimeException e) {
+                listening = false;
+                if (running) {
+                    System.err.println("CacheChangeListener error: " + e.getMessage()
+                            + "; reconnecting in " + RECONNECT_DELAY_MS + "ms");
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+    }
+
+    private void apply(PGNotification[] notifications) throws SQLException {
+        // Last operation per row wins; a batch often holds several for the same row
+        Map<Integer, String> productChanges = new LinkedHashMap<>();
+        Map<Integer, String> categoryChanges = new LinkedHashMap<>();
+        for (PGNotification notification : notifications) {
+            String[] parts = notification.getParameter().split(":");
+            if (parts.length != 3) {
+                System.err.println("CacheChangeListener: ignoring payload " + notification.getParameter());
+                continue;
+            }
+            int id = Integer.parseInt(parts[2]);
+            if ("products".equals(parts[0])) {
+                productChanges.merge(id, parts[1], (previous, latest) -> "INSERT".equals(previous) ? previous : latest);
+            } else if ("categories".equals(parts[0])) {
+                categoryChanges.put(id, parts[1]);
+            }
+        }
+
+        if (productChanges.size() > MAX_TARGETED_CHANGES) {
+            productCache.invalidateCache();
+            categoryCache.invalidateProductCounts();
+        } else if (!productChanges.isEmpty()) {
+            applyProductChanges(productChanges);
+        }
+        if (!categoryChanges.isEmpty()) {
+            productCache.invalidateSubtrees();
+        }
+        if (!categoryChanges.isEmpty() && categoryCache.peekAllCategories() != null) {
+            // Categories are few; one query rebuilds the tree, swapped in whole
+            categoryCache.cacheCategoryList(categoryDAO.findAll());
+            return;
+        }
+        for (Map.Entry<Integer, String> change : categoryChanges.entrySet()) {
+            if ("INSERT".equals(change.getValue())) {
+                categoryCache.invalidateCache();
+            } else {
+                categoryCache.invalidateCategory(change.getKey());
+            }
+        }
+    }
+
+    private void applyProductChanges(Map<Integer, String> changes) throws SQLException {
+        List<Product> current = productDAO.findAllByIds(changes.keySet());
+        Map<Integer, Product> byId = new HashMap<>();
+        for (Product product : current) {
+            byId.put(product.getProductId(), product);
+        }
+        for (Map.Entry<Integer, String> change : changes.entrySet()) {
+            Product product = byId.get(change.getKey());
+            if (product == null) {
+                // Deleted, possibly after an earlier insert or update in this batch
+                productCache.productRemoved(change.getKey());
+                categoryCache.invalidateProductCounts();
+            } else if ("INSERT".equals(change.getValue())) {
+                productCache.productAdded(product);
+                // May be the echo of an insert this instance already counted
+                categoryCache.invalidateProductCounts();
+            } else {
+                Product before = productCache.peekProduct(product.getProductId());
+                productCache.productUpdated(product);
+                categoryCache.productCategoryChanged(before != null ? before.getCategoryId() : null,
+                        product.getCategoryId());
+            }
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,10 +1,26 @@
 package com.shopjoy.util;
 
+import com.shopjoy.cache.CacheSnapshot;
+import com.shopjoy.cache.CacheStats;
 import com.shopjoy.cache.CategoryCache;
 import com.shopjoy.cache.ProductCache;
+import com.shopjoy.dao.CategoryDAO;
+import com.shopjoy.dao.ProductDAO;
+import com.shopjoy.model.Category;
+import com.shopjoy.model.Product;
 import com.shopjoy.service.CategoryService;
 import com.shopjoy.service.ProductService;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -21,10 +37,139 @@ public class CacheManager {
         return t;
     });
 
+    // Popular entries expiring before the run after next are reloaded early
+    private static final CacheRefresher refresher = new CacheRefresher(
+            TimeUnit.SECONDS.toMillis(2 * AppConfig.CACHE_REFRESH_INTERVAL_SECONDS));
+    private static CacheChangeListener changeListener;
+
     static {
-        // Schedule automatic cache refresh every 4 minutes to stay ahead of 5/10 minute
-        // expiries
-        scheduler.scheduleAtFixedRate(CacheManager::warmUpCaches, 4, 4, TimeUnit.MINUTES);
+        // Incremental refresh: each run reads only rows changed since the last one
+        scheduler.scheduleWithFixedDelay(refresher::refresh, AppConfig.CACHE_REFRESH_INTERVAL_SECONDS,
+                AppConfig.CACHE_REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(CacheManager::saveSnapshot, AppConfig.CACHE_SNAPSHOT_INTERVAL_MINUTES,
+                AppConfig.CACHE_SNAPSHOT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Starts applying change notifications from the database to the caches,
+     * so writes made by other instances show up without waiting for expiry.
+     * Does nothing if already started.
+     */
+    public static synchronized void startChangeListener() {
+        if (changeListener == null) {
+            changeListener = new CacheChangeListener();
+            changeListener.start();
+        }
+    }
+
+    /**
+     * Runs an incremental refresh in the background as soon as possible, for
+     * when changes may have been missed.
+     */
+    public static void refreshNow() {
+        try {
+            scheduler.execute(refresher::refresh);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    /**
+     * Runs restoreSnapshot() on the cache scheduler, so startup does not wait
+     * for the snapshot file or its validation queries. Until it finishes,
+     * reads miss and load from the database as usual.
+     */
+    public static void restoreSnapshotInBackground() {
+        try {
+            scheduler.execute(CacheManager::restoreSnapshot);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    /**
+     * Fills the product and category caches from the snapshot saved by the
+     * last run, so the first pages after a restart are served from memory.
+     * The snapshot is checked against the latest updated_at and the row count
+     * of products: one holding rows newer than the database is discarded, and
+     * one that is merely behind is used while an incremental refresh reads
+     * what changed since. Categories are restored only if the categories
+     * table is unchanged. Nothing is restored once the product list has been
+     * loaded from the database, nor categories once they are cached.
+     *
+     * @return true if the product list was restored.
+     */
+    public static boolean restoreSnapshot() {
+        long startedAt = System.nanoTime();
+        if (ProductCache.getInstance().isCacheValid()) {
+            System.out.println("Product list already loaded, not restoring the cache snapshot");
+            return false;
+        }
+        try {
+            CacheSnapshot snapshot = CacheSnapshot.read(Path.of(AppConfig.CACHE_SNAPSHOT_PATH));
+            if (snapshot == null || snapshot.getProducts().isEmpty()) {
+                System.out.println("No usable cache snapshot at " + AppConfig.CACHE_SNAPSHOT_PATH);
+                return false;
+            }
+            long ageMillis = System.currentTimeMillis() - snapshot.getWrittenAt();
+            if (ageMillis > TimeUnit.HOURS.toMillis(AppConfig.CACHE_SNAPSHOT_MAX_AGE_HOURS)) {
+                System.out.println("Cache snapshot is " + (ageMillis / 3_600_000) + " hours old, ignoring it");
+                return false;
+            }
+
+            ProductDAO productDAO = new ProductDAO();
+            LocalDateTime latest = productDAO.findLatestUpdate();
+            LocalDateTime saved = snapshot.getLatestUpdate();
+            if (saved != null && (latest == null || saved.isAfter(latest))) {
+                // Taken against another database, or before this one was restored
+                System.out.println("Cache snapshot is ahead of the database, ignoring it");
+                return false;
+            }
+            boolean current = Objects.equals(saved, latest) && productDAO.count() == snapshot.getProducts().size();
+
+            ProductCache.getInstance().cacheProductList(snapshot.getProducts());
+            String categoryFingerprint = snapshot.getCategoryFingerprint();
+            List<Category> categories = snapshot.getCategories();
+            if (categoryFingerprint != null && !categories.isEmpty() && !CategoryCache.getInstance().isCacheValid()
+                    && categoryFingerprint.equals(new CategoryDAO().findFingerprint())) {
+                CategoryCache.getInstance().cacheCategoryList(categories);
+            } else {
+                categoryFingerprint = null;
+            }
+            refresher.resumeFrom(snapshot.getProducts(), categoryFingerprint);
+            if (!current || categoryFingerprint == null) {
+                refreshNow();
+            }
+
+            System.out.println("Restored " + snapshot.getProducts().size() + " products"
+                    + (categoryFingerprint != null ? " and " + categories.size() + " categories" : "")
+                    + " from cache snapshot in " + (System.nanoTime() - startedAt) / 1_000_000 + "ms"
+                    + (current ? "" : "; catching up with changes since"));
+            return true;
+        } catch (IOException | SQLException | RuntimeException e) {
+            System.err.println("Cache snapshot restore failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Saves the cached product and category lists for restoreSnapshot().
+     * Does nothing while the product list is not cached.
+     */
+    public static synchronized void saveSnapshot() {
+        List<Product> products = ProductCache.getInstance().peekAllProducts();
+        if (products == null) {
+            return;
+        }
+        List<Category> categories = CategoryCache.getInstance().peekAllCategories();
+        String categoryFingerprint = categories != null ? refresher.getCategoryFingerprint() : null;
+        try {
+            new CacheSnapshot(products, categoryFingerprint != null ? categories : null, categoryFingerprint)
+                    .write(Path.of(AppConfig.CACHE_SNAPSHOT_PATH));
+            System.out.println("Saved cache snapshot of " + products.size() + " products");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cache snapshot save failed: " + e.getMessage());
+        }
     }
 
     /**
@@ -46,6 +191,32 @@ public class CacheManager {
         System.out.println("===============================\n");
     }
 
+    /**
+     * Takes a statistics snapshot of every cache region, for tuning sizes and
+     * expiry times from real hit ratios.
+     *
+     * @return Read-only map from region name (e.g. "product.search") to its
+     *         statistics, in a stable order.
+     */
+    public static Map<String, CacheStats> getCacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        for (CacheStats region : ProductCache.getInstance().getStats()) {
+            stats.put(region.getRegion(), region);
+        }
+        for (CacheStats region : CategoryCache.getInstance().getStats()) {
+            stats.put(region.getRegion(), region);
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * @param region Region name as reported by getCacheStats().
+     * @return Statistics for that region, or null if there is no such region.
+     */
+    public static CacheStats getCacheStats(String region) {
+        return getCacheStats().get(region);
+    }
+
     /**
      * Checks if all application caches are currently valid.
      * 
@@ -57,7 +228,8 @@ public class CacheManager {
 
     /**
      * Proactively loads frequently accessed data into the caches from the database.
-     * This helps prevent "cold starts" for users navigating the shop.
+     * This helps prevent "cold starts" for users navigating the shop. Keeping
+     * the caches current afterwards is the scheduled CacheRefresher's job.
      */
     public static void warmUpCaches() {
         System.out.println("Starting cache warm-up sequence...");
@@ -69,12 +241,9 @@ public class CacheManager {
             // Load all products (this populates productCache)
             productService.getAllProducts();
 
-            // Load categories (this populates categoryCache master map)
+            // Load categories (this builds the cached category tree)
             categoryService.getAllCategories();
 
-            // Load top-level categories specifically
-            categoryService.getTopLevelCategories();
-
             System.out.println("Caches warmed up successfully. System is primed.");
         } catch (Exception e) {
             System.err.println("Cache warm-up failed: " + e.getMessage());
@@ -82,10 +251,16 @@ public class CacheManager {
     }
 
     /**
-     * Shuts down the background refresh scheduler.
+     * Shuts down the background refresh scheduler and the change listener,
+     * then saves a snapshot for the next start.
      * Should be called during application shutdown.
      */
-    public static void shutdown() {
+    public static synchronized void shutdown() {
         scheduler.shutdownNow();
+        if (changeListener != null) {
+            changeListener.stop();
+            changeListener = null;
+        }
+        saveSnapshot();
     }
 }
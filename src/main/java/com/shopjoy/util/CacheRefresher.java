@@ -0,0 +1,233 @@
+package com.shopjoy.util;
+
+import com.shopjoy.cache.CategoryCache;
+import com.shopjoy.cache.ProductCache;
+import com.shopjoy.dao.CategoryDAO;
+import com.shopjoy.dao.ProductDAO;
+import com.shopjoy.model.Product;
+import com.shopjoy.service.CategoryService;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CacheRefresher - Periodically brings the caches up to date with the
+ * database at a cost proportional to what changed, not to catalog size.
+ *
+ * Each run:
+ * - reads only products with updated_at past the last watermark or an id past
+ *   the highest one seen, and patches them into ProductCache;
+ * - compares the product count with the expected one and, only if they
+ *   differ, checks which cached products still exist to drop deleted ones;
+ * - compares a digest of the categories table and reloads categories only
+ *   when it changed;
+ * - reloads popular entries that are about to expire (refresh-ahead), so
+ *   readers do not miss on them.
+ *
+ * The first run has no watermark yet and loads the full product list once,
+ * which also warms the cache, unless resumeFrom() supplied the state saved
+ * in a snapshot.
+ */
+public class CacheRefresher {
+
+    // updated_at is set to the writing transaction's start time, so a change
+    // from a long transaction can commit behind the watermark; rows this far
+    // behind it are read again
+    private static final long WATERMARK_OVERLAP_SECONDS = 120;
+    private static final int REFRESH_AHEAD_LIMIT = 20;
+
+    private final ProductDAO productDAO = new ProductDAO();
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+    private final CategoryService categoryService = new CategoryService();
+    private final ProductCache productCache = ProductCache.getInstance();
+    private final CategoryCache categoryCache = CategoryCache.getInstance();
+    private final long refreshAheadMillis;
+
+    // Guarded by this
+    private LocalDateTime productWatermark;
+    private int maxProductId;
+    private long productCount = -1;
+    private String categoryFingerprint;
+    // updated_at of products applied within the overlap window, so re-read rows
+    // are not patched in again
+    private final Map<Integer, LocalDateTime> recentlyApplied = new HashMap<>();
+
+    /**
+     * @param refreshAheadMillis Popular entries expiring within this time are
+     *                           reloaded; should exceed the refresh interval.
+     */
+    public CacheRefresher(long refreshAheadMillis) {
+        this.refreshAheadMillis = refreshAheadMillis;
+    }
+
+    /**
+     * Runs one refresh pass. Errors are logged rather than thrown, because a
+     * scheduled task that throws is never run again; the next run retries
+     * from the same watermark.
+     */
+    public synchronized void refresh() {
+        try {
+            if (productCount < 0) {
+                loadAllProducts();
+            } else {
+                refreshChangedProducts();
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("refreshProducts failed: " + e.getMessage());
+        }
+        try {
+            refreshCategories();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("refreshCategories failed: " + e.getMessage());
+        }
+        try {
+            refreshAhead();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("refreshAhead failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Continues from a product list and category digest restored from a
+     * snapshot instead of loading everything on the first run; the next run
+     * reads only what changed after the snapshot was taken.
+     *
+     * @param products            The restored product list.
+     * @param categoryFingerprint Digest the restored categories match, or null
+     *                            if categories were not restored.
+     */
+    public synchronized void resumeFrom(List<Product> products, String categoryFingerprint) {
+        startFrom(products);
+        this.categoryFingerprint = categoryFingerprint;
+    }
+
+    /**
+     * @return Digest of the categories table as of the last category reload,
+     *         or null before the first one.
+     */
+    public synchronized String getCategoryFingerprint() {
+        return categoryFingerprint;
+    }
+
+    private void startFrom(List<Product> products) {
+        productWatermark = null;
+        maxProductId = 0;
+        recentlyApplied.clear();
+        for (Product product : products) {
+            advanceWatermark(product);
+        }
+        pruneRecentlyApplied();
+        productCount = products.size();
+    }
+
+    private void loadAllProducts() throws SQLException {
+        List<Product> products = productDAO.findAll();
+        productCache.refreshAllProducts(() -> products);
+        categoryCache.invalidateProductCounts();
+        startFrom(products);
+        System.out.println("CacheRefresher: loaded " + products.size() + " products, watermark "
+                + productWatermark);
+    }
+
+    private void refreshChangedProducts() throws SQLException {
+        LocalDateTime since = productWatermark != null
+                ? productWatermark.minusSeconds(WATERMARK_OVERLAP_SECONDS) : null;
+        List<Product> changed = productDAO.findChangedSince(since, maxProductId);
+        long count = productDAO.count();
+
+        int inserted = 0;
+        int applied = 0;
+        for (Product product : changed) {
+            int productId = product.getProductId();
+            if (productId > maxProductId) {
+                productCache.productAdded(product);
+                categoryCache.invalidateProductCounts();
+                inserted++;
+                applied++;
+            } else if (product.getUpdatedAt() == null
+                    || !product.getUpdatedAt().equals(recentlyApplied.get(productId))) {
+                Product before = productCache.peekProduct(productId);
+                productCache.productUpdated(product);
+                categoryCache.productCategoryChanged(before != null ? before.getCategoryId() : null,
+                        product.getCategoryId());
+                applied++;
+            }
+            advanceWatermark(product);
+        }
+        pruneRecentlyApplied();
+
+        int removed = 0;
+        if (count != productCount + inserted) {
+            Set<Integer> missing = new HashSet<>(productCache.cachedProductIds());
+            if (!missing.isEmpty()) {
+                missing.removeAll(productDAO.findExistingIds(missing));
+                for (Integer productId : missing) {
+                    productCache.productRemoved(productId);
+                }
+                if (!missing.isEmpty()) {
+                    categoryCache.invalidateProductCounts();
+                }
+                removed = missing.size();
+            }
+        }
+        productCount = count;
+
+        if (applied > 0 || removed > 0) {
+            System.out.println("CacheRefresher: " + applied + " products changed, " + removed + " removed");
+        }
+    }
+
+    private void advanceWatermark(Product product) {
+        maxProductId = Math.max(maxProductId, product.getProductId());
+        LocalDateTime updatedAt = product.getUpdatedAt();
+        if (updatedAt != null) {
+            recentlyApplied.put(product.getProductId(), updatedAt);
+            if (productWatermark == null || updatedAt.isAfter(productWatermark)) {
+                productWatermark = updatedAt;
+            }
+        }
+    }
+
+    private void pruneRecentlyApplied() {
+        if (productWatermark == null) return;
+        LocalDateTime cutoff = productWatermark.minusSeconds(WATERMARK_OVERLAP_SECONDS);
+        Iterator<LocalDateTime> it = recentlyApplied.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isBefore(cutoff)) it.remove();
+        }
+    }
+
+    private void refreshCategories() throws SQLException {
+        String fingerprint = categoryDAO.findFingerprint();
+        if (categoryFingerprint != null && !categoryFingerprint.equals(fingerprint)) {
+            // Swapped for the new tree in one step; readers never see it missing
+            categoryCache.cacheCategoryList(categoryDAO.findAll());
+            productCache.invalidateSubtrees();
+            System.out.println("CacheRefresher: categories changed, reloaded");
+        } else if (!fingerprint.equals(categoryFingerprint)) {
+            categoryService.getAllCategories();
+        }
+        categoryFingerprint = fingerprint;
+    }
+
+    private void refreshAhead() throws SQLException {
+        if (productCache.catalogExpiresWithin(refreshAheadMillis)) {
+            productCache.refreshAllProducts(productDAO::findAll);
+        }
+        for (String term : productCache.hotSearchesExpiringWithin(refreshAheadMillis, REFRESH_AHEAD_LIMIT)) {
+            productCache.refreshSearchResults(term,
+                    () -> productDAO.searchByWords(ProductCache.searchWords(term)));
+        }
+        for (Integer categoryId : productCache.hotCategoriesExpiringWithin(refreshAheadMillis, REFRESH_AHEAD_LIMIT)) {
+            productCache.refreshCategoryProducts(categoryId, () -> productDAO.findByCategory(categoryId));
+        }
+        if (categoryCache.expiresWithin(refreshAheadMillis)) {
+            categoryCache.cacheCategoryList(categoryDAO.findAll());
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.shopjoy.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConnectionPool - A bounded JDBC connection pool that sits behind DbConfig.
+ * Physical connections are opened once and reused across DAO calls, so a query
+ * no longer pays for a TCP handshake and authentication every time.
+ *
+ * Borrowed connections are handed out as proxies: calling close() on them
+ * resets the session state and returns the physical connection to the pool.
+ * Waiting callers are served in FIFO order once the pool is exhausted.
+ *
+ * Each physical connection keeps an LRU StatementCache (pool.statement.cache.size)
+ * so repeated DAO SQL is only parsed and planned once per connection.
+ *
+ * The pool also records acquire latency, per-connection usage time and, when
+ * pool.leak.detection.threshold.ms is set, logs the borrowing stack of any
+ * connection held longer than that threshold.
+ */
+public final class ConnectionPool {
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private final int maxSize;
+    private final int minIdle;
+    private final long connectionTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final long validationIntervalMs;
+    private final int validationTimeoutSeconds;
+    private final long leakDetectionThresholdMs;
+    private final int statementCacheSize;
+
+    // One permit per connection that may be handed out at the same time
+    private final Semaphore permits;
+    // Most recently returned connections sit at the head (LIFO keeps them warm)
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger connectionSequence = new AtomicInteger();
+    private final Set<PooledConnection> openConnections = ConcurrentHashMap.newKeySet();
+    private final Set<Handle> borrowedHandles = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    // Telemetry
+    private final LatencyRecorder acquireLatency = new LatencyRecorder();
+    private final LatencyRecorder usageLatency = new LatencyRecorder();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LongAdder statementCacheEvictions = new LongAdder();
+
+    /**
+     * Creates a pool from the db.* and pool.* entries of application.properties.
+     *
+     * @param props The loaded application properties.
+     */
+    public ConnectionPool(Properties props) {
+        this.url = props.getProperty("db.url");
+        this.username = props.getProperty("db.username");
+        this.password = props.getProperty("db.password");
+
+        this.maxSize = Math.max(1, intProperty(props, "pool.max.size", 10));
+        this.minIdle = Math.min(maxSize, Math.max(0, intProperty(props, "pool.min.idle", 2)));
+        this.connectionTimeoutMs = longProperty(props, "pool.connection.timeout.ms", 30_000L);
+        this.idleTimeoutMs = longProperty(props, "pool.idle.timeout.ms", 10 * 60 * 1000L);
+        this.maxLifetimeMs = longProperty(props, "pool.max.lifetime.ms", 30 * 60 * 1000L);
+        this.validationIntervalMs = longProperty(props, "pool.validation.interval.ms", 30_000L);
+        this.validationTimeoutSeconds = intProperty(props, "pool.validation.timeout.seconds", 5);
+        this.leakDetectionThresholdMs = longProperty(props, "pool.leak.detection.threshold.ms", 0L);
+        this.statementCacheSize = Math.max(0, intProperty(props, "pool.statement.cache.size", 64));
+        boolean fair = Boolean.parseBoolean(props.getProperty("pool.fair", "true"));
+
+        this.permits = new Semaphore(maxSize, fair);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPoolHousekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        // First run fills the pool up to pool.min.idle in the background
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, 30, TimeUnit.SECONDS);
+        if (leakDetectionThresholdMs > 0) {
+            long period = Math.max(500L, Math.min(leakDetectionThresholdMs / 2, 5_000L));
+            housekeeper.scheduleWithFixedDelay(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Borrows a connection, waiting up to pool.connection.timeout.ms when the
+     * pool is exhausted.
+     *
+     * @return A pooled connection; closing it returns it to the pool.
+     * @throws SQLException if no connection becomes available in time or the
+     *                      database cannot be reached.
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                acquireTimeouts.increment();
+                throw new SQLTimeoutException("Timed out after " + connectionTimeoutMs
+                        + "ms waiting for a database connection (pool.max.size=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                if (isUsable(pc)) {
+                    break;
+                }
+                discard(pc);
+            }
+            if (pc == null) {
+                pc = openConnection();
+            }
+            acquireLatency.record(System.nanoTime() - start);
+            return pc.borrow();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops handing out new ones. Connections
+     * still borrowed are closed as soon as they are returned.
+     */
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            discard(pc);
+        }
+    }
+
+    /**
+     * @return Number of physical connections currently open (idle + borrowed).
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return Number of connections sitting idle in the pool.
+     */
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * @return Number of connections currently borrowed by callers.
+     */
+    public int getActiveConnections() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * @return Number of threads blocked waiting for a connection.
+     */
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    /**
+     * Takes a snapshot of the pool's counters and latency figures.
+     *
+     * @return Current pool statistics.
+     */
+    public ConnectionPoolStats getStats() {
+        long now = System.currentTimeMillis();
+        List<ConnectionPoolStats.ConnectionUsage> usage = new ArrayList<>();
+        for (PooledConnection pc : openConnections) {
+            usage.add(new ConnectionPoolStats.ConnectionUsage(pc.id, now - pc.createdAt, pc.borrowCount,
+                    pc.totalUsageNanos / 1_000_000.0, pc.inUse, pc.statements.size()));
+        }
+        usage.sort((a, b) -> Integer.compare(a.getConnectionId(), b.getConnectionId()));
+        return new ConnectionPoolStats(maxSize, getTotalConnections(), getActiveConnections(), getIdleConnections(),
+                getWaitingThreads(), acquireTimeouts.sum(), acquireLatency, usageLatency, leaksDetected.sum(),
+                statementCacheHits.sum(), statementCacheMisses.sum(), statementCacheEvictions.sum(), usage);
+    }
+
+    /**
+     * Prints current pool statistics to the console.
+     */
+    public void printPoolStats() {
+        ConnectionPoolStats stats = getStats();
+        System.out.println("=== Connection Pool Statistics ===");
+        System.out.println("Connections (total/max): " + stats.getTotalConnections() + "/" + stats.getMaxSize());
+        System.out.println("Active: " + stats.getActiveConnections() + ", Idle: " + stats.getIdleConnections()
+                + ", Waiting threads: " + stats.getWaitingThreads());
+        System.out.println("Acquisitions: " + stats.getAcquireCount() + " (timeouts: " + stats.getAcquireTimeouts() + ")");
+        System.out.println(String.format("Acquire latency ms: mean=%.3f p50=%.3f p95=%.3f p99=%.3f max=%.3f",
+                stats.getAcquireMeanMillis(), stats.getAcquireP50Millis(), stats.getAcquireP95Millis(),
+                stats.getAcquireP99Millis(), stats.getAcquireMaxMillis()));
+        System.out.println(String.format("Usage time ms: mean=%.3f p95=%.3f max=%.3f",
+                stats.getUsageMeanMillis(), stats.getUsageP95Millis(), stats.getUsageMaxMillis()));
+        System.out.println("Leaks detected: " + stats.getLeaksDetected());
+        System.out.println(String.format("Statement cache: hits=%d misses=%d evictions=%d hit ratio=%.1f%%",
+                stats.getStatementCacheHits(), stats.getStatementCacheMisses(), stats.getStatementCacheEvictions(),
+                stats.getStatementCacheHitRatio() * 100));
+        for (ConnectionPoolStats.ConnectionUsage c : stats.getConnections()) {
+            System.out.println(String.format("  #%d age=%ds borrows=%d used=%.1fms statements=%d%s", c.getConnectionId(),
+                    c.getAgeMillis() / 1000, c.getBorrowCount(), c.getTotalUsageMillis(), c.getCachedStatements(),
+                    c.isInUse() ? " [in use]" : ""));
+        }
+        System.out.println("==================================");
+    }
+
+    // --- Internal lifecycle ---
+
+    private PooledConnection openConnection() throws SQLException {
+        totalConnections.incrementAndGet();
+        try {
+            PooledConnection pc = new PooledConnection(DriverManager.getConnection(url, username, password));
+            openConnections.add(pc);
+            return pc;
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        long now = System.currentTimeMillis();
+        if (now - pc.createdAt >= maxLifetimeMs) {
+            return false;
+        }
+        if (now - pc.lastReturnedAt < validationIntervalMs) {
+            return true;
+        }
+        try {
+            return pc.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Called by a connection handle when the borrower closes it.
+     */
+    private void release(Handle handle) {
+        PooledConnection pc = handle.owner;
+        long heldNanos = System.nanoTime() - handle.borrowedAtNanos;
+        borrowedHandles.remove(handle);
+        pc.inUse = false;
+        pc.borrowCount++;
+        pc.totalUsageNanos += heldNanos;
+        usageLatency.record(heldNanos);
+        if (handle.leakReported) {
+            Logger.info("ConnectionPool: connection #" + pc.id + " previously reported as leaked was returned after "
+                    + heldNanos / 1_000_000 + "ms");
+        }
+        try {
+            boolean reusable = !shutdown
+                    && pc.resetState()
+                    && System.currentTimeMillis() - pc.createdAt < maxLifetimeMs
+                    && totalConnections.get() <= maxSize;
+            if (reusable) {
+                pc.lastReturnedAt = System.currentTimeMillis();
+                idle.offerFirst(pc);
+            } else {
+                discard(pc);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        totalConnections.decrementAndGet();
+        openConnections.remove(pc);
+        pc.statements.closeAll();
+        try {
+            pc.physical.close();
+        } catch (SQLException e) {
+            System.err.println("ConnectionPool: failed to close connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retires expired and surplus idle connections, then tops the pool back up
+     * to pool.min.idle.
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pc = it.next();
+            boolean expired = now - pc.createdAt >= maxLifetimeMs;
+            boolean surplus = now - pc.lastReturnedAt >= idleTimeoutMs && idle.size() > minIdle;
+            if ((expired || surplus) && idle.remove(pc)) {
+                discard(pc);
+            }
+        }
+
+        while (!shutdown && idle.size() < minIdle && totalConnections.get() < maxSize) {
+            try {
+                idle.offerLast(openConnection());
+            } catch (SQLException e) {
+                System.err.println("ConnectionPool: could not open idle connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Logs every borrowed connection held past the leak threshold, once per
+     * borrow, together with the stack that borrowed it.
+     */
+    private void detectLeaks() {
+        long now = System.nanoTime();
+        for (Handle handle : borrowedHandles) {
+            long heldMs = (now - handle.borrowedAtNanos) / 1_000_000;
+            if (!handle.leakReported && heldMs >= leakDetectionThresholdMs) {
+                handle.leakReported = true;
+                leaksDetected.increment();
+                StringBuilder sb = new StringBuilder();
+                sb.append("ConnectionPool: possible connection leak - connection #").append(handle.owner.id)
+                        .append(" held for ").append(heldMs).append("ms by thread '").append(handle.borrowerThread)
+                        .append("'. Borrowed at:");
+                if (handle.borrowSite != null) {
+                    for (StackTraceElement e : handle.borrowSite.getStackTrace()) {
+                        sb.append(System.lineSeparator()).append("    at ").append(e);
+                    }
+                }
+                Logger.warning(sb.toString());
+            }
+        }
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            System.err.println("ConnectionPool: invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    private static long longProperty(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        try {
+            return value != null ? Long.parseLong(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            System.err.println("ConnectionPool: invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool, plus its bookkeeping.
+     */
+    private final class PooledConnection {
+        private final int id;
+        private final Connection physical;
+        private final long createdAt;
+        private final int defaultIsolation;
+        private final StatementCache statements;
+        private volatile long lastReturnedAt;
+        private volatile boolean inUse;
+        // Only written by the thread returning the connection
+        private volatile long borrowCount;
+        private volatile long totalUsageNanos;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.id = connectionSequence.incrementAndGet();
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastReturnedAt = createdAt;
+            this.defaultIsolation = physical.getTransactionIsolation();
+            this.statements = new StatementCache(statementCacheSize, statementCacheHits, statementCacheMisses,
+                    statementCacheEvictions);
+        }
+
+        Connection borrow() {
+            inUse = true;
+            Handle handle = new Handle(this);
+            borrowedHandles.add(handle);
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    handle);
+        }
+
+        /**
+         * Undoes anything a borrower may have left behind so the next caller
+         * gets a clean session.
+         *
+         * @return false if the connection is broken and must be discarded.
+         */
+        boolean resetState() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly()) {
+                    physical.setReadOnly(false);
+                }
+                if (physical.getTransactionIsolation() != defaultIsolation) {
+                    physical.setTransactionIsolation(defaultIsolation);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * The per-borrow view of a pooled connection. A fresh handle is created for
+     * every borrow so a stale reference cannot close or use a connection that
+     * has since been handed to someone else.
+     */
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection owner;
+        private final long borrowedAtNanos = System.nanoTime();
+        private final String borrowerThread = Thread.currentThread().getName();
+        // Capturing a stack per borrow is only paid for when leak detection is on
+        private final Throwable borrowSite = leakDetectionThresholdMs > 0 ? new Throwable() : null;
+        private volatile boolean leakReported;
+        private boolean closed;
+
+        Handle(PooledConnection owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || owner.physical.isClosed();
+                case "prepareStatement":
+                    if (args.length == 1 && !closed) {
+                        return owner.statements.prepare(owner.physical, (Connection) proxy, (String) args[0]);
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + owner.physical + (closed ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(owner.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
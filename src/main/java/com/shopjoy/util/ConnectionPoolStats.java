@@ -0,0 +1,125 @@
+package com.shopjoy.util;
+
+import java.util.List;
+
+/**
+ * Point-in-time snapshot of ConnectionPool health, used to size
+ * pool.max.size and pool.min.idle from real usage.
+ */
+public class ConnectionPoolStats {
+
+    private final int maxSize;
+    private final int totalConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int waitingThreads;
+    private final long acquireCount;
+    private final long acquireTimeouts;
+    private final double acquireMeanMillis;
+    private final double acquireP50Millis;
+    private final double acquireP95Millis;
+    private final double acquireP99Millis;
+    private final double acquireMaxMillis;
+    private final double usageMeanMillis;
+    private final double usageP95Millis;
+    private final double usageMaxMillis;
+    private final long leaksDetected;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long statementCacheEvictions;
+    private final List<ConnectionUsage> connections;
+
+    public ConnectionPoolStats(int maxSize, int totalConnections, int activeConnections, int idleConnections,
+                               int waitingThreads, long acquireTimeouts, LatencyRecorder acquire,
+                               LatencyRecorder usage, long leaksDetected, long statementCacheHits,
+                               long statementCacheMisses, long statementCacheEvictions,
+                               List<ConnectionUsage> connections) {
+        this.maxSize = maxSize;
+        this.totalConnections = totalConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.waitingThreads = waitingThreads;
+        this.acquireCount = acquire.getCount();
+        this.acquireTimeouts = acquireTimeouts;
+        this.acquireMeanMillis = acquire.getMeanMillis();
+        this.acquireP50Millis = acquire.getPercentileMillis(50);
+        this.acquireP95Millis = acquire.getPercentileMillis(95);
+        this.acquireP99Millis = acquire.getPercentileMillis(99);
+        this.acquireMaxMillis = acquire.getMaxNanos() / 1_000_000.0;
+        this.usageMeanMillis = usage.getMeanMillis();
+        this.usageP95Millis = usage.getPercentileMillis(95);
+        this.usageMaxMillis = usage.getMaxNanos() / 1_000_000.0;
+        this.leaksDetected = leaksDetected;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.statementCacheEvictions = statementCacheEvictions;
+        this.connections = List.copyOf(connections);
+    }
+
+    public int getMaxSize() { return maxSize; }
+    public int getTotalConnections() { return totalConnections; }
+    public int getActiveConnections() { return activeConnections; }
+    public int getIdleConnections() { return idleConnections; }
+    public int getWaitingThreads() { return waitingThreads; }
+    public long getAcquireCount() { return acquireCount; }
+    public long getAcquireTimeouts() { return acquireTimeouts; }
+    public double getAcquireMeanMillis() { return acquireMeanMillis; }
+    public double getAcquireP50Millis() { return acquireP50Millis; }
+    public double getAcquireP95Millis() { return acquireP95Millis; }
+    public double getAcquireP99Millis() { return acquireP99Millis; }
+    public double getAcquireMaxMillis() { return acquireMaxMillis; }
+    public double getUsageMeanMillis() { return usageMeanMillis; }
+    public double getUsageP95Millis() { return usageP95Millis; }
+    public double getUsageMaxMillis() { return usageMaxMillis; }
+    public long getLeaksDetected() { return leaksDetected; }
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+    public long getStatementCacheEvictions() { return statementCacheEvictions; }
+    public List<ConnectionUsage> getConnections() { return connections; }
+
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0.0 : statementCacheHits / (double) lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats{" +
+                "total=" + totalConnections +
+                ", active=" + activeConnections +
+                ", idle=" + idleConnections +
+                ", waiting=" + waitingThreads +
+                ", acquireP95Ms=" + String.format("%.3f", acquireP95Millis) +
+                ", leaks=" + leaksDetected +
+                '}';
+    }
+
+    /**
+     * Usage figures for one physical connection.
+     */
+    public static class ConnectionUsage {
+        private final int connectionId;
+        private final long ageMillis;
+        private final long borrowCount;
+        private final double totalUsageMillis;
+        private final boolean inUse;
+        private final int cachedStatements;
+
+        public ConnectionUsage(int connectionId, long ageMillis, long borrowCount, double totalUsageMillis,
+                               boolean inUse, int cachedStatements) {
+            this.connectionId = connectionId;
+            this.ageMillis = ageMillis;
+            this.borrowCount = borrowCount;
+            this.totalUsageMillis = totalUsageMillis;
+            this.inUse = inUse;
+            this.cachedStatements = cachedStatements;
+        }
+
+        public int getConnectionId() { return connectionId; }
+        public long getAgeMillis() { return ageMillis; }
+        public long getBorrowCount() { return borrowCount; }
+        public double getTotalUsageMillis() { return totalUsageMillis; }
+        public boolean isInUse() { return inUse; }
+        public int getCachedStatements() { return cachedStatements; }
+    }
+}
@@ -10,6 +10,7 @@ import java.util.Properties;
 public final class DbConfig {
 
     private static final Properties props = new Properties();
+    private static final ConnectionPool pool;
 
     static {
         try (InputStream in = DbConfig.class.getResourceAsStream("/application.properties")) {
@@ -27,15 +28,43 @@ public final class DbConfig {
         } catch (IOException | ClassNotFoundException e) {
             throw new RuntimeException("Failed to initialize DbConfig", e);
         }
+        pool = new ConnectionPool(props);
     }
 
     private DbConfig() {}
 
+    /**
+     * Borrows a connection from the shared pool. Callers must close it
+     * (try-with-resources) to hand it back. Inside
+     * TransactionManager.inTransaction(...) the transaction's connection is
+     * returned instead, so the caller joins the unit of work.
+     */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(
-                props.getProperty("db.url"),
-                props.getProperty("db.username"),
-                props.getProperty("db.password")
-        );
+        Connection tx = TransactionManager.currentConnection();
+        return tx != null ? tx : pool.getConnection();
+    }
+
+    /**
+     * Opens a connection outside the pool, for session-scoped work such as
+     * LISTEN that must not be handed to other callers. The caller owns it and
+     * must close it.
+     */
+    public static Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(props.getProperty("db.url"),
+                props.getProperty("db.username"), props.getProperty("db.password"));
+    }
+
+    /**
+     * @return The shared connection pool, e.g. for monitoring.
+     */
+    public static ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Closes all pooled connections. Should be called during application shutdown.
+     */
+    public static void shutdown() {
+        pool.shutdown();
     }
 }
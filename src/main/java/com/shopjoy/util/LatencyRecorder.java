@@ -0,0 +1,86 @@
+package com.shopjoy.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyRecorder - Cheap, thread-safe latency statistics.
+ * Keeps exact count/total/max plus a ring buffer of the most recent samples
+ * from which percentiles are computed on demand.
+ */
+public class LatencyRecorder {
+
+    private static final int DEFAULT_WINDOW = 1024;
+
+    private final AtomicLongArray window;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyRecorder() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param windowSize Number of recent samples kept for percentiles; rounded
+     *                   up to a power of two.
+     */
+    public LatencyRecorder(int windowSize) {
+        int size = Integer.highestOneBit(Math.max(2, windowSize) - 1) << 1;
+        this.window = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Records one sample.
+     *
+     * @param nanos The measured duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        window.set((int) (cursor.getAndIncrement() & mask), nanos);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : totalNanos.sum() / (double) n / 1_000_000.0;
+    }
+
+    /**
+     * Computes a percentile over the recent sample window.
+     *
+     * @param percentile Value between 0 and 100.
+     * @return The percentile in milliseconds, or 0 when nothing was recorded.
+     */
+    public double getPercentileMillis(double percentile) {
+        int n = (int) Math.min(cursor.get(), window.length());
+        if (n == 0) {
+            return 0.0;
+        }
+        long[] samples = new long[n];
+        for (int i = 0; i < n; i++) {
+            samples[i] = window.get(i);
+        }
+        Arrays.sort(samples);
+        int rank = (int) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * n) - 1;
+        return samples[Math.max(0, rank)] / 1_000_000.0;
+    }
+}
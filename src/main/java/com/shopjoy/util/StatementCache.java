@@ -0,0 +1,201 @@
+package com.shopjoy.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StatementCache - LRU cache of prepared statements for one pooled connection,
+ * keyed by SQL text. DAOs keep calling conn.prepareStatement(sql) and closing
+ * the result; with the cache a repeated SQL string is bound and executed on
+ * the already-prepared statement instead of being parsed and planned again.
+ *
+ * A pooled connection is only used by one borrower at a time, so contention
+ * on this cache is limited to the pool's housekeeping thread.
+ */
+final class StatementCache {
+
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    // Access-ordered so the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int maxSize, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Returns a cached statement for the SQL text, preparing it on a miss.
+     * If the cached statement is already checked out (the same SQL prepared
+     * twice before the first one was closed), a plain uncached statement is
+     * returned instead.
+     *
+     * @param physical The physical connection that owns the cache.
+     * @param owner    The connection handle exposed to the borrower.
+     * @param sql      The SQL text.
+     * @return A statement whose close() hands it back to the cache.
+     */
+    synchronized PreparedStatement prepare(Connection physical, Connection owner, String sql) throws SQLException {
+        Entry entry = entries.get(sql);
+        if (entry != null) {
+            if (!entry.inUse && !entry.statement.isClosed()) {
+                hits.increment();
+                entry.inUse = true;
+                return wrap(entry, owner);
+            }
+            if (!entry.inUse) {
+                entries.remove(sql);
+            } else {
+                misses.increment();
+                return physical.prepareStatement(sql);
+            }
+        }
+
+        misses.increment();
+        PreparedStatement ps = physical.prepareStatement(sql);
+        if (maxSize <= 0) {
+            return ps;
+        }
+        Entry created = new Entry(ps);
+        created.inUse = true;
+        entries.put(sql, created);
+        evictIfNeeded();
+        return wrap(created, owner);
+    }
+
+    /**
+     * @return Number of statements currently cached.
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Closes every cached statement. Used when the physical connection is
+     * discarded.
+     */
+    synchronized void closeAll() {
+        List<Entry> all = new ArrayList<>(entries.values());
+        entries.clear();
+        for (Entry entry : all) {
+            closeQuietly(entry.statement);
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            evictions.increment();
+            eldest.evicted = true;
+            // Statements still checked out are closed when they are returned
+            if (!eldest.inUse) {
+                closeQuietly(eldest.statement);
+            }
+        }
+    }
+
+    private synchronized void checkIn(Entry entry) {
+        entry.inUse = false;
+        if (entry.evicted) {
+            closeQuietly(entry.statement);
+            return;
+        }
+        try {
+            entry.statement.clearParameters();
+            entry.statement.clearBatch();
+            entry.statement.clearWarnings();
+            entry.statement.setFetchSize(0);
+            entry.statement.setMaxRows(0);
+        } catch (SQLException e) {
+            entries.values().remove(entry);
+            closeQuietly(entry.statement);
+        }
+    }
+
+    private PreparedStatement wrap(Entry entry, Connection owner) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new Handle(entry, owner));
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            System.err.println("StatementCache: failed to close statement: " + e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * The per-checkout view of a cached statement.
+     */
+    private final class Handle implements InvocationHandler {
+        private final Entry entry;
+        private final Connection owner;
+        private boolean closed;
+
+        Handle(Entry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        checkIn(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement has already been closed");
+                    }
+                    try {
+                        return method.invoke(entry.statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.shopjoy.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * TransactionManager - Thread-bound unit of work for the DAO layer.
+ *
+ * While a transaction is active on the current thread, DbConfig.getConnection()
+ * returns the transaction's connection, so every DAO call made inside
+ * inTransaction(...) runs on that single connection and commits or rolls back
+ * together. DAOs need no changes: their try-with-resources close() is ignored
+ * for the joined connection, and commit()/setAutoCommit() calls they make are
+ * left to the transaction owner.
+ *
+ * Nested inTransaction(...) calls join the outer transaction.
+ */
+public final class TransactionManager {
+
+    /**
+     * Work executed inside a transaction.
+     *
+     * @param <T> Result type.
+     */
+    @FunctionalInterface
+    public interface TransactionCallback<T> {
+        T execute() throws SQLException;
+    }
+
+    private static final ThreadLocal<TransactionContext> CURRENT = new ThreadLocal<>();
+
+    private TransactionManager() {}
+
+    /**
+     * Runs work in a transaction using the connection's default isolation level.
+     *
+     * @param work The work to run.
+     * @return The work's result.
+     * @throws SQLException if the work or the commit fails; the transaction is
+     *                      rolled back in that case.
+     */
+    public static <T> T inTransaction(TransactionCallback<T> work) throws SQLException {
+        return inTransaction(-1, work);
+    }
+
+    /**
+     * Runs work in a transaction with the given isolation level.
+     *
+     * @param isolation One of the Connection.TRANSACTION_* constants, or -1 to
+     *                  keep the connection default. Ignored when joining an
+     *                  outer transaction.
+     * @param work      The work to run.
+     * @return The work's result.
+     * @throws SQLException if the work or the commit fails; the transaction is
+     *                      rolled back in that case.
+     */
+    public static <T> T inTransaction(int isolation, TransactionCallback<T> work) throws SQLException {
+        TransactionContext existing = CURRENT.get();
+        if (existing != null) {
+            try {
+                return work.execute();
+            } catch (SQLException | RuntimeException e) {
+                existing.rollbackOnly = true;
+                throw e;
+            }
+        }
+
+        try (Connection conn = DbConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            if (isolation >= 0) {
+                conn.setTransactionIsolation(isolation);
+            }
+            TransactionContext ctx = new TransactionContext(conn);
+            CURRENT.set(ctx);
+            try {
+                T result = work.execute();
+                if (ctx.rollbackOnly) {
+                    conn.rollback();
+                } else {
+                    conn.commit();
+                }
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            } finally {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Marks the current transaction so that it rolls back instead of
+     * committing. Use this for business failures (e.g. insufficient stock)
+     * that are reported by return value rather than by exception.
+     */
+    public static void setRollbackOnly() {
+        TransactionContext ctx = CURRENT.get();
+        if (ctx != null) {
+            ctx.rollbackOnly = true;
+        }
+    }
+
+    /**
+     * @return true if the current thread is inside inTransaction(...).
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * @return The connection DAOs should join, or null outside a transaction.
+     */
+    static Connection currentConnection() {
+        TransactionContext ctx = CURRENT.get();
+        return ctx != null ? ctx.joined : null;
+    }
+
+    private static final class TransactionContext {
+        private final Connection joined;
+        private boolean rollbackOnly;
+
+        TransactionContext(Connection connection) {
+            this.joined = (Connection) Proxy.newProxyInstance(
+                    TransactionManager.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new JoinedConnection(connection, this));
+        }
+    }
+
+    /**
+     * View of the transaction's connection handed to DAOs. Lifecycle and
+     * transaction-boundary calls are owned by the TransactionManager.
+     */
+    private static final class JoinedConnection implements InvocationHandler {
+        private final Connection target;
+        private final TransactionContext ctx;
+
+        JoinedConnection(Connection target, TransactionContext ctx) {
+            this.target = target;
+            this.ctx = ctx;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                case "setAutoCommit":
+                    return null;
+                case "rollback":
+                    if (args == null || args.length == 0) {
+                        ctx.rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.shopjoy.test;
+
+import com.shopjoy.cache.BoundedCache;
+import com.shopjoy.cache.CacheStats;
+import com.shopjoy.cache.Weigher;
+import com.shopjoy.util.DatabaseTestUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class BoundedCacheTest {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("===== TESTING BOUNDED CACHE =====");
+
+        DatabaseTestUtil.printTestHeader("Size Bound");
+        testSizeBound();
+
+        DatabaseTestUtil.printTestHeader("Frequent Keys Survive Scan");
+        testFrequentKeysSurviveScan();
+
+        DatabaseTestUtil.printTestHeader("Per-Entry Expiry");
+        testPerEntryExpiry();
+
+        DatabaseTestUtil.printTestHeader("Weigher");
+        testWeigher();
+
+        DatabaseTestUtil.printTestHeader("Concurrent Access");
+        testConcurrentAccess();
+
+        DatabaseTestUtil.printTestHeader("Statistics");
+        testStatistics();
+
+        DatabaseTestUtil.printTestHeader("Hot Keys Expiring");
+        testHotKeysExpiring();
+
+        System.out.println("BoundedCacheTest finished: passed=" + passed + " failed=" + failed);
+    }
+
+    private static void testSizeBound() {
+        try {
+            BoundedCache<Integer, String> cache = new BoundedCache<>(100, 0, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 1000; i++) {
+                cache.put(i, "v" + i);
+            }
+            boolean ok = cache.size() <= 100 && cache.weightedSize() == cache.size();
+            DatabaseTestUtil.printTestResult("testSizeBound", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testSizeBound exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testFrequentKeysSurviveScan() {
+        try {
+            BoundedCache<String, String> cache = new BoundedCache<>(100, 0, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 50; i++) {
+                cache.put("hot" + i, "hot");
+            }
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < 50; i++) {
+                    cache.getIfPresent("hot" + i);
+                }
+            }
+            // One-off keys, e.g. distinct search terms typed once each
+            for (int i = 0; i < 5000; i++) {
+                cache.put("once" + i, "cold");
+            }
+            int hotLeft = 0;
+            for (int i = 0; i < 50; i++) {
+                if (cache.getIfPresent("hot" + i) != null) hotLeft++;
+            }
+            boolean ok = hotLeft >= 45 && cache.size() <= 100;
+            System.out.println("Hot keys retained: " + hotLeft + "/50");
+            DatabaseTestUtil.printTestResult("testFrequentKeysSurviveScan", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testFrequentKeysSurviveScan exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testPerEntryExpiry() {
+        try {
+            BoundedCache<String, String> cache = new BoundedCache<>(100, 300, TimeUnit.MILLISECONDS);
+            cache.put("old", "a");
+            Thread.sleep(200);
+            cache.put("new", "b");
+            Thread.sleep(150);
+            // "old" is past its expiry; writing "new" must not have extended it
+            boolean ok = cache.getIfPresent("old") == null && "b".equals(cache.getIfPresent("new"));
+            DatabaseTestUtil.printTestResult("testPerEntryExpiry", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testPerEntryExpiry exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testWeigher() {
+        try {
+            BoundedCache<String, List<Integer>> cache = new BoundedCache<>(20, Weigher.collectionSize(),
+                    0, 0, TimeUnit.MILLISECONDS);
+            cache.put("small", List.of(1, 2));
+            cache.put("huge", List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20));
+            for (int i = 0; i < 10; i++) {
+                cache.put("k" + i, List.of(i, i));
+            }
+            boolean ok = cache.getIfPresent("huge") == null && cache.weightedSize() <= 20;
+            DatabaseTestUtil.printTestResult("testWeigher", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testWeigher exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testConcurrentAccess() {
+        try {
+            BoundedCache<Integer, Integer> cache = new BoundedCache<>(500, 0, TimeUnit.MILLISECONDS);
+            AtomicBoolean wrongValue = new AtomicBoolean();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int seed = t;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 50_000; i++) {
+                        int key = (i * 31 + seed) % 2000;
+                        if (i % 4 == 0) {
+                            cache.put(key, key * 2);
+                        } else {
+                            Integer value = cache.getIfPresent(key);
+                            if (value != null && value != key * 2) wrongValue.set(true);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) thread.join();
+            cache.cleanUp();
+            boolean ok = !wrongValue.get() && cache.size() <= 500 && cache.weightedSize() == cache.size();
+            DatabaseTestUtil.printTestResult("testConcurrentAccess", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testConcurrentAccess exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testStatistics() {
+        try {
+            BoundedCache<Integer, String> cache = new BoundedCache<>(10, 0, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 30; i++) {
+                cache.put(i, "v" + i);
+            }
+            int found = 0;
+            for (int i = 0; i < 30; i++) {
+                if (cache.getIfPresent(i) != null) found++;
+            }
+            // peek is not counted
+            boolean cached29 = cache.peek(29) != null;
+            String loaded = cache.stats().recordLoad(() -> "loaded");
+            cache.invalidate(29);
+            cache.cleanUp();
+            CacheStats stats = cache.snapshot("test");
+            System.out.println(stats);
+            boolean ok = stats.getHitCount() == found
+                    && stats.getMissCount() == 30 - found
+                    && stats.getSizeEvictionCount() == 20
+                    && stats.getExplicitRemovalCount() == (cached29 ? 1 : 0)
+                    && stats.getLoadCount() == 1
+                    && "loaded".equals(loaded);
+            DatabaseTestUtil.printTestResult("testStatistics", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testStatistics exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testHotKeysExpiring() {
+        try {
+            BoundedCache<String, String> cache = new BoundedCache<>(100, 500, TimeUnit.MILLISECONDS);
+            cache.put("popular", "a");
+            cache.put("once", "b");
+            cache.getIfPresent("popular");
+            cache.getIfPresent("popular");
+            boolean notYet = cache.hotKeysExpiringWithin(100, TimeUnit.MILLISECONDS, 10).isEmpty();
+            Thread.sleep(300);
+            List<String> hot = cache.hotKeysExpiringWithin(300, TimeUnit.MILLISECONDS, 10);
+            boolean ok = notYet && hot.equals(List.of("popular"));
+            DatabaseTestUtil.printTestResult("testHotKeysExpiring", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testHotKeysExpiring exception:");
+            e.printStackTrace();
+        }
+    }
+}
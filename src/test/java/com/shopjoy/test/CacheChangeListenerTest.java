@@ -0,0 +1,90 @@
+package com.shopjoy.test;
+
+import com.shopjoy.cache.ProductCache;
+import com.shopjoy.model.Category;
+import com.shopjoy.model.Product;
+import com.shopjoy.util.CacheChangeListener;
+import com.shopjoy.util.DatabaseTestUtil;
+import com.shopjoy.util.DbConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+public class CacheChangeListenerTest {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("===== TESTING CACHE CHANGE LISTENER =====");
+
+        DatabaseTestUtil.printTestHeader("Remote Update And Delete");
+        testRemoteUpdateAndDelete();
+
+        System.out.println("CacheChangeListenerTest finished: passed=" + passed + " failed=" + failed);
+    }
+
+    private static void testRemoteUpdateAndDelete() {
+        CacheChangeListener listener = new CacheChangeListener();
+        try {
+            DatabaseTestUtil.clearAllTables();
+            Category category = DatabaseTestUtil.insertTestCategory();
+            Product product = DatabaseTestUtil.insertTestProduct(category.getCategoryId());
+            int productId = product.getProductId();
+
+            listener.start();
+            boolean listening = waitFor(listener::isListening);
+
+            ProductCache cache = ProductCache.getInstance();
+            cache.cacheProduct(product);
+            cache.cacheSearchResults("test", List.of(product));
+
+            // Written over a connection of its own, as another instance would
+            try (Connection other = DbConfig.openDedicatedConnection();
+                 PreparedStatement ps = other.prepareStatement("UPDATE products SET price=? WHERE product_id=?")) {
+                ps.setDouble(1, 12.5);
+                ps.setInt(2, productId);
+                ps.executeUpdate();
+            }
+            boolean updated = waitFor(() -> {
+                Product cached = cache.getProduct(productId);
+                List<Product> results = cache.getSearchResults("test");
+                return cached != null && cached.getPrice() == 12.5
+                        && results != null && results.get(0).getPrice() == 12.5;
+            });
+
+            try (Connection other = DbConfig.openDedicatedConnection();
+                 PreparedStatement ps = other.prepareStatement("DELETE FROM products WHERE product_id=?")) {
+                ps.setInt(1, productId);
+                ps.executeUpdate();
+            }
+            boolean removed = waitFor(() -> {
+                List<Product> results = cache.getSearchResults("test");
+                return cache.getProduct(productId) == null && results != null && results.isEmpty();
+            });
+
+            boolean ok = listening && updated && removed;
+            DatabaseTestUtil.printTestResult("testRemoteUpdateAndDelete", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testRemoteUpdateAndDelete exception:");
+            e.printStackTrace();
+        } finally {
+            listener.stop();
+            ProductCache.getInstance().invalidateCache();
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return condition.getAsBoolean();
+    }
+}
@@ -0,0 +1,135 @@
+package com.shopjoy.test;
+
+import com.shopjoy.cache.ProductCache;
+import com.shopjoy.model.Product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * CacheContentionBenchmark - Measures product cache read throughput with 1 to
+ * 64 reader threads, against a baseline that guards a HashMap with a single
+ * monitor (how ProductCache used to serialize every read).
+ *
+ * No database is needed. A background writer keeps replacing entries so that
+ * readers run alongside writes, as they do in the application.
+ */
+public class CacheContentionBenchmark {
+
+    private static final int PRODUCTS = 5_000;
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+    private static final long RUN_MILLIS = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("========================================");
+        System.out.println("      CACHE CONTENTION BENCHMARK        ");
+        System.out.println("========================================");
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= PRODUCTS; i++) {
+            Product p = new Product();
+            p.setProductId(i);
+            p.setProductName("Product " + i);
+            p.setPrice(i);
+            products.add(p);
+        }
+
+        ProductCache cache = ProductCache.getInstance();
+        cache.invalidateCache();
+        cache.cacheProductList(products);
+
+        SynchronizedProductMap baseline = new SynchronizedProductMap();
+        for (Product p : products) {
+            baseline.put(p);
+        }
+
+        System.out.printf("\n%8s %18s %18s %8s\n", "threads", "synchronized op/s", "ProductCache op/s", "speedup");
+        for (int threads : THREAD_COUNTS) {
+            long locked = measure(threads, baseline::get, baseline::put);
+            long lockFree = measure(threads, cache::getProduct, cache::cacheProduct);
+            System.out.printf("%8d %18d %18d %7.1fx\n", threads, locked, lockFree, (double) lockFree / locked);
+        }
+
+        cache.invalidateCache();
+        System.out.println("\nBenchmark completed.");
+    }
+
+    /**
+     * @return reads per second across all reader threads
+     */
+    private static long measure(int readers, IntFunction<Product> read, Consumer<Product> write)
+            throws InterruptedException {
+        LongAdder reads = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < readers; t++) {
+            Thread reader = new Thread(() -> {
+                awaitQuietly(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    for (int i = 0; i < 256; i++) {
+                        if (read.apply(1 + random.nextInt(PRODUCTS)) != null) count++;
+                    }
+                }
+                reads.add(count);
+            });
+            workers.add(reader);
+        }
+        Thread writer = new Thread(() -> {
+            awaitQuietly(start);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < deadline[0]) {
+                Product p = new Product();
+                p.setProductId(1 + random.nextInt(PRODUCTS));
+                p.setProductName("Updated");
+                write.accept(p);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        workers.add(writer);
+
+        for (Thread w : workers) w.start();
+        deadline[0] = System.nanoTime() + RUN_MILLIS * 1_000_000L;
+        start.countDown();
+        for (Thread w : workers) w.join();
+        return reads.sum() * 1000 / RUN_MILLIS;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The previous design: one map, every access under the same monitor.
+     */
+    private static final class SynchronizedProductMap {
+        private final Map<Integer, Product> products = new HashMap<>();
+
+        synchronized Product get(int productId) {
+            return products.get(productId);
+        }
+
+        synchronized void put(Product product) {
+            products.put(product.getProductId(), product);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.shopjoy.test;
+
+import com.shopjoy.cache.CacheSnapshot;
+import com.shopjoy.model.Category;
+import com.shopjoy.model.Product;
+import com.shopjoy.util.DatabaseTestUtil;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CacheSnapshotTest {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("===== TESTING CACHE SNAPSHOT =====");
+
+        DatabaseTestUtil.printTestHeader("Round Trip");
+        testRoundTrip();
+
+        DatabaseTestUtil.printTestHeader("Corrupt File Ignored");
+        testCorruptFileIgnored();
+
+        System.out.println("CacheSnapshotTest finished: passed=" + passed + " failed=" + failed);
+    }
+
+    private static void testRoundTrip() {
+        Path file = null;
+        try {
+            file = Files.createTempFile("shopjoy-snapshot", ".bin");
+            LocalDateTime updated = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000);
+            List<Product> products = new ArrayList<>();
+            for (int i = 1; i <= 1000; i++) {
+                products.add(new Product(i, "Product " + i, i % 2 == 0 ? null : "Desc é " + i, i % 7,
+                        i * 1.5, i, "SKU-" + i, "Brand", null, i % 3 != 0, updated.minusDays(1),
+                        updated.minusSeconds(i)));
+            }
+            List<Category> categories = List.of(
+                    new Category(1, "Electronics", null, null, updated),
+                    new Category(2, "Phones", "Mobile", 1, null));
+            new CacheSnapshot(products, categories, "abc123").write(file);
+
+            CacheSnapshot read = CacheSnapshot.read(file);
+            Product p = read != null ? read.getProducts().get(1) : null;
+            Product original = products.get(1);
+            boolean ok = read != null
+                    && read.getProducts().size() == 1000
+                    && p.getProductId() == original.getProductId()
+                    && p.getProductName().equals(original.getProductName())
+                    && p.getDescription() == null
+                    && p.getPrice() == original.getPrice()
+                    && p.isActive() == original.isActive()
+                    && p.getUpdatedAt().equals(original.getUpdatedAt())
+                    && "Desc é 1".equals(read.getProducts().get(0).getDescription())
+                    && updated.minusSeconds(1).equals(read.getLatestUpdate())
+                    && read.getCategories().size() == 2
+                    && read.getCategories().get(0).getParentCategoryId() == null
+                    && Integer.valueOf(1).equals(read.getCategories().get(1).getParentCategoryId())
+                    && "abc123".equals(read.getCategoryFingerprint());
+            DatabaseTestUtil.printTestResult("testRoundTrip", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testRoundTrip exception:");
+            e.printStackTrace();
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    private static void testCorruptFileIgnored() {
+        Path file = null;
+        try {
+            file = Files.createTempFile("shopjoy-snapshot", ".bin");
+            List<Product> products = List.of(new Product(1, "Lamp", null, 1, 10, 5, "L-1", null, null, true,
+                    null, null));
+            new CacheSnapshot(products, null, null).write(file);
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length / 2] ^= 0x55;
+            Files.write(file, bytes);
+            boolean corruptIgnored = CacheSnapshot.read(file) == null;
+
+            Files.write(file, new byte[]{1, 2, 3});
+            boolean truncatedIgnored = CacheSnapshot.read(file) == null;
+            boolean missingIgnored = CacheSnapshot.read(file.resolveSibling("no-such-snapshot.bin")) == null;
+
+            boolean ok = corruptIgnored && truncatedIgnored && missingIgnored;
+            DatabaseTestUtil.printTestResult("testCorruptFileIgnored", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testCorruptFileIgnored exception:");
+            e.printStackTrace();
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            if (file != null) Files.deleteIfExists(file);
+        } catch (Exception ignored) {
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.shopjoy.test;
+
+import com.shopjoy.cache.CategoryCache;
+import com.shopjoy.cache.CacheLoader;
+import com.shopjoy.cache.CategoryHierarchy;
+import com.shopjoy.cache.CategoryProductCounts;
+import com.shopjoy.model.Category;
+import com.shopjoy.util.DatabaseTestUtil;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CategoryCacheTest {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("===== TESTING CATEGORY CACHE =====");
+
+        DatabaseTestUtil.printTestHeader("Hierarchy Queries");
+        testHierarchyQueries();
+
+        DatabaseTestUtil.printTestHeader("Tree Loaded Once And Swapped");
+        testTreeLoadedOnceAndSwapped();
+
+        DatabaseTestUtil.printTestHeader("Product Counts");
+        testProductCounts();
+
+        CategoryCache.getInstance().invalidateCache();
+        System.out.println("CategoryCacheTest finished: passed=" + passed + " failed=" + failed);
+    }
+
+    private static void testHierarchyQueries() {
+        try {
+            CategoryHierarchy tree = new CategoryHierarchy(sample());
+            Category electronics = tree.getCategory(1);
+            Category phones = tree.getCategory(2);
+            Category laptops = tree.getCategory(3);
+            Category gaming = tree.getCategory(4);
+            Category books = tree.getCategory(5);
+
+            boolean ok = tree.getTopLevel().equals(List.of(books, electronics))
+                    && tree.getChildren(1).equals(List.of(laptops, phones))
+                    && tree.getChildren(5).isEmpty()
+                    && tree.getDescendants(1).equals(List.of(laptops, gaming, phones))
+                    && tree.getDescendants(3).equals(List.of(gaming))
+                    && tree.getPath(4).equals(List.of(electronics, laptops, gaming))
+                    && tree.getPath(99).isEmpty()
+                    && tree.getChildren(99).isEmpty()
+                    && tree.getCategory(99) == null;
+            DatabaseTestUtil.printTestResult("testHierarchyQueries", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testHierarchyQueries exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testTreeLoadedOnceAndSwapped() {
+        try {
+            CategoryCache cache = CategoryCache.getInstance();
+            cache.invalidateCache();
+            AtomicInteger queries = new AtomicInteger();
+            CategoryHierarchy first = cache.loadHierarchy(() -> {
+                queries.incrementAndGet();
+                return sample();
+            });
+            boolean servedFromTree = cache.getTopLevelCategories().size() == 2
+                    && cache.getSubcategories(1).size() == 2
+                    && cache.getCategory(4) != null
+                    && cache.loadCategory(99, () -> {
+                        throw new SQLException("known missing while the tree is cached");
+                    }) == null
+                    && cache.loadHierarchy(() -> null) == first
+                    && queries.get() == 1;
+
+            // A reload replaces the whole tree: gaming moves under phones
+            List<Category> moved = sample();
+            moved.get(3).setParentCategoryId(2);
+            cache.cacheCategoryList(moved);
+            boolean swapped = cache.getSubcategories(3).isEmpty()
+                    && cache.getSubcategories(2).size() == 1
+                    && cache.getHierarchy().getPath(4).size() == 3
+                    && cache.getHierarchy() != first;
+
+            boolean ok = servedFromTree && swapped;
+            DatabaseTestUtil.printTestResult("testTreeLoadedOnceAndSwapped", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testTreeLoadedOnceAndSwapped exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testProductCounts() {
+        try {
+            CategoryCache cache = CategoryCache.getInstance();
+            cache.invalidateCache();
+            AtomicInteger queries = new AtomicInteger();
+            CacheLoader<Map<Integer, Integer>> countLoader = () -> {
+                queries.incrementAndGet();
+                return Map.of(2, 3, 4, 1, 5, 2);
+            };
+            CategoryProductCounts counts = cache.loadProductCounts(CategoryCacheTest::sample, countLoader);
+            boolean rolledUp = counts.getDirectCount(1) == 0
+                    && counts.getSubtreeCount(1) == 4
+                    && counts.getSubtreeCount(3) == 1
+                    && counts.getDirectCount(5) == 2
+                    && counts.getSubtreeCount(99) == 0;
+
+            cache.productCountChanged(4, 1);
+            cache.productCategoryChanged(2, 5);
+            counts = cache.loadProductCounts(CategoryCacheTest::sample, countLoader);
+            boolean incremental = counts.getSubtreeCount(1) == 4
+                    && counts.getSubtreeCount(3) == 2
+                    && counts.getDirectCount(2) == 2
+                    && counts.getSubtreeCount(5) == 3
+                    && queries.get() == 1;
+
+            // A new tree re-rolls the same direct counts: laptops gaming moves under phones
+            List<Category> moved = sample();
+            moved.get(3).setParentCategoryId(2);
+            cache.cacheCategoryList(moved);
+            counts = cache.loadProductCounts(CategoryCacheTest::sample, countLoader);
+            boolean reRolled = counts.getSubtreeCount(3) == 0
+                    && counts.getSubtreeCount(2) == 4
+                    && queries.get() == 1;
+
+            cache.invalidateProductCounts();
+            cache.loadProductCounts(CategoryCacheTest::sample, countLoader);
+            boolean reloaded = queries.get() == 2;
+
+            boolean ok = rolledUp && incremental && reRolled && reloaded;
+            DatabaseTestUtil.printTestResult("testProductCounts", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testProductCounts exception:");
+            e.printStackTrace();
+        }
+    }
+
+    // Ordered by name, as CategoryDAO.findAll returns them
+    private static List<Category> sample() {
+        return new ArrayList<>(List.of(
+                new Category(5, "Books", null, null, null),
+                new Category(1, "Electronics", null, null, null),
+                new Category(3, "Laptops", null, 1, null),
+                new Category(4, "Laptops Gaming", null, 3, null),
+                new Category(2, "Phones", null, 1, null)));
+    }
+}
@@ -0,0 +1,236 @@
+package com.shopjoy.test;
+
+import com.shopjoy.util.ConnectionPool;
+import com.shopjoy.util.ConnectionPoolStats;
+import com.shopjoy.util.DatabaseTestUtil;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLTimeoutException;
+import java.util.Properties;
+
+public class ConnectionPoolTest {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("===== TESTING CONNECTION POOL =====");
+
+        DatabaseTestUtil.printTestHeader("Connection Reuse");
+        testConnectionReuse();
+
+        DatabaseTestUtil.printTestHeader("Acquisition Timeout");
+        testAcquisitionTimeout();
+
+        DatabaseTestUtil.printTestHeader("State Reset On Return");
+        testStateResetOnReturn();
+
+        DatabaseTestUtil.printTestHeader("Double Close");
+        testDoubleClose();
+
+        DatabaseTestUtil.printTestHeader("Stats And Leak Detection");
+        testStatsAndLeakDetection();
+
+        DatabaseTestUtil.printTestHeader("Statement Cache");
+        testStatementCache();
+
+        System.out.println("ConnectionPoolTest finished: passed=" + passed + " failed=" + failed);
+    }
+
+    private static ConnectionPool createPool(int maxSize, long timeoutMs) throws Exception {
+        return createPool(maxSize, timeoutMs, 0);
+    }
+
+    private static ConnectionPool createPool(int maxSize, long timeoutMs, long leakThresholdMs) throws Exception {
+        Properties props = new Properties();
+        try (InputStream in = ConnectionPoolTest.class.getResourceAsStream("/application.properties")) {
+            props.load(in);
+        }
+        props.setProperty("pool.max.size", String.valueOf(maxSize));
+        props.setProperty("pool.min.idle", "0");
+        props.setProperty("pool.connection.timeout.ms", String.valueOf(timeoutMs));
+        props.setProperty("pool.leak.detection.threshold.ms", String.valueOf(leakThresholdMs));
+        return new ConnectionPool(props);
+    }
+
+    private static int backendPid(Connection conn) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT pg_backend_pid()");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    private static void testConnectionReuse() {
+        ConnectionPool pool = null;
+        try {
+            pool = createPool(2, 1000);
+            int firstPid;
+            try (Connection conn = pool.getConnection()) {
+                firstPid = backendPid(conn);
+            }
+            int secondPid;
+            try (Connection conn = pool.getConnection()) {
+                secondPid = backendPid(conn);
+            }
+            boolean ok = firstPid > 0 && firstPid == secondPid && pool.getTotalConnections() == 1;
+            DatabaseTestUtil.printTestResult("testConnectionReuse", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testConnectionReuse exception:");
+            e.printStackTrace();
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    private static void testAcquisitionTimeout() {
+        ConnectionPool pool = null;
+        try {
+            pool = createPool(1, 200);
+            boolean timedOut = false;
+            boolean heldOpen;
+            try (Connection held = pool.getConnection()) {
+                heldOpen = !held.isClosed();
+                try {
+                    Connection second = pool.getConnection();
+                    // should not get here
+                    second.close();
+                } catch (SQLTimeoutException expected) {
+                    timedOut = true;
+                }
+            }
+            boolean recovered;
+            try (Connection again = pool.getConnection()) {
+                recovered = again != null && !again.isClosed();
+            }
+            boolean ok = heldOpen && timedOut && recovered;
+            DatabaseTestUtil.printTestResult("testAcquisitionTimeout", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testAcquisitionTimeout exception:");
+            e.printStackTrace();
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    private static void testStateResetOnReturn() {
+        ConnectionPool pool = null;
+        try {
+            pool = createPool(1, 1000);
+            try (Connection conn = pool.getConnection()) {
+                conn.setAutoCommit(false);
+                conn.setReadOnly(true);
+            }
+            boolean ok;
+            try (Connection conn = pool.getConnection()) {
+                ok = conn.getAutoCommit() && !conn.isReadOnly();
+            }
+            DatabaseTestUtil.printTestResult("testStateResetOnReturn", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testStateResetOnReturn exception:");
+            e.printStackTrace();
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    private static void testDoubleClose() {
+        ConnectionPool pool = null;
+        try {
+            pool = createPool(1, 1000);
+            Connection stale = pool.getConnection();
+            stale.close();
+            stale.close();
+            boolean ok;
+            try (Connection conn = pool.getConnection()) {
+                ok = stale.isClosed() && !conn.isClosed() && pool.getActiveConnections() == 1;
+            }
+            DatabaseTestUtil.printTestResult("testDoubleClose", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testDoubleClose exception:");
+            e.printStackTrace();
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    private static void testStatsAndLeakDetection() {
+        ConnectionPool pool = null;
+        try {
+            pool = createPool(2, 1000, 200);
+            boolean whileHeld;
+            try (Connection conn = pool.getConnection()) {
+                Thread.sleep(1200);
+                ConnectionPoolStats stats = pool.getStats();
+                whileHeld = !conn.isClosed() && stats.getActiveConnections() == 1 && stats.getLeaksDetected() == 1
+                        && stats.getAcquireCount() == 1;
+            }
+            ConnectionPoolStats after = pool.getStats();
+            boolean ok = whileHeld && after.getActiveConnections() == 0 && after.getIdleConnections() == 1
+                    && after.getConnections().size() == 1 && after.getConnections().get(0).getBorrowCount() == 1
+                    && after.getUsageMaxMillis() >= 1200;
+            pool.printPoolStats();
+            DatabaseTestUtil.printTestResult("testStatsAndLeakDetection", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testStatsAndLeakDetection exception:");
+            e.printStackTrace();
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    private static void testStatementCache() {
+        ConnectionPool pool = null;
+        try {
+            pool = createPool(1, 1000);
+            String sql = "SELECT ?::int + 1";
+            int first;
+            int second;
+            int nested;
+            try (Connection conn = pool.getConnection()) {
+                first = selectPlusOne(conn, sql, 1);
+            }
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement outer = conn.prepareStatement(sql)) {
+                outer.setInt(1, 2);
+                try (ResultSet rs = outer.executeQuery()) {
+                    second = rs.next() ? rs.getInt(1) : -1;
+                }
+                // same SQL while the cached statement is still checked out
+                nested = selectPlusOne(conn, sql, 3);
+            }
+            ConnectionPoolStats stats = pool.getStats();
+            boolean ok = first == 2 && second == 3 && nested == 4
+                    && stats.getStatementCacheHits() == 1 && stats.getStatementCacheMisses() == 2
+                    && stats.getConnections().get(0).getCachedStatements() == 1;
+            DatabaseTestUtil.printTestResult("testStatementCache", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testStatementCache exception:");
+            e.printStackTrace();
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    private static int selectPlusOne(Connection conn, String sql, int value) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, value);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+}
@@ -11,7 +11,9 @@ import com.shopjoy.model.User;
 import com.shopjoy.util.DatabaseTestUtil;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class InventoryDAOTest {
     private static int passed = 0;
@@ -40,6 +42,9 @@ public class InventoryDAOTest {
             DatabaseTestUtil.printTestHeader("Decrement Stock");
             testDecrementStock(invDao, prodDao, catDao, userDao);
 
+            DatabaseTestUtil.printTestHeader("Decrement Stock Multi Line");
+            testDecrementStockMultiLine(invDao, prodDao, catDao, userDao);
+
             DatabaseTestUtil.printTestHeader("Find Low Stock Items");
             testFindLowStockItems(invDao, prodDao, catDao, userDao);
 
@@ -198,6 +203,35 @@ public class InventoryDAOTest {
         }
     }
 
+    private static void testDecrementStockMultiLine(InventoryDAO invDao, ProductDAO pDao, CategoryDAO cDao, UserDAO uDao) {
+        try {
+            DatabaseTestUtil.clearAllTables();
+            Category c = createTestCategory(cDao, "multicat");
+            Product p1 = createTestProduct(pDao, c.getCategoryId(), "multi1");
+            Product p2 = createTestProduct(pDao, c.getCategoryId(), "multi2");
+            Product p3 = createTestProduct(pDao, c.getCategoryId(), "multi3");
+            createTestInventory(invDao, p1.getProductId(), 20, 5);
+            createTestInventory(invDao, p2.getProductId(), 3, 5);
+
+            Map<Integer, Integer> amounts = new LinkedHashMap<>();
+            amounts.put(p1.getProductId(), 15);
+            amounts.put(p2.getProductId(), 4);  // not enough stock
+            amounts.put(p3.getProductId(), 1);  // no inventory row
+            List<Integer> failedLines = invDao.decrementStock(amounts);
+
+            boolean ok = failedLines.size() == 2
+                    && failedLines.contains(p2.getProductId()) && failedLines.contains(p3.getProductId())
+                    && invDao.findByProductId(p1.getProductId()).getQuantityInStock() == 5
+                    && invDao.findByProductId(p2.getProductId()).getQuantityInStock() == 3;
+            DatabaseTestUtil.printTestResult("testDecrementStockMultiLine", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testDecrementStockMultiLine exception:");
+            e.printStackTrace();
+        }
+    }
+
     private static void testFindLowStockItems(InventoryDAO invDao, ProductDAO pDao, CategoryDAO cDao, UserDAO uDao) {
         try {
             DatabaseTestUtil.clearAllTables();
@@ -16,6 +16,14 @@
          runTest("OrderItemDAOTest", () -> OrderItemDAOTest.main(new String[0]));
          runTest("ReviewDAOTest", () -> ReviewDAOTest.main(new String[0]));
          runTest("AddressDAOTest", () -> AddressDAOTest.main(new String[0]));
+         runTest("ConnectionPoolTest", () -> ConnectionPoolTest.main(new String[0]));
+         runTest("TransactionManagerTest", () -> TransactionManagerTest.main(new String[0]));
+         runTest("BoundedCacheTest", () -> BoundedCacheTest.main(new String[0]));
+         runTest("SingleFlightTest", () -> SingleFlightTest.main(new String[0]));
+         runTest("ProductCacheTest", () -> ProductCacheTest.main(new String[0]));
+         runTest("CategoryCacheTest", () -> CategoryCacheTest.main(new String[0]));
+         runTest("CacheSnapshotTest", () -> CacheSnapshotTest.main(new String[0]));
+         runTest("CacheChangeListenerTest", () -> CacheChangeListenerTest.main(new String[0]));
 
          System.out.println("============================================");
          System.out.println("TEST SUITE COMPLETE");
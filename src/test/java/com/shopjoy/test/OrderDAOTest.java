@@ -7,6 +7,7 @@ import com.shopjoy.model.OrderStatus;
 import com.shopjoy.model.PaymentStatus;
 import com.shopjoy.model.User;
 import com.shopjoy.util.DatabaseTestUtil;
+import com.shopjoy.util.TransactionManager;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
@@ -46,6 +47,12 @@ public class OrderDAOTest {
             DatabaseTestUtil.printTestHeader("Find Recent Orders");
             testFindRecentOrders(orderDAO, userDAO);
 
+            DatabaseTestUtil.printTestHeader("Keyset Page");
+            testFindPage(orderDAO, userDAO);
+
+            DatabaseTestUtil.printTestHeader("Stream All");
+            testStreamAll(orderDAO, userDAO);
+
             DatabaseTestUtil.printTestHeader("Get Total Revenue");
             testGetTotalRevenue(orderDAO, userDAO);
 
@@ -220,6 +227,67 @@ public class OrderDAOTest {
         }
     }
 
+    private static void testFindPage(OrderDAO dao, UserDAO udao) {
+        try {
+            DatabaseTestUtil.clearAllTables();
+            User u = createTestUser(udao, "puser", "puser@test.com");
+            LocalDateTime sameDate = LocalDateTime.now().withNano(0);
+            // 7 orders, two sharing a timestamp so the id tiebreak is exercised
+            for (int i = 0; i < 6; i++) {
+                createTestOrder(dao, u.getUserId(), i % 2 == 0 ? OrderStatus.PENDING : OrderStatus.SHIPPED, PaymentStatus.UNPAID, i + 1, sameDate.minusDays(i));
+            }
+            createTestOrder(dao, u.getUserId(), OrderStatus.PENDING, PaymentStatus.UNPAID, 99, sameDate);
+
+            List<Integer> seen = new ArrayList<>();
+            LocalDateTime afterDate = null;
+            Integer afterId = null;
+            List<Order> page;
+            do {
+                page = dao.findPage(null, afterDate, afterId, 3);
+                for (Order o : page) seen.add(o.getOrderId());
+                if (!page.isEmpty()) {
+                    afterDate = page.get(page.size() - 1).getOrderDate();
+                    afterId = page.get(page.size() - 1).getOrderId();
+                }
+            } while (page.size() == 3);
+
+            List<Order> pending = dao.findPage(OrderStatus.PENDING, null, null, 10);
+            boolean ok = seen.size() == 7 && seen.stream().distinct().count() == 7 && pending.size() == 4
+                    && dao.countByStatus().get(OrderStatus.SHIPPED) == 3;
+            DatabaseTestUtil.printTestResult("testFindPage", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testFindPage exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testStreamAll(OrderDAO dao, UserDAO udao) {
+        try {
+            DatabaseTestUtil.clearAllTables();
+            User u = createTestUser(udao, "suser", "suser@test.com");
+            for (int i = 0; i < 5; i++) {
+                createTestOrder(dao, u.getUserId(), OrderStatus.PENDING, PaymentStatus.UNPAID, 10, LocalDateTime.now().minusDays(i));
+            }
+            double[] sum = {0};
+            boolean[] inCursor = {true};
+            long rows = dao.streamAll(o -> {
+                sum[0] += o.getTotalAmount();
+                // cursor reads need a non-autocommit connection
+                inCursor[0] &= TransactionManager.isActive();
+            });
+            long inRange = dao.streamByDateRange(LocalDateTime.now().minusDays(2).minusHours(1), LocalDateTime.now(), o -> { });
+            boolean ok = rows == 5 && sum[0] == 50 && inCursor[0] && inRange == 3 && !TransactionManager.isActive();
+            DatabaseTestUtil.printTestResult("testStreamAll", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testStreamAll exception:");
+            e.printStackTrace();
+        }
+    }
+
     private static void testFindRecentOrders(OrderDAO dao, UserDAO udao) {
         try {
             DatabaseTestUtil.clearAllTables();
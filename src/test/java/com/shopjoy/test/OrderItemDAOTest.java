@@ -44,6 +44,9 @@ public class OrderItemDAOTest {
             DatabaseTestUtil.printTestHeader("Save OrderItems (batch)");
             testSaveOrderItems(oiDao, orderDao, productDao, catDao, userDao);
 
+            DatabaseTestUtil.printTestHeader("Update/Delete OrderItems (batch)");
+            testUpdateAndDeleteAll(oiDao, orderDao, productDao, catDao, userDao);
+
             DatabaseTestUtil.printTestHeader("Calculate Order Total");
             testCalculateOrderTotal(oiDao, orderDao, productDao, catDao, userDao);
 
@@ -222,6 +225,44 @@ public class OrderItemDAOTest {
         }
     }
 
+    private static void testUpdateAndDeleteAll(OrderItemDAO oiDao, OrderDAO orderDao, ProductDAO pDao, CategoryDAO cDao, UserDAO uDao) {
+        try {
+            DatabaseTestUtil.clearAllTables();
+            User u = createTestUser(uDao, "bulkuser", "bulk@test.com");
+            Category c = createTestCategory(cDao, "catbulk");
+            Order o = createTestOrder(orderDao, u.getUserId());
+            List<OrderItem> items = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Product p = createTestProduct(pDao, c.getCategoryId(), "bulkprod" + i, 20.0);
+                OrderItem it = new OrderItem();
+                it.setOrderId(o.getOrderId());
+                it.setProductId(p.getProductId());
+                it.setQuantity(1);
+                it.setUnitPrice(20.0);
+                it.setSubtotal(20.0);
+                items.add(it);
+            }
+            oiDao.saveAll(items);
+            boolean keysSet = items.stream().allMatch(it -> it.getOrderItemId() > 0);
+
+            for (OrderItem it : items) {
+                it.setQuantity(3);
+                it.setSubtotal(60.0);
+            }
+            oiDao.updateAll(items);
+            boolean updated = Math.abs(oiDao.calculateOrderTotal(o.getOrderId()) - 240.0) < 0.001;
+
+            int deleted = oiDao.deleteAll(List.of(items.get(0).getOrderItemId(), items.get(1).getOrderItemId()));
+            boolean ok = keysSet && updated && deleted == 2 && oiDao.findByOrderId(o.getOrderId()).size() == 2;
+            DatabaseTestUtil.printTestResult("testUpdateAndDeleteAll", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testUpdateAndDeleteAll exception:");
+            e.printStackTrace();
+        }
+    }
+
     private static void testCalculateOrderTotal(OrderItemDAO oiDao, OrderDAO orderDao, ProductDAO pDao, CategoryDAO cDao, UserDAO uDao) {
         try {
             DatabaseTestUtil.clearAllTables();
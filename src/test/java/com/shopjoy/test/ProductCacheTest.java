@@ -0,0 +1,528 @@
+package com.shopjoy.test;
+
+import com.shopjoy.cache.CacheLoader;
+import com.shopjoy.cache.ProductCache;
+import com.shopjoy.model.Product;
+import com.shopjoy.util.AppConfig;
+import com.shopjoy.util.DatabaseTestUtil;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProductCacheTest {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("===== TESTING PRODUCT CACHE =====");
+
+        DatabaseTestUtil.printTestHeader("Update Patches Listings");
+        testUpdatePatchesListings();
+
+        DatabaseTestUtil.printTestHeader("Rename Evicts Affected Listings Only");
+        testRenameEvictsAffectedListingsOnly();
+
+        DatabaseTestUtil.printTestHeader("Add And Remove");
+        testAddAndRemove();
+
+        DatabaseTestUtil.printTestHeader("Catalog Indexes");
+        testCatalogIndexes();
+
+        DatabaseTestUtil.printTestHeader("Negative Caching");
+        testNegativeCaching();
+
+        DatabaseTestUtil.printTestHeader("Compact Storage");
+        testCompactStorage();
+
+        DatabaseTestUtil.printTestHeader("Subtree Listings");
+        testSubtreeListings();
+
+        DatabaseTestUtil.printTestHeader("Text Index");
+        testTextIndex();
+
+        DatabaseTestUtil.printTestHeader("Text Index At 100k Products");
+        testTextIndexAtScale();
+
+        DatabaseTestUtil.printTestHeader("Catalog Patches At 100k Products");
+        testCatalogPatchesAtScale();
+
+        ProductCache.getInstance().invalidateCache();
+        System.out.println("ProductCacheTest finished: passed=" + passed + " failed=" + failed);
+    }
+
+    private static void testUpdatePatchesListings() {
+        try {
+            ProductCache cache = seed();
+            Product repriced = product(1, "Phone X", 10, 899.0);
+            cache.productUpdated(repriced);
+
+            List<Product> search = cache.getSearchResults("phone");
+            List<Product> category = cache.getCategoryProducts(10);
+            boolean ok = search != null && search.get(0).getPrice() == 899.0
+                    && category != null && category.get(0).getPrice() == 899.0
+                    && cache.getSearchResults("laptop") != null
+                    && cache.getAllCachedProducts() != null
+                    && cache.getAllCachedProducts().contains(repriced);
+            DatabaseTestUtil.printTestResult("testUpdatePatchesListings", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testUpdatePatchesListings exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testRenameEvictsAffectedListingsOnly() {
+        try {
+            ProductCache cache = seed();
+            // Renamed into another search term and moved to another category
+            Product stand = product(1, "Laptop Phone Stand", 20, 49.0);
+            cache.productUpdated(stand);
+
+            // The catalog list stays cached, with the product moved into place
+            boolean ok = cache.getSearchResults("phone") == null
+                    && cache.getSearchResults("laptop") == null
+                    && cache.getSearchResults("cable") != null
+                    && cache.getCategoryProducts(10) == null
+                    && cache.getCategoryProducts(20) == null
+                    && cache.getCategoryProducts(30) != null
+                    && cache.getAllCachedProducts().equals(List.of(
+                            product(2, "Laptop Air", 20, 1299.0), stand, product(3, "USB Cable", 30, 9.0)));
+            DatabaseTestUtil.printTestResult("testRenameEvictsAffectedListingsOnly", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testRenameEvictsAffectedListingsOnly exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testAddAndRemove() {
+        try {
+            ProductCache cache = seed();
+            Product cablePro = product(4, "Cable Pro", 30, 19.0);
+            cache.productAdded(cablePro);
+            CacheLoader<List<Product>> noQuery = () -> {
+                throw new SQLException("should be served from the catalog index");
+            };
+            boolean addOk = cache.getSearchResults("cable") == null
+                    && cache.getCategoryProducts(30) == null
+                    && cache.getSearchResults("phone") != null
+                    && cache.getCategoryProducts(10) != null
+                    && cache.isCacheValid()
+                    && cache.getAllCachedProducts().size() == 4
+                    && cache.getAllCachedProducts().get(0).equals(cablePro)
+                    && cache.loadCategoryProducts(30, noQuery).equals(
+                            List.of(cablePro, product(3, "USB Cable", 30, 9.0)));
+
+            cache.productRemoved(1);
+            List<Product> search = cache.getSearchResults("phone");
+            List<Product> category = cache.getCategoryProducts(10);
+            boolean removeOk = search != null && search.isEmpty()
+                    && category != null && category.isEmpty()
+                    && cache.getProduct(1) == null
+                    && cache.getSearchResults("laptop") != null;
+            boolean ok = addOk && removeOk;
+            DatabaseTestUtil.printTestResult("testAddAndRemove", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testAddAndRemove exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testCatalogIndexes() {
+        try {
+            ProductCache cache = ProductCache.getInstance();
+            cache.invalidateCache();
+            Product phone = product(1, "Phone X", 10, 999.0);
+            Product laptop = product(2, "Laptop Air", 20, 1299.0);
+            Product cable = product(3, "USB Cable", 10, 9.0);
+            phone.setSku("PH-1");
+            phone.setBrand("Acme");
+            phone.setActive(true);
+            laptop.setSku("LP-1");
+            laptop.setActive(true);
+            cable.setSku("CB-1");
+            cable.setBrand("Acme");
+            cache.cacheProductList(List.of(laptop, phone, cable));
+
+            CacheLoader<List<Product>> noQuery = () -> {
+                throw new SQLException("should be served from the index");
+            };
+            boolean indexed = laptop.equals(cache.findBySku("LP-1", () -> null))
+                    && cache.findBySku("NONE", () -> laptop) == null
+                    && cache.findByBrand("Acme", noQuery).equals(List.of(phone, cable))
+                    && cache.findByPriceRange(9.0, 999.0, noQuery).equals(List.of(cable, phone))
+                    && cache.findByPriceRange(10.0, 20.0, noQuery).isEmpty()
+                    && cache.findActiveProducts(noQuery).equals(List.of(laptop, phone))
+                    && cache.loadCategoryProducts(10, noQuery).equals(List.of(phone, cable));
+
+            Product cheaper = product(2, "Laptop Air", 20, 499.0);
+            cheaper.setSku("LP-1");
+            cache.productUpdated(cheaper);
+            boolean patched = cache.findByPriceRange(0, 500.0, noQuery).equals(List.of(cable, cheaper));
+            cache.productRemoved(3);
+            // Sizes kept up to date by patches match those of a fresh load
+            long patchedBytes = catalogBytes(cache);
+            cache.cacheProductList(List.of(cheaper, phone));
+            boolean weighed = patchedBytes == catalogBytes(cache);
+
+            cache.invalidateCache();
+            boolean fallsBack = cache.findActiveProducts(() -> List.of(cable)).equals(List.of(cable));
+
+            boolean ok = indexed && patched && weighed && fallsBack;
+            DatabaseTestUtil.printTestResult("testCatalogIndexes", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testCatalogIndexes exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testNegativeCaching() {
+        try {
+            ProductCache cache = seed();
+            AtomicInteger queries = new AtomicInteger();
+            CacheLoader<Product> notFound = () -> {
+                queries.incrementAndGet();
+                return null;
+            };
+            CacheLoader<List<Product>> noMatches = () -> {
+                queries.incrementAndGet();
+                return List.of();
+            };
+            boolean missesCached = cache.loadProduct(99, notFound) == null
+                    && cache.loadProduct(99, notFound) == null
+                    && cache.loadSearchResults("tablet", noMatches).isEmpty()
+                    && cache.loadSearchResults("tablet", noMatches).isEmpty()
+                    && queries.get() == 2;
+
+            Product tablet = product(99, "Tablet S", 10, 499.0);
+            cache.productAdded(tablet);
+            boolean insertClears = tablet.equals(cache.loadProduct(99, notFound))
+                    && cache.loadSearchResults("tablet", () -> List.of(tablet)).equals(List.of(tablet));
+
+            cache.productRemoved(2);
+            int before = queries.get();
+            boolean deletedCached = cache.loadProduct(2, notFound) == null && queries.get() == before;
+
+            boolean ok = missesCached && insertClears && deletedCached;
+            DatabaseTestUtil.printTestResult("testNegativeCaching", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testNegativeCaching exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testCompactStorage() {
+        try {
+            ProductCache cache = seed();
+            Product speaker = product(4, "Speaker Mini", 10, 59.0);
+            speaker.setDescription("Loud. ".repeat(200));
+            speaker.setBrand(new String("Acme"));
+            speaker.setCreatedAt(LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_000_000));
+            cache.cacheProduct(speaker);
+
+            Product read = cache.getProduct(4);
+            boolean roundTrip = read != null && read != speaker
+                    && speaker.getDescription().equals(read.getDescription())
+                    && "Acme".equals(read.getBrand())
+                    && speaker.getCreatedAt().equals(read.getCreatedAt())
+                    && read.getUpdatedAt() == null;
+
+            // Callers get copies; changing one does not change the cache
+            read.setPrice(1.0);
+            cache.getSearchResults("phone").get(0).setPrice(1.0);
+            boolean isolated = cache.getProduct(4).getPrice() == 59.0
+                    && cache.getSearchResults("phone").get(0).getPrice() == 999.0;
+
+            // A listing builds each product once, however often it is read
+            List<Product> all = cache.getAllCachedProducts();
+            boolean builtOnce = all.get(0) == all.get(0) && all.get(0) != cache.getAllCachedProducts().get(0);
+
+            boolean ok = roundTrip && isolated && builtOnce;
+            DatabaseTestUtil.printTestResult("testCompactStorage", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testCompactStorage exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testSubtreeListings() {
+        try {
+            ProductCache cache = seed();
+            int[] electronics = {10, 20};
+            CacheLoader<List<Product>> noQuery = () -> {
+                throw new SQLException("should be served from the catalog index");
+            };
+            Product phone = product(1, "Phone X", 10, 999.0);
+            Product laptop = product(2, "Laptop Air", 20, 1299.0);
+            boolean indexed = cache.loadSubtreeProducts(1, electronics, noQuery).equals(List.of(laptop, phone));
+
+            cache.cacheSubtreeProducts(1, electronics, List.of(laptop, phone));
+            cache.productUpdated(product(1, "Phone X", 10, 899.0));
+            boolean patched = cache.getSubtreeProducts(1) != null
+                    && cache.getSubtreeProducts(1).get(1).getPrice() == 899.0;
+
+            // A product entering any covered category evicts the listing
+            cache.productUpdated(product(3, "USB Cable", 20, 9.0));
+            boolean movedIn = cache.getSubtreeProducts(1) == null;
+
+            cache.cacheSubtreeProducts(1, electronics, List.of(laptop, phone));
+            cache.productAdded(product(4, "Phone Mini", 10, 499.0));
+            boolean added = cache.getSubtreeProducts(1) == null;
+
+            cache.cacheSubtreeProducts(1, electronics, List.of(laptop, phone));
+            cache.invalidateSubtrees();
+            boolean hierarchyChanged = cache.getSubtreeProducts(1) == null;
+
+            boolean ok = indexed && patched && movedIn && added && hierarchyChanged;
+            DatabaseTestUtil.printTestResult("testSubtreeListings", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testSubtreeListings exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testTextIndex() {
+        try {
+            ProductCache cache = ProductCache.getInstance();
+            cache.invalidateCache();
+            Product phone = product(1, "Phone X", 10, 999.0);
+            Product laptop = product(2, "Laptop Air", 20, 1299.0);
+            Product cable = product(3, "USB-C Cable", 30, 9.0);
+            phone.setBrand("Acme");
+            phone.setDescription("Charges over USB-C");
+            laptop.setSku("LP-1");
+            cable.setBrand("Acme");
+            cache.cacheProductList(List.of(laptop, phone, cable));
+            CacheLoader<List<Product>> noQuery = () -> {
+                throw new SQLException("should be served from the text index");
+            };
+
+            boolean found = cache.search("usb", noQuery).equals(List.of(phone, cable))
+                    && cache.search("ACME cab", noQuery).equals(List.of(cable))
+                    && cache.search("lp-1", noQuery).equals(List.of(laptop))
+                    && cache.search("tablet", noQuery).isEmpty();
+
+            Product tablet = product(4, "Tablet S", 10, 499.0);
+            cache.productAdded(tablet);
+            cache.productUpdated(product(2, "Notebook Air", 20, 1299.0));
+            cache.productRemoved(3);
+            boolean kept = cache.search("tab", noQuery).equals(List.of(tablet))
+                    && cache.search("laptop", noQuery).isEmpty()
+                    && cache.search("notebook", noQuery).size() == 1
+                    && cache.search("usb", noQuery).equals(List.of(phone));
+
+            // No words to look up: nothing matches, with or without the index
+            boolean noWords = cache.search("%", noQuery).isEmpty();
+
+            // Without the index, searches are cached by their words and
+            // evicted when a product stops or starts matching those words
+            cache.invalidateCache();
+            AtomicInteger queries = new AtomicInteger();
+            boolean cold = cache.search("Acme", () -> {
+                queries.incrementAndGet();
+                return List.of(phone);
+            }).equals(List.of(phone))
+                    && cache.search(" acme! ", noQuery).equals(List.of(phone))
+                    && cache.search("globex", () -> {
+                        queries.incrementAndGet();
+                        return List.of();
+                    }).isEmpty()
+                    && cache.search("GLOBEX", noQuery).isEmpty()
+                    && cache.search("%", noQuery).isEmpty()
+                    && queries.get() == 2;
+            Product rebranded = product(1, "Phone X", 10, 999.0);
+            rebranded.setBrand("Globex");
+            cache.productUpdated(rebranded);
+            boolean evicted = cache.getSearchResults("acme") == null && cache.getSearchResults("globex") == null;
+
+            // Words are lowered the same way whatever the default locale
+            Locale defaultLocale = Locale.getDefault();
+            Locale.setDefault(Locale.forLanguageTag("tr"));
+            boolean rootLocale;
+            try {
+                rootLocale = ProductCache.searchWords("LIGHT Kit").equals(List.of("light", "kit"));
+            } finally {
+                Locale.setDefault(defaultLocale);
+            }
+
+            boolean ok = found && kept && noWords && cold && evicted && rootLocale;
+            DatabaseTestUtil.printTestResult("testTextIndex", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testTextIndex exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testTextIndexAtScale() {
+        try {
+            ProductCache cache = ProductCache.getInstance();
+            cache.invalidateCache();
+            List<Product> products = largeCatalog();
+            long buildStart = System.nanoTime();
+            cache.cacheProductList(products);
+            long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+            CacheLoader<List<Product>> noQuery = () -> {
+                throw new SQLException("should be served from the text index");
+            };
+            // Selective searches match a few dozen products at most; broad
+            // ones match thousands, and building that many results dominates
+            String[] selective = {"sku 4242", "model 99999", "globex charger series 12", "hooli model 7777"};
+            String[] broad = {"acme phone", "keyboard mouse"};
+            double selectiveMs = averageSearchMs(cache, selective, noQuery);
+            double broadMs = averageSearchMs(cache, broad, noQuery);
+            System.out.printf("Index build: %d ms, average selective search: %.3f ms, broad search: %.3f ms%n",
+                    buildMs, selectiveMs, broadMs);
+            for (String query : broad) {
+                System.out.println("  '" + query + "': " + cache.search(query, noQuery).size() + " results");
+            }
+            // The list and its text index are bounded together
+            long retained = catalogBytes(cache) + regionBytes(cache, "product.textIndex");
+            System.out.printf("Catalog and text index: %.1f MB of %d MB%n", retained / 1048576.0,
+                    AppConfig.CATALOG_CACHE_MAX_BYTES / 1048576);
+
+            boolean ok = cache.search("model 99999", noQuery).size() == 1
+                    && cache.search("sku 4242", noQuery).size() == 11
+                    && selectiveMs < 1 && broadMs < 5
+                    && regionBytes(cache, "product.textIndex") > 0 && retained < AppConfig.CATALOG_CACHE_MAX_BYTES;
+            DatabaseTestUtil.printTestResult("testTextIndexAtScale", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testTextIndexAtScale exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testCatalogPatchesAtScale() {
+        try {
+            ProductCache cache = ProductCache.getInstance();
+            cache.invalidateCache();
+            List<Product> products = largeCatalog();
+            cache.cacheProductList(products);
+            CacheLoader<List<Product>> noQuery = () -> {
+                throw new SQLException("should be served from the catalog index");
+            };
+
+            // Products only in the catalog, so each update finds the old
+            // version there; every update is followed by an indexed read
+            int updates = 500;
+            long start = System.nanoTime();
+            for (int i = 0; i < updates; i++) {
+                Product p = products.get(i * 197 % products.size());
+                p.setPrice(5.0);
+                cache.productUpdated(p);
+                cache.findByPriceRange(5.0, 5.0, noQuery);
+            }
+            double avgMs = (System.nanoTime() - start) / 1_000_000.0 / updates;
+
+            // Inserts and renames are sorted in; these all land at the end
+            int inserts = 600;
+            start = System.nanoTime();
+            for (int i = 0; i < inserts; i++) {
+                cache.productAdded(product(200_000 + i, "Zoom Lens " + i, 7, 5.0));
+                Product renamed = products.get(i * 211 % products.size());
+                renamed.setProductName("Zoom Cap " + i);
+                cache.productUpdated(renamed);
+            }
+            double avgInsertMs = (System.nanoTime() - start) / 1_000_000.0 / (2 * inserts);
+            System.out.printf("Average catalog update: %.3f ms, insert or rename: %.3f ms%n", avgMs, avgInsertMs);
+
+            List<Product> all = cache.getAllCachedProducts();
+            boolean sorted = true;
+            for (int i = 1; i < all.size(); i++) {
+                sorted &= all.get(i - 1).getProductName().compareToIgnoreCase(all.get(i).getProductName()) <= 0;
+            }
+            boolean ok = cache.isCacheValid()
+                    && cache.findByPriceRange(5.0, 5.0, noQuery).size() >= updates + inserts
+                    && all.size() == products.size() + inserts && sorted
+                    && all.get(all.size() - 1).getProductName().startsWith("Zoom")
+                    && avgMs < 5 && avgInsertMs < 5;
+            DatabaseTestUtil.printTestResult("testCatalogPatchesAtScale", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testCatalogPatchesAtScale exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static double averageSearchMs(ProductCache cache, String[] queries, CacheLoader<List<Product>> loader)
+            throws SQLException {
+        for (int i = 0; i < 200; i++) {
+            cache.search(queries[i % queries.length], loader);
+        }
+        int runs = 1000;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            cache.search(queries[i % queries.length], loader);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / runs;
+    }
+
+    private static List<Product> largeCatalog() {
+        String[] brands = {"Acme", "Globex", "Initech", "Umbrella", "Hooli"};
+        String[] kinds = {"Phone", "Laptop", "Cable", "Charger", "Speaker", "Monitor", "Keyboard", "Mouse"};
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= 100_000; i++) {
+            Product p = product(i, kinds[i % kinds.length] + " Model " + i, i % 50, 10 + i % 1000);
+            p.setBrand(brands[i % brands.length]);
+            p.setSku("SKU-" + i);
+            p.setDescription("A " + kinds[(i / 8) % kinds.length].toLowerCase() + " accessory, series " + i % 97);
+            products.add(p);
+        }
+        return products;
+    }
+
+    private static long catalogBytes(ProductCache cache) {
+        return regionBytes(cache, "product.catalog");
+    }
+
+    private static long regionBytes(ProductCache cache, String region) {
+        return cache.getStats().stream().filter(s -> s.getRegion().equals(region))
+                .findFirst().orElseThrow().getWeightedSize();
+    }
+
+    private static ProductCache seed() {
+        ProductCache cache = ProductCache.getInstance();
+        cache.invalidateCache();
+        Product phone = product(1, "Phone X", 10, 999.0);
+        Product laptop = product(2, "Laptop Air", 20, 1299.0);
+        Product cable = product(3, "USB Cable", 30, 9.0);
+        cache.cacheProductList(List.of(laptop, phone, cable));
+        cache.cacheSearchResults("phone", List.of(phone));
+        cache.cacheSearchResults("laptop", List.of(laptop));
+        cache.cacheSearchResults("cable", List.of(cable));
+        cache.cacheCategoryProducts(10, List.of(phone));
+        cache.cacheCategoryProducts(20, List.of(laptop));
+        cache.cacheCategoryProducts(30, List.of(cable));
+        return cache;
+    }
+
+    private static Product product(int id, String name, int categoryId, double price) {
+        Product p = new Product();
+        p.setProductId(id);
+        p.setProductName(name);
+        p.setCategoryId(categoryId);
+        p.setPrice(price);
+        return p;
+    }
+}
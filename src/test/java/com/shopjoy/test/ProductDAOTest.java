@@ -8,6 +8,8 @@ import com.shopjoy.util.DatabaseTestUtil;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class ProductDAOTest {
@@ -28,6 +30,9 @@ public class ProductDAOTest {
             DatabaseTestUtil.printTestHeader("Find All Products");
             testFindAllProducts(productDAO);
 
+            DatabaseTestUtil.printTestHeader("Find All By IDs");
+            testFindAllByIds(productDAO);
+
             DatabaseTestUtil.printTestHeader("Update Product");
             testUpdateProduct(productDAO);
 
@@ -119,6 +124,26 @@ public class ProductDAOTest {
         }
     }
 
+    private static void testFindAllByIds(ProductDAO dao) {
+        try {
+            DatabaseTestUtil.clearAllTables();
+            Category cat = DatabaseTestUtil.insertTestCategory();
+            Product a = createTestProduct(dao, cat.getCategoryId(), "Batch A", 10.0, "BAT-001");
+            createTestProduct(dao, cat.getCategoryId(), "Batch B", 20.0, "BAT-002");
+            Product c = createTestProduct(dao, cat.getCategoryId(), "Batch C", 30.0, "BAT-003");
+            List<Product> found = dao.findAllByIds(Arrays.asList(a.getProductId(), c.getProductId(), -1));
+            List<Product> none = dao.findAllByIds(Collections.emptyList());
+            boolean ok = found.size() == 2 && none.isEmpty()
+                    && found.stream().allMatch(x -> x.getProductId() == a.getProductId() || x.getProductId() == c.getProductId());
+            DatabaseTestUtil.printTestResult("testFindAllByIds", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testFindAllByIds exception:");
+            e.printStackTrace();
+        }
+    }
+
     private static void testUpdateProduct(ProductDAO dao) {
         try {
             DatabaseTestUtil.clearAllTables();
@@ -0,0 +1,167 @@
+package com.shopjoy.test;
+
+import com.shopjoy.dao.OrderDAO;
+import com.shopjoy.model.Order;
+import com.shopjoy.model.OrderStatus;
+import com.shopjoy.model.PaymentStatus;
+import com.shopjoy.model.User;
+import com.shopjoy.util.AppConfig;
+import com.shopjoy.util.DatabaseTestUtil;
+import com.shopjoy.util.DbConfig;
+import com.shopjoy.util.TransactionManager;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * RowMappingBenchmark - Compares the bytes allocated per row when scanning
+ * 100k orders with the old label-based mapping (Timestamp conversion,
+ * valueOf(toUpperCase()) enum parsing) against the index-based RowMapper used
+ * by OrderDAO.
+ *
+ * Both runs stream through the same server-side cursor, so driver allocations
+ * are included equally in both numbers. Needs a HotSpot JVM for per-thread
+ * allocation counters.
+ */
+public class RowMappingBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int ROUNDS = 5;
+
+    private static final String SCAN_SQL = "SELECT order_id, user_id, order_date, total_amount, status, shipping_address, " +
+            "payment_method, payment_status, notes, created_at, updated_at FROM orders ORDER BY order_date DESC";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        System.out.println("========================================");
+        System.out.println("      ROW MAPPING BENCHMARK             ");
+        System.out.println("========================================");
+
+        OrderDAO orderDAO = new OrderDAO();
+        try {
+            seedOrders();
+
+            // Warm up both paths so JIT compilation is not measured
+            scanByLabel();
+            orderDAO.streamAll(RowMappingBenchmark::consume);
+
+            long[] labelBytes = new long[ROUNDS];
+            long[] indexBytes = new long[ROUNDS];
+            long labelMillis = 0;
+            long indexMillis = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                scanByLabel();
+                labelMillis += (System.nanoTime() - start) / 1_000_000;
+                labelBytes[i] = allocatedBytes() - bytes;
+
+                bytes = allocatedBytes();
+                start = System.nanoTime();
+                orderDAO.streamAll(RowMappingBenchmark::consume);
+                indexMillis += (System.nanoTime() - start) / 1_000_000;
+                indexBytes[i] = allocatedBytes() - bytes;
+            }
+
+            printStats("Label-based mapping", labelBytes, labelMillis);
+            printStats("Index-based RowMapper", indexBytes, indexMillis);
+            double saved = 1.0 - (double) min(indexBytes) / min(labelBytes);
+            System.out.printf("\nAllocation reduction per row: %.1f%%\n", saved * 100.0);
+        } catch (Exception e) {
+            System.err.println("Benchmark interrupted: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            DatabaseTestUtil.clearAllTables();
+            DbConfig.shutdown();
+        }
+    }
+
+    private static void seedOrders() throws SQLException {
+        DatabaseTestUtil.clearAllTables();
+        User user = DatabaseTestUtil.insertTestUser();
+        String sql = "INSERT INTO orders (user_id, order_date, total_amount, status, shipping_address, " +
+                "payment_method, payment_status, notes) " +
+                "SELECT ?, CURRENT_TIMESTAMP - (g * INTERVAL '1 minute'), (g % 500) + 0.99, " +
+                "(ARRAY['pending','processing','shipped','delivered','cancelled'])[1 + g % 5], " +
+                "'123 Main St, City, State', 'Credit Card', " +
+                "(ARRAY['unpaid','paid','refunded'])[1 + g % 3], NULL " +
+                "FROM generate_series(1, ?) AS g";
+        try (Connection conn = DbConfig.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, user.getUserId());
+            ps.setInt(2, ROWS);
+            ps.executeUpdate();
+        }
+        System.out.println("Seeded " + ROWS + " orders");
+    }
+
+    /**
+     * The mapping OrderDAO used before RowMapper, kept here as the baseline.
+     */
+    private static void scanByLabel() throws SQLException {
+        TransactionManager.inTransaction(() -> {
+            try (Connection conn = DbConfig.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(SCAN_SQL)) {
+                ps.setFetchSize(AppConfig.STREAM_FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        consume(mapByLabel(rs));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static Order mapByLabel(ResultSet rs) throws SQLException {
+        Order o = new Order();
+        o.setOrderId(rs.getInt("order_id"));
+        o.setUserId(rs.getInt("user_id"));
+        Timestamp od = rs.getTimestamp("order_date");
+        if (od != null)
+            o.setOrderDate(od.toLocalDateTime());
+        o.setTotalAmount(rs.getDouble("total_amount"));
+        String status = rs.getString("status");
+        o.setStatus(status != null ? OrderStatus.valueOf(status.trim().toUpperCase()) : null);
+        o.setShippingAddress(rs.getString("shipping_address"));
+        o.setPaymentMethod(rs.getString("payment_method"));
+        String pstat = rs.getString("payment_status");
+        o.setPaymentStatus(pstat != null ? PaymentStatus.valueOf(pstat.trim().toUpperCase()) : null);
+        o.setNotes(rs.getString("notes"));
+        Timestamp created = rs.getTimestamp("created_at");
+        if (created != null)
+            o.setCreatedAt(created.toLocalDateTime());
+        Timestamp updated = rs.getTimestamp("updated_at");
+        if (updated != null)
+            o.setUpdatedAt(updated.toLocalDateTime());
+        return o;
+    }
+
+    private static void consume(Order o) {
+        sink += o.getOrderId();
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    private static long min(long[] values) {
+        long min = Long.MAX_VALUE;
+        for (long v : values) min = Math.min(min, v);
+        return min;
+    }
+
+    private static void printStats(String name, long[] bytes, long totalMillis) {
+        System.out.println("\nMapping: " + name);
+        System.out.printf("Allocated per row (best of %d): %d bytes\n", ROUNDS, min(bytes) / ROWS);
+        System.out.printf("Average scan time: %dms\n", totalMillis / ROUNDS);
+    }
+}
@@ -0,0 +1,109 @@
+package com.shopjoy.test;
+
+import com.shopjoy.cache.SingleFlight;
+import com.shopjoy.util.DatabaseTestUtil;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("===== TESTING SINGLE FLIGHT =====");
+
+        DatabaseTestUtil.printTestHeader("Concurrent Loads Collapse");
+        testConcurrentLoadsCollapse();
+
+        DatabaseTestUtil.printTestHeader("Failure Propagates Then Retries");
+        testFailurePropagatesThenRetries();
+
+        System.out.println("SingleFlightTest finished: passed=" + passed + " failed=" + failed);
+    }
+
+    private static void testConcurrentLoadsCollapse() {
+        try {
+            SingleFlight<String, String> flight = new SingleFlight<>();
+            AtomicInteger loads = new AtomicInteger();
+            AtomicInteger wrongResults = new AtomicInteger();
+            CountDownLatch loaderStarted = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+
+            Thread leader = new Thread(() -> {
+                try {
+                    flight.load("all", () -> {
+                        loads.incrementAndGet();
+                        loaderStarted.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "rows";
+                    });
+                } catch (SQLException e) {
+                    wrongResults.incrementAndGet();
+                }
+            });
+            leader.start();
+            loaderStarted.await();
+
+            List<Thread> followers = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                Thread follower = new Thread(() -> {
+                    try {
+                        String value = flight.load("all", () -> {
+                            loads.incrementAndGet();
+                            return "rows";
+                        });
+                        if (!"rows".equals(value)) wrongResults.incrementAndGet();
+                    } catch (SQLException e) {
+                        wrongResults.incrementAndGet();
+                    }
+                });
+                followers.add(follower);
+                follower.start();
+            }
+            // Give followers time to join the in-flight load before it finishes
+            Thread.sleep(200);
+            release.countDown();
+            leader.join();
+            for (Thread follower : followers) follower.join();
+
+            boolean ok = loads.get() == 1 && wrongResults.get() == 0 && flight.inFlight() == 0;
+            System.out.println("Loader calls: " + loads.get());
+            DatabaseTestUtil.printTestResult("testConcurrentLoadsCollapse", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testConcurrentLoadsCollapse exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testFailurePropagatesThenRetries() {
+        try {
+            SingleFlight<Integer, String> flight = new SingleFlight<>();
+            boolean threw = false;
+            try {
+                flight.load(1, () -> {
+                    throw new SQLException("connection reset", "08006");
+                });
+            } catch (SQLException e) {
+                threw = "08006".equals(e.getSQLState());
+            }
+            String retried = flight.load(1, () -> "recovered");
+            boolean ok = threw && "recovered".equals(retried) && flight.inFlight() == 0;
+            DatabaseTestUtil.printTestResult("testFailurePropagatesThenRetries", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testFailurePropagatesThenRetries exception:");
+            e.printStackTrace();
+        }
+    }
+}
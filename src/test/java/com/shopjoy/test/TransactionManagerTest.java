@@ -0,0 +1,123 @@
+package com.shopjoy.test;
+
+import com.shopjoy.dao.CategoryDAO;
+import com.shopjoy.model.Category;
+import com.shopjoy.util.DatabaseTestUtil;
+import com.shopjoy.util.DbConfig;
+import com.shopjoy.util.TransactionManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class TransactionManagerTest {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("===== TESTING TRANSACTION MANAGER =====");
+
+        CategoryDAO catDao = new CategoryDAO();
+
+        DatabaseTestUtil.printTestHeader("Commit");
+        testCommit(catDao);
+
+        DatabaseTestUtil.printTestHeader("Rollback On Exception");
+        testRollbackOnException(catDao);
+
+        DatabaseTestUtil.printTestHeader("Rollback Only");
+        testRollbackOnly(catDao);
+
+        DatabaseTestUtil.printTestHeader("Nested Join");
+        testNestedJoin(catDao);
+
+        System.out.println("TransactionManagerTest finished: passed=" + passed + " failed=" + failed);
+    }
+
+    private static Category newCategory(String name) {
+        Category c = new Category();
+        c.setCategoryName(name);
+        c.setDescription("desc");
+        return c;
+    }
+
+    private static void testCommit(CategoryDAO catDao) {
+        try {
+            DatabaseTestUtil.clearAllTables();
+            TransactionManager.inTransaction(() -> {
+                catDao.save(newCategory("txcommit1"));
+                catDao.save(newCategory("txcommit2"));
+                return null;
+            });
+            boolean ok = catDao.findByName("txcommit1") != null && catDao.findByName("txcommit2") != null;
+            DatabaseTestUtil.printTestResult("testCommit", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testCommit exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testRollbackOnException(CategoryDAO catDao) {
+        try {
+            DatabaseTestUtil.clearAllTables();
+            boolean thrown = false;
+            try {
+                TransactionManager.inTransaction(() -> {
+                    catDao.save(newCategory("txfail"));
+                    throw new SQLException("simulated failure");
+                });
+            } catch (SQLException expected) {
+                thrown = true;
+            }
+            boolean ok = thrown && catDao.findByName("txfail") == null && !TransactionManager.isActive();
+            DatabaseTestUtil.printTestResult("testRollbackOnException", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testRollbackOnException exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testRollbackOnly(CategoryDAO catDao) {
+        try {
+            DatabaseTestUtil.clearAllTables();
+            Category result = TransactionManager.inTransaction(() -> {
+                Category saved = catDao.save(newCategory("txrollbackonly"));
+                TransactionManager.setRollbackOnly();
+                return saved;
+            });
+            boolean ok = result != null && catDao.findByName("txrollbackonly") == null;
+            DatabaseTestUtil.printTestResult("testRollbackOnly", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testRollbackOnly exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testNestedJoin(CategoryDAO catDao) {
+        try {
+            DatabaseTestUtil.clearAllTables();
+            boolean sameConnection = TransactionManager.inTransaction(() -> {
+                try (Connection outer = DbConfig.getConnection()) {
+                    return TransactionManager.inTransaction(() -> {
+                        catDao.save(newCategory("txnested"));
+                        try (Connection inner = DbConfig.getConnection()) {
+                            return inner == outer;
+                        }
+                    });
+                }
+            });
+            boolean ok = sameConnection && catDao.findByName("txnested") != null;
+            DatabaseTestUtil.printTestResult("testNestedJoin", ok);
+            if (ok) passed++; else failed++;
+        } catch (Exception e) {
+            failed++;
+            System.err.println("testNestedJoin exception:");
+            e.printStackTrace();
+        }
+    }
+}